@@ -0,0 +1,40 @@
+/*
+ * Copyright © 2017 The Diamongo authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.diamongo.benchmarks;
+
+import com.mongodb.MongoClient;
+import com.mongodb.MongoClientURI;
+
+/**
+ * Connection settings for benchmarks requiring a MongoDB server. A local mongod is expected unless the system
+ * property {@code diamongo.benchmark.uri} points elsewhere.
+ */
+final class BenchmarkDatabase {
+    static final String URI_PROPERTY = "diamongo.benchmark.uri";
+    static final String DEFAULT_URI = "mongodb://localhost:27017";
+    static final String DATABASE = "diamongo_benchmark";
+
+    private BenchmarkDatabase() {
+        // utility class
+    }
+
+    /**
+     * @return a new client for the configured server
+     */
+    static MongoClient connect() {
+        return new MongoClient(new MongoClientURI(System.getProperty(URI_PROPERTY, DEFAULT_URI)));
+    }
+}
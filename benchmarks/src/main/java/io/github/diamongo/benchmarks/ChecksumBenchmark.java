@@ -0,0 +1,91 @@
+/*
+ * Copyright © 2017 The Diamongo authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.diamongo.benchmarks;
+
+import io.github.diamongo.core.util.ChecksumUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures checksum calculation as performed by the annotation processor for migration sources of various sizes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChecksumBenchmark {
+    private static final String SOURCE_TEMPLATE = ""
+            + "    /**\n"
+            + "     * Renames the field {@code %1$s} of all documents.\n"
+            + "     */\n"
+            + "    public void migrate%1$s(MongoDatabase database) {\n"
+            + "\t\tdatabase.getCollection(\"users\")\n"
+            + "                .updateMany(exists(\"%1$s\"),   rename(\"%1$s\", \"%1$sRenamed\"));\r\n"
+            + "    }\n\n";
+
+    /**
+     * The approximate size of the source in characters.
+     */
+    @Param({"1024", "65536", "1048576"})
+    public int size;
+
+    private String source;
+    private String normalized;
+
+    @Setup
+    public void setUp() {
+        StringBuilder sb = new StringBuilder(size + SOURCE_TEMPLATE.length() * 2)
+                .append("package io.github.diamongo.benchmarks;\n\npublic class V1_0__Benchmark {\n");
+        for (int i = 0; sb.length() < size; i++) {
+            sb.append(String.format(SOURCE_TEMPLATE, "field" + i));
+        }
+        source = sb.append("}\n").toString();
+        normalized = ChecksumUtils.normalize(source);
+    }
+
+    @Benchmark
+    public String sha256() {
+        return ChecksumUtils.sha256(normalized);
+    }
+
+    @Benchmark
+    public String normalize() {
+        return ChecksumUtils.normalize(source);
+    }
+
+    @Benchmark
+    public String normalizeAndSha256() {
+        return ChecksumUtils.sha256(ChecksumUtils.normalize(source));
+    }
+
+    @Benchmark
+    public String normalizedSha256() {
+        return ChecksumUtils.normalizedSha256(source);
+    }
+}
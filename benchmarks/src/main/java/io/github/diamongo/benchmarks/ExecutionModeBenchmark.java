@@ -0,0 +1,170 @@
+/*
+ * Copyright © 2017 The Diamongo authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.diamongo.benchmarks;
+
+import com.mongodb.MongoClient;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.InsertOneModel;
+import io.github.diamongo.core.migration.BulkWriter;
+import io.github.diamongo.core.migration.ExecutionMode;
+import io.github.diamongo.core.migration.MigrationContext;
+import io.github.diamongo.core.migration.PartitionedScan;
+import org.bson.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Compares platform and virtual threads for I/O-bound migration work against a {@link BenchmarkDatabase local
+ * mongod}. Virtual threads require running the benchmark on Java 21 or newer, otherwise both modes use platform
+ * threads. {@link #smallWrites()} shows the difference best: platform mode pools a thread per write in flight,
+ * whereas virtual mode starts a cheap thread per write.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ExecutionModeBenchmark {
+    private static final String SOURCE = "source";
+    private static final String TARGET = "target";
+
+    @Param({"PLATFORM", "VIRTUAL"})
+    public ExecutionMode executionMode;
+
+    @Param({"20000"})
+    public int documents;
+
+    @Param({"64"})
+    public int concurrency;
+
+    @Param({"1024"})
+    public int smallWriteConcurrency;
+
+    private MongoClient client;
+    private MongoDatabase database;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        client = BenchmarkDatabase.connect();
+        database = client.getDatabase(BenchmarkDatabase.DATABASE);
+        database.drop();
+
+        MongoCollection<Document> source = database.getCollection(SOURCE);
+        List<Document> batch = new ArrayList<>();
+        for (int i = 0; i < documents; i++) {
+            batch.add(new Document("_id", i).append("name", "user" + i).append("active", i % 2 == 0));
+            if (batch.size() == 1000) {
+                source.insertMany(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            source.insertMany(batch);
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void dropTarget() {
+        database.getCollection(TARGET).drop();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.drop();
+        client.close();
+    }
+
+    @Benchmark
+    public long partitionedScan() {
+        LongAdder count = new LongAdder();
+        newContext().partitionedScan(SOURCE)
+                .partitions(concurrency)
+                .parallelism(concurrency)
+                .batchSize(100)
+                .boundaryDiscovery(PartitionedScan.BoundaryDiscovery.MIN_MAX)
+                .build()
+                .forEach(doc -> count.increment());
+        return count.sum();
+    }
+
+    @Benchmark
+    public long bulkWrite() {
+        BulkWriter<Document> writer = newContext().bulkWriter(TARGET)
+                .ordered(false)
+                .batchSize(100)
+                .maxInFlight(concurrency)
+                .build();
+        try (BulkWriter<Document> ignored = writer) {
+            for (int i = 0; i < documents; i++) {
+                writer.add(new InsertOneModel<>(new Document("_id", i)));
+            }
+        }
+        return writer.getStats().getInserted();
+    }
+
+    @Benchmark
+    public long smallWrites() {
+        BulkWriter<Document> writer = newContext().bulkWriter(TARGET)
+                .ordered(false)
+                .batchSize(1)
+                .maxInFlight(smallWriteConcurrency)
+                .build();
+        try (BulkWriter<Document> ignored = writer) {
+            for (int i = 0; i < documents; i++) {
+                writer.add(new InsertOneModel<>(new Document("_id", i)));
+            }
+        }
+        return writer.getStats().getInserted();
+    }
+
+    @Benchmark
+    public long copyCollection() {
+        MigrationContext context = newContext();
+        context.partitionedScan(SOURCE)
+                .partitions(concurrency)
+                .parallelism(concurrency)
+                .boundaryDiscovery(PartitionedScan.BoundaryDiscovery.MIN_MAX)
+                .build()
+                .forEachPartition((partition, docs) -> {
+                    try (BulkWriter<Document> writer = context.bulkWriter(TARGET).ordered(false).build()) {
+                        docs.forEach(doc -> writer.add(new InsertOneModel<>(doc)));
+                    }
+                });
+        return context.getStats().getDocumentsWritten();
+    }
+
+    private MigrationContext newContext() {
+        return new MigrationContext(database, "benchmark", null, checkpoint -> { }, executionMode);
+    }
+}
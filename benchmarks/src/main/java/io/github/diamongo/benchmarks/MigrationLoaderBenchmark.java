@@ -0,0 +1,67 @@
+/*
+ * Copyright © 2017 The Diamongo authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.diamongo.benchmarks;
+
+import com.mongodb.MongoClient;
+import io.github.diamongo.core.migration.MigrationLoader;
+import io.github.diamongo.core.migration.MigrationRepository;
+import io.github.diamongo.core.migration.MigrationWrappers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures loading the migrations generated from the sample migrations in
+ * {@code io.github.diamongo.benchmarks.migrations}. No server is required since the client connects lazily.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MigrationLoaderBenchmark {
+    private MongoClient client;
+    private MigrationLoader loader;
+
+    @Setup
+    public void setUp() {
+        client = BenchmarkDatabase.connect();
+        MigrationRepository repository = new MigrationRepository(client.getDatabase(BenchmarkDatabase.DATABASE));
+        loader = new MigrationLoader(repository, null, Collections.emptyList());
+    }
+
+    @TearDown
+    public void tearDown() {
+        client.close();
+    }
+
+    @Benchmark
+    public MigrationWrappers loadMigrationWrappers() {
+        return loader.loadMigrationWrappers();
+    }
+}
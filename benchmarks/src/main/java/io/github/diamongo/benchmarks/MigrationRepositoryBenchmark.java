@@ -0,0 +1,84 @@
+/*
+ * Copyright © 2017 The Diamongo authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.diamongo.benchmarks;
+
+import com.mongodb.MongoClient;
+import com.mongodb.client.MongoDatabase;
+import io.github.diamongo.core.migration.MigrationLoader;
+import io.github.diamongo.core.migration.MigrationRepository;
+import io.github.diamongo.core.migration.MigrationWrappers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the database part of {@code Diamongo.migrate()} on the service startup path against a
+ * {@link BenchmarkDatabase local mongod}: acquiring and releasing the migration lock, and a complete run applying the
+ * sample migrations in {@code io.github.diamongo.benchmarks.migrations} to an empty changelog.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MigrationRepositoryBenchmark {
+    private MongoClient client;
+    private MongoDatabase database;
+    private MigrationRepository repository;
+    private MigrationWrappers wrappers;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        client = BenchmarkDatabase.connect();
+        database = client.getDatabase(BenchmarkDatabase.DATABASE);
+        repository = new MigrationRepository(database);
+        wrappers = new MigrationLoader(repository, null, Collections.emptyList()).loadMigrationWrappers();
+    }
+
+    @Setup(Level.Invocation)
+    public void resetChangeLog() {
+        database.drop();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.drop();
+        client.close();
+    }
+
+    @Benchmark
+    public boolean lockCycle() {
+        return repository.withLock(() -> { });
+    }
+
+    @Benchmark
+    public boolean runMigration() {
+        return repository.runMigration(wrappers);
+    }
+}
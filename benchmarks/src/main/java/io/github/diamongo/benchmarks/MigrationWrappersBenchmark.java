@@ -0,0 +1,130 @@
+/*
+ * Copyright © 2017 The Diamongo authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.diamongo.benchmarks;
+
+import com.mongodb.client.MongoDatabase;
+import io.github.diamongo.core.migration.AppliedMigration;
+import io.github.diamongo.core.migration.MigrationStatus;
+import io.github.diamongo.core.migration.MigrationVersion;
+import io.github.diamongo.core.migration.MigrationWrapper;
+import io.github.diamongo.core.migration.MigrationWrappers;
+import io.github.diamongo.core.migration.MongoDatabaseMigration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building, iterating and looking up {@link MigrationWrappers} with many migrations as well as merging them
+ * with a changelog of the same size into a {@link MigrationStatus}. Wrappers are added in reverse version order, so
+ * building them includes sorting.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MigrationWrappersBenchmark {
+
+    @Param({"1000", "10000"})
+    public int count;
+
+    private List<MigrationWrapper> wrappers;
+    private MigrationWrappers built;
+    private List<AppliedMigration> applied;
+    private MigrationVersion middle;
+
+    @Setup
+    public void setUp() {
+        wrappers = new ArrayList<>(count);
+        applied = new ArrayList<>(count);
+        for (int i = count; i > 0; i--) {
+            String name = String.format("V%d_%d__migration.js", i / 100, i % 100);
+            String checksum = String.format("%064x", i);
+            NoOpMigration migration = new NoOpMigration();
+            wrappers.add(new MigrationWrapper(name, checksum, Collections.emptyList(), Collections.emptyList(),
+                    () -> migration));
+            applied.add(new AppliedMigration(name, checksum, new Date(), i));
+        }
+        built = build();
+        middle = built.stream().skip(count / 2).findFirst().get().getVersion();
+    }
+
+    @Benchmark
+    public MigrationWrappers build() {
+        MigrationWrappers.Builder builder = new MigrationWrappers.Builder();
+        wrappers.forEach(builder::addMigrationWrapper);
+        return builder.build();
+    }
+
+    @Benchmark
+    public int iterate() {
+        int hash = 0;
+        for (MigrationWrapper wrapper : built) {
+            hash += wrapper.getChecksum().hashCode();
+        }
+        return hash;
+    }
+
+    @Benchmark
+    public long stream() {
+        return built.stream().filter(wrapper -> wrapper.getChecksum().charAt(63) == '0').count();
+    }
+
+    @Benchmark
+    public MigrationWrappers merge() {
+        return new MigrationWrappers.Builder()
+                .addMigrationWrappers(built)
+                .addMigrationWrappers(built)
+                .build();
+    }
+
+    @Benchmark
+    public MigrationWrapper find() {
+        return built.find(middle);
+    }
+
+    @Benchmark
+    public List<MigrationWrapper> after() {
+        return built.after(middle);
+    }
+
+    @Benchmark
+    public MigrationStatus status() {
+        return MigrationStatus.of(built, applied, Collections.emptySet());
+    }
+
+    static final class NoOpMigration implements MongoDatabaseMigration {
+        @Override
+        public void migrate(MongoDatabase database) {
+            //
+        }
+    }
+}
@@ -16,7 +16,10 @@
 package io.github.diamongo.cli;
 
 import io.airlift.airline.Command;
+import io.airlift.airline.Option;
+import io.github.diamongo.core.Diamongo;
 import io.github.diamongo.core.config.DiamongoConfig;
+import io.github.diamongo.core.migration.ClearResult;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -25,4 +28,24 @@ public class ClearCommand extends CliCommand implements Runnable {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ClearCommand.class);
 
+    @Option(name = {"--resetDatabase"}, description = "Drop all collections of the database, not only the changelog")
+    public boolean resetDatabase;
+
+    @Option(name = {"--resetConcurrency"}, description = "Maximum number of collections dropped concurrently")
+    public int resetConcurrency = 4;
+
+    @Override
+    protected void refineConfigBuilder(DiamongoConfig.Builder builder) {
+        builder.resetDatabase(resetDatabase).resetConcurrency(resetConcurrency);
+    }
+
+    @Override
+    protected void execute(Diamongo diamongo) {
+        ClearResult result = diamongo.clear();
+        if (!result.isCleared()) {
+            throw new CliException("Database " + result.getDatabase()
+                    + " not cleared, since the migration lock is held by another process");
+        }
+        LOGGER.info("{}", result);
+    }
 }
@@ -25,8 +25,6 @@ import io.github.diamongo.core.config.DiamongoConfig;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.net.MalformedURLException;
 import java.util.LinkedList;
 import java.util.List;
@@ -57,31 +55,48 @@ abstract class CliCommand {
             description = "Javascript migration directories")
     public List<String> javascriptDirs = new LinkedList<>();
 
+    @Option(name = {"--javascriptChecksumCache"},
+            description = "File caching checksums of Javascript migrations between runs")
+    public String javascriptChecksumCache;
+
+    @Option(name = {"--javascriptEngine"},
+            description = "Script engine executing Javascript migrations, e. g. nashorn or graal.js")
+    public String javascriptEngine;
+
+    @Option(name = {"--sourceDirs", "-s"}, arity = Integer.MAX_VALUE,
+            description = "Java migration source directories whose checksums are validated")
+    public List<String> sourceDirs = new LinkedList<>();
+
     public final void run() {
         LOGGER.debug("Identifying command to run...");
-        Command command = getClass().getAnnotation(Command.class);
-        String methodName = command.name();
+        String commandName = getClass().getAnnotation(Command.class).name();
+        if (additionalClasspath != null && isNativeImage()) {
+            throw new CliException("Additional classpath not supported by the native executable. Migrations must be "
+                    + "bundled into the executable at build time.");
+        }
 
         try {
             DiamongoConfig.Builder builder = initConfigBuilder();
             refineConfigBuilder(builder);
 
             DiamongoFactory factory = new DefaultDiamongoFactory();
-            Diamongo diamongo = factory.create(builder.build());
-            LOGGER.debug("Invoking command: {}", methodName);
-            Method method = Diamongo.class.getMethod(methodName);
-            method.invoke(diamongo);
+            try (Diamongo diamongo = factory.create(builder.build())) {
+                LOGGER.debug("Invoking command: {}", commandName);
+                execute(diamongo);
+            }
         } catch (MalformedURLException ex) {
             throw new CliException("Invalid additional classpath mongoUri", ex);
-        } catch (IllegalAccessException ex) {
-            throw new CliException("Error accessing method: " + methodName, ex);
-        } catch (InvocationTargetException ex) {
-            throw new CliException("Error invoking method: " + methodName, ex.getCause());
-        } catch (NoSuchMethodException ex) {
-            throw new CliException("Invalid command. Method not found: " + methodName, ex);
         }
     }
 
+    /**
+     * Executes the command. Commands call {@link Diamongo} directly, so no reflection is needed, e. g. in a native
+     * image.
+     *
+     * @param diamongo the configured {@link Diamongo} instance
+     */
+    protected abstract void execute(Diamongo diamongo);
+
     /**
      * Override this method in order to refine a pre-populated builder with command-specific options.
      *
@@ -95,8 +110,16 @@ abstract class CliCommand {
         DiamongoConfig.Builder builder = new DiamongoConfig.Builder()
                 .mongoUri(new MongoClientURI(mongoUri))
                 .database(database)
-                .additionalClasspath(additionalClasspath);
+                .additionalClasspath(additionalClasspath)
+                .javascriptChecksumCache(javascriptChecksumCache)
+                .javascriptEngine(javascriptEngine);
         javascriptDirs.forEach(builder::addJavascriptDir);
+        sourceDirs.forEach(builder::addSourceDir);
         return builder;
     }
+
+    private static boolean isNativeImage() {
+        // set by GraalVM while building and when running a native image
+        return System.getProperty("org.graalvm.nativeimage.imagecode") != null;
+    }
 }
@@ -16,13 +16,45 @@
 package io.github.diamongo.cli;
 
 import io.airlift.airline.Command;
+import io.github.diamongo.core.Diamongo;
+import io.airlift.airline.Option;
+import io.github.diamongo.core.config.DiamongoConfig;
+import io.github.diamongo.core.migration.ExecutionMode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.Duration;
+
 @Command(name = "migrate", description = "Perform database migration")
 public class MigrateCommand extends CliCommand implements Runnable {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(MigrateCommand.class);
 
+    @Option(name = {"--wait-for-lock", "-w"},
+            description = "Maximum number of seconds to wait for the migration lock if held by another process")
+    public long waitForLockSeconds;
+
+    @Option(name = {"--watch-lock"},
+            description = "Watch the migration lock via change stream while waiting in order to retry immediately")
+    public boolean watchLock;
+
+    @Option(name = {"--parallelism"}, description = "Maximum number of independent migrations to run concurrently")
+    public int parallelism = 1;
+
+    @Option(name = {"--execution-mode"},
+            description = "Kind of threads for concurrent migration work: PLATFORM or VIRTUAL (Java 21+)")
+    public ExecutionMode executionMode = ExecutionMode.PLATFORM;
+
+    @Override
+    protected void refineConfigBuilder(DiamongoConfig.Builder builder) {
+        builder.waitForLock(Duration.ofSeconds(waitForLockSeconds))
+                .watchLock(watchLock)
+                .parallelism(parallelism)
+                .executionMode(executionMode);
+    }
 
+    @Override
+    protected void execute(Diamongo diamongo) {
+        diamongo.migrate();
+    }
 }
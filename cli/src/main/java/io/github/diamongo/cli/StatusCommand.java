@@ -16,13 +16,87 @@
 package io.github.diamongo.cli;
 
 import io.airlift.airline.Command;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import io.airlift.airline.Option;
+import io.github.diamongo.core.Diamongo;
+import io.github.diamongo.core.migration.MigrationStatus;
+import io.github.diamongo.core.migration.MigrationStatus.Entry;
+import io.github.diamongo.core.migration.MigrationStatus.State;
+import org.bson.Document;
+import org.bson.json.JsonMode;
+import org.bson.json.JsonWriterSettings;
 
+import java.util.Locale;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Prints the status of all migrations to standard output, so it can be piped into other tools. Log messages are
+ * written to standard error.
+ */
 @Command(name = "status", description = "Display status information")
 public class StatusCommand extends CliCommand implements Runnable {
 
-    private static final Logger LOGGER = LoggerFactory.getLogger(StatusCommand.class);
+    private static final String ROW_FORMAT = "%-10s %-17s %-20s %10s  %s%n";
+
+    @Option(name = {"--json"}, description = "Print the status as JSON")
+    public boolean json;
+
+    @Override
+    protected void execute(Diamongo diamongo) {
+        MigrationStatus status = diamongo.status();
+        System.out.println(json ? toJson(status) : toTable(status));
+        System.out.flush();
+    }
+
+    static String toTable(MigrationStatus status) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(ROW_FORMAT, "Version", "State", "Finished", "Duration", "Migration"));
+        for (Entry entry : status.getEntries()) {
+            sb.append(String.format(ROW_FORMAT,
+                    entry.getVersion() != null ? entry.getVersion() : "",
+                    stateName(entry.getState()) + (entry.isIncomplete() ? "*" : ""),
+                    entry.getFinishedAt() != null ? entry.getFinishedAt().toInstant().toString().substring(0, 19) : "",
+                    entry.getDurationMillis() != null ? entry.getDurationMillis() + " ms" : "",
+                    entry.getName()));
+        }
+        sb.append(String.format("%n%d applied, %d pending, %d failed, %d checksum mismatch(es), %d missing locally",
+                status.count(State.APPLIED), status.count(State.PENDING), status.count(State.FAILED),
+                status.count(State.CHECKSUM_MISMATCH), status.count(State.MISSING_LOCALLY)));
+        if (status.getEntries().stream().anyMatch(Entry::isIncomplete)) {
+            sb.append(String.format("%n* incomplete, will resume from its checkpoint"));
+        }
+        return sb.toString();
+    }
+
+    static String toJson(MigrationStatus status) {
+        Document counts = new Document();
+        for (State state : State.values()) {
+            counts.append(state.name(), status.count(state));
+        }
+        Document doc = new Document("upToDate", status.isUpToDate()).append("counts", counts);
+        doc.append("migrations", status.getEntries().stream().map(StatusCommand::toDocument).collect(toList()));
+        return doc.toJson(JsonWriterSettings.builder().outputMode(JsonMode.RELAXED).indent(true).build());
+    }
+
+    private static Document toDocument(Entry entry) {
+        Document doc = new Document("name", entry.getName());
+        appendIfNotNull(doc, "version", entry.getVersion() != null ? entry.getVersion().toString() : null);
+        doc.append("state", entry.getState().name());
+        appendIfNotNull(doc, "checksum", entry.getChecksum());
+        appendIfNotNull(doc, "appliedChecksum", entry.getAppliedChecksum());
+        appendIfNotNull(doc, "finishedAt",
+                entry.getFinishedAt() != null ? entry.getFinishedAt().toInstant().toString() : null);
+        appendIfNotNull(doc, "durationMillis", entry.getDurationMillis());
+        return doc.append("incomplete", entry.isIncomplete());
+    }
 
+    private static void appendIfNotNull(Document doc, String key, Object value) {
+        if (value != null) {
+            doc.append(key, value);
+        }
+    }
 
+    private static String stateName(State state) {
+        return state.name().toLowerCase(Locale.ROOT).replace('_', ' ');
+    }
 }
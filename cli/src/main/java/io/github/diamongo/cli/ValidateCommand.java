@@ -16,6 +16,8 @@
 package io.github.diamongo.cli;
 
 import io.airlift.airline.Command;
+import io.github.diamongo.core.Diamongo;
+import io.github.diamongo.core.migration.ValidationReport;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -24,5 +26,12 @@ public class ValidateCommand extends CliCommand implements Runnable {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ValidateCommand.class);
 
-
+    @Override
+    protected void execute(Diamongo diamongo) {
+        ValidationReport report = diamongo.validate();
+        if (!report.getViolations().isEmpty()) {
+            throw new CliException(report.toString());
+        }
+        LOGGER.info("All migrations are valid");
+    }
 }
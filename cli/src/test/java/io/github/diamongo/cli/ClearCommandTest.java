@@ -0,0 +1,49 @@
+/*
+ * Copyright © 2017 The Diamongo authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.diamongo.cli;
+
+import io.github.diamongo.core.Diamongo;
+import io.github.diamongo.core.migration.ClearResult;
+import mockit.Expectations;
+import mockit.Mocked;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class ClearCommandTest {
+
+    @Test
+    public void testNotCleared(@Mocked Diamongo diamongo, @Mocked ClearResult clearResult) {
+        new Expectations() {
+            {
+                diamongo.clear();
+                result = clearResult;
+                clearResult.isCleared();
+                result = false;
+                clearResult.getDatabase();
+                result = "foo";
+            }
+        };
+
+        try {
+            new ClearCommand().execute(diamongo);
+            fail("CliException expected");
+        } catch (CliException ex) {
+            assertThat(ex.getMessage()).contains("foo");
+        }
+    }
+}
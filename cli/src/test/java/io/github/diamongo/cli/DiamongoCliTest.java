@@ -15,7 +15,9 @@
  */
 package io.github.diamongo.cli;
 
+import io.github.diamongo.core.migration.ClearResult;
 import io.github.diamongo.core.migration.MigrationService;
+import mockit.Capturing;
 import mockit.Expectations;
 import mockit.Mock;
 import mockit.MockUp;
@@ -42,12 +44,16 @@ public class DiamongoCliTest {
     @Parameter(1)
     public Class<Runnable> commandClass;
 
-    @Mocked
+    // captures loggers created before the LoggerFactory is faked, e. g. by other tests of the commands
+    @Capturing
     private Logger mockLogger;
 
     @Mocked
     private MigrationService service;
 
+    @Mocked
+    private ClearResult clearResult;
+
     @Parameters
     public static Collection<Object[]> data() {
         return asList(new Object[][] {
@@ -63,6 +69,13 @@ public class DiamongoCliTest {
         new LoggerFactoryMockUp(mockLogger);
         Runnable command = commandClass.newInstance();
 
+        new Expectations() {
+            {
+                clearResult.isCleared();
+                result = true;
+                minTimes = 0;
+            }
+        };
         new Expectations(commandClass) {};
 
         DiamongoCli.main(commandName, "-uri", "mongodb://foo", "-d", "foo");
@@ -0,0 +1,99 @@
+/*
+ * Copyright © 2017 The Diamongo authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.diamongo.cli;
+
+import io.github.diamongo.core.Diamongo;
+import io.github.diamongo.core.migration.AppliedMigration;
+import io.github.diamongo.core.migration.MigrationStatus;
+import io.github.diamongo.core.migration.MigrationWrapper;
+import io.github.diamongo.core.migration.MigrationWrappers;
+import mockit.Expectations;
+import mockit.Mocked;
+import org.bson.Document;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class StatusCommandTest {
+
+    private final MigrationStatus status = MigrationStatus.of(new MigrationWrappers.Builder()
+                    .addMigrationWrapper(new MigrationWrapper("V1__applied.js", "c1", Collections.emptyList(),
+                            Collections.emptyList(), () -> null))
+                    .addMigrationWrapper(new MigrationWrapper("V2__pending.js", "c2", Collections.emptyList(),
+                            Collections.emptyList(), () -> null))
+                    .build(),
+            Collections.singletonList(new AppliedMigration("V1__applied.js", "c1", new Date(0), 42)),
+            Collections.singleton("V2__pending.js"));
+
+    @Test
+    public void testTable() {
+        String table = StatusCommand.toTable(status);
+
+        assertThat(table.split("\\R")).hasSize(6);
+        assertThat(table).contains("1970-01-01T00:00:00", "42 ms", "V1__applied.js", "pending*",
+                "1 applied, 1 pending, 0 failed, 0 checksum mismatch(es), 0 missing locally");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testJson() {
+        Document doc = Document.parse(StatusCommand.toJson(status));
+
+        assertThat(doc.getBoolean("upToDate")).isFalse();
+        assertThat(doc.get("counts", Document.class)).containsEntry("APPLIED", 1).containsEntry("PENDING", 1);
+        List<Document> migrations = (List<Document>) doc.get("migrations");
+        assertThat(migrations.get(0)).containsEntry("name", "V1__applied.js")
+                .containsEntry("version", "1")
+                .containsEntry("state", "APPLIED")
+                .containsEntry("finishedAt", "1970-01-01T00:00:00Z")
+                .containsEntry("durationMillis", 42);
+        assertThat(migrations.get(1)).containsEntry("state", "PENDING")
+                .containsEntry("incomplete", true)
+                .doesNotContainKey("appliedChecksum");
+    }
+
+    @Test
+    public void testJsonIsOnlyOutput(@Mocked Diamongo diamongo) throws Exception {
+        new Expectations() {
+            {
+                diamongo.status();
+                result = status;
+            }
+        };
+        StatusCommand command = new StatusCommand();
+        command.json = true;
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PrintStream stdout = System.out;
+        System.setOut(new PrintStream(out, true, StandardCharsets.UTF_8.name()));
+        try {
+            command.execute(diamongo);
+        } finally {
+            System.setOut(stdout);
+        }
+
+        String output = new String(out.toByteArray(), StandardCharsets.UTF_8).trim();
+        assertThat(output).startsWith("{").endsWith("}");
+        assertThat(Document.parse(output)).isEqualTo(Document.parse(StatusCommand.toJson(status)));
+    }
+}
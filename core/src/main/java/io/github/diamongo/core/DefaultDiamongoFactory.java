@@ -16,25 +16,47 @@
 package io.github.diamongo.core;
 
 import com.mongodb.MongoClient;
+import com.mongodb.MongoClientOptions;
 import com.mongodb.MongoClientURI;
 import com.mongodb.client.MongoDatabase;
+import io.github.diamongo.core.config.Backend;
 import io.github.diamongo.core.config.ConfigException;
 import io.github.diamongo.core.config.DiamongoConfig;
+import io.github.diamongo.core.migration.ChangeLogRepository;
+import io.github.diamongo.core.migration.ClearOptions;
+import io.github.diamongo.core.migration.ExecutionMode;
+import io.github.diamongo.core.migration.LockWaitOptions;
 import io.github.diamongo.core.migration.MigrationLoader;
 import io.github.diamongo.core.migration.MigrationRepository;
 import io.github.diamongo.core.migration.MigrationRunner;
+import io.github.diamongo.core.migration.MigrationScheduler;
 import io.github.diamongo.core.migration.MigrationService;
 import io.github.diamongo.core.migration.MigrationValidator;
+import io.github.diamongo.core.migration.MultiTenantMigrationService;
+import io.github.diamongo.core.migration.ScriptEngineJavascriptEngine;
 
 import java.io.BufferedReader;
+import java.io.Closeable;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.time.Duration;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
 import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+import static io.github.diamongo.core.util.ValidationUtils.checkNotNull;
 
 /**
  * Default {@link DiamongoFactory} implementation.
@@ -52,10 +74,49 @@ public class DefaultDiamongoFactory implements DiamongoFactory {
             DiamongoConfig.Builder builder = new DiamongoConfig.Builder()
                     .mongoUri(new MongoClientURI(properties.getProperty("mongoUri")))
                     .database(properties.getProperty("database"))
-                    .additionalClasspath(properties.getProperty("classpath"));
+                    .additionalClasspath(properties.getProperty("classpath"))
+                    .javascriptChecksumCache(properties.getProperty("javascriptChecksumCache"))
+                    .javascriptEngine(properties.getProperty("javascriptEngine"));
+
+            String javascriptDirs = properties.getProperty("javascriptDirs", "").trim();
+            if (!javascriptDirs.isEmpty()) {
+                Arrays.stream(javascriptDirs.split("\\s*,\\s*")).forEach(builder::addJavascriptDir);
+            }
+
+            String sourceDirs = properties.getProperty("sourceDirs", "").trim();
+            if (!sourceDirs.isEmpty()) {
+                Arrays.stream(sourceDirs.split("\\s*,\\s*")).forEach(builder::addSourceDir);
+            }
+
+            String lockLeaseTime = properties.getProperty("lockLeaseTime");
+            if (lockLeaseTime != null) {
+                builder.lockLeaseTime(parseDuration("lockLeaseTime", lockLeaseTime));
+            }
 
-            String[] dirs = properties.getProperty("javascriptDirs", "").split("\\s*,\\s*");
-            Arrays.stream(dirs).forEach(builder::addJavascriptDir);
+            String lockWaitTimeout = properties.getProperty("lockWaitTimeout");
+            if (lockWaitTimeout != null) {
+                builder.waitForLock(parseDuration("lockWaitTimeout", lockWaitTimeout));
+            }
+            builder.watchLock(Boolean.parseBoolean(properties.getProperty("watchLock")));
+            builder.parallelism(parseInteger("parallelism", properties.getProperty("parallelism", "1")));
+            builder.executionMode(parseEnum("executionMode", properties.getProperty("executionMode", "platform"),
+                    ExecutionMode.class));
+            builder.backend(parseEnum("backend", properties.getProperty("backend", "sync"), Backend.class));
+            builder.resetDatabase(Boolean.parseBoolean(properties.getProperty("resetDatabase")));
+            builder.resetConcurrency(parseInteger("resetConcurrency", properties.getProperty("resetConcurrency", "4")));
+            builder.poolSize(parseOptionalInteger(properties, "minPoolSize"),
+                    parseOptionalInteger(properties, "maxPoolSize"));
+            builder.serverSelectionTimeout(parseOptionalDuration(properties, "serverSelectionTimeout"));
+            builder.connectTimeout(parseOptionalDuration(properties, "connectTimeout"));
+            builder.socketTimeout(parseOptionalDuration(properties, "socketTimeout"));
+
+            String tenantDatabases = properties.getProperty("tenantDatabases", "").trim();
+            if (!tenantDatabases.isEmpty()) {
+                Arrays.stream(tenantDatabases.split("\\s*,\\s*")).forEach(builder::addTenantDatabase);
+            }
+            builder.tenantDatabasePattern(properties.getProperty("tenantDatabasePattern"));
+            builder.tenantParallelism(parseInteger("tenantParallelism",
+                    properties.getProperty("tenantParallelism", "8")));
 
             return create(builder.build());
         } catch (IOException ex) {
@@ -65,15 +126,223 @@ public class DefaultDiamongoFactory implements DiamongoFactory {
 
     @Override
     public Diamongo create(DiamongoConfig config) {
-        MongoClient mongoClient = new MongoClient(config.getMongoUri());
-        MongoDatabase mongoDatabase = mongoClient.getDatabase(config.getDatabase());
-        MigrationRepository repository = new MigrationRepository(mongoDatabase);
-        MigrationLoader loader = new MigrationLoader(repository, config.getAdditionalClasspath(),
-                config.getJavascriptDirs());
-        MigrationValidator validator = new MigrationValidator();
-        MigrationRunner runner = new MigrationRunner(repository);
-        MigrationService migrationService = new MigrationService(loader, validator, runner);
-        return new Diamongo(migrationService);
+        MongoClient mongoClient = newMongoClient(config);
+        List<Closeable> resources = new ArrayList<>();
+        resources.add(mongoClient);
+        return create(config, mongoClient.getDatabase(config.getDatabase()), resources);
+    }
+
+    @Override
+    public Diamongo create(DiamongoConfig config, MongoClient mongoClient) {
+        checkNotNull(mongoClient, "'mongoClient' must not be null");
+        return create(config, mongoClient.getDatabase(config.getDatabase()), new ArrayList<>());
+    }
+
+    @Override
+    public Diamongo create(DiamongoConfig config, MongoDatabase database) {
+        checkNotNull(database, "'database' must not be null");
+        return create(config, database, new ArrayList<>());
+    }
+
+    /**
+     * Creates a new {@link Diamongo} using the reactive backend with existing clients, so their connection pools and
+     * settings are reused. Neither client is closed together with the {@link Diamongo} instance. The configured
+     * backend, MongoDB URI and client settings are ignored.
+     *
+     * @param config the configuration to use
+     * @param mongoClient the client used for migrations requiring the synchronous driver
+     * @param reactiveClient the client used by the reactive backend
+     * @return the newly create {@link Diamongo} instance
+     */
+    public Diamongo create(DiamongoConfig config, MongoClient mongoClient,
+            com.mongodb.reactivestreams.client.MongoClient reactiveClient) {
+        checkNotNull(mongoClient, "'mongoClient' must not be null");
+        checkNotNull(reactiveClient, "'reactiveClient' must not be null");
+        return create(config, mongoClient.getDatabase(config.getDatabase()),
+                reactiveClient.getDatabase(config.getDatabase()));
+    }
+
+    /**
+     * Creates a new {@link Diamongo} migrating the given database with the reactive backend. Behaves like
+     * {@link #create(DiamongoConfig, MongoClient, com.mongodb.reactivestreams.client.MongoClient)}, but the database
+     * name of the configuration is ignored as well.
+     *
+     * @param config the configuration to use
+     * @param database the database used for migrations requiring the synchronous driver
+     * @param reactiveDatabase the database to migrate with the reactive backend
+     * @return the newly create {@link Diamongo} instance
+     */
+    public Diamongo create(DiamongoConfig config, MongoDatabase database,
+            com.mongodb.reactivestreams.client.MongoDatabase reactiveDatabase) {
+        checkNotNull(database, "'database' must not be null");
+        checkNotNull(reactiveDatabase, "'reactiveDatabase' must not be null");
+        return create(config, database, () -> ReactiveBackend.createRepository(config, reactiveDatabase, database),
+                new ArrayList<>());
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Sources are not validated against every database. Use {@link Diamongo#validate()} for that.
+     */
+    @Override
+    public MultiTenantDiamongo createMultiTenant(DiamongoConfig config) {
+        MongoClient mongoClient = newMongoClient(config);
+        List<Closeable> resources = new ArrayList<>();
+        resources.add(mongoClient);
+        return createMultiTenant(config, mongoClient, resources);
+    }
+
+    @Override
+    public MultiTenantDiamongo createMultiTenant(DiamongoConfig config, MongoClient mongoClient) {
+        checkNotNull(mongoClient, "'mongoClient' must not be null");
+        return createMultiTenant(config, mongoClient, new ArrayList<>());
+    }
+
+    private Diamongo create(DiamongoConfig config, MongoDatabase mongoDatabase, List<Closeable> resources) {
+        return create(config, mongoDatabase, () -> createRepository(config, mongoDatabase, resources), resources);
+    }
+
+    private Diamongo create(DiamongoConfig config, MongoDatabase mongoDatabase,
+            Supplier<ChangeLogRepository> repositoryFactory, List<Closeable> resources) {
+        try {
+            ChangeLogRepository repository = repositoryFactory.get();
+            MigrationLoader loader = createLoader(config, repository);
+            MigrationValidator validator = new MigrationValidator(repository, config.getSourceDirs());
+            return new Diamongo(createService(config, mongoDatabase.getName(), repository, loader, validator),
+                    resources);
+        } catch (RuntimeException ex) {
+            Diamongo.closeAll(resources);
+            throw ex;
+        }
+    }
+
+    private MultiTenantDiamongo createMultiTenant(DiamongoConfig config, MongoClient mongoClient,
+            List<Closeable> resources) {
+        try {
+            if (config.getBackend() == Backend.REACTIVE) {
+                throw new ConfigException("Multi-tenant migration requires the sync backend");
+            }
+            // the loader only reads migrations from the classpath and the file system, so any database will do
+            MigrationLoader loader = createLoader(config,
+                    createRepository(config, mongoClient.getDatabase("admin"), resources));
+            MultiTenantMigrationService migrationService = new MultiTenantMigrationService(loader,
+                    () -> findTenantDatabases(config, mongoClient),
+                    database -> {
+                        ChangeLogRepository repository = createRepository(config,
+                                mongoClient.getDatabase(database), resources);
+                        return createService(config, database, repository, loader,
+                                new MigrationValidator(repository, Collections.emptyList()));
+                    },
+                    config.getTenantParallelism(), config.getExecutionMode());
+            return new MultiTenantDiamongo(migrationService, resources);
+        } catch (RuntimeException ex) {
+            Diamongo.closeAll(resources);
+            throw ex;
+        }
+    }
+
+    private static MongoClient newMongoClient(DiamongoConfig config) {
+        return new MongoClient(new MongoClientURI(config.getMongoUri().getURI(), clientOptions(config)));
+    }
+
+    private static ChangeLogRepository createRepository(DiamongoConfig config, MongoDatabase mongoDatabase,
+            List<Closeable> resources) {
+        return config.getBackend() == Backend.REACTIVE
+                ? ReactiveBackend.createRepository(config, mongoDatabase, resources)
+                : new MigrationRepository(mongoDatabase, config.getLockLeaseTime(),
+                        new MigrationScheduler(config.getParallelism(), config.getExecutionMode()),
+                        config.getExecutionMode(), config.getMetrics());
+    }
+
+    private static MigrationLoader createLoader(DiamongoConfig config, ChangeLogRepository repository) {
+        return new MigrationLoader(repository, config.getAdditionalClasspath(), config.getJavascriptDirs(),
+                config.getJavascriptChecksumCache(), new ScriptEngineJavascriptEngine(config.getJavascriptEngine()));
+    }
+
+    private static MigrationService createService(DiamongoConfig config, String database,
+            ChangeLogRepository repository, MigrationLoader loader, MigrationValidator validator) {
+        LockWaitOptions lockWaitOptions = new LockWaitOptions(config.getLockWaitTimeout(),
+                config.getLockRetryInitialDelay(), config.getLockRetryMaxDelay(), config.isWatchLock());
+        MigrationRunner runner = new MigrationRunner(repository, lockWaitOptions, config.getMetrics(), database);
+        ClearOptions clearOptions = new ClearOptions(config.isResetDatabase(), config.getResetConcurrency());
+        return new MigrationService(loader, validator, runner, repository, clearOptions);
+    }
+
+    /**
+     * Combines the tenant databases added explicitly with the existing databases matching the tenant pattern.
+     *
+     * @return the distinct database names in ascending order
+     */
+    static List<String> findTenantDatabases(DiamongoConfig config, MongoClient mongoClient) {
+        Set<String> databases = new TreeSet<>(config.getTenantDatabases());
+        Pattern pattern = config.getTenantDatabasePattern();
+        if (pattern != null) {
+            for (String name : mongoClient.listDatabaseNames()) {
+                if (pattern.matcher(name).matches()) {
+                    databases.add(name);
+                }
+            }
+        }
+        return new ArrayList<>(databases);
+    }
+
+    /**
+     * Maps the client settings of the configuration to driver options. They serve as defaults, so options given in
+     * the MongoDB URI take precedence.
+     */
+    static MongoClientOptions.Builder clientOptions(DiamongoConfig config) {
+        MongoClientOptions.Builder options = MongoClientOptions.builder();
+        if (config.getMaxPoolSize() != null) {
+            options.connectionsPerHost(config.getMaxPoolSize());
+        }
+        if (config.getMinPoolSize() != null) {
+            options.minConnectionsPerHost(config.getMinPoolSize());
+        }
+        if (config.getServerSelectionTimeout() != null) {
+            options.serverSelectionTimeout((int) config.getServerSelectionTimeout().toMillis());
+        }
+        if (config.getConnectTimeout() != null) {
+            options.connectTimeout((int) config.getConnectTimeout().toMillis());
+        }
+        if (config.getSocketTimeout() != null) {
+            options.socketTimeout((int) config.getSocketTimeout().toMillis());
+        }
+        return options;
+    }
+
+    private static Integer parseOptionalInteger(Properties properties, String property) {
+        String value = properties.getProperty(property);
+        return value != null ? parseInteger(property, value) : null;
+    }
+
+    private static int parseInteger(String property, String value) {
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException ex) {
+            throw new ConfigException("Invalid value for '" + property + "': " + value, ex);
+        }
+    }
+
+    private static Duration parseOptionalDuration(Properties properties, String property) {
+        String value = properties.getProperty(property);
+        return value != null ? parseDuration(property, value) : null;
+    }
+
+    private static Duration parseDuration(String property, String value) {
+        try {
+            return Duration.parse(value);
+        } catch (DateTimeParseException ex) {
+            throw new ConfigException("Invalid ISO-8601 duration for '" + property + "': " + value, ex);
+        }
+    }
+
+    private static <E extends Enum<E>> E parseEnum(String property, String value, Class<E> type) {
+        try {
+            return Enum.valueOf(type, value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            throw new ConfigException("Invalid value for '" + property + "': " + value, ex);
+        }
     }
 
     private Reader openConfigReader(String propertiesFile) throws FileNotFoundException {
@@ -15,22 +15,46 @@
  */
 package io.github.diamongo.core;
 
+import io.github.diamongo.core.config.Backend;
+import io.github.diamongo.core.migration.ClearResult;
 import io.github.diamongo.core.migration.MigrationService;
+import io.github.diamongo.core.migration.MigrationStatus;
+import io.github.diamongo.core.migration.ValidationReport;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 import static io.github.diamongo.core.util.ValidationUtils.checkNotNull;
 
 /**
- * Entrypoint for Diamongo.
+ * Entrypoint for Diamongo. Closing it closes the MongoDB clients it has created, but never clients passed to the
+ * {@link DiamongoFactory}.
  */
-public final class Diamongo {
+public final class Diamongo implements AutoCloseable {
     private static final Logger LOGGER = LoggerFactory.getLogger(Diamongo.class);
 
     private final MigrationService migrationService;
+    private final List<Closeable> resources;
+    private final AtomicBoolean closed = new AtomicBoolean();
 
     Diamongo(MigrationService migrationService) {
+        this(migrationService, Collections.emptyList());
+    }
+
+    /**
+     * @param migrationService the service all operations are delegated to
+     * @param resources the resources owned by this instance which are closed with it
+     */
+    Diamongo(MigrationService migrationService, List<Closeable> resources) {
         this.migrationService = checkNotNull(migrationService, "'migrationService' must not be null");
+        this.resources = new ArrayList<>(checkNotNull(resources, "'resources' must not be null"));
     }
 
     /**
@@ -40,24 +64,62 @@ public final class Diamongo {
         migrationService.migrate();
     }
 
+    /**
+     * Starts the database migration without blocking the calling thread while waiting for MongoDB, e. g. when
+     * embedded in a reactive application. Non-blocking I/O requires the {@link Backend#REACTIVE reactive backend}.
+     *
+     * @return a future completed once the migration has finished
+     */
+    public CompletableFuture<Void> migrateAsync() {
+        return migrationService.migrateAsync();
+    }
+
     /**
      * Retrieves the information about all the migrations.
+     *
+     * @return the status of all available and applied migrations
      */
-    public void status() {
-        // NO-OP
+    public MigrationStatus status() {
+        return migrationService.status();
     }
 
     /**
-     * Validates migrations.
+     * Validates migrations against each other and against the changelog without running them.
+     *
+     * @return the report listing all violations
      */
-    public void validate() {
-        // NO-OP
+    public ValidationReport validate() {
+        return migrationService.validate();
     }
 
     /**
-     * Clears all migrations.
+     * Clears all migrations by dropping the changelog under the migration lock. If
+     * {@link io.github.diamongo.core.config.DiamongoConfig.Builder#resetDatabase(boolean) resetting the database} is
+     * enabled, all other collections are dropped as well.
+     *
+     * @return the result; not cleared if the migration lock is held by another process
      */
-    public void clear() {
-        // NO-OP
+    public ClearResult clear() {
+        return migrationService.clear();
+    }
+
+    /**
+     * Closes the MongoDB clients created for this instance. Subsequent calls have no effect.
+     */
+    @Override
+    public void close() {
+        if (closed.compareAndSet(false, true)) {
+            closeAll(resources);
+        }
+    }
+
+    static void closeAll(List<Closeable> resources) {
+        for (Closeable resource : resources) {
+            try {
+                resource.close();
+            } catch (IOException | RuntimeException ex) {
+                LOGGER.warn("Error closing {}", resource, ex);
+            }
+        }
     }
 }
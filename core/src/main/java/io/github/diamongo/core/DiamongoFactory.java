@@ -15,6 +15,8 @@
  */
 package io.github.diamongo.core;
 
+import com.mongodb.MongoClient;
+import com.mongodb.client.MongoDatabase;
 import io.github.diamongo.core.config.DiamongoConfig;
 
 /**
@@ -32,10 +34,54 @@ public interface DiamongoFactory {
     Diamongo create(String propertiesFile);
 
     /**
-     * Creates a new {@link Diamongo} using configuration from a properties file.
+     * Creates a new {@link Diamongo} using the given configuration. A new {@link MongoClient} is created, which is
+     * closed together with the {@link Diamongo} instance.
      *
      * @param config the configuration to use
      * @return the newly create {@link Diamongo} instance
      */
     Diamongo create(DiamongoConfig config);
+
+    /**
+     * Creates a new {@link Diamongo} sharing an existing client, so its connection pool and settings are reused. The
+     * client is not closed together with the {@link Diamongo} instance. The MongoDB URI and the client settings of the
+     * configuration are ignored unless the reactive backend is used, which creates a client of its own.
+     * {@link DefaultDiamongoFactory} also accepts a reactive client to share.
+     *
+     * @param config the configuration to use
+     * @param mongoClient the client to use
+     * @return the newly create {@link Diamongo} instance
+     */
+    Diamongo create(DiamongoConfig config, MongoClient mongoClient);
+
+    /**
+     * Creates a new {@link Diamongo} migrating the given database. Behaves like
+     * {@link #create(DiamongoConfig, MongoClient)}, but the database name of the configuration is ignored as well.
+     *
+     * @param config the configuration to use
+     * @param database the database to migrate
+     * @return the newly create {@link Diamongo} instance
+     */
+    Diamongo create(DiamongoConfig config, MongoDatabase database);
+
+    /**
+     * Creates a new {@link MultiTenantDiamongo} migrating the
+     * {@link io.github.diamongo.core.config.DiamongoConfig.Builder#addTenantDatabase(String) tenant databases} of the
+     * configuration. A single new {@link MongoClient} is created for all of them, which is closed together with the
+     * {@link MultiTenantDiamongo} instance.
+     *
+     * @param config the configuration to use; its database is ignored
+     * @return the newly created {@link MultiTenantDiamongo} instance
+     */
+    MultiTenantDiamongo createMultiTenant(DiamongoConfig config);
+
+    /**
+     * Same as {@link #createMultiTenant(DiamongoConfig)}, but sharing an existing client, which is not closed together
+     * with the {@link MultiTenantDiamongo} instance.
+     *
+     * @param config the configuration to use; its database and client settings are ignored
+     * @param mongoClient the client to use
+     * @return the newly created {@link MultiTenantDiamongo} instance
+     */
+    MultiTenantDiamongo createMultiTenant(DiamongoConfig config, MongoClient mongoClient);
 }
@@ -0,0 +1,69 @@
+/*
+ * Copyright © 2017 The Diamongo authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.diamongo.core;
+
+import io.github.diamongo.core.migration.MultiTenantMigrationService;
+import io.github.diamongo.core.migration.MultiTenantReport;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static io.github.diamongo.core.util.ValidationUtils.checkNotNull;
+
+/**
+ * Entrypoint for migrating many databases sharing a single client, e. g. with one database per tenant. Like
+ * {@link Diamongo}, closing it closes only the MongoDB client it has created.
+ *
+ * @see DiamongoFactory#createMultiTenant(io.github.diamongo.core.config.DiamongoConfig)
+ */
+public final class MultiTenantDiamongo implements AutoCloseable {
+    private final MultiTenantMigrationService migrationService;
+    private final List<Closeable> resources;
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    MultiTenantDiamongo(MultiTenantMigrationService migrationService, List<Closeable> resources) {
+        this.migrationService = checkNotNull(migrationService, "'migrationService' must not be null");
+        this.resources = new ArrayList<>(checkNotNull(resources, "'resources' must not be null"));
+    }
+
+    /**
+     * @return the names of the databases {@link #migrate()} would migrate
+     */
+    public List<String> findDatabases() {
+        return migrationService.findDatabases();
+    }
+
+    /**
+     * Migrates all configured databases with bounded parallelism. A failing database does not stop the others.
+     *
+     * @return the report listing the outcome of every database
+     */
+    public MultiTenantReport migrate() {
+        return migrationService.migrate();
+    }
+
+    /**
+     * Closes the MongoDB client created for this instance. Subsequent calls have no effect.
+     */
+    @Override
+    public void close() {
+        if (closed.compareAndSet(false, true)) {
+            Diamongo.closeAll(resources);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright © 2017 The Diamongo authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.diamongo.core;
+
+import com.mongodb.ConnectionString;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoClients;
+import io.github.diamongo.core.config.ConfigException;
+import io.github.diamongo.core.config.DiamongoConfig;
+import io.github.diamongo.core.migration.ChangeLogRepository;
+import io.github.diamongo.core.migration.ReactiveMigrationRepository;
+
+import java.io.Closeable;
+import java.util.List;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Creates the reactive backend. Kept separate from {@link DefaultDiamongoFactory}, so the optional Reactive Streams
+ * driver is only loaded if the reactive backend is configured.
+ */
+final class ReactiveBackend {
+    private static final String REACTIVE_CLIENTS_CLASS = "com.mongodb.reactivestreams.client.MongoClients";
+
+    private ReactiveBackend() {
+        // utility class
+    }
+
+    /**
+     * @param config the configuration to use
+     * @param syncDatabase the database used for migrations requiring the synchronous driver
+     * @param resources receives the created client, so it is closed together with Diamongo
+     * @return the reactive repository
+     * @throws ConfigException if the Reactive Streams driver is not on the classpath or no MongoDB URI is configured
+     */
+    static ChangeLogRepository createRepository(DiamongoConfig config, MongoDatabase syncDatabase,
+            List<Closeable> resources) {
+        try {
+            Class.forName(REACTIVE_CLIENTS_CLASS, false, ReactiveBackend.class.getClassLoader());
+        } catch (ClassNotFoundException ex) {
+            throw new ConfigException("The reactive backend requires org.mongodb:mongodb-driver-reactivestreams "
+                    + "on the classpath", ex);
+        }
+
+        if (config.getMongoUri() == null) {
+            throw new ConfigException("The reactive backend requires 'mongoUri' to be configured");
+        }
+
+        MongoClient client = MongoClients.create(clientSettings(config));
+        resources.add(client);
+        return createRepository(config, client.getDatabase(syncDatabase.getName()), syncDatabase);
+    }
+
+    /**
+     * Creates the reactive repository for an existing database, whose client is owned by the caller.
+     *
+     * @param config the configuration to use
+     * @param database the database to migrate
+     * @param syncDatabase the database used for migrations requiring the synchronous driver
+     * @return the reactive repository
+     */
+    static ChangeLogRepository createRepository(DiamongoConfig config,
+            com.mongodb.reactivestreams.client.MongoDatabase database, MongoDatabase syncDatabase) {
+        return new ReactiveMigrationRepository(database, syncDatabase, config.getLockLeaseTime(),
+                config.getExecutionMode(), config.getMetrics());
+    }
+
+    /**
+     * Same as {@link DefaultDiamongoFactory#clientOptions(DiamongoConfig)} for the Reactive Streams driver.
+     */
+    static MongoClientSettings clientSettings(DiamongoConfig config) {
+        MongoClientSettings.Builder settings = MongoClientSettings.builder()
+                .applyToConnectionPoolSettings(pool -> {
+                    if (config.getMaxPoolSize() != null) {
+                        pool.maxSize(config.getMaxPoolSize());
+                    }
+                    if (config.getMinPoolSize() != null) {
+                        pool.minSize(config.getMinPoolSize());
+                    }
+                })
+                .applyToClusterSettings(cluster -> {
+                    if (config.getServerSelectionTimeout() != null) {
+                        cluster.serverSelectionTimeout(config.getServerSelectionTimeout().toMillis(), MILLISECONDS);
+                    }
+                })
+                .applyToSocketSettings(socket -> {
+                    if (config.getConnectTimeout() != null) {
+                        socket.connectTimeout((int) config.getConnectTimeout().toMillis(), MILLISECONDS);
+                    }
+                    if (config.getSocketTimeout() != null) {
+                        socket.readTimeout((int) config.getSocketTimeout().toMillis(), MILLISECONDS);
+                    }
+                });
+        // applied last, so options given in the URI take precedence
+        return settings.applyConnectionString(new ConnectionString(config.getMongoUri().getURI())).build();
+    }
+}
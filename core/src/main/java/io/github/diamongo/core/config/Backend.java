@@ -0,0 +1,33 @@
+/*
+ * Copyright © 2017 The Diamongo authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.diamongo.core.config;
+
+/**
+ * The MongoDB driver used for acquiring the migration lock and writing the changelog.
+ */
+public enum Backend {
+
+    /**
+     * Uses the synchronous MongoDB driver.
+     */
+    SYNC,
+
+    /**
+     * Uses the MongoDB Reactive Streams driver, which must be on the classpath. Migrations other than
+     * {@link io.github.diamongo.core.migration.ReactiveMigration reactive ones} still use the synchronous driver.
+     */
+    REACTIVE
+}
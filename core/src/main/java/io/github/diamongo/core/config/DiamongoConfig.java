@@ -16,13 +16,18 @@
 package io.github.diamongo.core.config;
 
 import com.mongodb.MongoClientURI;
+import io.github.diamongo.core.migration.ExecutionMode;
+import io.github.diamongo.core.migration.MigrationMetrics;
 
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
 /**
  * Configuration for Diamongo.
@@ -32,12 +37,56 @@ public class DiamongoConfig {
     private final String database;
     private final URL additionalClasspath;
     private final List<Path> javascriptDirs = new LinkedList<>();
+    private final Path javascriptChecksumCache;
+    private final String javascriptEngine;
+    private final List<Path> sourceDirs = new LinkedList<>();
+    private final Duration lockLeaseTime;
+    private final Duration lockWaitTimeout;
+    private final Duration lockRetryInitialDelay;
+    private final Duration lockRetryMaxDelay;
+    private final boolean watchLock;
+    private final int parallelism;
+    private final ExecutionMode executionMode;
+    private final Backend backend;
+    private final boolean resetDatabase;
+    private final int resetConcurrency;
+    private final Integer maxPoolSize;
+    private final Integer minPoolSize;
+    private final Duration serverSelectionTimeout;
+    private final Duration connectTimeout;
+    private final Duration socketTimeout;
+    private final List<String> tenantDatabases = new LinkedList<>();
+    private final Pattern tenantDatabasePattern;
+    private final int tenantParallelism;
+    private final MigrationMetrics metrics;
 
     private DiamongoConfig(Builder builder) {
         this.mongoUri = builder.mongoUri;
         this.database = builder.database;
         this.additionalClasspath = builder.additionalClasspath;
         this.javascriptDirs.addAll(builder.javascriptDirs);
+        this.javascriptChecksumCache = builder.javascriptChecksumCache;
+        this.javascriptEngine = builder.javascriptEngine;
+        this.sourceDirs.addAll(builder.sourceDirs);
+        this.lockLeaseTime = builder.lockLeaseTime;
+        this.lockWaitTimeout = builder.lockWaitTimeout;
+        this.lockRetryInitialDelay = builder.lockRetryInitialDelay;
+        this.lockRetryMaxDelay = builder.lockRetryMaxDelay;
+        this.watchLock = builder.watchLock;
+        this.parallelism = builder.parallelism;
+        this.executionMode = builder.executionMode;
+        this.backend = builder.backend;
+        this.resetDatabase = builder.resetDatabase;
+        this.resetConcurrency = builder.resetConcurrency;
+        this.maxPoolSize = builder.maxPoolSize;
+        this.minPoolSize = builder.minPoolSize;
+        this.serverSelectionTimeout = builder.serverSelectionTimeout;
+        this.connectTimeout = builder.connectTimeout;
+        this.socketTimeout = builder.socketTimeout;
+        this.tenantDatabases.addAll(builder.tenantDatabases);
+        this.tenantDatabasePattern = builder.tenantDatabasePattern;
+        this.tenantParallelism = builder.tenantParallelism;
+        this.metrics = builder.metrics;
     }
 
     public MongoClientURI getMongoUri() {
@@ -52,10 +101,115 @@ public class DiamongoConfig {
         return javascriptDirs;
     }
 
+    public Path getJavascriptChecksumCache() {
+        return javascriptChecksumCache;
+    }
+
+    public String getJavascriptEngine() {
+        return javascriptEngine;
+    }
+
+    public List<Path> getSourceDirs() {
+        return sourceDirs;
+    }
+
     public String getDatabase() {
         return database;
     }
 
+    public Duration getLockLeaseTime() {
+        return lockLeaseTime;
+    }
+
+    public Duration getLockWaitTimeout() {
+        return lockWaitTimeout;
+    }
+
+    public Duration getLockRetryInitialDelay() {
+        return lockRetryInitialDelay;
+    }
+
+    public Duration getLockRetryMaxDelay() {
+        return lockRetryMaxDelay;
+    }
+
+    public boolean isWatchLock() {
+        return watchLock;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public ExecutionMode getExecutionMode() {
+        return executionMode;
+    }
+
+    public Backend getBackend() {
+        return backend;
+    }
+
+    public boolean isResetDatabase() {
+        return resetDatabase;
+    }
+
+    public int getResetConcurrency() {
+        return resetConcurrency;
+    }
+
+    /**
+     * @return the maximum number of connections per server, or {@code null} for the driver default
+     */
+    public Integer getMaxPoolSize() {
+        return maxPoolSize;
+    }
+
+    /**
+     * @return the minimum number of connections per server, or {@code null} for the driver default
+     */
+    public Integer getMinPoolSize() {
+        return minPoolSize;
+    }
+
+    /**
+     * @return the server selection timeout, or {@code null} for the driver default
+     */
+    public Duration getServerSelectionTimeout() {
+        return serverSelectionTimeout;
+    }
+
+    /**
+     * @return the connect timeout, or {@code null} for the driver default
+     */
+    public Duration getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    /**
+     * @return the socket read timeout, or {@code null} for the driver default
+     */
+    public Duration getSocketTimeout() {
+        return socketTimeout;
+    }
+
+    public List<String> getTenantDatabases() {
+        return tenantDatabases;
+    }
+
+    /**
+     * @return the pattern matching the names of further databases to migrate in multi-tenant mode, or {@code null}
+     */
+    public Pattern getTenantDatabasePattern() {
+        return tenantDatabasePattern;
+    }
+
+    public int getTenantParallelism() {
+        return tenantParallelism;
+    }
+
+    public MigrationMetrics getMetrics() {
+        return metrics;
+    }
 
     /**
      * Builder for {@link DiamongoConfig}.
@@ -65,6 +219,28 @@ public class DiamongoConfig {
         private String database;
         private URL additionalClasspath;
         private List<Path> javascriptDirs = new LinkedList<>();
+        private Path javascriptChecksumCache;
+        private String javascriptEngine;
+        private List<Path> sourceDirs = new LinkedList<>();
+        private Duration lockLeaseTime = Duration.ofSeconds(10);
+        private Duration lockWaitTimeout = Duration.ZERO;
+        private Duration lockRetryInitialDelay = Duration.ofMillis(100);
+        private Duration lockRetryMaxDelay = Duration.ofSeconds(5);
+        private boolean watchLock;
+        private int parallelism = 1;
+        private ExecutionMode executionMode = ExecutionMode.PLATFORM;
+        private Backend backend = Backend.SYNC;
+        private boolean resetDatabase;
+        private int resetConcurrency = 4;
+        private Integer maxPoolSize;
+        private Integer minPoolSize;
+        private Duration serverSelectionTimeout;
+        private Duration connectTimeout;
+        private Duration socketTimeout;
+        private List<String> tenantDatabases = new LinkedList<>();
+        private Pattern tenantDatabasePattern;
+        private int tenantParallelism = 8;
+        private MigrationMetrics metrics = MigrationMetrics.NOOP;
 
         public Builder mongoUri(MongoClientURI mongoUri) {
             this.mongoUri = mongoUri;
@@ -92,6 +268,242 @@ public class DiamongoConfig {
             return this;
         }
 
+        /**
+         * Sets the file caching the checksums of Javascript migrations between runs, so only files that have changed
+         * are read again. Defaults to a file in the user's home directory derived from the Javascript directories.
+         */
+        public Builder javascriptChecksumCache(String file) {
+            this.javascriptChecksumCache = file != null ? Paths.get(file) : null;
+            return this;
+        }
+
+        /**
+         * Sets the name of the JSR 223 script engine executing Javascript migrations, e. g. {@code nashorn}. Defaults
+         * to GraalJS if it is on the classpath and to Nashorn otherwise.
+         */
+        public Builder javascriptEngine(String javascriptEngine) {
+            this.javascriptEngine = javascriptEngine;
+            return this;
+        }
+
+        /**
+         * Adds a directory containing the sources of Java migrations laid out by package. Sources found there are
+         * checksummed on startup and compared with the compiled migrations in order to detect sources that have
+         * changed.
+         */
+        public Builder addSourceDir(String dir) {
+            this.sourceDirs.add(Paths.get(dir));
+            return this;
+        }
+
+        /**
+         * Sets the time after which the migration lock expires unless its lease is renewed by the process holding
+         * it. The lease is renewed in the background at a third of this interval. Defaults to 10 seconds.
+         */
+        public Builder lockLeaseTime(Duration lockLeaseTime) {
+            if (lockLeaseTime == null || lockLeaseTime.isNegative() || lockLeaseTime.isZero()) {
+                throw new ConfigException("Lock lease time must be positive: " + lockLeaseTime);
+            }
+            this.lockLeaseTime = lockLeaseTime;
+            return this;
+        }
+
+        /**
+         * Makes the migration wait for the lock if it is held by another process instead of giving up immediately.
+         * Defaults to {@link Duration#ZERO}, i. e. no waiting.
+         *
+         * @param lockWaitTimeout the maximum time to wait for the lock
+         */
+        public Builder waitForLock(Duration lockWaitTimeout) {
+            if (lockWaitTimeout == null || lockWaitTimeout.isNegative()) {
+                throw new ConfigException("Lock wait timeout must not be negative: " + lockWaitTimeout);
+            }
+            this.lockWaitTimeout = lockWaitTimeout;
+            return this;
+        }
+
+        /**
+         * Sets the bounds of the exponential backoff used while waiting for the lock. Defaults to 100 milliseconds
+         * and 5 seconds.
+         *
+         * @param initialDelay the delay before the first retry
+         * @param maxDelay the maximum delay between retries
+         */
+        public Builder lockRetryDelay(Duration initialDelay, Duration maxDelay) {
+            if (initialDelay == null || maxDelay == null || initialDelay.isNegative() || initialDelay.isZero()
+                    || maxDelay.compareTo(initialDelay) < 0) {
+                throw new ConfigException(String.format("Invalid lock retry delays: initial=%s, max=%s",
+                        initialDelay, maxDelay));
+            }
+            this.lockRetryInitialDelay = initialDelay;
+            this.lockRetryMaxDelay = maxDelay;
+            return this;
+        }
+
+        /**
+         * Enables watching the lock via a change stream while waiting for it, so the lock is retried as soon as it
+         * is released. Falls back to polling if change streams are not supported by the server.
+         */
+        public Builder watchLock(boolean watchLock) {
+            this.watchLock = watchLock;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of independent migrations executed concurrently. Defaults to {@code 1}, i. e.
+         * sequential execution.
+         *
+         * @see io.github.diamongo.core.migration.MigrationMarker#collections()
+         */
+        public Builder parallelism(int parallelism) {
+            if (parallelism < 1) {
+                throw new ConfigException("Parallelism must be positive: " + parallelism);
+            }
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        /**
+         * Sets the kind of threads used for concurrent migration work. Defaults to {@link ExecutionMode#PLATFORM}.
+         */
+        public Builder executionMode(ExecutionMode executionMode) {
+            if (executionMode == null) {
+                throw new ConfigException("Execution mode must not be null");
+            }
+            this.executionMode = executionMode;
+            return this;
+        }
+
+        /**
+         * Sets the MongoDB driver used for the lock and the changelog. Defaults to {@link Backend#SYNC}.
+         */
+        public Builder backend(Backend backend) {
+            if (backend == null) {
+                throw new ConfigException("Backend must not be null");
+            }
+            this.backend = backend;
+            return this;
+        }
+
+        /**
+         * Sets whether clearing drops all collections of the database rather than only the changelog. Defaults to
+         * {@code false}.
+         */
+        public Builder resetDatabase(boolean resetDatabase) {
+            this.resetDatabase = resetDatabase;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of collections dropped concurrently when resetting the database. Defaults to
+         * {@code 4}.
+         */
+        public Builder resetConcurrency(int resetConcurrency) {
+            if (resetConcurrency < 1) {
+                throw new ConfigException("Reset concurrency must be positive: " + resetConcurrency);
+            }
+            this.resetConcurrency = resetConcurrency;
+            return this;
+        }
+
+        /**
+         * Sets the bounds of the connection pool kept per server by the client Diamongo creates. Options given in
+         * the MongoDB URI take precedence. Unset values keep the driver defaults.
+         *
+         * @param minPoolSize the minimum number of connections, may be {@code null}
+         * @param maxPoolSize the maximum number of connections, may be {@code null}
+         */
+        public Builder poolSize(Integer minPoolSize, Integer maxPoolSize) {
+            if (minPoolSize != null && minPoolSize < 0 || maxPoolSize != null && maxPoolSize < 1
+                    || minPoolSize != null && maxPoolSize != null && minPoolSize > maxPoolSize) {
+                throw new ConfigException(String.format("Invalid pool size: min=%s, max=%s", minPoolSize,
+                        maxPoolSize));
+            }
+            this.minPoolSize = minPoolSize;
+            this.maxPoolSize = maxPoolSize;
+            return this;
+        }
+
+        /**
+         * Sets how long the client Diamongo creates waits for a suitable server. Options given in the MongoDB URI take
+         * precedence.
+         */
+        public Builder serverSelectionTimeout(Duration serverSelectionTimeout) {
+            this.serverSelectionTimeout = checkTimeout("Server selection timeout", serverSelectionTimeout);
+            return this;
+        }
+
+        /**
+         * Sets the connect timeout of the client Diamongo creates. Options given in the MongoDB URI take precedence.
+         */
+        public Builder connectTimeout(Duration connectTimeout) {
+            this.connectTimeout = checkTimeout("Connect timeout", connectTimeout);
+            return this;
+        }
+
+        /**
+         * Sets the socket read timeout of the client Diamongo creates; {@link Duration#ZERO} means no timeout.
+         * Options given in the MongoDB URI take precedence.
+         */
+        public Builder socketTimeout(Duration socketTimeout) {
+            this.socketTimeout = checkTimeout("Socket timeout", socketTimeout);
+            return this;
+        }
+
+        private static Duration checkTimeout(String name, Duration timeout) {
+            if (timeout != null && (timeout.isNegative() || timeout.toMillis() > Integer.MAX_VALUE)) {
+                throw new ConfigException(name + " out of range: " + timeout);
+            }
+            return timeout;
+        }
+
+        /**
+         * Adds a database migrated in multi-tenant mode.
+         *
+         * @see io.github.diamongo.core.DiamongoFactory#createMultiTenant(DiamongoConfig)
+         */
+        public Builder addTenantDatabase(String database) {
+            this.tenantDatabases.add(database);
+            return this;
+        }
+
+        /**
+         * Sets a regular expression matching the names of databases migrated in multi-tenant mode in addition to the
+         * ones added explicitly. The expression has to match the whole name.
+         */
+        public Builder tenantDatabasePattern(String regex) {
+            try {
+                this.tenantDatabasePattern = regex != null ? Pattern.compile(regex) : null;
+            } catch (PatternSyntaxException ex) {
+                throw new ConfigException("Invalid tenant database pattern: " + regex, ex);
+            }
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of databases migrated concurrently in multi-tenant mode. Defaults to {@code 8}.
+         */
+        public Builder tenantParallelism(int tenantParallelism) {
+            if (tenantParallelism < 1) {
+                throw new ConfigException("Tenant parallelism must be positive: " + tenantParallelism);
+            }
+            this.tenantParallelism = tenantParallelism;
+            return this;
+        }
+
+        /**
+         * Sets the receiver of lock and migration measurements, e. g. a
+         * {@link io.github.diamongo.core.migration.MicrometerMigrationMetrics}. Defaults to
+         * {@link MigrationMetrics#NOOP}.
+         */
+        public Builder metrics(MigrationMetrics metrics) {
+            if (metrics == null) {
+                throw new ConfigException("Metrics must not be null");
+            }
+            this.metrics = metrics;
+            return this;
+        }
+
         public DiamongoConfig build() {
             return new DiamongoConfig(this);
         }
@@ -0,0 +1,54 @@
+/*
+ * Copyright © 2017 The Diamongo authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.diamongo.core.migration;
+
+import java.util.Date;
+
+import static io.github.diamongo.core.util.ValidationUtils.checkNotNull;
+
+/**
+ * A migration recorded in the changelog. If a migration has been applied several times, e. g. after the changelog
+ * has been cleared, the most recent run is reported.
+ */
+public final class AppliedMigration {
+    private final String name;
+    private final String checksum;
+    private final Date finishedAt;
+    private final long durationMillis;
+
+    public AppliedMigration(String name, String checksum, Date finishedAt, long durationMillis) {
+        this.name = checkNotNull(name, "'name' must not be null");
+        this.checksum = checksum;
+        this.finishedAt = finishedAt;
+        this.durationMillis = durationMillis;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getChecksum() {
+        return checksum;
+    }
+
+    public Date getFinishedAt() {
+        return finishedAt;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+}
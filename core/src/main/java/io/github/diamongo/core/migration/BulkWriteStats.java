@@ -0,0 +1,119 @@
+/*
+ * Copyright © 2017 The Diamongo authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.diamongo.core.migration;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Statistics of a {@link BulkWriter}. All counters are updated concurrently as batches complete.
+ */
+public final class BulkWriteStats {
+    private final long startNanos = System.nanoTime();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong inserted = new AtomicLong();
+    private final AtomicLong matched = new AtomicLong();
+    private final AtomicLong modified = new AtomicLong();
+    private final AtomicLong deleted = new AtomicLong();
+    private final AtomicLong upserted = new AtomicLong();
+    private volatile long endNanos;
+
+    void record(int batchSize, BulkWriteResult result) {
+        requests.addAndGet(batchSize);
+        batches.incrementAndGet();
+        inserted.addAndGet(result.getInsertedCount());
+        matched.addAndGet(result.getMatchedCount());
+        modified.addAndGet(result.getModifiedCount());
+        deleted.addAndGet(result.getDeletedCount());
+        upserted.addAndGet(result.getUpserts().size());
+    }
+
+    /**
+     * Determines the number of requests of a failed batch which have been executed successfully. Ordered writes stop
+     * at the first error, so the requests following it have not been executed at all.
+     */
+    static int succeededRequests(int batchSize, MongoBulkWriteException ex, boolean ordered) {
+        if (!ordered) {
+            return batchSize - ex.getWriteErrors().size();
+        }
+        return ex.getWriteErrors().stream()
+                .mapToInt(BulkWriteError::getIndex)
+                .min()
+                .orElse(batchSize);
+    }
+
+    void finish() {
+        endNanos = System.nanoTime();
+    }
+
+    /**
+     * @return the number of write requests executed successfully
+     */
+    public long getRequests() {
+        return requests.get();
+    }
+
+    public long getBatches() {
+        return batches.get();
+    }
+
+    public long getInserted() {
+        return inserted.get();
+    }
+
+    public long getMatched() {
+        return matched.get();
+    }
+
+    public long getModified() {
+        return modified.get();
+    }
+
+    public long getDeleted() {
+        return deleted.get();
+    }
+
+    public long getUpserted() {
+        return upserted.get();
+    }
+
+    /**
+     * @return the elapsed time in milliseconds, up to now if the writer has not been closed yet
+     */
+    public long getElapsedMillis() {
+        long end = endNanos != 0 ? endNanos : System.nanoTime();
+        return (end - startNanos) / 1_000_000;
+    }
+
+    /**
+     * @return the number of write requests executed per second
+     */
+    public double getThroughput() {
+        long elapsed = Math.max(1, getElapsedMillis());
+        return getRequests() * 1000.0 / elapsed;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d request(s) in %d batch(es) within %d ms (%.0f/s): inserted=%d, matched=%d, "
+                        + "modified=%d, deleted=%d, upserted=%d", getRequests(), getBatches(), getElapsedMillis(),
+                getThroughput(), getInserted(), getMatched(), getModified(), getDeleted(), getUpserted());
+    }
+}
@@ -0,0 +1,259 @@
+/*
+ * Copyright © 2017 The Diamongo authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.diamongo.core.migration;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.WriteModel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+
+import static io.github.diamongo.core.util.ValidationUtils.checkNotNull;
+
+/**
+ * Streams write requests into batched {@code bulkWrite} calls. Full batches are executed in the background while new
+ * requests are being added, with the number of batches in flight being limited. Once the limit is reached,
+ * {@link #add(WriteModel)} blocks until a batch has completed, so producers cannot outrun the database.
+ * <p>
+ * In ordered mode, batches are executed one after another and writing stops at the first error. In unordered mode,
+ * batches may be executed concurrently and all errors are collected. Either way, errors are reported as a
+ * {@link MigrationException} by the next call to {@link #add(WriteModel)}, {@link #flush()} or {@link #close()}.
+ * <p>
+ * Instances are created using {@link MigrationContext#bulkWriter(String)} and are not thread-safe.
+ *
+ * @param <T> the document type of the target collection
+ */
+public final class BulkWriter<T> implements AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(BulkWriter.class);
+
+    private final MongoCollection<T> collection;
+    private final int batchSize;
+    private final int maxInFlight;
+    private final BulkWriteOptions options;
+    private final Semaphore inFlight;
+    private final ExecutorService executor;
+    private final BulkWriteStats stats = new BulkWriteStats();
+    private final MigrationStats migrationStats;
+    private final ConcurrentLinkedQueue<Throwable> errors = new ConcurrentLinkedQueue<>();
+    private List<WriteModel<T>> batch;
+    private boolean closed;
+
+    private BulkWriter(Builder<T> builder) {
+        this.collection = builder.collection;
+        this.migrationStats = builder.migrationStats;
+        this.batchSize = builder.batchSize;
+        // ordered writes must not overtake each other
+        this.maxInFlight = builder.ordered ? 1 : builder.maxInFlight;
+        this.options = new BulkWriteOptions().ordered(builder.ordered);
+        this.inFlight = new Semaphore(maxInFlight);
+        this.executor = builder.executionMode.newExecutor("diamongo-bulk-writer", maxInFlight);
+        this.batch = new ArrayList<>(batchSize);
+    }
+
+    /**
+     * Adds a write request, executing the current batch if it is full.
+     *
+     * @param request the write request
+     * @throws MigrationException if a previous batch failed
+     */
+    public void add(WriteModel<T> request) {
+        checkOpen();
+        checkErrors();
+        batch.add(checkNotNull(request, "'request' must not be null"));
+        if (batch.size() >= batchSize) {
+            submitBatch();
+        }
+    }
+
+    /**
+     * Adds all given write requests.
+     *
+     * @param requests the write requests
+     * @throws MigrationException if a previous batch failed
+     */
+    public void addAll(Iterable<? extends WriteModel<T>> requests) {
+        requests.forEach(this::add);
+    }
+
+    /**
+     * Executes the current batch, even if it is not full, and waits for all batches in flight to complete.
+     *
+     * @throws MigrationException if any batch failed
+     */
+    public void flush() {
+        checkOpen();
+        if (!batch.isEmpty()) {
+            submitBatch();
+        }
+        acquire(maxInFlight);
+        inFlight.release(maxInFlight);
+        checkErrors();
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * @return the statistics of this writer
+     */
+    public BulkWriteStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Flushes remaining requests and releases all resources.
+     *
+     * @throws MigrationException if any batch failed
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        try {
+            flush();
+        } finally {
+            closed = true;
+            executor.shutdown();
+            stats.finish();
+            LOGGER.info("Bulk write to {} finished: {}", collection.getNamespace(), stats);
+        }
+    }
+
+    private void submitBatch() {
+        List<WriteModel<T>> requests = batch;
+        batch = new ArrayList<>(batchSize);
+        acquire(1);
+        executor.execute(() -> {
+            try {
+                if (options.isOrdered() && !errors.isEmpty()) {
+                    return;
+                }
+                record(requests.size(), collection.bulkWrite(requests, options));
+                LOGGER.debug("Bulk write to {}: {}", collection.getNamespace(), stats);
+            } catch (MongoBulkWriteException ex) {
+                record(BulkWriteStats.succeededRequests(requests.size(), ex, options.isOrdered()),
+                        ex.getWriteResult());
+                errors.add(ex);
+            } catch (RuntimeException | Error ex) {
+                // any failure, e. g. an encoding error, must be reported instead of being lost on the executor
+                errors.add(ex);
+            } finally {
+                inFlight.release();
+            }
+        });
+    }
+
+    private void record(int requests, BulkWriteResult result) {
+        stats.record(requests, result);
+        migrationStats.addDocumentsWritten(result.getInsertedCount() + result.getModifiedCount()
+                + result.getDeletedCount() + result.getUpserts().size());
+    }
+
+    private void acquire(int permits) {
+        try {
+            inFlight.acquire(permits);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new MigrationException("Interrupted while waiting for bulk write to " + collection.getNamespace(),
+                    ex);
+        }
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("Bulk writer already closed");
+        }
+    }
+
+    private void checkErrors() {
+        Throwable first = errors.peek();
+        if (first != null) {
+            MigrationException exception = new MigrationException(String.format("%d bulk write(s) to %s failed",
+                    errors.size(), collection.getNamespace()), first);
+            errors.stream().skip(1).forEach(exception::addSuppressed);
+            throw exception;
+        }
+    }
+
+    /**
+     * Builder for {@link BulkWriter}.
+     *
+     * @param <T> the document type of the target collection
+     */
+    public static class Builder<T> {
+        private final MongoCollection<T> collection;
+        private final MigrationStats migrationStats;
+        private final ExecutionMode executionMode;
+        private int batchSize = 1000;
+        private boolean ordered = true;
+        private int maxInFlight = 1;
+
+        Builder(MongoCollection<T> collection, MigrationStats migrationStats, ExecutionMode executionMode) {
+            this.collection = checkNotNull(collection, "'collection' must not be null");
+            this.migrationStats = checkNotNull(migrationStats, "'migrationStats' must not be null");
+            this.executionMode = checkNotNull(executionMode, "'executionMode' must not be null");
+        }
+
+        /**
+         * Sets the number of write requests per {@code bulkWrite} call. Defaults to 1000.
+         */
+        public Builder<T> batchSize(int batchSize) {
+            if (batchSize < 1) {
+                throw new IllegalArgumentException("'batchSize' must be positive: " + batchSize);
+            }
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        /**
+         * Sets whether the writes are executed in order. Defaults to {@code true}. Unordered writes are faster and
+         * allow multiple batches in flight.
+         */
+        public Builder<T> ordered(boolean ordered) {
+            this.ordered = ordered;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of batches executed concurrently. Only has an effect on unordered writes. Defaults
+         * to 1.
+         */
+        public Builder<T> maxInFlight(int maxInFlight) {
+            if (maxInFlight < 1) {
+                throw new IllegalArgumentException("'maxInFlight' must be positive: " + maxInFlight);
+            }
+            this.maxInFlight = maxInFlight;
+            return this;
+        }
+
+        /**
+         * Creates the {@link BulkWriter}. It must be closed in order to write the last batch.
+         */
+        public BulkWriter<T> build() {
+            return new BulkWriter<>(this);
+        }
+    }
+}
@@ -0,0 +1,301 @@
+/*
+ * Copyright © 2017 The Diamongo authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.diamongo.core.migration;
+
+import com.mongodb.client.model.IndexOptions;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.mongodb.client.model.Accumulators.max;
+import static com.mongodb.client.model.Aggregates.group;
+import static com.mongodb.client.model.Filters.eq;
+import static com.mongodb.client.model.Indexes.ascending;
+import static com.mongodb.client.model.Projections.excludeId;
+import static com.mongodb.client.model.Projections.fields;
+import static com.mongodb.client.model.Projections.include;
+import static java.util.Collections.singletonList;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Collections, documents and queries of the changelog shared by {@link MigrationRepository} and
+ * {@link ReactiveMigrationRepository}, so both backends can be used interchangeably against the same database.
+ */
+final class ChangeLogDocuments {
+    static final String CHANGELOG_COLLECTION = "diamongoChangeLog";
+    static final String CHANGELOG_LOCK_COLLECTION = "diamongoChangeLog.lock";
+    static final String CHECKPOINT_COLLECTION = "diamongoChangeLog.checkpoints";
+    static final String FAILURE_COLLECTION = "diamongoChangeLog.failures";
+    // ObjectId must have 12 bytes
+    static final ObjectId LOCK_ID = new ObjectId(new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12});
+    static final Bson ID_FILTER = eq("_id", LOCK_ID);
+
+    static final String MIGRATION_FIELD = "migration";
+    static final String CHECKSUM_FIELD = "checksum";
+    static final String STARTED_AT_FIELD = "startedAt";
+    static final String FINISHED_AT_FIELD = "finishedAt";
+    static final String DURATION_FIELD = "durationMillis";
+    static final String HOSTNAME_FIELD = "hostname";
+    static final String PID_FIELD = "pid";
+    static final String CHANGELOG_INDEX = "migration_checksum";
+    static final String OWNER_FIELD = "owner";
+    static final String ACQUIRED_AT_FIELD = "acquiredAt";
+    static final String EXPIRES_AT_FIELD = "expiresAt";
+    static final String FENCING_TOKEN_FIELD = "fencingToken";
+    static final String LOCK_TTL_INDEX = "expiresAt_ttl";
+    static final String LAST_ID_FIELD = "lastId";
+    static final String COUNTERS_FIELD = "counters";
+    static final String UPDATED_AT_FIELD = "updatedAt";
+    static final String STATS_FIELD = "stats";
+    static final String LATEST_FIELD = "latest";
+    static final String FAILED_AT_FIELD = "failedAt";
+    static final String ERROR_FIELD = "error";
+    static final String INCOMPLETE_FIELD = "incomplete";
+    static final String FAILED_FIELD = "failed";
+    /**
+     * Reads the status of all migrations in a single aggregation, so it takes one round-trip. The changelog is grouped
+     * by migration keeping the fields of the most recent entry; documents compare field by field, so the maximum of a
+     * document starting with the finish time is the most recent entry without sorting. Checkpoints and failures are
+     * added using {@code $unionWith}, which requires MongoDB 4.4, and merged by migration name.
+     */
+    static final List<Bson> STATUS_PIPELINE = Arrays.asList(
+            group("$" + MIGRATION_FIELD,
+                    max(LATEST_FIELD, new Document(FINISHED_AT_FIELD, "$" + FINISHED_AT_FIELD)
+                            .append(CHECKSUM_FIELD, "$" + CHECKSUM_FIELD)
+                            .append(DURATION_FIELD, "$" + DURATION_FIELD))),
+            unionWith(CHECKPOINT_COLLECTION, INCOMPLETE_FIELD),
+            unionWith(FAILURE_COLLECTION, FAILED_FIELD),
+            group("$_id", max(LATEST_FIELD, "$" + LATEST_FIELD), max(INCOMPLETE_FIELD, "$" + INCOMPLETE_FIELD),
+                    max(FAILED_FIELD, "$" + FAILED_FIELD)));
+    // the counter document has no expiry so fencing tokens keep increasing even when the lock is deleted
+    static final Bson FENCING_COUNTER_FILTER = eq("_id", "fencingTokenCounter");
+
+    static final String HOSTNAME = getHostName();
+    static final String PID = getPid();
+    private static final Logger LOGGER = LoggerFactory.getLogger(ChangeLogDocuments.class);
+
+    private ChangeLogDocuments() {
+    }
+
+    /**
+     * @return the stage adding the ids of the given collection flagged with the given field
+     */
+    private static Bson unionWith(String collection, String flagField) {
+        return new Document("$unionWith", new Document("coll", collection)
+                .append("pipeline", singletonList(new Document("$project",
+                        new Document(flagField, new Document("$literal", true))))));
+    }
+
+    private static String getHostName() {
+        try {
+            return InetAddress.getLocalHost().getCanonicalHostName();
+        } catch (UnknownHostException e) {
+            return "unknown";
+        }
+    }
+
+    private static String getPid() {
+        String name = ManagementFactory.getRuntimeMXBean().getName();
+        return name.split("@")[0];
+    }
+
+    static Bson changeLogIndexKeys() {
+        return ascending(MIGRATION_FIELD, CHECKSUM_FIELD);
+    }
+
+    static IndexOptions changeLogIndexOptions() {
+        return new IndexOptions().name(CHANGELOG_INDEX).unique(true);
+    }
+
+    static Bson lockTtlIndexKeys() {
+        return ascending(EXPIRES_AT_FIELD);
+    }
+
+    /**
+     * @return options of the index deleting the lock document once its lease has expired
+     */
+    static IndexOptions lockTtlIndexOptions() {
+        return new IndexOptions().name(LOCK_TTL_INDEX).expireAfter(0L, SECONDS);
+    }
+
+    /**
+     * @return the projection reading only the names and checksums of applied migrations
+     */
+    static Bson appliedMigrationsProjection() {
+        return fields(include(MIGRATION_FIELD, CHECKSUM_FIELD), excludeId());
+    }
+
+    /**
+     * @return the names of applied migrations mapped to their checksums
+     */
+    static Map<String, String> toAppliedMigrations(Iterable<Document> entries) {
+        Map<String, String> applied = new HashMap<>();
+        for (Document entry : entries) {
+            applied.put(entry.getString(MIGRATION_FIELD), entry.getString(CHECKSUM_FIELD));
+        }
+        return applied;
+    }
+
+    /**
+     * Merges the available migrations with the result of the {@link #STATUS_PIPELINE}.
+     */
+    static MigrationStatus toMigrationStatus(MigrationWrappers migrationWrappers, Iterable<Document> docs) {
+        List<AppliedMigration> applied = new ArrayList<>();
+        Set<String> incomplete = new HashSet<>();
+        Set<String> failed = new HashSet<>();
+        for (Document doc : docs) {
+            if (doc.get(LATEST_FIELD) != null) {
+                applied.add(toAppliedMigration(doc));
+            }
+            if (Boolean.TRUE.equals(doc.getBoolean(INCOMPLETE_FIELD))) {
+                incomplete.add(doc.getString("_id"));
+            }
+            if (Boolean.TRUE.equals(doc.getBoolean(FAILED_FIELD))) {
+                failed.add(doc.getString("_id"));
+            }
+        }
+        return MigrationStatus.of(migrationWrappers, applied, incomplete, failed);
+    }
+
+    static AppliedMigration toAppliedMigration(Document doc) {
+        Document latest = doc.get(LATEST_FIELD, Document.class);
+        Number duration = latest.get(DURATION_FIELD, Number.class);
+        return new AppliedMigration(doc.getString("_id"), latest.getString(CHECKSUM_FIELD),
+                latest.getDate(FINISHED_AT_FIELD), duration != null ? duration.longValue() : 0);
+    }
+
+    /**
+     * @return the migrations which have not been applied yet in version order
+     */
+    static List<MigrationWrapper> findPendingMigrations(MigrationWrappers migrationWrappers,
+            Map<String, String> applied) {
+        return migrationWrappers.stream()
+                .filter(wrapper -> !applied.containsKey(wrapper.getName()))
+                .collect(toList());
+    }
+
+    /**
+     * @return the filter matching the checkpoint or failure of the specified migration
+     */
+    static Bson migrationFilter(String migrationName) {
+        return eq("_id", migrationName);
+    }
+
+    static Checkpoint toCheckpoint(Document doc) {
+        if (doc == null) {
+            return null;
+        }
+
+        Map<String, Long> counters = new LinkedHashMap<>();
+        Document storedCounters = doc.get(COUNTERS_FIELD, Document.class);
+        if (storedCounters != null) {
+            storedCounters.forEach((key, value) -> counters.put(key, ((Number) value).longValue()));
+        }
+        return new Checkpoint(doc.get(LAST_ID_FIELD), counters);
+    }
+
+    /**
+     * @return {@code true}, if the checkpoint document was written by a migration with a different checksum
+     */
+    static boolean isStaleCheckpoint(Document doc, MigrationWrapper wrapper) {
+        // checkpoints written before checksums were recorded are still resumed
+        String checksum = doc != null ? doc.getString(CHECKSUM_FIELD) : null;
+        if (checksum == null || checksum.equals(wrapper.getChecksum())) {
+            return false;
+        }
+        LOGGER.warn("Discarding checkpoint of migration {} since its checksum has changed from {} to {}",
+                wrapper.getName(), checksum, wrapper.getChecksum());
+        return true;
+    }
+
+    static Document checkpointDocument(MigrationWrapper wrapper, Checkpoint checkpoint, long fencingToken) {
+        return new Document("_id", wrapper.getName())
+                .append(CHECKSUM_FIELD, wrapper.getChecksum())
+                .append(LAST_ID_FIELD, checkpoint.getLastId())
+                .append(COUNTERS_FIELD, toDocument(checkpoint.getCounters()))
+                .append(UPDATED_AT_FIELD, new Date())
+                .append(HOSTNAME_FIELD, HOSTNAME)
+                .append(PID_FIELD, PID)
+                .append(FENCING_TOKEN_FIELD, fencingToken);
+    }
+
+    /**
+     * Creates the changelog entry of an applied migration.
+     *
+     * @param counters the migration's checkpoint counters, {@code null} if it did not use checkpoints
+     */
+    static Document changeLogEntry(MigrationWrapper wrapper, long start, long end, long fencingToken,
+            Map<String, Long> counters, MigrationStats stats) {
+        Document entry = new Document(MIGRATION_FIELD, wrapper.getName())
+                .append(CHECKSUM_FIELD, wrapper.getChecksum())
+                .append(STARTED_AT_FIELD, new Date(start))
+                .append(FINISHED_AT_FIELD, new Date(end))
+                .append(DURATION_FIELD, end - start)
+                .append(HOSTNAME_FIELD, HOSTNAME)
+                .append(PID_FIELD, PID)
+                .append(FENCING_TOKEN_FIELD, fencingToken);
+        if (counters != null) {
+            entry.append(COUNTERS_FIELD, toDocument(counters));
+        }
+        if (!stats.isEmpty()) {
+            entry.append(STATS_FIELD, stats.toDocument());
+        }
+        return entry;
+    }
+
+    /**
+     * Creates the record of a failed run, replacing the one of a previous failure. It is ignored once the migration
+     * has been applied.
+     */
+    static Document failureDocument(MigrationWrapper wrapper, Throwable error) {
+        return new Document("_id", wrapper.getName())
+                .append(CHECKSUM_FIELD, wrapper.getChecksum())
+                .append(FAILED_AT_FIELD, new Date())
+                .append(ERROR_FIELD, String.valueOf(error))
+                .append(HOSTNAME_FIELD, HOSTNAME)
+                .append(PID_FIELD, PID);
+    }
+
+    private static Document toDocument(Map<String, Long> counters) {
+        Document doc = new Document();
+        counters.forEach(doc::append);
+        return doc;
+    }
+
+    /**
+     * @return {@code true}, unless the collection is a system collection or belongs to the changelog
+     */
+    static boolean isApplicationCollection(String name) {
+        return !name.startsWith("system.") && !name.equals(CHANGELOG_COLLECTION)
+                && !name.startsWith(CHANGELOG_COLLECTION + '.');
+    }
+}
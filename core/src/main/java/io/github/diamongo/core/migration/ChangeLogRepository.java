@@ -0,0 +1,89 @@
+/*
+ * Copyright © 2017 The Diamongo authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.diamongo.core.migration;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Backend running migrations under the migration lock and recording them in the changelog.
+ *
+ * @see MigrationRepository
+ * @see ReactiveMigrationRepository
+ */
+public interface ChangeLogRepository {
+
+    /**
+     * Runs migrations represented by the given {@link MigrationWrappers} instance. Migrations are only executed if the
+     * migration lock is not currently held by another migration process. Migrations already recorded in the changelog
+     * are skipped.
+     *
+     * @return {@code true}, if the migration was executed successfully, {@code false} if the migration lock is held by
+     *         another process
+     */
+    boolean runMigration(MigrationWrappers migrationWrappers);
+
+    /**
+     * Same as {@link #runMigration(MigrationWrappers)} without blocking the calling thread.
+     *
+     * @return a future completed with {@code true}, if the migration was executed successfully, {@code false} if the
+     *         migration lock is held by another process
+     */
+    CompletableFuture<Boolean> runMigrationAsync(MigrationWrappers migrationWrappers);
+
+    /**
+     * @return {@code true}, if this backend can execute {@link ReactiveMigration reactive migrations}
+     */
+    default boolean supportsReactiveMigrations() {
+        return false;
+    }
+
+    /**
+     * Waits until the migration lock is released by its holder.
+     *
+     * @param timeout the maximum time to wait
+     * @return {@code true}, if the lock has been released, {@code false} if the timeout has elapsed
+     */
+    boolean awaitLockRelease(Duration timeout);
+
+    /**
+     * Loads the names and checksums of all applied migrations from the changelog.
+     *
+     * @return a map of applied migration names to their checksums
+     */
+    Map<String, String> loadAppliedMigrations();
+
+    /**
+     * Loads the status of the given migrations. The most recent changelog entry of every applied migration, the
+     * checkpoints of incomplete migrations and recorded failures are read with a single aggregation.
+     *
+     * @param migrationWrappers the available migrations
+     * @return the available migrations merged with the changelog
+     */
+    MigrationStatus loadStatus(MigrationWrappers migrationWrappers);
+
+    /**
+     * Drops the changelog, its checkpoints and recorded failures while holding the migration lock. The lock is
+     * released last, so no other process can run migrations against a partially cleared database. The fencing counter
+     * is kept, so fencing tokens keep increasing across clears. If requested, all other collections are dropped
+     * beforehand in parallel.
+     *
+     * @param options controls whether the whole database is reset
+     * @return the result; not cleared if the migration lock is held by another process
+     */
+    ClearResult clear(ClearOptions options);
+}
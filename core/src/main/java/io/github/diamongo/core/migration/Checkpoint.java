@@ -0,0 +1,54 @@
+/*
+ * Copyright © 2017 The Diamongo authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.diamongo.core.migration;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Immutable state of a partially executed migration, i. e. the {@code _id} of the last processed document and
+ * arbitrary counters.
+ */
+public final class Checkpoint {
+    private final Object lastId;
+    private final Map<String, Long> counters;
+
+    /**
+     * @param lastId the {@code _id} of the last processed document, may be {@code null}
+     * @param counters the counters
+     */
+    public Checkpoint(Object lastId, Map<String, Long> counters) {
+        this.lastId = lastId;
+        this.counters = Collections.unmodifiableMap(new LinkedHashMap<>(counters));
+    }
+
+    /**
+     * @return the {@code _id} of the last processed document, or {@code null} if none has been processed
+     */
+    public Object getLastId() {
+        return lastId;
+    }
+
+    public Map<String, Long> getCounters() {
+        return counters;
+    }
+
+    @Override
+    public String toString() {
+        return "Checkpoint{lastId=" + lastId + ", counters=" + counters + '}';
+    }
+}
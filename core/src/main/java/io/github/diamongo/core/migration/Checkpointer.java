@@ -0,0 +1,175 @@
+/*
+ * Copyright © 2017 The Diamongo authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.diamongo.core.migration;
+
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static com.mongodb.client.model.Filters.gt;
+import static io.github.diamongo.core.util.ValidationUtils.checkNotNull;
+
+/**
+ * Tracks the progress of a long-running data migration and periodically persists it as a {@link Checkpoint}, so a
+ * migration which died halfway can resume where it left off instead of starting from scratch. The typical usage is
+ * iterating a cursor sorted by {@code _id}:
+ *
+ * <pre>
+ * Checkpointer checkpointer = context.checkpointer();
+ * for (Document doc : collection.find(checkpointer.resumeFilter()).sort(ascending("_id"))) {
+ *     // migrate document
+ *     checkpointer.processed(doc.get("_id"));
+ * }
+ * </pre>
+ *
+ * A checkpoint is saved every {@code n} processed documents or after a certain time has elapsed, whichever comes
+ * first. If documents are written using a {@link BulkWriter}, the writer must be registered with
+ * {@link #flushBeforeSave(BulkWriter)}. Otherwise a checkpoint could cover documents whose writes are still buffered,
+ * and a resumed run would skip them:
+ *
+ * <pre>
+ * try (BulkWriter&lt;Document&gt; writer = context.bulkWriter("target").build()) {
+ *     Checkpointer checkpointer = context.checkpointer().flushBeforeSave(writer);
+ *     for (Document doc : collection.find(checkpointer.resumeFilter()).sort(ascending("_id"))) {
+ *         writer.add(new InsertOneModel&lt;&gt;(doc));
+ *         checkpointer.processed(doc.get("_id"));
+ *     }
+ * }
+ * </pre>
+ *
+ * Instances are obtained from {@link MigrationContext#checkpointer()} and are not thread-safe.
+ */
+public final class Checkpointer {
+    /**
+     * The name of the counter holding the number of processed documents.
+     */
+    public static final String PROCESSED = "processed";
+
+    private final Checkpoint resumedFrom;
+    private final Consumer<Checkpoint> store;
+    private final long everyDocuments;
+    private final long everyNanos;
+    private final Map<String, Long> counters = new LinkedHashMap<>();
+    private final List<BulkWriter<?>> writers = new ArrayList<>();
+    private Object lastId;
+    private long unsaved;
+    private long lastSave = System.nanoTime();
+
+    Checkpointer(Checkpoint resumedFrom, Consumer<Checkpoint> store, long everyDocuments, Duration every) {
+        this.resumedFrom = resumedFrom;
+        this.store = store;
+        this.everyDocuments = everyDocuments;
+        this.everyNanos = every.toNanos();
+        if (resumedFrom != null) {
+            this.lastId = resumedFrom.getLastId();
+            this.counters.putAll(resumedFrom.getCounters());
+        }
+    }
+
+    /**
+     * @return {@code true}, if a previous incomplete run of the migration left a checkpoint to resume from
+     */
+    public boolean isResumed() {
+        return resumedFrom != null;
+    }
+
+    /**
+     * @return the {@code _id} of the last processed document, or {@code null} if none has been processed
+     */
+    public Object getLastId() {
+        return lastId;
+    }
+
+    /**
+     * @return a filter matching all documents with an {@code _id} greater than the last processed one, or an empty
+     *         filter if no document has been processed yet
+     */
+    public Bson resumeFilter() {
+        return lastId == null ? new Document() : gt("_id", lastId);
+    }
+
+    /**
+     * @param name the counter's name
+     * @return the value of the counter including values restored from the checkpoint, {@code 0} if unknown
+     */
+    public long getCounter(String name) {
+        return counters.getOrDefault(name, 0L);
+    }
+
+    /**
+     * @return a copy of all counters
+     */
+    public Map<String, Long> getCounters() {
+        return new LinkedHashMap<>(counters);
+    }
+
+    /**
+     * Increments a counter. Counters are saved with the next checkpoint.
+     *
+     * @param name the counter's name
+     * @param delta the value to add
+     */
+    public void increment(String name, long delta) {
+        counters.merge(name, delta, Long::sum);
+    }
+
+    /**
+     * Registers a writer which is flushed before every checkpoint, so a checkpoint only covers documents whose writes
+     * have been acknowledged. Closed writers are skipped, since they have been flushed already.
+     *
+     * @param writer the writer of the processed documents
+     * @return this checkpointer
+     */
+    public Checkpointer flushBeforeSave(BulkWriter<?> writer) {
+        writers.add(checkNotNull(writer, "'writer' must not be null"));
+        return this;
+    }
+
+    /**
+     * Records a processed document and saves a checkpoint if due.
+     *
+     * @param id the {@code _id} of the processed document; documents must be processed in ascending {@code _id} order
+     */
+    public void processed(Object id) {
+        lastId = id;
+        increment(PROCESSED, 1);
+        if (++unsaved >= everyDocuments || System.nanoTime() - lastSave >= everyNanos) {
+            save();
+        }
+    }
+
+    /**
+     * Flushes the registered writers and saves a checkpoint immediately.
+     *
+     * @throws MigrationException if flushing a writer failed, in which case no checkpoint is saved
+     */
+    public void save() {
+        for (BulkWriter<?> writer : writers) {
+            if (!writer.isClosed()) {
+                writer.flush();
+            }
+        }
+        store.accept(new Checkpoint(lastId, counters));
+        unsaved = 0;
+        lastSave = System.nanoTime();
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright © 2017 The Diamongo authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.diamongo.core.migration;
+
+/**
+ * Options controlling what {@link ChangeLogRepository#clear(ClearOptions)} drops besides the changelog.
+ */
+public final class ClearOptions {
+
+    /**
+     * Options for dropping only the changelog and its checkpoints.
+     */
+    public static final ClearOptions CHANGELOG_ONLY = new ClearOptions(false, 1);
+
+    private final boolean resetDatabase;
+    private final int concurrency;
+
+    /**
+     * @param resetDatabase whether all other collections of the database are dropped as well
+     * @param concurrency the maximum number of collections dropped concurrently when resetting the database
+     */
+    public ClearOptions(boolean resetDatabase, int concurrency) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("'concurrency' must be positive: " + concurrency);
+        }
+        this.resetDatabase = resetDatabase;
+        this.concurrency = concurrency;
+    }
+
+    public boolean isResetDatabase() {
+        return resetDatabase;
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    @Override
+    public String toString() {
+        return "ClearOptions{resetDatabase=" + resetDatabase + ", concurrency=" + concurrency + '}';
+    }
+}
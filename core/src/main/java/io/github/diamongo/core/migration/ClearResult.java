@@ -0,0 +1,71 @@
+/*
+ * Copyright © 2017 The Diamongo authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.diamongo.core.migration;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of clearing a database.
+ */
+public final class ClearResult {
+    private final String database;
+    private final boolean cleared;
+    private final List<String> droppedCollections;
+    private final long durationMillis;
+
+    ClearResult(String database, boolean cleared, List<String> droppedCollections, long durationMillis) {
+        this.database = database;
+        this.cleared = cleared;
+        this.droppedCollections = Collections.unmodifiableList(droppedCollections);
+        this.durationMillis = durationMillis;
+    }
+
+    public String getDatabase() {
+        return database;
+    }
+
+    /**
+     * @return {@code true}, if the database has been cleared, {@code false} if the migration lock is held by another
+     *         process
+     */
+    public boolean isCleared() {
+        return cleared;
+    }
+
+    /**
+     * @return the application collections dropped when resetting the database, not including the changelog
+     */
+    public List<String> getDroppedCollections() {
+        return droppedCollections;
+    }
+
+    /**
+     * @return the time it took to clear the database including acquiring the lock
+     */
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    @Override
+    public String toString() {
+        if (!cleared) {
+            return String.format("Database %s not cleared, lock held by another process", database);
+        }
+        return String.format("Database %s cleared in %d ms, %d collection(s) dropped", database, durationMillis,
+                droppedCollections.size());
+    }
+}
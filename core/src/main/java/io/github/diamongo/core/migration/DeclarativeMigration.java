@@ -0,0 +1,252 @@
+/*
+ * Copyright © 2017 The Diamongo authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.diamongo.core.migration;
+
+import com.mongodb.MongoNamespace;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.RenameCollectionOptions;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.result.UpdateResult;
+import org.bson.BsonInvalidOperationException;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.json.JsonParseException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * A migration declared in a JSON file instead of code. Every operation is executed as a single server-side command,
+ * so no documents are transferred to the client. The file holds the operations in the array {@code operations}, each
+ * being a document with a single field naming the operation:
+ * <pre>
+ * {"operations": [
+ *   {"updateMany": {"collection": "users", "filter": {"email": {"$exists": true}},
+ *                   "update": [{"$set": {"email": {"$toLower": "$email"}}}]}},
+ *   {"createIndexes": {"collection": "users", "indexes": [{"key": {"email": 1}, "unique": true}]}},
+ *   {"dropIndex": {"collection": "users", "name": "name_1"}},
+ *   {"renameCollection": {"collection": "users", "to": "accounts", "dropTarget": false}}
+ * ]}
+ * </pre>
+ * The {@code update} of {@code updateMany} is either an update document or an aggregation pipeline, which requires
+ * MongoDB 4.2. Index specifications are passed to the server as is; a missing index name is derived from the keys
+ * like the server's default name. The file may use MongoDB Extended JSON, e. g. for dates.
+ */
+final class DeclarativeMigration implements MigrationContextMigration {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DeclarativeMigration.class);
+
+    static final String OPERATIONS_FIELD = "operations";
+
+    private final String source;
+    private final List<Operation> operations;
+
+    private DeclarativeMigration(String source, List<Operation> operations) {
+        this.source = source;
+        this.operations = operations;
+    }
+
+    /**
+     * Reads a declarative migration from a UTF-8 encoded JSON file.
+     *
+     * @throws MigrationException if the file cannot be read or is invalid
+     */
+    static DeclarativeMigration load(Path file) {
+        try {
+            return parse(new String(Files.readAllBytes(file), StandardCharsets.UTF_8), file.toString());
+        } catch (IOException ex) {
+            throw new MigrationException("Error reading declarative migration: " + file, ex);
+        }
+    }
+
+    /**
+     * Parses a declarative migration.
+     *
+     * @param json the migration
+     * @param source describes where the migration comes from in error messages
+     * @throws MigrationException if the migration is invalid
+     */
+    static DeclarativeMigration parse(String json, String source) {
+        try {
+            List<Document> documents = Document.parse(json).getList(OPERATIONS_FIELD, Document.class);
+            if (documents == null || documents.isEmpty()) {
+                throw invalid(source, "no operations");
+            }
+            List<Operation> operations = new ArrayList<>(documents.size());
+            for (Document document : documents) {
+                operations.add(parseOperation(document, source));
+            }
+            return new DeclarativeMigration(source, Collections.unmodifiableList(operations));
+        } catch (JsonParseException | BsonInvalidOperationException | ClassCastException ex) {
+            throw new MigrationException("Invalid declarative migration " + source + ": " + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * @return the number of operations
+     */
+    int size() {
+        return operations.size();
+    }
+
+    @Override
+    public void migrate(MigrationContext context) {
+        for (Operation operation : operations) {
+            long start = System.nanoTime();
+            operation.execute(context);
+            LOGGER.info("Executed {} in {} ms", operation, (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    private static Operation parseOperation(Document document, String source) {
+        if (document.size() != 1) {
+            throw invalid(source, "operation must have exactly one field: " + document.toJson());
+        }
+        Map.Entry<String, Object> entry = document.entrySet().iterator().next();
+        if (!(entry.getValue() instanceof Document)) {
+            throw invalid(source, "arguments of '" + entry.getKey() + "' must be a document");
+        }
+        Document args = (Document) entry.getValue();
+        String collection = required(args, "collection", String.class, source);
+        switch (entry.getKey()) {
+            case "updateMany":
+                return updateMany(collection, args, source);
+            case "createIndexes":
+                return createIndexes(collection, required(args, "indexes", List.class, source), source);
+            case "dropIndex":
+                return dropIndex(collection, required(args, "name", String.class, source));
+            case "renameCollection":
+                return renameCollection(collection, required(args, "to", String.class, source),
+                        args.getBoolean("dropTarget", false));
+            default:
+                throw invalid(source, "unknown operation '" + entry.getKey() + "'");
+        }
+    }
+
+    private static Operation updateMany(String collection, Document args, String source) {
+        Bson filter = args.get("filter", new Document());
+        UpdateOptions options = new UpdateOptions().upsert(args.getBoolean("upsert", false));
+        Object update = args.get("update");
+        if (update instanceof Document) {
+            Bson updateDocument = (Document) update;
+            return new Operation("updateMany on " + collection, context ->
+                    record(context, collection(context, collection).updateMany(filter, updateDocument, options)));
+        }
+        if (update instanceof List && !((List<?>) update).isEmpty()) {
+            List<Bson> pipeline = ((List<?>) update).stream().map(stage -> (Bson) stage).collect(Collectors.toList());
+            return new Operation("updateMany on " + collection, context ->
+                    record(context, collection(context, collection).updateMany(filter, pipeline, options)));
+        }
+        throw invalid(source, "'update' must be an update document or a non-empty pipeline");
+    }
+
+    private static Operation createIndexes(String collection, List<?> specs, String source) {
+        if (specs.isEmpty()) {
+            throw invalid(source, "'indexes' must not be empty");
+        }
+        List<Document> indexes = new ArrayList<>(specs.size());
+        for (Object spec : specs) {
+            Document index = new Document((Document) spec);
+            Document key = required(index, "key", Document.class, source);
+            if (!index.containsKey("name")) {
+                index.put("name", defaultIndexName(key));
+            }
+            indexes.add(index);
+        }
+        Document command = new Document("createIndexes", collection).append("indexes", indexes);
+        return new Operation("createIndexes on " + collection, context -> context.getDatabase().runCommand(command));
+    }
+
+    private static Operation dropIndex(String collection, String name) {
+        return new Operation("dropIndex " + name + " on " + collection,
+                context -> collection(context, collection).dropIndex(name));
+    }
+
+    private static Operation renameCollection(String collection, String to, boolean dropTarget) {
+        return new Operation("renameCollection " + collection + " to " + to, context -> {
+            MongoDatabase database = context.getDatabase();
+            database.getCollection(collection).renameCollection(new MongoNamespace(database.getName(), to),
+                    new RenameCollectionOptions().dropTarget(dropTarget));
+        });
+    }
+
+    /**
+     * Returns the name the server assigns to an index with the given keys, e. g. {@code a_1_b_-1}.
+     */
+    static String defaultIndexName(Document key) {
+        return key.entrySet().stream()
+                .map(entry -> entry.getKey() + '_' + entry.getValue())
+                .collect(Collectors.joining("_"));
+    }
+
+    private static void record(MigrationContext context, UpdateResult result) {
+        context.getStats().addDocumentsWritten(result.getModifiedCount());
+    }
+
+    private static MongoCollection<Document> collection(MigrationContext context, String collection) {
+        return context.getDatabase().getCollection(collection);
+    }
+
+    private static <T> T required(Document document, String field, Class<T> type, String source) {
+        Object value = document.get(field);
+        if (!type.isInstance(value)) {
+            throw invalid(source, String.format("'%s' must be a %s: %s", field, type.getSimpleName(),
+                    document.toJson()));
+        }
+        return type.cast(value);
+    }
+
+    private static MigrationException invalid(String source, String message) {
+        return new MigrationException("Invalid declarative migration " + source + ": " + message);
+    }
+
+    @Override
+    public String toString() {
+        return "DeclarativeMigration[" + source + "]";
+    }
+
+    /**
+     * A single server-side command.
+     */
+    private static final class Operation {
+        private final String description;
+        private final Consumer<MigrationContext> command;
+
+        Operation(String description, Consumer<MigrationContext> command) {
+            this.description = description;
+            this.command = command;
+        }
+
+        void execute(MigrationContext context) {
+            command.accept(context);
+        }
+
+        @Override
+        public String toString() {
+            return description;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright © 2017 The Diamongo authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.diamongo.core.migration;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Determines the kind of threads used for the concurrent parts of migration work, i. e. the lock heartbeat, parallel
+ * migrations, partitioned scans, index builds and bulk writes.
+ */
+public enum ExecutionMode {
+
+    /**
+     * Uses platform daemon threads.
+     */
+    PLATFORM,
+
+    /**
+     * Uses a new virtual thread per task, which is cheap enough to block on every MongoDB round-trip. Requires Java 21
+     * or newer and falls back to {@link #PLATFORM} on older JVMs.
+     */
+    VIRTUAL;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ExecutionMode.class);
+    private static final Method OF_VIRTUAL = findOfVirtual();
+    private static final AtomicBoolean FALLBACK_LOGGED = new AtomicBoolean();
+
+    /**
+     * @return {@code true}, if the JVM supports this execution mode; {@link #VIRTUAL} falls back to {@link #PLATFORM}
+     *         otherwise
+     */
+    public boolean isSupported() {
+        return this == PLATFORM || OF_VIRTUAL != null;
+    }
+
+    /**
+     * Creates a factory for threads of this execution mode.
+     *
+     * @param prefix the prefix of the thread names, followed by a running number
+     * @return the thread factory
+     */
+    ThreadFactory threadFactory(String prefix) {
+        if (this == VIRTUAL) {
+            if (OF_VIRTUAL != null) {
+                return virtualThreadFactory(prefix);
+            }
+            if (FALLBACK_LOGGED.compareAndSet(false, true)) {
+                LOGGER.warn("Virtual threads require Java 21 or newer, falling back to platform threads");
+            }
+        }
+        return new DaemonThreadFactory(prefix);
+    }
+
+    /**
+     * Creates an executor running at most the given number of tasks concurrently on threads of this execution mode.
+     * {@link #PLATFORM} threads are pooled, whereas every task gets a new virtual thread and waits for one of
+     * {@code maxConcurrency} permits on it, so the limit only protects the server and no thread is kept around.
+     *
+     * @param prefix the prefix of the thread names
+     * @param maxConcurrency the maximum number of tasks running concurrently
+     * @return the executor
+     */
+    ExecutorService newExecutor(String prefix, int maxConcurrency) {
+        ThreadFactory threadFactory = threadFactory(prefix);
+        if (this == VIRTUAL && OF_VIRTUAL != null) {
+            return new ThreadPerTaskExecutor(threadFactory, maxConcurrency);
+        }
+        return Executors.newFixedThreadPool(maxConcurrency, threadFactory);
+    }
+
+    /**
+     * Runs the task for each item on at most the given number of threads of this execution mode and waits until all
+     * of them have completed. A failing task does not cancel the others.
+     *
+     * @param prefix the prefix of the thread names
+     * @param maxConcurrency the maximum number of tasks running concurrently
+     * @param items the items to process
+     * @param task processes a single item
+     * @param description describes the work in the exception message
+     * @throws MigrationException if the task failed for any item; the first failure is its cause, later ones are
+     *         suppressed
+     */
+    <T> void forEachConcurrently(String prefix, int maxConcurrency, Collection<T> items, Consumer<? super T> task,
+            String description) {
+        if (items.isEmpty()) {
+            return;
+        }
+        Map<T, Throwable> failures = Collections.synchronizedMap(new LinkedHashMap<>());
+        ExecutorService executor = newExecutor(prefix, Math.min(maxConcurrency, items.size()));
+        try {
+            CompletableFuture<?>[] futures = items.stream()
+                    .map(item -> CompletableFuture.runAsync(() -> {
+                        try {
+                            task.accept(item);
+                        } catch (RuntimeException | Error ex) {
+                            failures.put(item, ex);
+                        }
+                    }, executor))
+                    .toArray(CompletableFuture[]::new);
+            CompletableFuture.allOf(futures).join();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        if (!failures.isEmpty()) {
+            List<Throwable> causes = new ArrayList<>(failures.values());
+            MigrationException exception = new MigrationException(description + " failed for " + failures.keySet(),
+                    causes.get(0));
+            causes.subList(1, causes.size()).forEach(exception::addSuppressed);
+            throw exception;
+        }
+    }
+
+    private static ThreadFactory virtualThreadFactory(String prefix) {
+        try {
+            Object builder = OF_VIRTUAL.invoke(null);
+            Class<?> builderType = OF_VIRTUAL.getReturnType();
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, prefix + '-', 1L);
+            return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException ex) {
+            throw new IllegalStateException("Cannot create virtual thread factory", ex);
+        }
+    }
+
+    private static Method findOfVirtual() {
+        try {
+            return Thread.class.getMethod("ofVirtual");
+        } catch (NoSuchMethodException ex) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright © 2017 The Diamongo authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.diamongo.core.migration;
+
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Executes Javascript migrations in-process.
+ *
+ * @see ScriptEngineJavascriptEngine
+ */
+public interface JavascriptEngine {
+
+    /**
+     * Executes a script. Implementations may cache compiled scripts, so a script is only compiled again if its
+     * checksum changes.
+     *
+     * @param script the script file, UTF-8 encoded
+     * @param checksum the checksum of the script's content
+     * @param bindings the variables visible to the script, e. g. {@code db}
+     * @throws MigrationException if the script cannot be compiled or fails
+     */
+    void execute(Path script, String checksum, Map<String, Object> bindings);
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright © 2017 The Diamongo authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.diamongo.core.migration;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A Javascript migration executed by a {@link JavascriptEngine}. The script sees the database to migrate as
+ * {@code db}, a {@link com.mongodb.client.MongoDatabase} sharing the connection pool of the changelog, and the
+ * {@link MigrationContext} as {@code context}.
+ */
+final class JavascriptMigration implements MigrationContextMigration {
+    static final String DATABASE_BINDING = "db";
+    static final String CONTEXT_BINDING = "context";
+
+    private final JavascriptEngine engine;
+    private final Path script;
+    private final String checksum;
+
+    JavascriptMigration(JavascriptEngine engine, Path script, String checksum) {
+        this.engine = engine;
+        this.script = script;
+        this.checksum = checksum;
+    }
+
+    @Override
+    public void migrate(MigrationContext context) {
+        Map<String, Object> bindings = new HashMap<>();
+        bindings.put(DATABASE_BINDING, context.getDatabase());
+        bindings.put(CONTEXT_BINDING, context);
+        engine.execute(script, checksum, bindings);
+    }
+}
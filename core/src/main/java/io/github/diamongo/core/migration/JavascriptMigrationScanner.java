@@ -0,0 +1,190 @@
+/*
+ * Copyright © 2017 The Diamongo authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.diamongo.core.migration;
+
+import io.github.diamongo.core.util.ChecksumCache;
+import io.github.diamongo.core.util.ChecksumUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Finds Javascript and declarative migrations by walking the configured directories recursively. Migration files are
+ * named like Java migrations with a {@code .js} or {@code .json} extension, e. g. {@code V1_0__add_index.js}; other
+ * files with these extensions are ignored.
+ * <p>
+ * The directories are walked in parallel and the files are hashed in parallel on the common fork-join pool. Checksums
+ * of files whose modification time and size are unchanged are taken from a {@link ChecksumCache}, so repeated runs
+ * only read files that have changed.
+ *
+ * @see DeclarativeMigration
+ */
+final class JavascriptMigrationScanner {
+    private static final Logger LOGGER = LoggerFactory.getLogger(JavascriptMigrationScanner.class);
+    static final String JAVASCRIPT_EXTENSION = ".js";
+    static final String DECLARATIVE_EXTENSION = ".json";
+    private static final Pattern FILE_NAME = Pattern.compile("V\\d+(_\\d+)*__.+\\.(js|json)");
+
+    private final List<Path> dirs;
+    private final Path cacheFile;
+
+    /**
+     * @param dirs the directories to walk
+     * @param cacheFile the file caching checksums between runs
+     */
+    JavascriptMigrationScanner(List<Path> dirs, Path cacheFile) {
+        this.dirs = dirs;
+        this.cacheFile = cacheFile;
+    }
+
+    /**
+     * Returns the default cache file for the specified directories. It is located in the user's home directory and
+     * its name is derived from the directories, so projects do not evict each other's entries.
+     */
+    static Path defaultCacheFile(List<Path> dirs) {
+        String key = dirs.stream().map(dir -> dir.toAbsolutePath().normalize().toString()).collect(toList()).toString();
+        return Paths.get(System.getProperty("user.home"), ".diamongo", "cache",
+                "javascript-" + ChecksumUtils.sha256(key).substring(0, 16) + ".properties");
+    }
+
+    /**
+     * Finds all migrations and computes their checksums.
+     *
+     * @return the migrations sorted by name
+     * @throws MigrationException if a directory cannot be read or several migrations have the same name
+     */
+    List<Script> scan() {
+        long start = System.nanoTime();
+        List<Script> found = dirs.parallelStream()
+                .map(JavascriptMigrationScanner::walk)
+                .flatMap(List::stream)
+                .collect(toList());
+
+        ChecksumCache cache = loadCache();
+        found.parallelStream().forEach(script -> script.checksum = checksum(script, cache));
+        try {
+            cache.save();
+        } catch (IOException ex) {
+            LOGGER.warn("Cannot write checksum cache {}: {}", cacheFile, ex.toString());
+        }
+
+        Map<String, Script> scripts = new TreeMap<>();
+        for (Script script : found) {
+            Script duplicate = scripts.putIfAbsent(script.name, script);
+            if (duplicate != null) {
+                throw new MigrationException(String.format("Duplicate migration %s: %s and %s",
+                        script.name, duplicate.path, script.path));
+            }
+        }
+
+        LOGGER.info("Found {} migration file(s) in {} ms, reused {} cached checksum(s)", scripts.size(),
+                (System.nanoTime() - start) / 1_000_000, cache.getHits());
+        return new ArrayList<>(scripts.values());
+    }
+
+    private static List<Script> walk(Path dir) {
+        List<Script> scripts = new ArrayList<>();
+        try {
+            Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                    String fileName = file.getFileName().toString();
+                    if (!attributes.isRegularFile() || !fileName.endsWith(JAVASCRIPT_EXTENSION)
+                            && !fileName.endsWith(DECLARATIVE_EXTENSION)) {
+                        return FileVisitResult.CONTINUE;
+                    }
+                    if (FILE_NAME.matcher(fileName).matches()) {
+                        scripts.add(new Script(fileName, file, attributes));
+                    } else {
+                        LOGGER.warn("Ignoring file not named like a migration: {}", file);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException ex) {
+            throw new MigrationException("Error reading Javascript migration directory: " + dir, ex);
+        }
+        return scripts;
+    }
+
+    private static String checksum(Script script, ChecksumCache cache) {
+        String checksum = cache.get(script.path, script.attributes);
+        if (checksum != null) {
+            return checksum;
+        }
+        try {
+            checksum = ChecksumUtils.normalizedSha256(script.path);
+        } catch (IOException ex) {
+            throw new MigrationException("Error reading migration file: " + script.path, ex);
+        }
+        cache.put(script.path, script.attributes, checksum);
+        return checksum;
+    }
+
+    private ChecksumCache loadCache() {
+        try {
+            return ChecksumCache.load(cacheFile);
+        } catch (IOException ex) {
+            LOGGER.warn("Ignoring unreadable checksum cache {}: {}", cacheFile, ex.toString());
+            return ChecksumCache.empty(cacheFile);
+        }
+    }
+
+    /**
+     * A Javascript or declarative migration file.
+     */
+    static final class Script {
+        private final String name;
+        private final Path path;
+        private final BasicFileAttributes attributes;
+        private String checksum;
+
+        private Script(String name, Path path, BasicFileAttributes attributes) {
+            this.name = name;
+            this.path = path;
+            this.attributes = attributes;
+        }
+
+        /**
+         * @return the file name, which identifies the migration in the changelog
+         */
+        String getName() {
+            return name;
+        }
+
+        Path getPath() {
+            return path;
+        }
+
+        String getChecksum() {
+            return checksum;
+        }
+    }
+}
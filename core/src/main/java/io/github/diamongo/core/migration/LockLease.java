@@ -0,0 +1,110 @@
+/*
+ * Copyright © 2017 The Diamongo authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.diamongo.core.migration;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.BooleanSupplier;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * A lease on the migration lock. While active, a background heartbeat periodically renews the lease so it does not
+ * expire. If the lock turns out to belong to another process, or no renewal has succeeded for the whole lease time,
+ * e. g. during a network partition, the lease is considered lost and must no longer be used for changelog writes.
+ */
+final class LockLease {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LockLease.class);
+
+    private final long fencingToken;
+    private final long leaseTimeNanos;
+    private final ScheduledExecutorService heartbeat;
+    private volatile long lastRenewal;
+    private volatile boolean lost;
+
+    /**
+     * Creates a new lease and starts its heartbeat.
+     *
+     * @param fencingToken the monotonically increasing token assigned to this lease
+     * @param leaseTime the time in milliseconds after which the lease expires unless it is renewed; it is renewed
+     *        three times within that time
+     * @param acquiredAt the {@link System#nanoTime()} before the lock was acquired
+     * @param renewal renews the lease and returns {@code false} if the lease no longer belongs to this process
+     * @param threadFactory creates the heartbeat thread
+     */
+    LockLease(long fencingToken, long leaseTime, long acquiredAt, BooleanSupplier renewal,
+            ThreadFactory threadFactory) {
+        this.fencingToken = fencingToken;
+        this.leaseTimeNanos = MILLISECONDS.toNanos(leaseTime);
+        this.lastRenewal = acquiredAt;
+        this.heartbeat = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        long renewalInterval = Math.max(1L, leaseTime / 3);
+        heartbeat.scheduleWithFixedDelay(() -> renew(renewal), renewalInterval, renewalInterval, MILLISECONDS);
+    }
+
+    private void renew(BooleanSupplier renewal) {
+        // the new expiry is computed before the update is sent, so it never lies after start + lease time
+        long start = System.nanoTime();
+        try {
+            if (renewal.getAsBoolean()) {
+                lastRenewal = start;
+            } else {
+                LOGGER.error("Lock lease with fencing token {} was lost", fencingToken);
+                markLost();
+            }
+        } catch (RuntimeException ex) {
+            if (isExpired()) {
+                LOGGER.error("Lock lease with fencing token {} expired without being renewed", fencingToken, ex);
+                markLost();
+            } else {
+                // keep trying, the lease may still be renewed before it expires
+                LOGGER.warn("Error renewing lock lease with fencing token {}", fencingToken, ex);
+            }
+        }
+    }
+
+    private void markLost() {
+        lost = true;
+        heartbeat.shutdown();
+    }
+
+    private boolean isExpired() {
+        return System.nanoTime() - lastRenewal >= leaseTimeNanos;
+    }
+
+    long getFencingToken() {
+        return fencingToken;
+    }
+
+    /**
+     * @return {@code true}, if the lock belongs to another process or the lease has expired since the last successful
+     *         renewal
+     */
+    boolean isLost() {
+        return lost || isExpired();
+    }
+
+    /**
+     * Stops the heartbeat.
+     */
+    void stop() {
+        heartbeat.shutdownNow();
+    }
+}
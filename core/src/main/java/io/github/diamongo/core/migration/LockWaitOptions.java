@@ -0,0 +1,82 @@
+/*
+ * Copyright © 2017 The Diamongo authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.diamongo.core.migration;
+
+import java.time.Duration;
+import java.util.Random;
+
+import static io.github.diamongo.core.util.ValidationUtils.checkNotNull;
+
+/**
+ * Options controlling how long and how often a migration process retries to acquire the migration lock while it is
+ * held by another process.
+ */
+public final class LockWaitOptions {
+
+    /**
+     * Options for not waiting at all, i. e. giving up as soon as the lock is found to be held.
+     */
+    public static final LockWaitOptions NO_WAIT =
+            new LockWaitOptions(Duration.ZERO, Duration.ofMillis(100), Duration.ofSeconds(5), false);
+
+    private final Duration maxWait;
+    private final Duration initialDelay;
+    private final Duration maxDelay;
+    private final boolean watchLock;
+
+    /**
+     * @param maxWait the maximum time to wait for the lock; {@link Duration#ZERO} disables waiting
+     * @param initialDelay the delay before the first retry
+     * @param maxDelay the upper bound for the exponentially growing delay between retries
+     * @param watchLock whether to use a change stream to get notified as soon as the lock is released
+     */
+    public LockWaitOptions(Duration maxWait, Duration initialDelay, Duration maxDelay, boolean watchLock) {
+        this.maxWait = checkNotNull(maxWait, "'maxWait' must not be null");
+        this.initialDelay = checkNotNull(initialDelay, "'initialDelay' must not be null");
+        this.maxDelay = checkNotNull(maxDelay, "'maxDelay' must not be null");
+        this.watchLock = watchLock;
+    }
+
+    public Duration getMaxWait() {
+        return maxWait;
+    }
+
+    public boolean isWaitEnabled() {
+        return !maxWait.isZero() && !maxWait.isNegative();
+    }
+
+    public boolean isWatchLock() {
+        return watchLock;
+    }
+
+    /**
+     * Computes the delay before the next retry. The delay doubles with each attempt up to the maximum delay. Half of
+     * it is randomized in order to keep waiting replicas from retrying in lockstep.
+     *
+     * @param attempt the zero-based number of the failed attempt
+     * @param random the source of the jitter
+     * @return the delay in milliseconds
+     */
+    long nextDelayMillis(int attempt, Random random) {
+        long cap = maxDelay.toMillis();
+        long delay = initialDelay.toMillis() << Math.min(attempt, 30);
+        if (delay <= 0 || delay > cap) {
+            delay = cap;
+        }
+        long half = delay / 2;
+        return half + (long) (random.nextDouble() * (delay - half));
+    }
+}
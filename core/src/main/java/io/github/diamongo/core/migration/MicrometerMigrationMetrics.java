@@ -0,0 +1,133 @@
+/*
+ * Copyright © 2017 The Diamongo authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.diamongo.core.migration;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.TimeUnit;
+
+import static io.github.diamongo.core.util.ValidationUtils.checkNotNull;
+
+/**
+ * {@link MigrationMetrics} publishing to a Micrometer {@link MeterRegistry}. Requires
+ * {@code io.micrometer:micrometer-core} on the classpath. The following meters are registered, all tagged with the
+ * {@code database}:
+ * <ul>
+ * <li>{@code diamongo.lock.acquisition}: timer of lock attempts, tagged with {@code outcome} {@code acquired} or
+ * {@code held},</li>
+ * <li>{@code diamongo.lock.wait}: timer of waiting for a lock held by another process, tagged with {@code outcome}
+ * {@code acquired} or {@code timeout},</li>
+ * <li>{@code diamongo.migration.duration}: timer per {@code migration}, tagged with {@code outcome} {@code success}
+ * or {@code failure}, e. g. to alert on migrations taking much longer than in previous environments,</li>
+ * <li>{@code diamongo.migration.failures}: counter per {@code migration} and {@code exception},</li>
+ * <li>{@code diamongo.migration.documents.read} and {@code diamongo.migration.documents.written}: counters per
+ * {@code migration} of the documents processed by the data migration helpers.</li>
+ * </ul>
+ * The migration timer can publish a percentile histogram. Since it is tagged by database, migration and outcome, its
+ * buckets multiply the number of time series, so the histogram is opt-in.
+ */
+public class MicrometerMigrationMetrics implements MigrationMetrics {
+    static final String LOCK_ACQUISITION = "diamongo.lock.acquisition";
+    static final String LOCK_WAIT = "diamongo.lock.wait";
+    static final String MIGRATION_DURATION = "diamongo.migration.duration";
+    static final String MIGRATION_FAILURES = "diamongo.migration.failures";
+    static final String DOCUMENTS_READ = "diamongo.migration.documents.read";
+    static final String DOCUMENTS_WRITTEN = "diamongo.migration.documents.written";
+
+    private final MeterRegistry registry;
+    private final boolean percentileHistogram;
+
+    /**
+     * Creates a new instance without percentile histogram.
+     *
+     * @param registry the registry meters are registered with
+     */
+    public MicrometerMigrationMetrics(MeterRegistry registry) {
+        this(registry, false);
+    }
+
+    /**
+     * @param registry the registry meters are registered with
+     * @param percentileHistogram whether {@code diamongo.migration.duration} publishes a percentile histogram
+     */
+    public MicrometerMigrationMetrics(MeterRegistry registry, boolean percentileHistogram) {
+        this.registry = checkNotNull(registry, "'registry' must not be null");
+        this.percentileHistogram = percentileHistogram;
+    }
+
+    @Override
+    public void lockAcquisition(String database, boolean acquired, long durationNanos) {
+        Timer.builder(LOCK_ACQUISITION)
+                .description("Latency of attempts to acquire the migration lock")
+                .tags("database", database, "outcome", acquired ? "acquired" : "held")
+                .register(registry)
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void lockWait(String database, boolean acquired, long durationNanos) {
+        Timer.builder(LOCK_WAIT)
+                .description("Time spent waiting for the migration lock held by another process")
+                .tags("database", database, "outcome", acquired ? "acquired" : "timeout")
+                .register(registry)
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void migrationApplied(String database, String migration, long durationNanos, MigrationStats stats) {
+        recordDuration(database, migration, "success", durationNanos);
+        recordDocuments(database, migration, stats);
+    }
+
+    @Override
+    public void migrationFailed(String database, String migration, long durationNanos, MigrationStats stats,
+            Throwable failure) {
+        recordDuration(database, migration, "failure", durationNanos);
+        recordDocuments(database, migration, stats);
+        Counter.builder(MIGRATION_FAILURES)
+                .description("Number of failed migration runs")
+                .tags("database", database, "migration", migration, "exception", failure.getClass().getSimpleName())
+                .register(registry)
+                .increment();
+    }
+
+    private void recordDuration(String database, String migration, String outcome, long durationNanos) {
+        Timer.builder(MIGRATION_DURATION)
+                .description("Execution time of migrations")
+                .tags("database", database, "migration", migration, "outcome", outcome)
+                .publishPercentileHistogram(percentileHistogram)
+                .register(registry)
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void recordDocuments(String database, String migration, MigrationStats stats) {
+        if (stats == null || stats.isEmpty()) {
+            return;
+        }
+        Counter.builder(DOCUMENTS_READ)
+                .description("Documents read by the data migration helpers")
+                .tags("database", database, "migration", migration)
+                .register(registry)
+                .increment(stats.getDocumentsRead());
+        Counter.builder(DOCUMENTS_WRITTEN)
+                .description("Documents written by the data migration helpers")
+                .tags("database", database, "migration", migration)
+                .register(registry)
+                .increment(stats.getDocumentsWritten());
+    }
+}
@@ -35,6 +35,28 @@ public class MigrationConstants {
      */
     public static final String JAVA_MIGRATIONS_FQCN = JAVA_MIGRATIONS_PKG + '.' + JAVA_MIGRATIONS_CN;
 
+    /**
+     * The classpath resource holding the index of all migrations generated at build time.
+     */
+    public static final String MIGRATION_INDEX_RESOURCE = "META-INF/diamongo/migrations.json";
+
+    /**
+     * The fields of the migration index. The index is a document with an array of migrations in the field
+     * {@value #INDEX_MIGRATIONS_FIELD}, each having the remaining fields.
+     */
+    public static final String INDEX_MIGRATIONS_FIELD = "migrations";
+    public static final String INDEX_NAME_FIELD = "name";
+    public static final String INDEX_TYPE_FIELD = "type";
+    public static final String INDEX_LOCATION_FIELD = "location";
+    public static final String INDEX_CHECKSUM_FIELD = "checksum";
+    public static final String INDEX_DEPENDS_ON_FIELD = "dependsOn";
+    public static final String INDEX_COLLECTIONS_FIELD = "collections";
+
+    /**
+     * The type of Java migrations in the migration index. Their location is the binary class name.
+     */
+    public static final String INDEX_TYPE_JAVA = "java";
+
     /**
      * The static fields in the generated class holding the {@link MigrationWrappers} instance.
      */
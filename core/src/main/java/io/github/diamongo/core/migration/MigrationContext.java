@@ -0,0 +1,222 @@
+/*
+ * Copyright © 2017 The Diamongo authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.diamongo.core.migration;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.IndexModel;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static io.github.diamongo.core.util.ValidationUtils.checkNotNull;
+
+/**
+ * Context handed to {@link MigrationContextMigration migrations} providing MongoDB access along with helpers for
+ * data migrations.
+ */
+public class MigrationContext {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MigrationContext.class);
+    private static final long DEFAULT_CHECKPOINT_DOCUMENTS = 1000;
+    private static final Duration DEFAULT_CHECKPOINT_INTERVAL = Duration.ofSeconds(10);
+    private static final int DEFAULT_INDEX_BUILD_PARALLELISM = 4;
+
+    private final MongoDatabase database;
+    private final String migrationName;
+    private final Checkpoint resumedFrom;
+    private final Consumer<Checkpoint> checkpointStore;
+    private final ExecutionMode executionMode;
+    private final MigrationStats stats = new MigrationStats();
+    private Checkpointer checkpointer;
+
+    /**
+     * Creates a context without checkpoint persistence.
+     *
+     * @param database provides MongoDB access
+     * @param migrationName the name of the migration being executed
+     */
+    public MigrationContext(MongoDatabase database, String migrationName) {
+        this(database, migrationName, null, checkpoint -> { });
+    }
+
+    /**
+     * Creates a context using platform threads.
+     *
+     * @param database provides MongoDB access
+     * @param migrationName the name of the migration being executed
+     * @param resumedFrom the checkpoint left by a previous incomplete run, may be {@code null}
+     * @param checkpointStore persists checkpoints
+     */
+    public MigrationContext(MongoDatabase database, String migrationName, Checkpoint resumedFrom,
+            Consumer<Checkpoint> checkpointStore) {
+        this(database, migrationName, resumedFrom, checkpointStore, ExecutionMode.PLATFORM);
+    }
+
+    /**
+     * @param database provides MongoDB access
+     * @param migrationName the name of the migration being executed
+     * @param resumedFrom the checkpoint left by a previous incomplete run, may be {@code null}
+     * @param checkpointStore persists checkpoints
+     * @param executionMode the kind of threads used by the helpers of this context
+     */
+    public MigrationContext(MongoDatabase database, String migrationName, Checkpoint resumedFrom,
+            Consumer<Checkpoint> checkpointStore, ExecutionMode executionMode) {
+        this.database = checkNotNull(database, "'database' must not be null");
+        this.migrationName = checkNotNull(migrationName, "'migrationName' must not be null");
+        this.resumedFrom = resumedFrom;
+        this.checkpointStore = checkNotNull(checkpointStore, "'checkpointStore' must not be null");
+        this.executionMode = checkNotNull(executionMode, "'executionMode' must not be null");
+    }
+
+    /**
+     * @return the database to migrate
+     */
+    public MongoDatabase getDatabase() {
+        return database;
+    }
+
+    /**
+     * @return the name of the migration being executed
+     */
+    public String getMigrationName() {
+        return migrationName;
+    }
+
+    /**
+     * Returns the {@link Checkpointer} of the migration, saving a checkpoint every 1000 processed documents or every
+     * 10 seconds.
+     *
+     * @return the checkpointer, restored from the checkpoint of a previous incomplete run if there is one
+     */
+    public Checkpointer checkpointer() {
+        return checkpointer(DEFAULT_CHECKPOINT_DOCUMENTS, DEFAULT_CHECKPOINT_INTERVAL);
+    }
+
+    /**
+     * Returns the {@link Checkpointer} of the migration. Only the first call creates the checkpointer, so the
+     * intervals of subsequent calls are ignored.
+     *
+     * @param everyDocuments the number of processed documents after which a checkpoint is saved
+     * @param every the time after which a checkpoint is saved
+     * @return the checkpointer, restored from the checkpoint of a previous incomplete run if there is one
+     */
+    public Checkpointer checkpointer(long everyDocuments, Duration every) {
+        if (checkpointer == null) {
+            checkpointer = new Checkpointer(resumedFrom, checkpointStore, everyDocuments, every);
+        }
+        return checkpointer;
+    }
+
+    /**
+     * @return the checkpointer if it has been used by the migration, {@code null} otherwise
+     */
+    Checkpointer getCheckpointer() {
+        return checkpointer;
+    }
+
+    /**
+     * Creates a builder for a {@link BulkWriter} writing to the specified collection.
+     *
+     * @param collectionName the name of the collection to write to
+     * @return the builder
+     */
+    public BulkWriter.Builder<Document> bulkWriter(String collectionName) {
+        return bulkWriter(database.getCollection(collectionName));
+    }
+
+    /**
+     * Creates a builder for a {@link BulkWriter} writing to the specified collection.
+     *
+     * @param collection the collection to write to
+     * @param <T> the document type of the collection
+     * @return the builder
+     */
+    public <T> BulkWriter.Builder<T> bulkWriter(MongoCollection<T> collection) {
+        return new BulkWriter.Builder<>(collection, stats, executionMode);
+    }
+
+    /**
+     * Creates a builder for a {@link PartitionedScan} reading the specified collection in parallel.
+     *
+     * @param collectionName the name of the collection to scan
+     * @return the builder
+     */
+    public PartitionedScan.Builder<Document> partitionedScan(String collectionName) {
+        return partitionedScan(database.getCollection(collectionName));
+    }
+
+    /**
+     * Creates a builder for a {@link PartitionedScan} reading the specified collection in parallel.
+     *
+     * @param collection the collection to scan
+     * @param <T> the document type of the collection
+     * @return the builder
+     */
+    public <T> PartitionedScan.Builder<T> partitionedScan(MongoCollection<T> collection) {
+        return new PartitionedScan.Builder<>(collection, stats, executionMode);
+    }
+
+    /**
+     * Creates the given indexes, building the indexes of up to 4 collections concurrently.
+     *
+     * @param indexes the indexes to create mapped by collection name
+     * @throws MigrationException if any of the index builds failed
+     * @see #createIndexes(Map, int)
+     */
+    public void createIndexes(Map<String, List<IndexModel>> indexes) {
+        createIndexes(indexes, DEFAULT_INDEX_BUILD_PARALLELISM);
+    }
+
+    /**
+     * Creates the given indexes. Index builds of different collections run concurrently, while the indexes of a
+     * single collection are created with one {@code createIndexes} command.
+     *
+     * @param indexes the indexes to create mapped by collection name
+     * @param parallelism the maximum number of collections whose indexes are built concurrently
+     * @throws MigrationException if any of the index builds failed
+     */
+    public void createIndexes(Map<String, List<IndexModel>> indexes, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("'parallelism' must be positive: " + parallelism);
+        }
+        executionMode.forEachConcurrently("diamongo-index-build", parallelism, indexes.keySet(), collection -> {
+            long start = System.nanoTime();
+            List<IndexModel> models = indexes.get(collection);
+            database.getCollection(collection).createIndexes(models);
+            LOGGER.info("Created {} index(es) on {} in {} ms", models.size(), collection,
+                    (System.nanoTime() - start) / 1_000_000);
+        }, "Index build");
+    }
+
+    /**
+     * @return the kind of threads used by the helpers of this context
+     */
+    public ExecutionMode getExecutionMode() {
+        return executionMode;
+    }
+
+    /**
+     * @return the statistics collected by the bulk writers and partitioned scans of this context
+     */
+    public MigrationStats getStats() {
+        return stats;
+    }
+}
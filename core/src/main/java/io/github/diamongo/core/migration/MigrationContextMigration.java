@@ -0,0 +1,29 @@
+/*
+ * Copyright © 2017 The Diamongo authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.diamongo.core.migration;
+
+/**
+ * Java migrations may implement this interface instead of {@link MongoDatabaseMigration} in order to get access to
+ * the {@link MigrationContext} and its helpers for data migrations.
+ */
+public interface MigrationContextMigration extends Migration<MigrationContext> {
+
+    /**
+     * Executes a Java migration.
+     * @param context provides MongoDB access and helpers for data migrations
+     */
+    void migrate(MigrationContext context);
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright © 2017 The Diamongo authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.diamongo.core.migration;
+
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static io.github.diamongo.core.migration.MigrationConstants.INDEX_CHECKSUM_FIELD;
+import static io.github.diamongo.core.migration.MigrationConstants.INDEX_COLLECTIONS_FIELD;
+import static io.github.diamongo.core.migration.MigrationConstants.INDEX_DEPENDS_ON_FIELD;
+import static io.github.diamongo.core.migration.MigrationConstants.INDEX_LOCATION_FIELD;
+import static io.github.diamongo.core.migration.MigrationConstants.INDEX_MIGRATIONS_FIELD;
+import static io.github.diamongo.core.migration.MigrationConstants.INDEX_NAME_FIELD;
+import static io.github.diamongo.core.migration.MigrationConstants.INDEX_TYPE_FIELD;
+import static io.github.diamongo.core.migration.MigrationConstants.INDEX_TYPE_JAVA;
+import static io.github.diamongo.core.migration.MigrationConstants.MIGRATION_INDEX_RESOURCE;
+
+/**
+ * Reads the migration indexes generated by {@link io.github.diamongo.core.processor.ChecksumProcessor} from the
+ * classpath. Indexes of all classpath entries are merged. Migrations are instantiated only when they are accessed.
+ */
+final class MigrationIndex {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MigrationIndex.class);
+
+    private MigrationIndex() {
+        //
+    }
+
+    /**
+     * Loads all migration indexes visible to the given class loader.
+     *
+     * @param loader the class loader used to find the indexes and to load the migrations
+     * @return the indexed migrations sorted by name, or {@code null} if there is no index
+     */
+    static MigrationWrappers load(ClassLoader loader) {
+        Map<String, MigrationWrapper> wrappers = new TreeMap<>();
+        try {
+            Enumeration<URL> indexes = loader.getResources(MIGRATION_INDEX_RESOURCE);
+            if (!indexes.hasMoreElements()) {
+                return null;
+            }
+            while (indexes.hasMoreElements()) {
+                URL index = indexes.nextElement();
+                LOGGER.debug("Reading migration index: {}", index);
+                for (MigrationWrapper wrapper : parse(read(index), loader)) {
+                    if (wrappers.putIfAbsent(wrapper.getName(), wrapper) != null) {
+                        LOGGER.debug("Ignoring duplicate migration {} in {}", wrapper.getName(), index);
+                    }
+                }
+            }
+        } catch (IOException ex) {
+            throw new MigrationException("Error reading migration index: " + MIGRATION_INDEX_RESOURCE, ex);
+        }
+
+        MigrationWrappers.Builder builder = new MigrationWrappers.Builder();
+        wrappers.values().forEach(builder::addMigrationWrapper);
+        return builder.build();
+    }
+
+    static List<MigrationWrapper> parse(String json, ClassLoader loader) {
+        List<MigrationWrapper> wrappers = new ArrayList<>();
+        for (Document entry : Document.parse(json).getList(INDEX_MIGRATIONS_FIELD, Document.class)) {
+            String name = entry.getString(INDEX_NAME_FIELD);
+            String type = entry.getString(INDEX_TYPE_FIELD);
+            if (!INDEX_TYPE_JAVA.equals(type)) {
+                LOGGER.warn("Ignoring migration {} of unsupported type: {}", name, type);
+                continue;
+            }
+            String location = entry.getString(INDEX_LOCATION_FIELD);
+            wrappers.add(new MigrationWrapper(name, entry.getString(INDEX_CHECKSUM_FIELD),
+                    entry.getList(INDEX_DEPENDS_ON_FIELD, String.class, Collections.emptyList()),
+                    entry.getList(INDEX_COLLECTIONS_FIELD, String.class, Collections.emptyList()),
+                    () -> instantiate(name, location, loader)));
+        }
+        return wrappers;
+    }
+
+    private static Migration<?> instantiate(String name, String className, ClassLoader loader) {
+        try {
+            return Class.forName(className, true, loader).asSubclass(Migration.class).newInstance();
+        } catch (ReflectiveOperationException | ClassCastException ex) {
+            throw new MigrationException("Error instantiating migration " + name + ": " + className, ex);
+        }
+    }
+
+    private static String read(URL url) throws IOException {
+        try (InputStream is = url.openStream()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = is.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+}
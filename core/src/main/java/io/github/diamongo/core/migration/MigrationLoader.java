@@ -22,31 +22,51 @@ import java.net.URL;
 import java.net.URLClassLoader;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Collections;
 import java.util.List;
+import java.util.function.Supplier;
 
 import static io.github.diamongo.core.migration.MigrationConstants.JAVA_MIGRATIONS_FQCN;
 import static io.github.diamongo.core.util.ValidationUtils.checkNotNull;
 
 /**
- * Loads Java and Javascripts migrations.
+ * Loads Java, Javascript and declarative migrations.
  */
 public class MigrationLoader {
     private static final Logger LOGGER = LoggerFactory.getLogger(MigrationLoader.class);
 
-    private final MigrationRepository repository;
+    private final ChangeLogRepository repository;
     private final URL additionalClassPath;
     private final List<Path> javascriptDirs;
+    private final JavascriptMigrationScanner javascriptScanner;
+    private final JavascriptEngine javascriptEngine;
 
     /**
      * Creates a new {@link MigrationLoader}. Java migrations are loaded from the classpath. An optional additional
-     * classpath may be specified. Javascript migrations are loaded from the filesystem recursively walking the
-     * specified directories.
+     * classpath may be specified. Javascript and {@link DeclarativeMigration declarative} migrations are loaded from
+     * the filesystem recursively walking the specified directories. Their checksums are cached in a file in the user's
+     * home directory.
      *
      * @param repository provides MongoDB access
      * @param additionalClassPath an optional additional classpath for Java migrations
      * @param javascriptDirs a list of paths for Javascript migrations, may be empty but not null
      */
-    public MigrationLoader(MigrationRepository repository, URL additionalClassPath, List<Path> javascriptDirs) {
+    public MigrationLoader(ChangeLogRepository repository, URL additionalClassPath, List<Path> javascriptDirs) {
+        this(repository, additionalClassPath, javascriptDirs, null, new ScriptEngineJavascriptEngine());
+    }
+
+    /**
+     * Creates a new {@link MigrationLoader} caching the checksums of Javascript migrations in the specified file.
+     *
+     * @param repository provides MongoDB access
+     * @param additionalClassPath an optional additional classpath for Java migrations
+     * @param javascriptDirs a list of paths for Javascript migrations, may be empty but not null
+     * @param javascriptChecksumCache the file caching checksums of Javascript migrations, or {@code null} for a file
+     *        in the user's home directory
+     * @param javascriptEngine executes Javascript migrations
+     */
+    public MigrationLoader(ChangeLogRepository repository, URL additionalClassPath, List<Path> javascriptDirs,
+            Path javascriptChecksumCache, JavascriptEngine javascriptEngine) {
         this.repository = checkNotNull(repository,"'repository' must not be null");
 
         this.javascriptDirs = checkNotNull(javascriptDirs,"'javascriptDirs' must not be null. It may be empty but not null");
@@ -57,11 +77,14 @@ public class MigrationLoader {
         });
 
         this.additionalClassPath = additionalClassPath;
+        this.javascriptEngine = checkNotNull(javascriptEngine, "'javascriptEngine' must not be null");
+        this.javascriptScanner = new JavascriptMigrationScanner(javascriptDirs, javascriptChecksumCache != null
+                ? javascriptChecksumCache : JavascriptMigrationScanner.defaultCacheFile(javascriptDirs));
     }
 
     /**
-     * Loads all available migrations into a {@link MigrationWrappers} instance. They are returned as is without any
-     * sorting or validation performed on them.
+     * Loads all available migrations into a {@link MigrationWrappers} instance sorted by version. No
+     * validation is performed on them.
      *
      * @return the {@link MigrationWrappers} containing all available migrations
      */
@@ -75,6 +98,10 @@ public class MigrationLoader {
                 .build();
     }
 
+    /**
+     * Loads Java migrations from the migration index if there is one. Otherwise, falls back to the generated class,
+     * which requires reflection.
+     */
     private MigrationWrappers loadJavaMigrationWrappers() {
         try {
             LOGGER.info("Loading Java migrations...");
@@ -84,6 +111,12 @@ public class MigrationLoader {
                 loader = new URLClassLoader(new URL[] {additionalClassPath}, loader);
             }
 
+            MigrationWrappers indexed = MigrationIndex.load(loader);
+            if (indexed != null) {
+                return indexed;
+            }
+
+            LOGGER.debug("No migration index found, loading generated class: {}", JAVA_MIGRATIONS_FQCN);
             Class<? extends Migrations> javaMigrationsClass =
                     Class.forName(JAVA_MIGRATIONS_FQCN, true, loader).asSubclass(Migrations.class);
             Migrations migrations = javaMigrationsClass.newInstance();
@@ -94,8 +127,21 @@ public class MigrationLoader {
     }
 
     private MigrationWrappers loadJavaScriptMigrationWrappers() {
+        MigrationWrappers.Builder builder = new MigrationWrappers.Builder();
+        if (javascriptDirs.isEmpty()) {
+            return builder.build();
+        }
+
         LOGGER.info("Loading Javascript migrations...");
-        // TODO implement
-        return new MigrationWrappers.Builder().build();
+        for (JavascriptMigrationScanner.Script script : javascriptScanner.scan()) {
+            Path path = script.getPath();
+            String checksum = script.getChecksum();
+            Supplier<Migration> factory = script.getName().endsWith(JavascriptMigrationScanner.DECLARATIVE_EXTENSION)
+                    ? () -> DeclarativeMigration.load(path)
+                    : () -> new JavascriptMigration(javascriptEngine, path, checksum);
+            builder.addMigrationWrapper(new MigrationWrapper(script.getName(), checksum, Collections.emptyList(),
+                    Collections.emptyList(), factory));
+        }
+        return builder.build();
     }
 }
@@ -0,0 +1,174 @@
+/*
+ * Copyright © 2017 The Diamongo authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.diamongo.core.migration;
+
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoCommandException;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import org.bson.conversions.Bson;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.UUID;
+import java.util.function.BooleanSupplier;
+
+import static com.mongodb.ErrorCategory.DUPLICATE_KEY;
+import static com.mongodb.client.model.Filters.and;
+import static com.mongodb.client.model.Filters.eq;
+import static com.mongodb.client.model.Filters.exists;
+import static com.mongodb.client.model.Filters.lt;
+import static com.mongodb.client.model.Filters.or;
+import static com.mongodb.client.model.ReturnDocument.AFTER;
+import static com.mongodb.client.model.Updates.combine;
+import static com.mongodb.client.model.Updates.inc;
+import static com.mongodb.client.model.Updates.set;
+import static io.github.diamongo.core.migration.ChangeLogDocuments.ACQUIRED_AT_FIELD;
+import static io.github.diamongo.core.migration.ChangeLogDocuments.EXPIRES_AT_FIELD;
+import static io.github.diamongo.core.migration.ChangeLogDocuments.FENCING_TOKEN_FIELD;
+import static io.github.diamongo.core.migration.ChangeLogDocuments.HOSTNAME;
+import static io.github.diamongo.core.migration.ChangeLogDocuments.HOSTNAME_FIELD;
+import static io.github.diamongo.core.migration.ChangeLogDocuments.ID_FILTER;
+import static io.github.diamongo.core.migration.ChangeLogDocuments.OWNER_FIELD;
+import static io.github.diamongo.core.migration.ChangeLogDocuments.PID;
+import static io.github.diamongo.core.migration.ChangeLogDocuments.PID_FIELD;
+import static io.github.diamongo.core.util.ValidationUtils.checkNotNull;
+
+/**
+ * The migration lock of a repository, independent of the driver used to access it. It builds the queries for
+ * acquiring, renewing and releasing the lock document and keeps track of the current {@link LockLease}.
+ * <p>
+ * Acquiring the lock takes three steps: the lock document is upserted unless it is held by another process with an
+ * unexpired lease, the fencing counter is incremented, and the new fencing token is stamped on the lock document.
+ */
+final class MigrationLock {
+    private final Duration leaseTime;
+    private final ExecutionMode executionMode;
+    private final String owner = UUID.randomUUID().toString();
+    private volatile LockLease lease;
+
+    /**
+     * @param leaseTime the time after which the lock expires unless it is renewed
+     * @param executionMode the kind of thread used by the lease heartbeat
+     */
+    MigrationLock(Duration leaseTime, ExecutionMode executionMode) {
+        this.leaseTime = checkNotNull(leaseTime, "'lockLeaseTime' must not be null");
+        this.executionMode = checkNotNull(executionMode, "'executionMode' must not be null");
+    }
+
+    /**
+     * @return the filter matching the lock document unless another process holds an unexpired lease
+     */
+    static Bson acquirableFilter(Date now) {
+        return and(ID_FILTER, or(lt(EXPIRES_AT_FIELD, now), exists(EXPIRES_AT_FIELD, false)));
+    }
+
+    /**
+     * @return the update taking over the lock document
+     */
+    Bson acquireUpdate(Date now) {
+        return combine(set(OWNER_FIELD, owner),
+                set(HOSTNAME_FIELD, HOSTNAME),
+                set(PID_FIELD, PID),
+                set(ACQUIRED_AT_FIELD, now),
+                set(EXPIRES_AT_FIELD, leaseExpiry()));
+    }
+
+    /**
+     * @return the update incrementing the fencing counter
+     */
+    static Bson nextFencingTokenUpdate() {
+        return inc(FENCING_TOKEN_FIELD, 1L);
+    }
+
+    static Bson fencingTokenUpdate(long fencingToken) {
+        return set(FENCING_TOKEN_FIELD, fencingToken);
+    }
+
+    /**
+     * @return options upserting the document and returning it after the update
+     */
+    static FindOneAndUpdateOptions upsertOptions() {
+        return new FindOneAndUpdateOptions().upsert(true).returnDocument(AFTER);
+    }
+
+    /**
+     * @return the update extending the lease
+     */
+    Bson renewUpdate() {
+        return set(EXPIRES_AT_FIELD, leaseExpiry());
+    }
+
+    private Date leaseExpiry() {
+        return new Date(System.currentTimeMillis() + leaseTime.toMillis());
+    }
+
+    /**
+     * @return the filter matching the lock document only while it is held by this lock
+     */
+    Bson ownerFilter() {
+        return and(ID_FILTER, eq(OWNER_FIELD, owner));
+    }
+
+    /**
+     * @return {@code true}, if the error signals that the lock is held by another process
+     */
+    static boolean isHeldByOther(Throwable error) {
+        return error instanceof MongoCommandException
+                && ErrorCategory.fromErrorCode(((MongoCommandException) error).getErrorCode()) == DUPLICATE_KEY;
+    }
+
+    /**
+     * Starts the lease of a newly acquired lock.
+     *
+     * @param fencingToken the fencing token stamped on the lock document
+     * @param acquiredAt the {@link System#nanoTime()} before the lock was acquired
+     * @param renewal sends the {@link #renewUpdate()} and returns {@code false} if the lock no longer belongs to this
+     *        process
+     */
+    void startLease(long fencingToken, long acquiredAt, BooleanSupplier renewal) {
+        lease = new LockLease(fencingToken, leaseTime.toMillis(), acquiredAt, renewal,
+                executionMode.threadFactory("diamongo-lock-heartbeat"));
+    }
+
+    /**
+     * Returns the fencing token of the currently held lock lease.
+     *
+     * @return the fencing token
+     * @throws MigrationException if the lock is not held or its lease has been lost
+     */
+    long getFencingToken() {
+        LockLease currentLease = lease;
+        if (currentLease == null) {
+            throw new MigrationException("Migration lock is not held");
+        }
+        if (currentLease.isLost()) {
+            throw new MigrationException("Lease of migration lock has been lost. Fencing token: "
+                    + currentLease.getFencingToken());
+        }
+        return currentLease.getFencingToken();
+    }
+
+    /**
+     * Stops renewing the lease, before the lock document is deleted.
+     */
+    void stopLease() {
+        LockLease currentLease = lease;
+        if (currentLease != null) {
+            currentLease.stop();
+            lease = null;
+        }
+    }
+}
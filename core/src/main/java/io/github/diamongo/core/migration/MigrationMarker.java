@@ -25,9 +25,22 @@ import static java.lang.annotation.RetentionPolicy.RUNTIME;
  * Migration classes must be annotated with this annotation in order for the
  * {@link io.github.diamongo.core.processor.ChecksumProcessor} to be able to process them for checksum creation at
  * compile time.
+ * <p>
+ * Optionally, a migration may declare the migrations it depends on and the collections it touches. This allows
+ * independent migrations to be executed in parallel. Migrations that do not declare any collections are assumed to
+ * touch all collections and are therefore never executed concurrently with other migrations.
  */
 @Target(TYPE)
 @Retention(RUNTIME)
 public @interface MigrationMarker {
-    //
+
+    /**
+     * @return the migrations which must have been executed before the annotated migration
+     */
+    Class<? extends Migration>[] dependsOn() default {};
+
+    /**
+     * @return the names of the collections the annotated migration reads or writes
+     */
+    String[] collections() default {};
 }
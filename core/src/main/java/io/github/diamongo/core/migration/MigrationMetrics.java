@@ -0,0 +1,80 @@
+/*
+ * Copyright © 2017 The Diamongo authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.diamongo.core.migration;
+
+/**
+ * Receives measurements of migration runs, e. g. to publish them to a monitoring system. All methods do nothing by
+ * default and may be called concurrently.
+ *
+ * @see MicrometerMigrationMetrics
+ */
+public interface MigrationMetrics {
+
+    /**
+     * Metrics discarding all measurements.
+     */
+    MigrationMetrics NOOP = new MigrationMetrics() {
+    };
+
+    /**
+     * Called after trying to acquire the migration lock once.
+     *
+     * @param database the name of the database
+     * @param acquired whether the lock has been acquired or is held by another process
+     * @param durationNanos the latency of the attempt
+     */
+    default void lockAcquisition(String database, boolean acquired, long durationNanos) {
+        // no-op
+    }
+
+    /**
+     * Called after waiting for the migration lock held by another process.
+     *
+     * @param database the name of the database
+     * @param acquired whether the lock has eventually been acquired or waiting has timed out
+     * @param durationNanos the time spent waiting
+     */
+    default void lockWait(String database, boolean acquired, long durationNanos) {
+        // no-op
+    }
+
+    /**
+     * Called after a migration has been applied.
+     *
+     * @param database the name of the database
+     * @param migration the name of the migration
+     * @param durationNanos the execution time of the migration
+     * @param stats the documents read and written by the data migration helpers
+     */
+    default void migrationApplied(String database, String migration, long durationNanos, MigrationStats stats) {
+        // no-op
+    }
+
+    /**
+     * Called after a migration has failed.
+     *
+     * @param database the name of the database
+     * @param migration the name of the migration
+     * @param durationNanos the time until the migration failed
+     * @param stats the documents read and written by the data migration helpers before the failure, or {@code null}
+     *        if unknown
+     * @param failure the exception the migration failed with
+     */
+    default void migrationFailed(String database, String migration, long durationNanos, MigrationStats stats,
+            Throwable failure) {
+        // no-op
+    }
+}
@@ -15,81 +15,166 @@
  */
 package io.github.diamongo.core.migration;
 
-import com.mongodb.MongoWriteException;
+import com.mongodb.MongoCommandException;
+import com.mongodb.client.MongoChangeStreamCursor;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
 import org.bson.Document;
 import org.bson.conversions.Bson;
-import org.bson.types.ObjectId;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.lang.management.ManagementFactory;
-import java.net.InetAddress;
-import java.net.UnknownHostException;
-import java.time.ZonedDateTime;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
-import static com.mongodb.ErrorCategory.DUPLICATE_KEY;
+import static com.mongodb.client.model.Aggregates.match;
+import static com.mongodb.client.model.Filters.and;
 import static com.mongodb.client.model.Filters.eq;
+import static io.github.diamongo.core.migration.ChangeLogDocuments.CHANGELOG_COLLECTION;
+import static io.github.diamongo.core.migration.ChangeLogDocuments.CHANGELOG_LOCK_COLLECTION;
+import static io.github.diamongo.core.migration.ChangeLogDocuments.CHECKPOINT_COLLECTION;
+import static io.github.diamongo.core.migration.ChangeLogDocuments.FAILURE_COLLECTION;
+import static io.github.diamongo.core.migration.ChangeLogDocuments.FENCING_COUNTER_FILTER;
+import static io.github.diamongo.core.migration.ChangeLogDocuments.FENCING_TOKEN_FIELD;
+import static io.github.diamongo.core.migration.ChangeLogDocuments.ID_FILTER;
+import static io.github.diamongo.core.migration.ChangeLogDocuments.LOCK_ID;
+import static io.github.diamongo.core.migration.ChangeLogDocuments.STATUS_PIPELINE;
+import static io.github.diamongo.core.migration.ChangeLogDocuments.appliedMigrationsProjection;
+import static io.github.diamongo.core.migration.ChangeLogDocuments.changeLogEntry;
+import static io.github.diamongo.core.migration.ChangeLogDocuments.changeLogIndexKeys;
+import static io.github.diamongo.core.migration.ChangeLogDocuments.changeLogIndexOptions;
+import static io.github.diamongo.core.migration.ChangeLogDocuments.checkpointDocument;
+import static io.github.diamongo.core.migration.ChangeLogDocuments.failureDocument;
+import static io.github.diamongo.core.migration.ChangeLogDocuments.migrationFilter;
+import static io.github.diamongo.core.migration.ChangeLogDocuments.isStaleCheckpoint;
+import static io.github.diamongo.core.migration.ChangeLogDocuments.lockTtlIndexKeys;
+import static io.github.diamongo.core.migration.ChangeLogDocuments.lockTtlIndexOptions;
+import static io.github.diamongo.core.migration.ChangeLogDocuments.toAppliedMigrations;
+import static io.github.diamongo.core.migration.ChangeLogDocuments.toCheckpoint;
+import static io.github.diamongo.core.migration.ChangeLogDocuments.toMigrationStatus;
 import static io.github.diamongo.core.util.ValidationUtils.checkNotNull;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.stream.Collectors.toList;
 
 /**
- * Repository class for handling any MongoDB access.
+ * Repository class for handling any MongoDB access using the synchronous driver.
  */
-public class MigrationRepository {
-    static final String CHANGELOG_COLLECTION = "diamongoChangeLog";
-    static final String CHANGELOG_LOCK_COLLECTION = "diamongoChangeLog.lock";
-    // ObjectId must have 12 bytes
-    static final ObjectId LOCK_ID = new ObjectId(new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12});
-    static final Bson ID_FILTER = eq("_id", LOCK_ID);
-
-    private static final String HOSTNAME = getHostName();
-    private static final String PID = getPid();
+public class MigrationRepository implements ChangeLogRepository {
+    static final Duration DEFAULT_LOCK_LEASE_TIME = Duration.ofSeconds(10);
     private static final Logger LOGGER = LoggerFactory.getLogger(MigrationRepository.class);
 
     private final MongoDatabase database;
+    private final MigrationScheduler scheduler;
+    private final ExecutionMode executionMode;
+    private final MigrationMetrics metrics;
+    private final MigrationLock migrationLock;
+    private volatile boolean changeStreamsSupported = true;
 
     /**
-     * Creates a new instance.
+     * Creates a new instance using the default lock lease time.
      *
      * @param database provides MongoDB access
      */
     public MigrationRepository(MongoDatabase database) {
-        this.database = checkNotNull(database, "'mongoDatabase' must not be null");
+        this(database, DEFAULT_LOCK_LEASE_TIME);
     }
 
-    private static String getHostName() {
-        try {
-            return InetAddress.getLocalHost().getCanonicalHostName();
-        } catch (UnknownHostException e) {
-            return "unknown";
-        }
+    /**
+     * Creates a new instance executing migrations sequentially.
+     *
+     * @param database provides MongoDB access
+     * @param lockLeaseTime the time after which the migration lock expires unless it is renewed
+     */
+    public MigrationRepository(MongoDatabase database, Duration lockLeaseTime) {
+        this(database, lockLeaseTime, new MigrationScheduler(1));
+    }
+
+    /**
+     * Creates a new instance using platform threads.
+     *
+     * @param database provides MongoDB access
+     * @param lockLeaseTime the time after which the migration lock expires unless it is renewed
+     * @param scheduler executes pending migrations according to their dependencies
+     */
+    public MigrationRepository(MongoDatabase database, Duration lockLeaseTime, MigrationScheduler scheduler) {
+        this(database, lockLeaseTime, scheduler, ExecutionMode.PLATFORM);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param database provides MongoDB access
+     * @param lockLeaseTime the time after which the migration lock expires unless it is renewed
+     * @param scheduler executes pending migrations according to their dependencies
+     * @param executionMode the kind of threads used by the lock heartbeat and the migration helpers
+     */
+    public MigrationRepository(MongoDatabase database, Duration lockLeaseTime, MigrationScheduler scheduler,
+            ExecutionMode executionMode) {
+        this(database, lockLeaseTime, scheduler, executionMode, MigrationMetrics.NOOP);
     }
 
-    private static String getPid() {
-        String name = ManagementFactory.getRuntimeMXBean().getName();
-        return name.split("@")[0];
+    /**
+     * Creates a new instance reporting lock attempts and migration runs.
+     *
+     * @param database provides MongoDB access
+     * @param lockLeaseTime the time after which the migration lock expires unless it is renewed
+     * @param scheduler executes pending migrations according to their dependencies
+     * @param executionMode the kind of threads used by the lock heartbeat and the migration helpers
+     * @param metrics receives the measurements
+     */
+    public MigrationRepository(MongoDatabase database, Duration lockLeaseTime, MigrationScheduler scheduler,
+            ExecutionMode executionMode, MigrationMetrics metrics) {
+        this.database = checkNotNull(database, "'mongoDatabase' must not be null");
+        this.scheduler = checkNotNull(scheduler, "'scheduler' must not be null");
+        this.executionMode = checkNotNull(executionMode, "'executionMode' must not be null");
+        this.metrics = checkNotNull(metrics, "'metrics' must not be null");
+        this.migrationLock = new MigrationLock(lockLeaseTime, executionMode);
     }
 
     /**
-     * Tries to acquire a pessimistic lock.
+     * Tries to acquire a lease on the migration lock. A lock whose lease has expired, e. g. because the process
+     * holding it was killed, is taken over atomically. Once acquired, the lease is renewed by a background heartbeat
+     * until the lock is released, and a new fencing token is assigned which is stamped on every changelog write.
      *
      * @return true, if the lock could be acquired
      */
     public boolean tryLock() {
+        long start = System.nanoTime();
+        boolean acquired = false;
+        try {
+            acquired = acquireLock();
+            return acquired;
+        } finally {
+            metrics.lockAcquisition(database.getName(), acquired, System.nanoTime() - start);
+        }
+    }
+
+    private boolean acquireLock() {
         LOGGER.info("Trying to create lock...");
         MongoCollection<Document> collection = database.getCollection(CHANGELOG_LOCK_COLLECTION);
+        collection.createIndex(lockTtlIndexKeys(), lockTtlIndexOptions());
 
         try {
-            Document lock = new Document("_id", LOCK_ID)
-                    .append("timestamp", ZonedDateTime.now())
-                    .append("hostname", HOSTNAME)
-                    .append("pid", PID);
-            collection.insertOne(lock);
-            LOGGER.info("Lock successfully acquired: {}", lock);
+            long acquiredAt = System.nanoTime();
+            Date now = new Date();
+            Document lock = collection.findOneAndUpdate(MigrationLock.acquirableFilter(now),
+                    migrationLock.acquireUpdate(now), MigrationLock.upsertOptions());
+
+            long fencingToken = nextFencingToken(collection);
+            collection.updateOne(migrationLock.ownerFilter(), MigrationLock.fencingTokenUpdate(fencingToken));
+            migrationLock.startLease(fencingToken, acquiredAt, this::renewLease);
+            LOGGER.info("Lock successfully acquired with fencing token {}: {}", fencingToken, lock);
             return true;
-        } catch (MongoWriteException ex) {
-            if (ex.getError().getCategory() == DUPLICATE_KEY) {
+        } catch (MongoCommandException ex) {
+            if (MigrationLock.isHeldByOther(ex)) {
                 Document lock = collection.find(ID_FILTER).first();
                 LOGGER.info("Could not acquire lock. Lock already held: {}", lock);
                 return false;
@@ -99,12 +184,79 @@ public class MigrationRepository {
         }
     }
 
+    private long nextFencingToken(MongoCollection<Document> collection) {
+        Document counter = collection.findOneAndUpdate(FENCING_COUNTER_FILTER, MigrationLock.nextFencingTokenUpdate(),
+                MigrationLock.upsertOptions());
+        return counter.getLong(FENCING_TOKEN_FIELD);
+    }
+
+    private boolean renewLease() {
+        return database.getCollection(CHANGELOG_LOCK_COLLECTION)
+                .updateOne(migrationLock.ownerFilter(), migrationLock.renewUpdate())
+                .getMatchedCount() > 0;
+    }
+
+    /**
+     * Returns the fencing token of the currently held lock lease.
+     *
+     * @return the fencing token
+     * @throws MigrationException if the lock is not held or its lease has been lost
+     */
+    public long getFencingToken() {
+        return migrationLock.getFencingToken();
+    }
+
+    /**
+     * Waits until the migration lock is released by its holder. A change stream on the lock collection is used to
+     * get notified as soon as the lock document is deleted. If change streams are not supported, e. g. on a standalone
+     * server, this method falls back to simply sleeping for the given timeout.
+     *
+     * @param timeout the maximum time to wait
+     * @return {@code true}, if the lock has been released, {@code false} if the timeout has elapsed
+     */
+    @Override
+    public boolean awaitLockRelease(Duration timeout) {
+        if (changeStreamsSupported) {
+            MongoCollection<Document> collection = database.getCollection(CHANGELOG_LOCK_COLLECTION);
+            Bson lockDeleted = match(and(eq("operationType", "delete"), eq("documentKey._id", LOCK_ID)));
+            long deadline = System.nanoTime() + timeout.toNanos();
+
+            try (MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor = collection
+                    .watch(singletonList(lockDeleted))
+                    .maxAwaitTime(Math.max(1L, Math.min(timeout.toMillis(), 1000L)), MILLISECONDS)
+                    .cursor()) {
+                // the lock may have been released before the change stream was opened
+                if (collection.find(ID_FILTER).first() == null) {
+                    return true;
+                }
+                while (System.nanoTime() < deadline) {
+                    if (cursor.tryNext() != null) {
+                        return true;
+                    }
+                }
+                return false;
+            } catch (MongoCommandException ex) {
+                LOGGER.info("Change streams not available, falling back to polling: {}", ex.getErrorMessage());
+                changeStreamsSupported = false;
+            }
+        }
+
+        try {
+            Thread.sleep(timeout.toMillis());
+            return false;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new MigrationException("Interrupted while waiting for migration lock", ex);
+        }
+    }
+
     /**
-     * Releases a pessimistic lock.
+     * Releases the lock if it is held by this repository and stops renewing its lease.
      */
     public void releaseLock() {
         LOGGER.info("Releasing lock...");
-        database.getCollection(CHANGELOG_LOCK_COLLECTION).deleteOne(ID_FILTER);
+        migrationLock.stopLease();
+        database.getCollection(CHANGELOG_LOCK_COLLECTION).deleteOne(migrationLock.ownerFilter());
     }
 
     /**
@@ -126,21 +278,214 @@ public class MigrationRepository {
         return false;
     }
 
+    /**
+     * Creates the compound index on the changelog collection unless it already exists.
+     */
+    public void ensureChangeLogIndex() {
+        database.getCollection(CHANGELOG_COLLECTION).createIndex(changeLogIndexKeys(), changeLogIndexOptions());
+    }
+
+    /**
+     * Loads the names and checksums of all applied migrations from the changelog using a single projected query.
+     *
+     * @return a map of applied migration names to their checksums
+     */
+    @Override
+    public Map<String, String> loadAppliedMigrations() {
+        return toAppliedMigrations(database.getCollection(CHANGELOG_COLLECTION).find()
+                .projection(appliedMigrationsProjection()));
+    }
+
+    @Override
+    public MigrationStatus loadStatus(MigrationWrappers migrationWrappers) {
+        return toMigrationStatus(migrationWrappers,
+                database.getCollection(CHANGELOG_COLLECTION).aggregate(STATUS_PIPELINE));
+    }
+
+    /**
+     * Determines the migrations from the given {@link MigrationWrappers} instance which have not been applied yet.
+     *
+     * @param migrationWrappers all available migrations
+     * @param applied applied migration names mapped to their checksums as returned by
+     *        {@link #loadAppliedMigrations()}
+     * @return the pending migrations in version order
+     */
+    public List<MigrationWrapper> findPendingMigrations(MigrationWrappers migrationWrappers,
+            Map<String, String> applied) {
+        return ChangeLogDocuments.findPendingMigrations(migrationWrappers, applied);
+    }
+
+    /**
+     * Executes a single migration and records it in the changelog afterwards. If a previous run of the migration left
+     * a checkpoint, it is handed to the migration via its {@link MigrationContext} so it can resume. The checkpoint is
+     * removed once the migration has completed.
+     *
+     * @param wrapper the migration to execute
+     */
+    public void applyMigration(MigrationWrapper wrapper) {
+        getFencingToken();
+        String name = wrapper.getName();
+        Checkpoint checkpoint = loadCheckpoint(wrapper);
+        if (checkpoint != null) {
+            LOGGER.info("Resuming incomplete migration {} from {}", name, checkpoint);
+        }
+
+        LOGGER.info("Running migration: {}", name);
+        MigrationContext context = new MigrationContext(database, name, checkpoint, cp -> saveCheckpoint(wrapper, cp),
+                executionMode);
+        long start = System.currentTimeMillis();
+        long startNanos = System.nanoTime();
+        try {
+            execute(wrapper.getMigration(), context);
+        } catch (RuntimeException | Error ex) {
+            metrics.migrationFailed(database.getName(), name, System.nanoTime() - startNanos, context.getStats(), ex);
+            recordFailure(wrapper, ex);
+            throw ex;
+        }
+        long end = System.currentTimeMillis();
+        metrics.migrationApplied(database.getName(), name, System.nanoTime() - startNanos, context.getStats());
+
+        Checkpointer checkpointer = context.getCheckpointer();
+        Document entry = changeLogEntry(wrapper, start, end, getFencingToken(),
+                checkpointer != null ? checkpointer.getCounters() : null, context.getStats());
+        database.getCollection(CHANGELOG_COLLECTION).insertOne(entry);
+        if (checkpoint != null || context.getCheckpointer() != null) {
+            database.getCollection(CHECKPOINT_COLLECTION).deleteOne(migrationFilter(name));
+        }
+        LOGGER.info("Migration {} applied in {} ms", name, end - start);
+    }
+
+    private void recordFailure(MigrationWrapper wrapper, Throwable error) {
+        try {
+            database.getCollection(FAILURE_COLLECTION).replaceOne(migrationFilter(wrapper.getName()),
+                    failureDocument(wrapper, error), new ReplaceOptions().upsert(true));
+        } catch (RuntimeException ex) {
+            error.addSuppressed(ex);
+        }
+    }
+
+    /**
+     * Loads the checkpoint left by an incomplete run of the specified migration. A checkpoint left by a different
+     * version of the migration, i. e. one with another checksum, is deleted instead, since its state may not match the
+     * migration's current code.
+     *
+     * @param wrapper the migration
+     * @return the checkpoint, or {@code null} if there is none
+     */
+    public Checkpoint loadCheckpoint(MigrationWrapper wrapper) {
+        MongoCollection<Document> collection = database.getCollection(CHECKPOINT_COLLECTION);
+        Document doc = collection.find(migrationFilter(wrapper.getName())).first();
+        if (isStaleCheckpoint(doc, wrapper)) {
+            collection.deleteOne(migrationFilter(wrapper.getName()));
+            return null;
+        }
+        return toCheckpoint(doc);
+    }
+
+    /**
+     * Persists a checkpoint of the specified migration, replacing the previous one. The checkpoint is stamped with
+     * the current fencing token and the migration's checksum.
+     *
+     * @param wrapper the migration
+     * @param checkpoint the checkpoint to save
+     * @throws MigrationException if the lock is not held or its lease has been lost
+     */
+    public void saveCheckpoint(MigrationWrapper wrapper, Checkpoint checkpoint) {
+        Document doc = checkpointDocument(wrapper, checkpoint, getFencingToken());
+        database.getCollection(CHECKPOINT_COLLECTION)
+                .replaceOne(migrationFilter(wrapper.getName()), doc, new ReplaceOptions().upsert(true));
+        LOGGER.debug("Saved {} of migration {}", checkpoint, wrapper.getName());
+    }
+
+    /**
+     * Executes a migration using the synchronous driver.
+     *
+     * @throws MigrationException if the migration is a {@link ReactiveMigration}, which the synchronous backend cannot
+     *         execute
+     */
+    @SuppressWarnings("unchecked")
+    static void execute(Migration migration, MigrationContext context) {
+        if (migration instanceof ReactiveMigration) {
+            throw new MigrationException("Migration " + context.getMigrationName()
+                    + " is a ReactiveMigration and requires backend=reactive");
+        } else if (migration instanceof MigrationContextMigration) {
+            ((MigrationContextMigration) migration).migrate(context);
+        } else {
+            migration.migrate(context.getDatabase());
+        }
+    }
+
     /**
      * Runs migrations represented by the given {@link MigrationWrappers} instance. Migrations are only executed if the
-     * migration lock is not currently held by another migration process.
+     * migration lock is not currently held by another migration process. Migrations already recorded in the changelog
+     * are skipped. Pending migrations are executed by the {@link MigrationScheduler}, possibly in parallel.
      *
      * @return {@code true}, if the migration was executed successfully, {@code false} if the migration lock is held by
      *         another process
      */
+    @Override
     public boolean runMigration(MigrationWrappers migrationWrappers) {
         return withLock(() -> {
-            migrationWrappers.stream()
-                    .map(MigrationWrapper::getMigration)
-                    .forEach(migration -> {
-                        LOGGER.info("Running migration: {}", migration);
-                        migration.migrate(database);
-                    });
+            ensureChangeLogIndex();
+            List<MigrationWrapper> pending = findPendingMigrations(migrationWrappers, loadAppliedMigrations());
+            LOGGER.info("{} pending migration(s) found", pending.size());
+            scheduler.execute(pending, this::applyMigration);
         });
     }
+
+    /**
+     * Drops the changelog collections under the migration lock. When resetting the database, the application
+     * collections are dropped first by at most {@link ClearOptions#getConcurrency()} threads, so a failed reset leaves
+     * the changelog in place and can simply be repeated. Finally only the lock document is deleted, so the fencing
+     * counter kept in the lock collection continues to increase.
+     */
+    @Override
+    public ClearResult clear(ClearOptions options) {
+        long start = System.nanoTime();
+        if (!tryLock()) {
+            return new ClearResult(database.getName(), false, emptyList(), (System.nanoTime() - start) / 1_000_000);
+        }
+
+        List<String> dropped;
+        try {
+            dropped = options.isResetDatabase() ? dropCollections(findApplicationCollections(),
+                    options.getConcurrency()) : emptyList();
+            database.getCollection(CHECKPOINT_COLLECTION).drop();
+            database.getCollection(FAILURE_COLLECTION).drop();
+            database.getCollection(CHANGELOG_COLLECTION).drop();
+        } catch (RuntimeException ex) {
+            releaseLock();
+            throw ex;
+        }
+        releaseLock();
+
+        ClearResult result = new ClearResult(database.getName(), true, dropped,
+                (System.nanoTime() - start) / 1_000_000);
+        LOGGER.info("{}", result);
+        return result;
+    }
+
+    private List<String> findApplicationCollections() {
+        return database.listCollectionNames().into(new ArrayList<>()).stream()
+                .filter(ChangeLogDocuments::isApplicationCollection)
+                .sorted()
+                .collect(toList());
+    }
+
+    private List<String> dropCollections(List<String> collections, int concurrency) {
+        executionMode.forEachConcurrently("diamongo-reset", concurrency, collections, collection -> {
+            database.getCollection(collection).drop();
+            LOGGER.debug("Dropped collection {}", collection);
+        }, "Dropping collections");
+        return collections;
+    }
+
+    /**
+     * Runs {@link #runMigration(MigrationWrappers)} on a separate thread, since the synchronous driver blocks.
+     */
+    @Override
+    public CompletableFuture<Boolean> runMigrationAsync(MigrationWrappers migrationWrappers) {
+        return CompletableFuture.supplyAsync(() -> runMigration(migrationWrappers),
+                runnable -> executionMode.threadFactory("diamongo-migrate").newThread(runnable).start());
+    }
 }
@@ -18,6 +18,11 @@ package io.github.diamongo.core.migration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+
 import static io.github.diamongo.core.util.ValidationUtils.checkNotNull;
 
 /**
@@ -26,24 +31,122 @@ import static io.github.diamongo.core.util.ValidationUtils.checkNotNull;
 public class MigrationRunner {
     private static final Logger LOGGER = LoggerFactory.getLogger(MigrationRunner.class);
 
-    private final MigrationRepository repository;
+    private final ChangeLogRepository repository;
+    private final LockWaitOptions lockWaitOptions;
+    private final MigrationMetrics metrics;
+    private final String database;
+
+    /**
+     * Creates a runner which gives up immediately if the migration lock is held by another process.
+     *
+     * @param repository provides MongoDB access
+     */
+    public MigrationRunner(ChangeLogRepository repository) {
+        this(repository, LockWaitOptions.NO_WAIT);
+    }
+
+    /**
+     * @param repository provides MongoDB access
+     * @param lockWaitOptions controls waiting for the migration lock if it is held by another process
+     */
+    public MigrationRunner(ChangeLogRepository repository, LockWaitOptions lockWaitOptions) {
+        this(repository, lockWaitOptions, MigrationMetrics.NOOP, null);
+    }
 
     /**
+     * Creates a runner reporting the time spent waiting for the migration lock.
+     *
      * @param repository provides MongoDB access
+     * @param lockWaitOptions controls waiting for the migration lock if it is held by another process
+     * @param metrics receives the measurements
+     * @param database the name of the database the measurements are reported for
      */
-    public MigrationRunner(MigrationRepository repository) {
+    public MigrationRunner(ChangeLogRepository repository, LockWaitOptions lockWaitOptions, MigrationMetrics metrics,
+            String database) {
         this.repository = checkNotNull(repository, "'repository' must not be null");
+        this.lockWaitOptions = checkNotNull(lockWaitOptions, "'lockWaitOptions' must not be null");
+        this.metrics = checkNotNull(metrics, "'metrics' must not be null");
+        this.database = database;
     }
 
     /**
-     * Runs migrations represented by the given {@link MigrationWrappers} instance.
+     * Runs migrations represented by the given {@link MigrationWrappers} instance. If waiting for the lock is enabled,
+     * retries with exponential backoff until the lock could be acquired or the maximum wait time has elapsed.
+     *
+     * @return {@code true}, if the migration was executed, {@code false} if the lock is held by another process and
+     *         waiting is disabled
+     * @throws MigrationException if the lock could not be acquired within the maximum wait time
      */
-    public void runMigration(MigrationWrappers migrationWrappers) {
+    public boolean runMigration(MigrationWrappers migrationWrappers) {
         if (repository.runMigration(migrationWrappers)) {
             LOGGER.info("Migration executed successfully");
+        } else if (!lockWaitOptions.isWaitEnabled()) {
+            LOGGER.info("Lock held by another process. Do nothing.");
+            return false;
         } else {
+            waitAndRunMigration(migrationWrappers);
+        }
+        return true;
+    }
 
-            LOGGER.info("Lock held by another process. Do nothing.");
+    /**
+     * Runs migrations like {@link #runMigration(MigrationWrappers)}, but without blocking the calling thread. Waiting
+     * for the lock, if enabled, happens on a separate thread.
+     *
+     * @return a future completed once the migration has finished; it fails with a {@link MigrationException} if the
+     *         lock could not be acquired within the maximum wait time
+     */
+    public CompletableFuture<Void> runMigrationAsync(MigrationWrappers migrationWrappers) {
+        return repository.runMigrationAsync(migrationWrappers).thenCompose(executed -> {
+            if (executed) {
+                LOGGER.info("Migration executed successfully");
+            } else if (!lockWaitOptions.isWaitEnabled()) {
+                LOGGER.info("Lock held by another process. Do nothing.");
+            } else {
+                return CompletableFuture.runAsync(() -> waitAndRunMigration(migrationWrappers),
+                        runnable -> new DaemonThreadFactory("diamongo-lock-wait").newThread(runnable).start());
+            }
+            return CompletableFuture.completedFuture(null);
+        });
+    }
+
+    private void waitAndRunMigration(MigrationWrappers migrationWrappers) {
+        Duration maxWait = lockWaitOptions.getMaxWait();
+        LOGGER.info("Lock held by another process. Waiting up to {}...", maxWait);
+
+        Random random = ThreadLocalRandom.current();
+        long start = System.nanoTime();
+        long deadline = start + maxWait.toNanos();
+        long lastAttempt;
+        int attempt = 0;
+        do {
+            long remaining = Duration.ofNanos(deadline - System.nanoTime()).toMillis();
+            if (remaining <= 0) {
+                metrics.lockWait(database, false, System.nanoTime() - start);
+                throw new MigrationException("Timed out waiting for migration lock after " + maxWait);
+            }
+
+            Duration delay = Duration.ofMillis(Math.min(remaining, lockWaitOptions.nextDelayMillis(attempt++, random)));
+            if (lockWaitOptions.isWatchLock()) {
+                repository.awaitLockRelease(delay);
+            } else {
+                sleep(delay);
+            }
+            LOGGER.debug("Retrying to acquire lock, attempt {}", attempt);
+            lastAttempt = System.nanoTime();
+        } while (!repository.runMigration(migrationWrappers));
+
+        // the successful attempt includes running the migrations, which is not part of the wait
+        metrics.lockWait(database, true, lastAttempt - start);
+        LOGGER.info("Migration executed successfully after waiting for lock");
+    }
+
+    private static void sleep(Duration delay) {
+        try {
+            Thread.sleep(delay.toMillis());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new MigrationException("Interrupted while waiting for migration lock", ex);
         }
     }
 }
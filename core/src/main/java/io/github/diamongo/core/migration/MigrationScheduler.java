@@ -0,0 +1,167 @@
+/*
+ * Copyright © 2017 The Diamongo authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.diamongo.core.migration;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Consumer;
+
+import static io.github.diamongo.core.util.ValidationUtils.checkNotNull;
+
+/**
+ * Executes migrations according to their dependency graph. A migration depends on all preceding migrations it
+ * explicitly {@link MigrationMarker#dependsOn() depends on} and on all preceding migrations touching any of its
+ * {@link MigrationMarker#collections() collections}. Migrations without declared collections depend on all preceding
+ * migrations and vice versa. Independent migrations are executed in parallel on a bounded thread pool, dependent ones
+ * in their original order.
+ * <p>
+ * If a migration fails, all migrations depending on it, directly or transitively, are skipped, while independent
+ * migrations still run to completion.
+ */
+public class MigrationScheduler {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MigrationScheduler.class);
+
+    private final int parallelism;
+    private final ExecutionMode executionMode;
+
+    /**
+     * Creates a scheduler using platform threads.
+     *
+     * @param parallelism the maximum number of migrations to execute concurrently; {@code 1} executes all migrations
+     *        sequentially on the calling thread
+     */
+    public MigrationScheduler(int parallelism) {
+        this(parallelism, ExecutionMode.PLATFORM);
+    }
+
+    /**
+     * @param parallelism the maximum number of migrations to execute concurrently; {@code 1} executes all migrations
+     *        sequentially on the calling thread
+     * @param executionMode the kind of threads migrations are executed on
+     */
+    public MigrationScheduler(int parallelism, ExecutionMode executionMode) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("'parallelism' must be positive: " + parallelism);
+        }
+        this.parallelism = parallelism;
+        this.executionMode = checkNotNull(executionMode, "'executionMode' must not be null");
+    }
+
+    /**
+     * Executes the given action for each of the given migrations.
+     *
+     * @param migrations the migrations to execute in their original order
+     * @param action the action executing a single migration
+     * @throws MigrationException if any of the migrations failed
+     */
+    public void execute(List<MigrationWrapper> migrations, Consumer<MigrationWrapper> action) {
+        if (parallelism == 1 || migrations.size() < 2) {
+            migrations.forEach(action);
+            return;
+        }
+
+        Map<MigrationWrapper, List<MigrationWrapper>> graph = buildGraph(migrations);
+        Map<String, Throwable> failures = new ConcurrentHashMap<>();
+        ExecutorService executor = executionMode.newExecutor("diamongo-migration", parallelism);
+
+        try {
+            Map<MigrationWrapper, CompletableFuture<Void>> futures = new LinkedHashMap<>();
+            graph.forEach((migration, dependencies) -> {
+                CompletableFuture<?>[] dependencyFutures = dependencies.stream()
+                        .map(futures::get)
+                        .toArray(CompletableFuture[]::new);
+                CompletableFuture<Void> future = CompletableFuture.allOf(dependencyFutures).thenRunAsync(() -> {
+                    try {
+                        action.accept(migration);
+                    } catch (RuntimeException | Error ex) {
+                        failures.put(migration.getName(), ex);
+                        throw ex;
+                    }
+                }, executor);
+                futures.put(migration, future);
+            });
+
+            List<String> skipped = new ArrayList<>();
+            futures.forEach((migration, future) -> {
+                try {
+                    future.join();
+                } catch (RuntimeException ex) {
+                    if (!failures.containsKey(migration.getName())) {
+                        skipped.add(migration.getName());
+                    }
+                }
+            });
+
+            if (!failures.isEmpty()) {
+                throw createException(failures, skipped);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Determines the dependencies of each migration. Only preceding migrations are considered, so the graph is
+     * acyclic by construction.
+     *
+     * @return the migrations in their original order mapped to the migrations they depend on
+     */
+    Map<MigrationWrapper, List<MigrationWrapper>> buildGraph(List<MigrationWrapper> migrations) {
+        Map<MigrationWrapper, List<MigrationWrapper>> graph = new LinkedHashMap<>();
+        for (int i = 0; i < migrations.size(); i++) {
+            MigrationWrapper migration = migrations.get(i);
+            List<MigrationWrapper> dependencies = new ArrayList<>();
+            for (int j = 0; j < i; j++) {
+                MigrationWrapper predecessor = migrations.get(j);
+                if (dependsOn(migration, predecessor)) {
+                    dependencies.add(predecessor);
+                }
+            }
+            LOGGER.debug("Migration {} depends on {} preceding migration(s)", migration.getName(), dependencies.size());
+            graph.put(migration, dependencies);
+        }
+        return graph;
+    }
+
+    private static boolean dependsOn(MigrationWrapper migration, MigrationWrapper predecessor) {
+        return migration.getDependsOn().contains(predecessor.getName())
+                || migration.getCollections().isEmpty()
+                || predecessor.getCollections().isEmpty()
+                || !Collections.disjoint(migration.getCollections(), predecessor.getCollections());
+    }
+
+    private static MigrationException createException(Map<String, Throwable> failures, List<String> skipped) {
+        StringBuilder message = new StringBuilder()
+                .append(failures.size()).append(" migration(s) failed: ").append(failures.keySet());
+        if (!skipped.isEmpty()) {
+            message.append(", ").append(skipped.size()).append(" dependent migration(s) skipped: ").append(skipped);
+        }
+
+        List<Throwable> causes = new ArrayList<>(failures.values());
+        MigrationException exception = new MigrationException(message.toString(), causes.get(0));
+        causes.subList(1, causes.size()).forEach(exception::addSuppressed);
+        return exception;
+    }
+}
@@ -15,23 +15,93 @@
  */
 package io.github.diamongo.core.migration;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Service class serving as a facade for any migration-related operations.
  */
 public class MigrationService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MigrationService.class);
+
     private final MigrationLoader loader;
     private final MigrationValidator validator;
     private final MigrationRunner runner;
+    private final ChangeLogRepository repository;
+    private final ClearOptions clearOptions;
+
+    public MigrationService(MigrationLoader loader, MigrationValidator validator, MigrationRunner runner,
+            ChangeLogRepository repository) {
+        this(loader, validator, runner, repository, ClearOptions.CHANGELOG_ONLY);
+    }
 
-    public MigrationService(MigrationLoader loader, MigrationValidator validator, MigrationRunner runner) {
+    public MigrationService(MigrationLoader loader, MigrationValidator validator, MigrationRunner runner,
+            ChangeLogRepository repository, ClearOptions clearOptions) {
         this.loader = loader;
         this.validator = validator;
         this.runner = runner;
+        this.repository = repository;
+        this.clearOptions = clearOptions;
     }
 
     public void migrate() {
+        migrate(loader.loadMigrationWrappers());
+    }
+
+    /**
+     * Validates and runs migrations which have already been loaded, e. g. to run the same migrations against several
+     * databases.
+     *
+     * @return {@code true}, if the migration was executed, {@code false} if the lock is held by another process
+     */
+    public boolean migrate(MigrationWrappers migrationWrappers) {
+        validator.validateMigrationWrappers(migrationWrappers);
+        return runner.runMigration(migrationWrappers);
+    }
+
+    /**
+     * Loads and validates migrations on the calling thread and runs them without blocking.
+     *
+     * @return a future completed once the migration has finished
+     */
+    public CompletableFuture<Void> migrateAsync() {
         MigrationWrappers migrationWrappers = loader.loadMigrationWrappers();
         validator.validateMigrationWrappers(migrationWrappers);
-        runner.runMigration(migrationWrappers);
+        return runner.runMigrationAsync(migrationWrappers);
+    }
+
+    /**
+     * Loads and validates migrations without running them.
+     *
+     * @return the report listing all violations
+     */
+    public ValidationReport validate() {
+        return validator.validate(loader.loadMigrationWrappers());
+    }
+
+    /**
+     * Merges the available migrations with the changelog, its checkpoints and failures, which are read with a single
+     * aggregation.
+     *
+     * @return the status of all migrations
+     */
+    public MigrationStatus status() {
+        long start = System.nanoTime();
+        MigrationWrappers migrationWrappers = loader.loadMigrationWrappers();
+        MigrationStatus status = repository.loadStatus(migrationWrappers);
+        LOGGER.debug("Determined status of {} migration(s) in {} ms", status.getEntries().size(),
+                (System.nanoTime() - start) / 1_000_000);
+        return status;
+    }
+
+    /**
+     * Drops the changelog and, if configured, resets the database.
+     *
+     * @return the result including the time it took
+     */
+    public ClearResult clear() {
+        return repository.clear(clearOptions);
     }
 }
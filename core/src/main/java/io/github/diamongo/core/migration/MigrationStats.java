@@ -0,0 +1,115 @@
+/*
+ * Copyright © 2017 The Diamongo authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.diamongo.core.migration;
+
+import org.bson.Document;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Statistics of a migration collected by the data migration helpers of its {@link MigrationContext}. They are stored
+ * with the migration's changelog entry. All methods are thread-safe.
+ */
+public final class MigrationStats {
+    private final AtomicLong documentsRead = new AtomicLong();
+    private final AtomicLong documentsWritten = new AtomicLong();
+    private final List<PartitionStats> partitions = new CopyOnWriteArrayList<>();
+
+    void addDocumentsRead(long count) {
+        documentsRead.addAndGet(count);
+    }
+
+    void addDocumentsWritten(long count) {
+        documentsWritten.addAndGet(count);
+    }
+
+    void addPartition(PartitionStats partition) {
+        partitions.add(partition);
+    }
+
+    public long getDocumentsRead() {
+        return documentsRead.get();
+    }
+
+    public long getDocumentsWritten() {
+        return documentsWritten.get();
+    }
+
+    /**
+     * @return the statistics of all partitions processed by {@link PartitionedScan partitioned scans}
+     */
+    public List<PartitionStats> getPartitions() {
+        return partitions;
+    }
+
+    /**
+     * @return {@code true}, if nothing has been recorded
+     */
+    public boolean isEmpty() {
+        return getDocumentsRead() == 0 && getDocumentsWritten() == 0 && partitions.isEmpty();
+    }
+
+    Document toDocument() {
+        Document doc = new Document("documentsRead", getDocumentsRead())
+                .append("documentsWritten", getDocumentsWritten());
+        if (!partitions.isEmpty()) {
+            doc.append("partitions", partitions.stream()
+                    .map(partition -> new Document("collection", partition.getCollection())
+                            .append("index", partition.getIndex())
+                            .append("documentsRead", partition.getDocumentsRead())
+                            .append("durationMillis", partition.getDurationMillis()))
+                    .collect(toList()));
+        }
+        return doc;
+    }
+
+    /**
+     * Statistics of a single partition of a {@link PartitionedScan}.
+     */
+    public static final class PartitionStats {
+        private final String collection;
+        private final int index;
+        private final long documentsRead;
+        private final long durationMillis;
+
+        PartitionStats(String collection, int index, long documentsRead, long durationMillis) {
+            this.collection = collection;
+            this.index = index;
+            this.documentsRead = documentsRead;
+            this.durationMillis = durationMillis;
+        }
+
+        public String getCollection() {
+            return collection;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public long getDocumentsRead() {
+            return documentsRead;
+        }
+
+        public long getDurationMillis() {
+            return durationMillis;
+        }
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright © 2017 The Diamongo authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.diamongo.core.migration;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static java.util.Comparator.naturalOrder;
+import static java.util.Comparator.nullsLast;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * The status of all migrations, i. e. the available migrations merged with the changelog.
+ */
+public final class MigrationStatus {
+
+    /**
+     * The state of a migration.
+     */
+    public enum State {
+        /**
+         * The migration has been applied with its current checksum.
+         */
+        APPLIED,
+        /**
+         * The migration has not been applied yet.
+         */
+        PENDING,
+        /**
+         * The migration has been applied with a different checksum, i. e. it has been edited since.
+         */
+        CHECKSUM_MISMATCH,
+        /**
+         * The migration has been applied but is not available locally.
+         */
+        MISSING_LOCALLY,
+        /**
+         * The last run of the migration failed and it has not been applied since.
+         */
+        FAILED
+    }
+
+    private final List<Entry> entries;
+
+    private MigrationStatus(List<Entry> entries) {
+        this.entries = Collections.unmodifiableList(entries);
+    }
+
+    /**
+     * Merges the available migrations with the changelog in a single pass over both, without any recorded failures.
+     *
+     * @see #of(MigrationWrappers, List, Set, Set)
+     */
+    public static MigrationStatus of(MigrationWrappers wrappers, List<AppliedMigration> applied,
+            Set<String> incomplete) {
+        return of(wrappers, applied, incomplete, Collections.emptySet());
+    }
+
+    /**
+     * Merges the available migrations with the changelog in a single pass over both.
+     *
+     * @param wrappers the available migrations
+     * @param applied the migrations recorded in the changelog
+     * @param incomplete the names of migrations that left a checkpoint, i. e. failed or were interrupted
+     * @param failed the names of migrations whose execution failed
+     * @return the status in version order, followed by the migrations missing locally
+     */
+    public static MigrationStatus of(MigrationWrappers wrappers, List<AppliedMigration> applied,
+            Set<String> incomplete, Set<String> failed) {
+        Map<String, AppliedMigration> remaining = new HashMap<>(applied.size() * 4 / 3 + 1);
+        applied.forEach(migration -> remaining.put(migration.getName(), migration));
+
+        List<Entry> entries = new ArrayList<>(wrappers.size() + applied.size());
+        for (MigrationWrapper wrapper : wrappers) {
+            AppliedMigration migration = remaining.remove(wrapper.getName());
+            State state = migration == null ? failed.contains(wrapper.getName()) ? State.FAILED : State.PENDING
+                    : migration.getChecksum() != null && migration.getChecksum().equals(wrapper.getChecksum())
+                            ? State.APPLIED
+                            : State.CHECKSUM_MISMATCH;
+            entries.add(new Entry(wrapper.getName(), wrapper.getVersion(), state, wrapper.getChecksum(), migration,
+                    incomplete.contains(wrapper.getName())));
+        }
+
+        List<Entry> missing = remaining.values().stream()
+                .map(migration -> new Entry(migration.getName(), MigrationVersion.fromMigrationName(
+                        migration.getName()), State.MISSING_LOCALLY, null, migration, false))
+                .sorted(Comparator.comparing(Entry::getVersion, nullsLast(naturalOrder()))
+                        .thenComparing(Entry::getName))
+                .collect(toList());
+        entries.addAll(missing);
+        return new MigrationStatus(entries);
+    }
+
+    /**
+     * @return all migrations in version order, followed by the migrations missing locally
+     */
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * @return the migrations in the specified state
+     */
+    public List<Entry> getEntries(State state) {
+        return entries.stream().filter(entry -> entry.getState() == state).collect(toList());
+    }
+
+    /**
+     * @return the number of migrations in the specified state
+     */
+    public long count(State state) {
+        return entries.stream().filter(entry -> entry.getState() == state).count();
+    }
+
+    /**
+     * @return {@code true}, if all available migrations have been applied with their current checksums
+     */
+    public boolean isUpToDate() {
+        return entries.stream().noneMatch(entry -> entry.getState() == State.PENDING
+                || entry.getState() == State.CHECKSUM_MISMATCH || entry.getState() == State.FAILED);
+    }
+
+    /**
+     * The status of a single migration.
+     */
+    public static final class Entry {
+        private final String name;
+        private final MigrationVersion version;
+        private final State state;
+        private final String checksum;
+        private final AppliedMigration applied;
+        private final boolean incomplete;
+
+        Entry(String name, MigrationVersion version, State state, String checksum, AppliedMigration applied,
+                boolean incomplete) {
+            this.name = name;
+            this.version = version;
+            this.state = state;
+            this.checksum = checksum;
+            this.applied = applied;
+            this.incomplete = incomplete;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return the version, or {@code null} if the migration's name is not versioned
+         */
+        public MigrationVersion getVersion() {
+            return version;
+        }
+
+        public State getState() {
+            return state;
+        }
+
+        /**
+         * @return the checksum of the available migration, or {@code null} if it is missing locally
+         */
+        public String getChecksum() {
+            return checksum;
+        }
+
+        /**
+         * @return the checksum recorded in the changelog, or {@code null} if the migration has not been applied
+         */
+        public String getAppliedChecksum() {
+            return applied != null ? applied.getChecksum() : null;
+        }
+
+        /**
+         * @return the time the migration finished, or {@code null} if it has not been applied
+         */
+        public Date getFinishedAt() {
+            return applied != null ? applied.getFinishedAt() : null;
+        }
+
+        /**
+         * @return the duration of the migration, or {@code null} if it has not been applied
+         */
+        public Long getDurationMillis() {
+            return applied != null ? applied.getDurationMillis() : null;
+        }
+
+        /**
+         * @return {@code true}, if a previous run failed or was interrupted and left a checkpoint to resume from. Runs
+         *         without checkpoints are not detected, but a failed one results in {@link State#FAILED}.
+         */
+        public boolean isIncomplete() {
+            return incomplete;
+        }
+    }
+}
@@ -15,13 +15,262 @@
  */
 package io.github.diamongo.core.migration;
 
+import io.github.diamongo.core.migration.ValidationReport.Type;
+import io.github.diamongo.core.migration.ValidationReport.Violation;
+import io.github.diamongo.core.util.ChecksumUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static io.github.diamongo.core.util.ValidationUtils.checkNotNull;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Validates migrations before they are run. The following checks are performed:
+ * <ul>
+ * <li>different migrations must not have the same version,</li>
+ * <li>pending migrations must not have a lower version than the latest applied migration,</li>
+ * <li>migrations must only {@link MigrationMarker#dependsOn() depend on} existing preceding migrations, since the
+ * {@link MigrationScheduler} ignores any other dependency,</li>
+ * <li>checksums of migrations must match the checksums recorded in the changelog, so migrations edited after they
+ * have been applied are detected,</li>
+ * <li>if source directories are configured, the checksums of the sources found there must match the compiled
+ * checksums, which detects sources that have changed since they were compiled,</li>
+ * <li>pending migrations must be loadable and supported by the backend, e. g. {@link ReactiveMigration reactive
+ * migrations} require the reactive backend.</li>
+ * </ul>
+ * The checks are independent of each other and run concurrently on the common fork-join pool while the changelog is
+ * read on the calling thread, so no pool thread blocks on I/O. Every violation is collected into a single
+ * {@link ValidationReport}. Sources are hashed in parallel without
+ * decoding them into strings.
+ */
 public class MigrationValidator {
     private static final Logger LOGGER = LoggerFactory.getLogger(MigrationValidator.class);
 
+    private final ChangeLogRepository repository;
+    private final List<Path> sourceDirs;
+
+    /**
+     * @param repository provides the checksums of applied migrations
+     * @param sourceDirs the directories containing the sources of Java migrations laid out by package, may be empty
+     *        but not null
+     */
+    public MigrationValidator(ChangeLogRepository repository, List<Path> sourceDirs) {
+        this.repository = checkNotNull(repository, "'repository' must not be null");
+        this.sourceDirs = checkNotNull(sourceDirs, "'sourceDirs' must not be null. It may be empty but not null");
+    }
+
+    /**
+     * Validates the given migrations.
+     *
+     * @param migrationWrappers all available migrations
+     * @throws MigrationException listing all violations if there are any
+     */
     public void validateMigrationWrappers(MigrationWrappers migrationWrappers) {
-        // TODO implement
+        ValidationReport report = validate(migrationWrappers);
+        if (!report.isValid()) {
+            throw new MigrationException(report.toString());
+        }
+    }
+
+    /**
+     * Validates the given migrations, collecting all violations.
+     *
+     * @param migrationWrappers all available migrations
+     * @return the report
+     * @throws MigrationException if the changelog or a source cannot be read
+     */
+    public ValidationReport validate(MigrationWrappers migrationWrappers) {
+        long start = System.nanoTime();
+        List<MigrationWrapper> wrappers = migrationWrappers.stream().collect(toList());
+
+        // the changelog is read on the calling thread, since it blocks, while the local checks run
+        CompletableFuture<List<Violation>> duplicates =
+                CompletableFuture.supplyAsync(() -> checkDuplicateVersions(migrationWrappers));
+        CompletableFuture<List<Violation>> dependencies =
+                CompletableFuture.supplyAsync(() -> checkDependencies(wrappers));
+        CompletableFuture<List<Violation>> sources = CompletableFuture.supplyAsync(() -> checkSources(wrappers));
+        Map<String, String> applied = repository.loadAppliedMigrations();
+        boolean reactiveSupported = repository.supportsReactiveMigrations();
+        CompletableFuture<List<Violation>> loadability =
+                CompletableFuture.supplyAsync(() -> checkLoadable(wrappers, applied, reactiveSupported));
+
+        List<Violation> violations = new ArrayList<>();
+        violations.addAll(checkChangeLog(wrappers, applied));
+        violations.addAll(checkOrder(migrationWrappers, applied));
+        for (CompletableFuture<List<Violation>> check : Arrays.asList(duplicates, dependencies, sources,
+                loadability)) {
+            violations.addAll(Publishers.join(check));
+        }
+
+        ValidationReport report = new ValidationReport(violations);
+        LOGGER.info("Validated {} migration(s) in {} ms: {} violation(s)", wrappers.size(),
+                (System.nanoTime() - start) / 1_000_000, report.getViolations().size());
+        return report;
+    }
+
+    private static List<Violation> checkDuplicateVersions(MigrationWrappers migrationWrappers) {
+        List<Violation> violations = new ArrayList<>();
+        migrationWrappers.getDuplicateVersions().forEach((version, names) -> {
+            for (String name : names) {
+                violations.add(new Violation(Type.DUPLICATE_VERSION, name, String.format(
+                        "version %s is shared by %s", version, String.join(", ", names))));
+            }
+        });
+        return violations;
+    }
+
+    /**
+     * Checks that migrations only depend on migrations preceding them in version order.
+     */
+    private static List<Violation> checkDependencies(List<MigrationWrapper> wrappers) {
+        Map<String, Integer> positions = new HashMap<>();
+        for (int i = 0; i < wrappers.size(); i++) {
+            positions.put(wrappers.get(i).getName(), i);
+        }
+        List<Violation> violations = new ArrayList<>();
+        for (int i = 0; i < wrappers.size(); i++) {
+            MigrationWrapper wrapper = wrappers.get(i);
+            for (String dependency : wrapper.getDependsOn()) {
+                Integer position = positions.get(dependency);
+                if (position == null) {
+                    violations.add(new Violation(Type.INVALID_DEPENDENCY, wrapper.getName(), String.format(
+                            "depends on unknown migration %s", dependency)));
+                } else if (position >= i) {
+                    violations.add(new Violation(Type.INVALID_DEPENDENCY, wrapper.getName(), String.format(
+                            "depends on migration %s which does not precede it", dependency)));
+                }
+            }
+        }
+        return violations;
+    }
+
+    private List<Violation> checkSources(List<MigrationWrapper> wrappers) {
+        Map<String, String> sourceChecksums = computeSourceChecksums(wrappers);
+        List<Violation> violations = new ArrayList<>();
+        for (MigrationWrapper wrapper : wrappers) {
+            String sourceChecksum = sourceChecksums.get(wrapper.getName());
+            if (sourceChecksum != null && !sourceChecksum.equals(wrapper.getChecksum())) {
+                violations.add(new Violation(Type.SOURCE_CHECKSUM, wrapper.getName(), String.format(
+                        "source checksum %s differs from compiled checksum %s", sourceChecksum,
+                        wrapper.getChecksum())));
+            }
+        }
+        return violations;
+    }
+
+    private static List<Violation> checkChangeLog(List<MigrationWrapper> wrappers, Map<String, String> applied) {
+        List<Violation> violations = new ArrayList<>();
+        for (MigrationWrapper wrapper : wrappers) {
+            String appliedChecksum = applied.get(wrapper.getName());
+            if (appliedChecksum != null && !appliedChecksum.equals(wrapper.getChecksum())) {
+                violations.add(new Violation(Type.CHANGELOG_CHECKSUM, wrapper.getName(), String.format(
+                        "checksum %s differs from checksum %s recorded in changelog", wrapper.getChecksum(),
+                        appliedChecksum)));
+            }
+        }
+        return violations;
+    }
+
+    private static List<Violation> checkOrder(MigrationWrappers migrationWrappers, Map<String, String> applied) {
+        MigrationVersion latest = applied.keySet().stream()
+                .map(MigrationVersion::fromMigrationName)
+                .filter(Objects::nonNull)
+                .max(Comparator.naturalOrder())
+                .orElse(null);
+        List<Violation> violations = new ArrayList<>();
+        if (latest == null) {
+            return violations;
+        }
+        // wrappers are sorted by version, so only those up to the latest applied version need to be looked at
+        for (MigrationWrapper wrapper : migrationWrappers) {
+            if (wrapper.getVersion() == null || wrapper.getVersion().compareTo(latest) >= 0) {
+                break;
+            }
+            if (!applied.containsKey(wrapper.getName())) {
+                violations.add(new Violation(Type.OUT_OF_ORDER, wrapper.getName(), String.format(
+                        "pending version %s is lower than latest applied version %s", wrapper.getVersion(),
+                        latest)));
+            }
+        }
+        return violations;
+    }
+
+    /**
+     * Instantiates pending migrations. Applied migrations are skipped, so they are still loaded lazily.
+     */
+    private static List<Violation> checkLoadable(List<MigrationWrapper> wrappers, Map<String, String> applied,
+            boolean reactiveSupported) {
+        return wrappers.parallelStream()
+                .filter(wrapper -> !applied.containsKey(wrapper.getName()))
+                .map(wrapper -> checkLoadable(wrapper, reactiveSupported))
+                .filter(Objects::nonNull)
+                .collect(toList());
+    }
+
+    private static Violation checkLoadable(MigrationWrapper wrapper, boolean reactiveSupported) {
+        Migration<?> migration;
+        try {
+            migration = wrapper.getMigration();
+        } catch (RuntimeException | LinkageError ex) {
+            return new Violation(Type.NOT_LOADABLE, wrapper.getName(), ex.toString());
+        }
+        if (migration instanceof ReactiveMigration && !reactiveSupported) {
+            return new Violation(Type.UNSUPPORTED_BACKEND, wrapper.getName(),
+                    "reactive migration requires backend=reactive");
+        }
+        return null;
+    }
+
+    /**
+     * Recomputes the checksums of all migrations whose sources are found in the source directories.
+     *
+     * @return migration names mapped to the checksums of their sources
+     */
+    Map<String, String> computeSourceChecksums(List<MigrationWrapper> wrappers) {
+        Map<String, String> checksums = new ConcurrentHashMap<>();
+        if (sourceDirs.isEmpty()) {
+            return checksums;
+        }
+
+        wrappers.parallelStream().forEach(wrapper -> {
+            Path source = findSource(wrapper.getName());
+            if (source == null) {
+                LOGGER.debug("No source found for migration {}", wrapper.getName());
+                return;
+            }
+            try {
+                checksums.put(wrapper.getName(), ChecksumUtils.normalizedSha256(source));
+            } catch (IOException ex) {
+                throw new MigrationException("Error reading migration source: " + source, ex);
+            }
+        });
+        return checksums;
+    }
+
+    private Path findSource(String className) {
+        // nested classes are declared in the source of their top-level class
+        int nested = className.indexOf('$');
+        String topLevelName = nested < 0 ? className : className.substring(0, nested);
+        String relativePath = topLevelName.replace('.', '/') + ".java";
+        for (Path dir : sourceDirs) {
+            Path source = dir.resolve(relativePath);
+            if (Files.isRegularFile(source)) {
+                return source;
+            }
+        }
+        return null;
     }
 }
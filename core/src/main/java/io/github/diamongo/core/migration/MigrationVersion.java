@@ -0,0 +1,129 @@
+/*
+ * Copyright © 2017 The Diamongo authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.diamongo.core.migration;
+
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static io.github.diamongo.core.util.ValidationUtils.checkNotNull;
+
+/**
+ * The version of a migration parsed from its name, e. g. {@code 1.0} from {@code V1_0__CreateUsers} or
+ * {@code V1_0__create_users.js}. Versions are compared numerically part by part; trailing zeros are insignificant, so
+ * {@code 1} equals {@code 1.0}.
+ */
+public final class MigrationVersion implements Comparable<MigrationVersion> {
+    // the last name segment starting with a version, e. g. the simple class name of a nested class
+    private static final Pattern VERSIONED_NAME = Pattern.compile("(?:^|[./$\\\\])V(\\d+(?:_\\d+)*)__");
+    private static final Pattern VERSION = Pattern.compile("\\d+([._]\\d+)*");
+
+    private final long[] parts;
+    private final int significantParts;
+    private final int hash;
+
+    private MigrationVersion(long[] parts) {
+        this.parts = parts;
+        int significant = parts.length;
+        while (significant > 1 && parts[significant - 1] == 0) {
+            significant--;
+        }
+        this.significantParts = significant;
+        this.hash = Arrays.hashCode(Arrays.copyOf(parts, significant));
+    }
+
+    /**
+     * Parses a version like {@code 1.0.2} or {@code 1_0_2}.
+     *
+     * @param version the version
+     * @return the parsed version
+     * @throws MigrationException if the version is invalid
+     */
+    public static MigrationVersion parse(String version) {
+        checkNotNull(version, "'version' must not be null");
+        if (!VERSION.matcher(version).matches()) {
+            throw new MigrationException("Invalid migration version: " + version);
+        }
+        String[] tokens = version.split("[._]");
+        long[] parts = new long[tokens.length];
+        try {
+            for (int i = 0; i < tokens.length; i++) {
+                parts[i] = Long.parseLong(tokens[i]);
+            }
+        } catch (NumberFormatException ex) {
+            throw new MigrationException("Invalid migration version: " + version, ex);
+        }
+        return new MigrationVersion(parts);
+    }
+
+    /**
+     * Extracts the version from a migration name. The version is taken from the last segment of the name starting with
+     * {@code V}, digits separated by underscores and two underscores, e. g. {@code com.example.V1_0__CreateUsers}.
+     *
+     * @param name the migration name
+     * @return the version, or {@code null} if the name is not versioned
+     * @throws MigrationException if the version is out of range
+     */
+    public static MigrationVersion fromMigrationName(String name) {
+        Matcher matcher = VERSIONED_NAME.matcher(name);
+        String version = null;
+        while (matcher.find()) {
+            version = matcher.group(1);
+        }
+        return version != null ? parse(version) : null;
+    }
+
+    @Override
+    public int compareTo(MigrationVersion other) {
+        int length = Math.max(significantParts, other.significantParts);
+        for (int i = 0; i < length; i++) {
+            int result = Long.compare(part(i), other.part(i));
+            if (result != 0) {
+                return result;
+            }
+        }
+        return 0;
+    }
+
+    private long part(int index) {
+        return index < significantParts ? parts[index] : 0;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return this == obj || obj instanceof MigrationVersion && compareTo((MigrationVersion) obj) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    /**
+     * @return the version with its parts separated by dots, e. g. {@code 1.0}
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (long part : parts) {
+            if (sb.length() > 0) {
+                sb.append('.');
+            }
+            sb.append(part);
+        }
+        return sb.toString();
+    }
+}
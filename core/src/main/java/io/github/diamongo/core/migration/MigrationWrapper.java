@@ -15,23 +15,116 @@
  */
 package io.github.diamongo.core.migration;
 
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import static io.github.diamongo.core.util.ValidationUtils.checkNotNull;
+import static java.util.stream.Collectors.toSet;
+
 /**
- * Holds an instance of a {@link Migration} and the migration's checksum.
+ * Holds a {@link Migration} and the migration's checksum. The migration may be instantiated lazily on first access, so
+ * migrations that are never executed are never loaded.
  */
 public final class MigrationWrapper {
-    private final Migration migration;
     private final String checksum;
+    private final String name;
+    private final MigrationVersion version;
+    private final Set<String> dependsOn;
+    private final Set<String> collections;
+    private final Supplier<? extends Migration> factory;
+    private volatile Migration migration;
 
     public MigrationWrapper(Migration migration, String checksum) {
         this.migration = migration;
+        this.factory = () -> migration;
         this.checksum = checksum;
+        this.name = migration.getClass().getName();
+        this.version = MigrationVersion.fromMigrationName(name);
+
+        MigrationMarker marker = migration.getClass().getAnnotation(MigrationMarker.class);
+        if (marker != null) {
+            this.dependsOn = Collections.unmodifiableSet(Arrays.stream(marker.dependsOn())
+                    .map(Class::getName)
+                    .collect(toSet()));
+            this.collections = Collections.unmodifiableSet(Arrays.stream(marker.collections()).collect(toSet()));
+        } else {
+            this.dependsOn = Collections.emptySet();
+            this.collections = Collections.emptySet();
+        }
+    }
+
+    /**
+     * Creates a wrapper instantiating the migration on first access.
+     *
+     * @param name the name identifying the migration in the changelog, i. e. its class name
+     * @param checksum the migration's checksum
+     * @param dependsOn the names of the migrations this migration depends on
+     * @param collections the collections this migration touches
+     * @param factory creates the migration
+     */
+    public MigrationWrapper(String name, String checksum, Collection<String> dependsOn, Collection<String> collections,
+            Supplier<? extends Migration> factory) {
+        this.name = checkNotNull(name, "'name' must not be null");
+        this.version = MigrationVersion.fromMigrationName(name);
+        this.checksum = checksum;
+        this.dependsOn = Collections.unmodifiableSet(new HashSet<>(dependsOn));
+        this.collections = Collections.unmodifiableSet(new HashSet<>(collections));
+        this.factory = checkNotNull(factory, "'factory' must not be null");
+    }
+
+    /**
+     * @return the name identifying the migration in the changelog
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the version parsed from the migration's name, or {@code null} if the name is not versioned
+     */
+    public MigrationVersion getVersion() {
+        return version;
     }
 
+    /**
+     * @return the migration, instantiating it if necessary
+     */
     public Migration getMigration() {
-        return migration;
+        Migration result = migration;
+        if (result == null) {
+            synchronized (this) {
+                result = migration;
+                if (result == null) {
+                    result = factory.get();
+                    if (result == null) {
+                        throw new MigrationException("Migration factory returned null: " + name);
+                    }
+                    migration = result;
+                }
+            }
+        }
+        return result;
     }
 
     public String getChecksum() {
         return checksum;
     }
+
+    /**
+     * @return the names of the migrations this migration depends on
+     */
+    public Set<String> getDependsOn() {
+        return dependsOn;
+    }
+
+    /**
+     * @return the collections this migration touches; empty if unknown, in which case all collections are assumed
+     */
+    public Set<String> getCollections() {
+        return collections;
+    }
 }
@@ -15,21 +15,57 @@
  */
 package io.github.diamongo.core.migration;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Stream;
-import java.util.stream.StreamSupport;
+
+import static java.util.Comparator.naturalOrder;
+import static java.util.Comparator.nullsLast;
 
 /**
- * Holds a list of {@link MigrationWrapper} objects.
+ * Holds a list of {@link MigrationWrapper} objects sorted by {@link MigrationVersion version} once when it is built.
+ * Migrations whose names are not versioned follow the versioned ones in the order they were added. The wrappers are
+ * kept in an array, so looking up a version is a binary search and ranges of versions are views without copying.
  */
 public final class MigrationWrappers implements Iterable<MigrationWrapper> {
+    private static final Comparator<MigrationWrapper> BY_VERSION =
+            Comparator.comparing(MigrationWrapper::getVersion, nullsLast(naturalOrder()));
+
     private final List<MigrationWrapper> list;
+    private final MigrationVersion[] versions;
+    private final Map<MigrationVersion, List<String>> duplicateVersions;
 
     private MigrationWrappers(Builder builder) {
-        list = Collections.unmodifiableList(builder.migrationWrappers);
+        MigrationWrapper[] wrappers = builder.migrationWrappers.toArray(new MigrationWrapper[0]);
+        // stable, so unversioned migrations keep their order
+        Arrays.sort(wrappers, BY_VERSION);
+
+        int versioned = 0;
+        while (versioned < wrappers.length && wrappers[versioned].getVersion() != null) {
+            versioned++;
+        }
+        versions = new MigrationVersion[versioned];
+        Map<MigrationVersion, List<String>> duplicates = new LinkedHashMap<>();
+        for (int i = 0; i < versioned; i++) {
+            versions[i] = wrappers[i].getVersion();
+            if (i > 0 && versions[i].equals(versions[i - 1])
+                    && !wrappers[i].getName().equals(wrappers[i - 1].getName())) {
+                List<String> names = duplicates.computeIfAbsent(versions[i], version -> new ArrayList<>());
+                if (names.isEmpty()) {
+                    names.add(wrappers[i - 1].getName());
+                }
+                names.add(wrappers[i].getName());
+            }
+        }
+        duplicateVersions = Collections.unmodifiableMap(duplicates);
+
+        list = Collections.unmodifiableList(Arrays.asList(wrappers));
     }
 
     /**
@@ -44,14 +80,67 @@ public final class MigrationWrappers implements Iterable<MigrationWrapper> {
      * @return a stream with the internal list of {@link MigrationWrapper} instances as its source.
      */
     public Stream<MigrationWrapper> stream() {
-        return StreamSupport.stream(spliterator(), false);
+        return list.stream();
+    }
+
+    /**
+     * @return the number of migrations
+     */
+    public int size() {
+        return list.size();
+    }
+
+    /**
+     * Looks up the migration with the specified version.
+     *
+     * @param version the version
+     * @return the migration, or {@code null} if there is none with this version
+     */
+    public MigrationWrapper find(MigrationVersion version) {
+        int index = Arrays.binarySearch(versions, version);
+        return index >= 0 ? list.get(index) : null;
+    }
+
+    /**
+     * Returns the versions shared by different migrations. Such migrations are kept, so that they can be reported
+     * together with other problems by the {@link MigrationValidator}, but {@link #find(MigrationVersion)} returns
+     * only one of them.
+     *
+     * @return duplicate versions in ascending order mapped to the names of the migrations having them
+     */
+    public Map<MigrationVersion, List<String>> getDuplicateVersions() {
+        return duplicateVersions;
+    }
+
+    /**
+     * Returns the versioned migrations following the specified version, e. g. the migrations pending after the last
+     * applied version.
+     *
+     * @param version the version, exclusive; {@code null} returns all versioned migrations
+     * @return an unmodifiable view of the migrations with a greater version in ascending order
+     */
+    public List<MigrationWrapper> after(MigrationVersion version) {
+        int low = 0;
+        int high = versions.length;
+        if (version != null) {
+            // first index with a greater version
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (versions[mid].compareTo(version) <= 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+        }
+        return list.subList(low, versions.length);
     }
 
     /**
      * A builder for {@link MigrationWrappers}.
      */
     public static class Builder {
-        private List<MigrationWrapper> migrationWrappers = new LinkedList<>();
+        private List<MigrationWrapper> migrationWrappers = new ArrayList<>();
 
         /**
          * Adds a single migration wrapper.
@@ -67,12 +156,12 @@ public final class MigrationWrappers implements Iterable<MigrationWrapper> {
          * @return this builder
          */
         public Builder addMigrationWrappers(MigrationWrappers wrappers) {
-            wrappers.forEach(migrationWrappers::add);
+            migrationWrappers.addAll(wrappers.list);
             return this;
         }
 
         /**
-         * Creates a {@link MigrationWrappers} instance from the builder.
+         * Creates a {@link MigrationWrappers} instance from the builder, sorting the wrappers by version.
          */
         public MigrationWrappers build() {
             return new MigrationWrappers(this);
@@ -0,0 +1,126 @@
+/*
+ * Copyright © 2017 The Diamongo authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.diamongo.core.migration;
+
+import io.github.diamongo.core.migration.MultiTenantReport.Outcome;
+import io.github.diamongo.core.migration.MultiTenantReport.Result;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static io.github.diamongo.core.util.ValidationUtils.checkNotNull;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Runs the same migrations against many databases, e. g. one per tenant. Migrations are loaded once and shared, so
+ * they must not keep state between runs. Every database has its own lock and changelog, so a failure or a held lock
+ * only affects a single database and the others are migrated nonetheless.
+ */
+public class MultiTenantMigrationService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MultiTenantMigrationService.class);
+
+    private final MigrationLoader loader;
+    private final Supplier<List<String>> databases;
+    private final Function<String, MigrationService> services;
+    private final int parallelism;
+    private final ExecutionMode executionMode;
+
+    /**
+     * @param loader loads the migrations once for all databases
+     * @param databases provides the names of the databases to migrate
+     * @param services creates the service migrating the database with the given name
+     * @param parallelism the maximum number of databases migrated concurrently
+     * @param executionMode the kind of threads databases are migrated on
+     */
+    public MultiTenantMigrationService(MigrationLoader loader, Supplier<List<String>> databases,
+            Function<String, MigrationService> services, int parallelism, ExecutionMode executionMode) {
+        this.loader = checkNotNull(loader, "'loader' must not be null");
+        this.databases = checkNotNull(databases, "'databases' must not be null");
+        this.services = checkNotNull(services, "'services' must not be null");
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("'parallelism' must be positive: " + parallelism);
+        }
+        this.parallelism = parallelism;
+        this.executionMode = checkNotNull(executionMode, "'executionMode' must not be null");
+    }
+
+    /**
+     * @return the names of the databases to migrate
+     */
+    public List<String> findDatabases() {
+        return databases.get();
+    }
+
+    /**
+     * Migrates all databases, at most {@code parallelism} at a time. Progress is logged as databases complete.
+     *
+     * @return the report listing the outcome of every database
+     */
+    public MultiTenantReport migrate() {
+        long start = System.nanoTime();
+        List<String> names = findDatabases();
+        MigrationWrappers migrationWrappers = loader.loadMigrationWrappers();
+        LOGGER.info("Migrating {} database(s) with {} migration(s), {} at a time", names.size(),
+                migrationWrappers.size(), parallelism);
+        if (names.isEmpty()) {
+            return new MultiTenantReport(Collections.emptyList(), (System.nanoTime() - start) / 1_000_000);
+        }
+
+        AtomicInteger completed = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        ExecutorService executor = executionMode.newExecutor("diamongo-tenant", Math.min(parallelism, names.size()));
+        List<Result> results;
+        try {
+            List<CompletableFuture<Result>> futures = names.stream()
+                    .map(name -> CompletableFuture.supplyAsync(() -> {
+                        Result result = migrate(name, migrationWrappers);
+                        if (result.getOutcome() == Outcome.FAILED) {
+                            failed.incrementAndGet();
+                        }
+                        LOGGER.info("[{}/{}] {} ({} failed so far)", completed.incrementAndGet(), names.size(), result,
+                                failed.get());
+                        return result;
+                    }, executor))
+                    .collect(toList());
+            results = futures.stream().map(CompletableFuture::join).collect(toList());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        MultiTenantReport report = new MultiTenantReport(results, (System.nanoTime() - start) / 1_000_000);
+        LOGGER.info("{}", report);
+        return report;
+    }
+
+    private Result migrate(String database, MigrationWrappers migrationWrappers) {
+        long start = System.nanoTime();
+        try {
+            boolean executed = services.apply(database).migrate(migrationWrappers);
+            return new Result(database, executed ? Outcome.MIGRATED : Outcome.LOCKED,
+                    (System.nanoTime() - start) / 1_000_000, null);
+        } catch (RuntimeException ex) {
+            LOGGER.error("Migration of database {} failed", database, ex);
+            return new Result(database, Outcome.FAILED, (System.nanoTime() - start) / 1_000_000, ex);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright © 2017 The Diamongo authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.diamongo.core.migration;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * The aggregated result of running migrations against several databases.
+ */
+public final class MultiTenantReport {
+
+    /**
+     * The outcome of migrating a single database.
+     */
+    public enum Outcome {
+        /**
+         * All pending migrations have been applied.
+         */
+        MIGRATED,
+        /**
+         * The database has been skipped, since its migration lock is held by another process.
+         */
+        LOCKED,
+        /**
+         * Validating or running the migrations failed.
+         */
+        FAILED
+    }
+
+    private final List<Result> results;
+    private final long durationMillis;
+
+    MultiTenantReport(List<Result> results, long durationMillis) {
+        List<Result> sorted = new ArrayList<>(results);
+        sorted.sort(Comparator.comparing(Result::getDatabase));
+        this.results = Collections.unmodifiableList(sorted);
+        this.durationMillis = durationMillis;
+    }
+
+    /**
+     * @return the results of all databases ordered by name
+     */
+    public List<Result> getResults() {
+        return results;
+    }
+
+    /**
+     * @return the results with the specified outcome
+     */
+    public List<Result> getResults(Outcome outcome) {
+        return results.stream().filter(result -> result.getOutcome() == outcome).collect(toList());
+    }
+
+    public int count(Outcome outcome) {
+        return (int) results.stream().filter(result -> result.getOutcome() == outcome).count();
+    }
+
+    /**
+     * @return {@code true}, if all databases have been migrated
+     */
+    public boolean isSuccessful() {
+        return count(Outcome.MIGRATED) == results.size();
+    }
+
+    /**
+     * @return the wall-clock time of migrating all databases
+     */
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(String.format(
+                "%d database(s) in %d ms: %d migrated, %d locked, %d failed", results.size(), durationMillis,
+                count(Outcome.MIGRATED), count(Outcome.LOCKED), count(Outcome.FAILED)));
+        for (Result result : results) {
+            if (result.getOutcome() != Outcome.MIGRATED) {
+                sb.append(String.format("%n  %s", result));
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * The result of migrating a single database.
+     */
+    public static final class Result {
+        private final String database;
+        private final Outcome outcome;
+        private final long durationMillis;
+        private final Throwable failure;
+
+        Result(String database, Outcome outcome, long durationMillis, Throwable failure) {
+            this.database = database;
+            this.outcome = outcome;
+            this.durationMillis = durationMillis;
+            this.failure = failure;
+        }
+
+        public String getDatabase() {
+            return database;
+        }
+
+        public Outcome getOutcome() {
+            return outcome;
+        }
+
+        public long getDurationMillis() {
+            return durationMillis;
+        }
+
+        /**
+         * @return the exception the migration failed with, or {@code null} unless {@link Outcome#FAILED}
+         */
+        public Throwable getFailure() {
+            return failure;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s %s in %d ms%s", database, outcome, durationMillis,
+                    failure != null ? ": " + failure.getMessage() : "");
+        }
+    }
+}
@@ -0,0 +1,424 @@
+/*
+ * Copyright © 2017 The Diamongo authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.diamongo.core.migration;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import static com.mongodb.client.model.Aggregates.match;
+import static com.mongodb.client.model.Aggregates.project;
+import static com.mongodb.client.model.Aggregates.sample;
+import static com.mongodb.client.model.Aggregates.sort;
+import static com.mongodb.client.model.Filters.and;
+import static com.mongodb.client.model.Filters.gte;
+import static com.mongodb.client.model.Filters.lt;
+import static com.mongodb.client.model.Projections.include;
+import static com.mongodb.client.model.Sorts.ascending;
+import static com.mongodb.client.model.Sorts.descending;
+import static io.github.diamongo.core.util.ValidationUtils.checkNotNull;
+
+/**
+ * Scans a collection in parallel by splitting it into {@code _id} ranges. Each partition is read by its own cursor on
+ * a worker pool, so rewriting a whole collection is no longer limited by a single cursor. Partition boundaries are
+ * discovered either by sampling {@code _id} values via {@code $sample} or by bisecting the range between the minimum
+ * and maximum {@code _id}, which only works for {@link ObjectId} and numeric ids.
+ * <p>
+ * Range queries in MongoDB only match values of the same BSON type, so all {@code _id} values of the collection must
+ * be of the same type. Statistics of each partition are added to the {@link MigrationStats} of the migration.
+ * <p>
+ * Instances are created using {@link MigrationContext#partitionedScan(String)}.
+ *
+ * @param <T> the document type of the scanned collection
+ */
+public final class PartitionedScan<T> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PartitionedScan.class);
+    private static final int SAMPLES_PER_PARTITION = 10;
+
+    /**
+     * Strategies for discovering partition boundaries.
+     */
+    public enum BoundaryDiscovery {
+        /**
+         * Samples random {@code _id} values. Works for any {@code _id} type and adapts to skewed distributions.
+         */
+        SAMPLE,
+
+        /**
+         * Splits the range between minimum and maximum {@code _id} evenly. Only needs two indexed queries but assumes
+         * evenly distributed ids. Falls back to {@link #SAMPLE} for ids other than {@link ObjectId} or numbers.
+         */
+        MIN_MAX
+    }
+
+    private final MongoCollection<T> collection;
+    private final MigrationStats stats;
+    private final Bson filter;
+    private final int partitions;
+    private final int parallelism;
+    private final int batchSize;
+    private final BoundaryDiscovery boundaryDiscovery;
+    private final ExecutionMode executionMode;
+
+    private PartitionedScan(Builder<T> builder) {
+        this.collection = builder.collection;
+        this.stats = builder.stats;
+        this.filter = builder.filter;
+        this.partitions = builder.partitions;
+        this.parallelism = builder.effectiveParallelism();
+        this.batchSize = builder.batchSize;
+        this.boundaryDiscovery = builder.boundaryDiscovery;
+        this.executionMode = builder.executionMode;
+    }
+
+    /**
+     * Calls the given action for every document matching the filter. The action is called concurrently from multiple
+     * threads and must therefore be thread-safe.
+     *
+     * @param action the action to perform for each document
+     * @throws MigrationException if processing any of the partitions failed
+     */
+    public void forEach(Consumer<? super T> action) {
+        forEachPartition((partition, documents) -> documents.forEach(action));
+    }
+
+    /**
+     * Hands each partition to the given processor. Partitions are processed concurrently, but each partition is
+     * processed by a single thread, so per-partition state such as a {@link BulkWriter} does not need to be shared.
+     * Once a partition fails, the remaining partitions stop early.
+     *
+     * @param processor processes a single partition
+     * @throws MigrationException if processing any of the partitions failed
+     */
+    public void forEachPartition(PartitionProcessor<T> processor) {
+        List<Partition> ranges = computePartitions();
+        String namespace = collection.getNamespace().getFullName();
+        LOGGER.info("Scanning {} in {} partition(s) with parallelism {}", namespace, ranges.size(), parallelism);
+
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        executionMode.forEachConcurrently("diamongo-scan", parallelism, ranges,
+                partition -> scanPartition(partition, processor, failure), "Partitioned scan of " + namespace);
+    }
+
+    private void scanPartition(Partition partition, PartitionProcessor<T> processor,
+            AtomicReference<Throwable> failure) {
+        long start = System.nanoTime();
+        try (MongoCursor<T> cursor = collection.find(partition.filter(filter)).batchSize(batchSize).iterator()) {
+            CountingIterator<T> documents = new CountingIterator<>(cursor, failure);
+            try {
+                processor.process(partition, () -> documents);
+            } finally {
+                long millis = (System.nanoTime() - start) / 1_000_000;
+                stats.addDocumentsRead(documents.count);
+                stats.addPartition(new MigrationStats.PartitionStats(collection.getNamespace().getCollectionName(),
+                        partition.getIndex(), documents.count, millis));
+                LOGGER.debug("Partition {} done: {} document(s) in {} ms", partition, documents.count, millis);
+            }
+        } catch (RuntimeException | Error ex) {
+            failure.compareAndSet(null, ex);
+            throw ex;
+        }
+    }
+
+    /**
+     * Computes the partitions to scan. The first partition has no lower bound and the last one no upper bound, so
+     * documents inserted outside the discovered range are still covered.
+     *
+     * @return the partitions, at least one
+     */
+    public List<Partition> computePartitions() {
+        List<Object> boundaries = partitions < 2 ? new ArrayList<>() : discoverBoundaries();
+        List<Partition> result = new ArrayList<>(boundaries.size() + 1);
+        Object lower = null;
+        for (Object upper : boundaries) {
+            result.add(new Partition(result.size(), lower, upper));
+            lower = upper;
+        }
+        result.add(new Partition(result.size(), lower, null));
+        return result;
+    }
+
+    private List<Object> discoverBoundaries() {
+        if (boundaryDiscovery == BoundaryDiscovery.MIN_MAX) {
+            List<Object> boundaries = bisectBoundaries();
+            if (boundaries != null) {
+                return boundaries;
+            }
+            LOGGER.debug("Cannot bisect _id range of {}, sampling instead", collection.getNamespace());
+        }
+        return sampleBoundaries();
+    }
+
+    private List<Object> sampleBoundaries() {
+        List<Bson> pipeline = new ArrayList<>();
+        if (!isEmpty(filter)) {
+            pipeline.add(match(filter));
+        }
+        pipeline.add(sample(partitions * SAMPLES_PER_PARTITION));
+        pipeline.add(sort(ascending("_id")));
+        pipeline.add(project(include("_id")));
+
+        List<Object> samples = new ArrayList<>();
+        for (Document doc : collection.aggregate(pipeline, Document.class)) {
+            samples.add(doc.get("_id"));
+        }
+
+        List<Object> boundaries = new ArrayList<>();
+        for (int i = 1; i < partitions && !samples.isEmpty(); i++) {
+            Object boundary = samples.get(i * samples.size() / partitions);
+            if (boundaries.isEmpty() || !Objects.equals(boundaries.get(boundaries.size() - 1), boundary)) {
+                boundaries.add(boundary);
+            }
+        }
+        return boundaries;
+    }
+
+    private List<Object> bisectBoundaries() {
+        Object min = findId(ascending("_id"));
+        Object max = findId(descending("_id"));
+        List<Object> boundaries = new ArrayList<>();
+
+        if (min instanceof ObjectId && max instanceof ObjectId) {
+            long minSeconds = ((ObjectId) min).getTimestamp() & 0xFFFFFFFFL;
+            long maxSeconds = ((ObjectId) max).getTimestamp() & 0xFFFFFFFFL;
+            for (int i = 1; i < partitions; i++) {
+                long seconds = minSeconds + (maxSeconds - minSeconds) * i / partitions;
+                byte[] bytes = ByteBuffer.allocate(12).putInt((int) seconds).array();
+                addDistinct(boundaries, new ObjectId(bytes));
+            }
+            return boundaries;
+        }
+        if (min instanceof Number && max instanceof Number) {
+            double minValue = ((Number) min).doubleValue();
+            double maxValue = ((Number) max).doubleValue();
+            boolean integral = !(min instanceof Double || max instanceof Double);
+            for (int i = 1; i < partitions; i++) {
+                double value = minValue + (maxValue - minValue) * i / partitions;
+                addDistinct(boundaries, integral ? (Object) (long) Math.ceil(value) : (Object) value);
+            }
+            return boundaries;
+        }
+        return min == null ? boundaries : null;
+    }
+
+    private Object findId(Bson sort) {
+        Document doc = collection.find(filter, Document.class).projection(include("_id")).sort(sort).first();
+        return doc == null ? null : doc.get("_id");
+    }
+
+    private static void addDistinct(List<Object> boundaries, Object boundary) {
+        if (boundaries.isEmpty() || !boundaries.get(boundaries.size() - 1).equals(boundary)) {
+            boundaries.add(boundary);
+        }
+    }
+
+    private static boolean isEmpty(Bson filter) {
+        return filter instanceof Document && ((Document) filter).isEmpty();
+    }
+
+    /**
+     * Processes the documents of a single partition.
+     *
+     * @param <T> the document type
+     */
+    @FunctionalInterface
+    public interface PartitionProcessor<T> {
+
+        /**
+         * @param partition the partition being processed
+         * @param documents the partition's documents; can only be iterated once
+         */
+        void process(Partition partition, Iterable<T> documents);
+    }
+
+    /**
+     * A range of {@code _id} values with an inclusive lower and an exclusive upper bound.
+     */
+    public static final class Partition {
+        private final int index;
+        private final Object lowerBound;
+        private final Object upperBound;
+
+        Partition(int index, Object lowerBound, Object upperBound) {
+            this.index = index;
+            this.lowerBound = lowerBound;
+            this.upperBound = upperBound;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         * @return the inclusive lower bound, or {@code null} for the first partition
+         */
+        public Object getLowerBound() {
+            return lowerBound;
+        }
+
+        /**
+         * @return the exclusive upper bound, or {@code null} for the last partition
+         */
+        public Object getUpperBound() {
+            return upperBound;
+        }
+
+        Bson filter(Bson filter) {
+            List<Bson> filters = new ArrayList<>();
+            filters.add(filter);
+            if (lowerBound != null) {
+                filters.add(gte("_id", lowerBound));
+            }
+            if (upperBound != null) {
+                filters.add(lt("_id", upperBound));
+            }
+            return filters.size() == 1 ? filter : and(filters);
+        }
+
+        @Override
+        public String toString() {
+            return "Partition{index=" + index + ", lowerBound=" + lowerBound + ", upperBound=" + upperBound + '}';
+        }
+    }
+
+    private static final class CountingIterator<T> implements Iterator<T> {
+        private final Iterator<T> delegate;
+        private final AtomicReference<Throwable> failure;
+        private long count;
+
+        CountingIterator(Iterator<T> delegate, AtomicReference<Throwable> failure) {
+            this.delegate = delegate;
+            this.failure = failure;
+        }
+
+        @Override
+        public boolean hasNext() {
+            // stop early if another partition failed
+            return failure.get() == null && delegate.hasNext();
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            count++;
+            return delegate.next();
+        }
+    }
+
+    /**
+     * Builder for {@link PartitionedScan}.
+     *
+     * @param <T> the document type of the scanned collection
+     */
+    public static class Builder<T> {
+        private final MongoCollection<T> collection;
+        private final MigrationStats stats;
+        private final ExecutionMode executionMode;
+        private Bson filter = new Document();
+        private int partitions = Runtime.getRuntime().availableProcessors() * 4;
+        private Integer parallelism;
+        private int batchSize = 1000;
+        private BoundaryDiscovery boundaryDiscovery = BoundaryDiscovery.SAMPLE;
+
+        Builder(MongoCollection<T> collection, MigrationStats stats, ExecutionMode executionMode) {
+            this.collection = checkNotNull(collection, "'collection' must not be null");
+            this.stats = checkNotNull(stats, "'stats' must not be null");
+            this.executionMode = checkNotNull(executionMode, "'executionMode' must not be null");
+        }
+
+        /**
+         * Restricts the scan to documents matching the given filter. Defaults to all documents.
+         */
+        public Builder<T> filter(Bson filter) {
+            this.filter = checkNotNull(filter, "'filter' must not be null");
+            return this;
+        }
+
+        /**
+         * Sets the number of partitions. Defaults to four times the number of available processors. Fewer partitions
+         * may be created if the collection is small.
+         */
+        public Builder<T> partitions(int partitions) {
+            if (partitions < 1) {
+                throw new IllegalArgumentException("'partitions' must be positive: " + partitions);
+            }
+            this.partitions = partitions;
+            return this;
+        }
+
+        /**
+         * Sets the number of partitions processed concurrently. Defaults to the number of available processors, or
+         * to the number of partitions when running on virtual threads.
+         */
+        public Builder<T> parallelism(int parallelism) {
+            if (parallelism < 1) {
+                throw new IllegalArgumentException("'parallelism' must be positive: " + parallelism);
+            }
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        /**
+         * Sets the cursor batch size of each partition. Defaults to 1000.
+         */
+        public Builder<T> batchSize(int batchSize) {
+            if (batchSize < 1) {
+                throw new IllegalArgumentException("'batchSize' must be positive: " + batchSize);
+            }
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        /**
+         * Sets the strategy for discovering partition boundaries. Defaults to {@link BoundaryDiscovery#SAMPLE}.
+         */
+        public Builder<T> boundaryDiscovery(BoundaryDiscovery boundaryDiscovery) {
+            this.boundaryDiscovery = checkNotNull(boundaryDiscovery, "'boundaryDiscovery' must not be null");
+            return this;
+        }
+
+        public PartitionedScan<T> build() {
+            return new PartitionedScan<>(this);
+        }
+
+        /**
+         * @return the configured parallelism, or the default for the current settings, which is not stored so a
+         *         builder can be reused with other settings
+         */
+        private int effectiveParallelism() {
+            if (parallelism != null) {
+                return parallelism;
+            }
+            return executionMode == ExecutionMode.VIRTUAL && executionMode.isSupported()
+                    ? partitions : Runtime.getRuntime().availableProcessors();
+        }
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright © 2017 The Diamongo authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.diamongo.core.migration;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Minimal bridge between Reactive Streams {@link Publisher publishers} and {@link CompletableFuture futures}, so the
+ * reactive backend does not need a reactive library.
+ */
+final class Publishers {
+    private static final int DRAIN_BATCH_SIZE = 128;
+
+    private Publishers() {
+        // utility class
+    }
+
+    /**
+     * Subscribes to the given publisher, requesting a single item.
+     *
+     * @return a future completed with the first item, or {@code null} if the publisher completed without any
+     */
+    static <T> CompletableFuture<T> first(Publisher<T> publisher) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        publisher.subscribe(new Subscriber<T>() {
+            private Subscription subscription;
+
+            @Override
+            public void onSubscribe(Subscription subscription) {
+                this.subscription = subscription;
+                subscription.request(1);
+            }
+
+            @Override
+            public void onNext(T item) {
+                subscription.cancel();
+                future.complete(item);
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                future.completeExceptionally(error);
+            }
+
+            @Override
+            public void onComplete() {
+                future.complete(null);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Subscribes to the given publisher, requesting all items.
+     *
+     * @return a future completed with all items once the publisher completes
+     */
+    static <T> CompletableFuture<List<T>> toList(Publisher<T> publisher) {
+        CompletableFuture<List<T>> future = new CompletableFuture<>();
+        publisher.subscribe(new Subscriber<T>() {
+            private final List<T> items = new ArrayList<>();
+
+            @Override
+            public void onSubscribe(Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(T item) {
+                items.add(item);
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                future.completeExceptionally(error);
+            }
+
+            @Override
+            public void onComplete() {
+                future.complete(items);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Subscribes to the given publisher, requesting items in batches of {@value #DRAIN_BATCH_SIZE} and discarding them,
+     * so publishers emitting many items neither get unbounded demand nor fill up memory.
+     *
+     * @return a future completed once the publisher completes
+     */
+    static CompletableFuture<Void> drain(Publisher<?> publisher) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        publisher.subscribe(new Subscriber<Object>() {
+            private Subscription subscription;
+            private int received;
+
+            @Override
+            public void onSubscribe(Subscription subscription) {
+                this.subscription = subscription;
+                subscription.request(DRAIN_BATCH_SIZE);
+            }
+
+            @Override
+            public void onNext(Object item) {
+                if (++received == DRAIN_BATCH_SIZE) {
+                    received = 0;
+                    subscription.request(DRAIN_BATCH_SIZE);
+                }
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                future.completeExceptionally(error);
+            }
+
+            @Override
+            public void onComplete() {
+                future.complete(null);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Creates a cold publisher emitting the result of a future. The future is only created once a subscriber
+     * requests the result.
+     *
+     * @param supplier creates the future; a {@code null} result completes the publisher without emitting an item
+     */
+    static <T> Publisher<T> fromFuture(Supplier<CompletableFuture<T>> supplier) {
+        return subscriber -> subscriber.onSubscribe(new Subscription() {
+            private final AtomicBoolean requested = new AtomicBoolean();
+            private volatile boolean cancelled;
+
+            @Override
+            public void request(long n) {
+                if (n <= 0) {
+                    if (requested.compareAndSet(false, true)) {
+                        subscriber.onError(new IllegalArgumentException("Request must be positive: " + n));
+                    }
+                    return;
+                }
+                if (!requested.compareAndSet(false, true)) {
+                    return;
+                }
+                supplier.get().whenComplete((result, error) -> {
+                    if (cancelled) {
+                        return;
+                    }
+                    if (error != null) {
+                        subscriber.onError(unwrap(error));
+                        return;
+                    }
+                    if (result != null) {
+                        subscriber.onNext(result);
+                    }
+                    subscriber.onComplete();
+                });
+            }
+
+            @Override
+            public void cancel() {
+                cancelled = true;
+            }
+        });
+    }
+
+    /**
+     * Waits for the given future, rethrowing runtime exceptions it failed with as is.
+     */
+    static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new MigrationException("Interrupted while waiting for MongoDB", ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = unwrap(ex);
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new MigrationException(cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * Strips the wrapping added by {@link CompletableFuture} composition.
+     */
+    static Throwable unwrap(Throwable error) {
+        Throwable cause = error;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException)
+                && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+}
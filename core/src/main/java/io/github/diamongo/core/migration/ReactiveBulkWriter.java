@@ -0,0 +1,236 @@
+/*
+ * Copyright © 2017 The Diamongo authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.diamongo.core.migration;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.WriteModel;
+import com.mongodb.reactivestreams.client.MongoCollection;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static io.github.diamongo.core.util.ValidationUtils.checkNotNull;
+
+/**
+ * Reactive counterpart of {@link BulkWriter}. Write requests are consumed from a publisher and grouped into batched
+ * {@code bulkWrite} calls. Backpressure is applied to the publisher: no more requests are demanded than fit into the
+ * maximum number of batches in flight, and further requests are only demanded as batches complete.
+ * <p>
+ * In ordered mode, batches are executed one after another. In either mode, writing stops at the first error.
+ * <p>
+ * Instances are created using {@link ReactiveMigrationContext#bulkWriter(String)} and may be reused.
+ *
+ * @param <T> the document type of the target collection
+ */
+public final class ReactiveBulkWriter<T> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReactiveBulkWriter.class);
+
+    private final MongoCollection<T> collection;
+    private final MigrationStats migrationStats;
+    private final int batchSize;
+    private final int maxInFlight;
+    private final BulkWriteOptions options;
+
+    private ReactiveBulkWriter(Builder<T> builder) {
+        this.collection = builder.collection;
+        this.migrationStats = builder.migrationStats;
+        this.batchSize = builder.batchSize;
+        // ordered writes must not overtake each other
+        this.maxInFlight = builder.ordered ? 1 : builder.maxInFlight;
+        this.options = new BulkWriteOptions().ordered(builder.ordered);
+    }
+
+    /**
+     * Creates a cold publisher writing all requests of the given publisher once subscribed to.
+     *
+     * @param requests the write requests
+     * @return a publisher emitting the statistics of the write once all requests have been written; it fails with a
+     *         {@link MigrationException} if any batch failed
+     */
+    public Publisher<BulkWriteStats> write(Publisher<? extends WriteModel<T>> requests) {
+        checkNotNull(requests, "'requests' must not be null");
+        return Publishers.fromFuture(() -> {
+            CompletableFuture<BulkWriteStats> result = new CompletableFuture<>();
+            requests.subscribe(new BatchingSubscriber(result));
+            return result;
+        });
+    }
+
+    private final class BatchingSubscriber implements Subscriber<WriteModel<T>> {
+        private final BulkWriteStats stats = new BulkWriteStats();
+        private final CompletableFuture<BulkWriteStats> result;
+        private Subscription subscription;
+        private List<WriteModel<T>> batch = new ArrayList<>(batchSize);
+        private int inFlight;
+        private boolean upstreamDone;
+        private boolean failed;
+
+        BatchingSubscriber(CompletableFuture<BulkWriteStats> result) {
+            this.result = result;
+        }
+
+        @Override
+        public synchronized void onSubscribe(Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request((long) batchSize * maxInFlight);
+        }
+
+        @Override
+        public synchronized void onNext(WriteModel<T> request) {
+            if (failed) {
+                return;
+            }
+            batch.add(request);
+            if (batch.size() >= batchSize) {
+                submitBatch();
+            }
+        }
+
+        @Override
+        public synchronized void onError(Throwable error) {
+            fail(error);
+        }
+
+        @Override
+        public synchronized void onComplete() {
+            upstreamDone = true;
+            if (!failed && !batch.isEmpty()) {
+                submitBatch();
+            }
+            completeIfDone();
+        }
+
+        private void submitBatch() {
+            List<WriteModel<T>> requests = batch;
+            batch = new ArrayList<>(batchSize);
+            inFlight++;
+            Publishers.first(collection.bulkWrite(requests, options))
+                    .whenComplete((writeResult, error) -> batchCompleted(requests.size(), writeResult, error));
+        }
+
+        private synchronized void batchCompleted(int requests, BulkWriteResult writeResult, Throwable error) {
+            inFlight--;
+            if (error != null) {
+                Throwable cause = Publishers.unwrap(error);
+                if (cause instanceof MongoBulkWriteException) {
+                    MongoBulkWriteException ex = (MongoBulkWriteException) cause;
+                    record(BulkWriteStats.succeededRequests(requests, ex, options.isOrdered()), ex.getWriteResult());
+                }
+                fail(new MigrationException("Bulk write to " + collection.getNamespace() + " failed", cause));
+                return;
+            }
+
+            record(requests, writeResult);
+            LOGGER.debug("Bulk write to {}: {}", collection.getNamespace(), stats);
+            if (failed) {
+                return;
+            }
+            if (upstreamDone) {
+                completeIfDone();
+            } else {
+                subscription.request(requests);
+            }
+        }
+
+        private void record(int requests, BulkWriteResult writeResult) {
+            stats.record(requests, writeResult);
+            migrationStats.addDocumentsWritten(writeResult.getInsertedCount() + writeResult.getModifiedCount()
+                    + writeResult.getDeletedCount() + writeResult.getUpserts().size());
+        }
+
+        private void fail(Throwable error) {
+            if (failed) {
+                return;
+            }
+            failed = true;
+            if (!upstreamDone && subscription != null) {
+                subscription.cancel();
+            }
+            stats.finish();
+            result.completeExceptionally(error);
+        }
+
+        private void completeIfDone() {
+            if (upstreamDone && inFlight == 0 && !failed) {
+                stats.finish();
+                LOGGER.info("Bulk write to {} finished: {}", collection.getNamespace(), stats);
+                result.complete(stats);
+            }
+        }
+    }
+
+    /**
+     * Builder for {@link ReactiveBulkWriter}.
+     *
+     * @param <T> the document type of the target collection
+     */
+    public static class Builder<T> {
+        private final MongoCollection<T> collection;
+        private final MigrationStats migrationStats;
+        private int batchSize = 1000;
+        private boolean ordered = true;
+        private int maxInFlight = 1;
+
+        Builder(MongoCollection<T> collection, MigrationStats migrationStats) {
+            this.collection = checkNotNull(collection, "'collection' must not be null");
+            this.migrationStats = checkNotNull(migrationStats, "'migrationStats' must not be null");
+        }
+
+        /**
+         * Sets the number of write requests per {@code bulkWrite} call. Defaults to 1000.
+         */
+        public Builder<T> batchSize(int batchSize) {
+            if (batchSize < 1) {
+                throw new IllegalArgumentException("'batchSize' must be positive: " + batchSize);
+            }
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        /**
+         * Sets whether the writes are executed in order. Defaults to {@code true}. Unordered writes allow multiple
+         * batches in flight.
+         */
+        public Builder<T> ordered(boolean ordered) {
+            this.ordered = ordered;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of batches executed concurrently. Only has an effect on unordered writes. Defaults
+         * to 1.
+         */
+        public Builder<T> maxInFlight(int maxInFlight) {
+            if (maxInFlight < 1) {
+                throw new IllegalArgumentException("'maxInFlight' must be positive: " + maxInFlight);
+            }
+            this.maxInFlight = maxInFlight;
+            return this;
+        }
+
+        public ReactiveBulkWriter<T> build() {
+            return new ReactiveBulkWriter<>(this);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright © 2017 The Diamongo authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.diamongo.core.migration;
+
+import org.reactivestreams.Publisher;
+
+/**
+ * Migration using the MongoDB Reactive Streams driver. When run by the {@link ReactiveMigrationRepository reactive
+ * backend}, no thread is blocked while the migration is executed.
+ */
+public interface ReactiveMigration extends Migration<ReactiveMigrationContext> {
+
+    /**
+     * Executes the migration once the returned publisher is subscribed to. The migration is considered complete when
+     * the publisher completes; emitted items are ignored.
+     *
+     * @param context provides reactive MongoDB access and data migration helpers
+     * @return the publisher signalling completion of the migration
+     */
+    Publisher<?> migrateAsync(ReactiveMigrationContext context);
+
+    /**
+     * Executes the migration, blocking until it is complete.
+     *
+     * @param context provides reactive MongoDB access and data migration helpers
+     */
+    @Override
+    default void migrate(ReactiveMigrationContext context) {
+        Publishers.join(Publishers.drain(migrateAsync(context)));
+    }
+}
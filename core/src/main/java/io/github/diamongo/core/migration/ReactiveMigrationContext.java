@@ -0,0 +1,83 @@
+/*
+ * Copyright © 2017 The Diamongo authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.diamongo.core.migration;
+
+import com.mongodb.reactivestreams.client.MongoCollection;
+import com.mongodb.reactivestreams.client.MongoDatabase;
+import org.bson.Document;
+
+import static io.github.diamongo.core.util.ValidationUtils.checkNotNull;
+
+/**
+ * Context handed to {@link ReactiveMigration reactive migrations} providing reactive MongoDB access along with helpers
+ * for data migrations.
+ */
+public class ReactiveMigrationContext {
+    private final MongoDatabase database;
+    private final String migrationName;
+    private final MigrationStats stats = new MigrationStats();
+
+    /**
+     * @param database provides reactive MongoDB access
+     * @param migrationName the name of the migration being executed
+     */
+    public ReactiveMigrationContext(MongoDatabase database, String migrationName) {
+        this.database = checkNotNull(database, "'database' must not be null");
+        this.migrationName = checkNotNull(migrationName, "'migrationName' must not be null");
+    }
+
+    /**
+     * @return the database to migrate
+     */
+    public MongoDatabase getDatabase() {
+        return database;
+    }
+
+    /**
+     * @return the name of the migration being executed
+     */
+    public String getMigrationName() {
+        return migrationName;
+    }
+
+    /**
+     * Creates a builder for a {@link ReactiveBulkWriter} writing to the specified collection.
+     *
+     * @param collectionName the name of the collection to write to
+     * @return the builder
+     */
+    public ReactiveBulkWriter.Builder<Document> bulkWriter(String collectionName) {
+        return bulkWriter(database.getCollection(collectionName));
+    }
+
+    /**
+     * Creates a builder for a {@link ReactiveBulkWriter} writing to the specified collection.
+     *
+     * @param collection the collection to write to
+     * @param <T> the document type of the collection
+     * @return the builder
+     */
+    public <T> ReactiveBulkWriter.Builder<T> bulkWriter(MongoCollection<T> collection) {
+        return new ReactiveBulkWriter.Builder<>(collection, stats);
+    }
+
+    /**
+     * @return the statistics collected by the bulk writers of this context
+     */
+    public MigrationStats getStats() {
+        return stats;
+    }
+}
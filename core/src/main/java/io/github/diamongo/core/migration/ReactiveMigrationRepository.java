@@ -0,0 +1,504 @@
+/*
+ * Copyright © 2017 The Diamongo authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.diamongo.core.migration;
+
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.reactivestreams.client.MongoCollection;
+import com.mongodb.reactivestreams.client.MongoDatabase;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import static io.github.diamongo.core.migration.ChangeLogDocuments.CHANGELOG_COLLECTION;
+import static io.github.diamongo.core.migration.ChangeLogDocuments.CHANGELOG_LOCK_COLLECTION;
+import static io.github.diamongo.core.migration.ChangeLogDocuments.CHECKPOINT_COLLECTION;
+import static io.github.diamongo.core.migration.ChangeLogDocuments.FAILURE_COLLECTION;
+import static io.github.diamongo.core.migration.ChangeLogDocuments.FENCING_COUNTER_FILTER;
+import static io.github.diamongo.core.migration.ChangeLogDocuments.FENCING_TOKEN_FIELD;
+import static io.github.diamongo.core.migration.ChangeLogDocuments.ID_FILTER;
+import static io.github.diamongo.core.migration.ChangeLogDocuments.STATUS_PIPELINE;
+import static io.github.diamongo.core.migration.ChangeLogDocuments.appliedMigrationsProjection;
+import static io.github.diamongo.core.migration.ChangeLogDocuments.changeLogEntry;
+import static io.github.diamongo.core.migration.ChangeLogDocuments.changeLogIndexKeys;
+import static io.github.diamongo.core.migration.ChangeLogDocuments.changeLogIndexOptions;
+import static io.github.diamongo.core.migration.ChangeLogDocuments.checkpointDocument;
+import static io.github.diamongo.core.migration.ChangeLogDocuments.failureDocument;
+import static io.github.diamongo.core.migration.ChangeLogDocuments.migrationFilter;
+import static io.github.diamongo.core.migration.ChangeLogDocuments.findPendingMigrations;
+import static io.github.diamongo.core.migration.ChangeLogDocuments.isStaleCheckpoint;
+import static io.github.diamongo.core.migration.ChangeLogDocuments.lockTtlIndexKeys;
+import static io.github.diamongo.core.migration.ChangeLogDocuments.lockTtlIndexOptions;
+import static io.github.diamongo.core.migration.ChangeLogDocuments.toCheckpoint;
+import static io.github.diamongo.core.migration.ChangeLogDocuments.toMigrationStatus;
+import static io.github.diamongo.core.migration.MigrationRepository.DEFAULT_LOCK_LEASE_TIME;
+import static io.github.diamongo.core.util.ValidationUtils.checkNotNull;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Repository using the MongoDB Reactive Streams driver. It uses the same collections and documents as
+ * {@link MigrationRepository}, so both backends can be used interchangeably against the same database. Acquiring the
+ * lock, reading and writing the changelog and running {@link ReactiveMigration reactive migrations} never blocks a
+ * thread.
+ * <p>
+ * Other migrations require the synchronous driver. They are executed on a separate thread if a synchronous database
+ * is available and fail otherwise. Pending migrations are executed sequentially in their original order.
+ */
+public class ReactiveMigrationRepository implements ChangeLogRepository {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReactiveMigrationRepository.class);
+    private static final long POLL_INTERVAL_MILLIS = 100;
+
+    private final MongoDatabase database;
+    private final com.mongodb.client.MongoDatabase syncDatabase;
+    private final ExecutionMode executionMode;
+    private final MigrationMetrics metrics;
+    private final MigrationLock migrationLock;
+
+    /**
+     * Creates a new instance only supporting {@link ReactiveMigration reactive migrations}.
+     *
+     * @param database provides reactive MongoDB access
+     */
+    public ReactiveMigrationRepository(MongoDatabase database) {
+        this(database, null, DEFAULT_LOCK_LEASE_TIME, ExecutionMode.PLATFORM);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param database provides reactive MongoDB access
+     * @param syncDatabase provides synchronous MongoDB access to migrations other than {@link ReactiveMigration};
+     *        may be {@code null} if only reactive migrations are used
+     * @param lockLeaseTime the time after which the migration lock expires unless it is renewed
+     * @param executionMode the kind of threads used by the lock heartbeat and for synchronous migrations
+     */
+    public ReactiveMigrationRepository(MongoDatabase database, com.mongodb.client.MongoDatabase syncDatabase,
+            Duration lockLeaseTime, ExecutionMode executionMode) {
+        this(database, syncDatabase, lockLeaseTime, executionMode, MigrationMetrics.NOOP);
+    }
+
+    /**
+     * Creates a new instance reporting lock attempts and migration runs.
+     *
+     * @param database provides reactive MongoDB access
+     * @param syncDatabase provides synchronous MongoDB access to migrations other than {@link ReactiveMigration};
+     *        may be {@code null} if only reactive migrations are used
+     * @param lockLeaseTime the time after which the migration lock expires unless it is renewed
+     * @param executionMode the kind of threads used by the lock heartbeat and for synchronous migrations
+     * @param metrics receives the measurements
+     */
+    public ReactiveMigrationRepository(MongoDatabase database, com.mongodb.client.MongoDatabase syncDatabase,
+            Duration lockLeaseTime, ExecutionMode executionMode, MigrationMetrics metrics) {
+        this.database = checkNotNull(database, "'database' must not be null");
+        this.syncDatabase = syncDatabase;
+        this.executionMode = checkNotNull(executionMode, "'executionMode' must not be null");
+        this.metrics = checkNotNull(metrics, "'metrics' must not be null");
+        this.migrationLock = new MigrationLock(lockLeaseTime, executionMode);
+    }
+
+    /**
+     * Tries to acquire a lease on the migration lock. Behaves like {@link MigrationRepository#tryLock()}.
+     *
+     * @return a future completed with {@code true}, if the lock could be acquired
+     */
+    public CompletableFuture<Boolean> tryLockAsync() {
+        long start = System.nanoTime();
+        return acquireLockAsync().whenComplete((acquired, error) -> metrics.lockAcquisition(database.getName(),
+                Boolean.TRUE.equals(acquired), System.nanoTime() - start));
+    }
+
+    private CompletableFuture<Boolean> acquireLockAsync() {
+        LOGGER.info("Trying to create lock...");
+        MongoCollection<Document> collection = database.getCollection(CHANGELOG_LOCK_COLLECTION);
+        long acquiredAt = System.nanoTime();
+        Date now = new Date();
+        return Publishers.first(collection.createIndex(lockTtlIndexKeys(), lockTtlIndexOptions()))
+                .thenCompose(index -> Publishers.first(collection.findOneAndUpdate(MigrationLock.acquirableFilter(now),
+                        migrationLock.acquireUpdate(now), MigrationLock.upsertOptions())))
+                .thenCompose(lock -> Publishers.first(collection.findOneAndUpdate(FENCING_COUNTER_FILTER,
+                        MigrationLock.nextFencingTokenUpdate(), MigrationLock.upsertOptions()))
+                        .thenCompose(counter -> {
+                            long fencingToken = counter.getLong(FENCING_TOKEN_FIELD);
+                            return Publishers.first(collection.updateOne(migrationLock.ownerFilter(),
+                                    MigrationLock.fencingTokenUpdate(fencingToken)))
+                                    .thenApply(result -> {
+                                        migrationLock.startLease(fencingToken, acquiredAt, this::renewLease);
+                                        LOGGER.info("Lock successfully acquired with fencing token {}: {}",
+                                                fencingToken, lock);
+                                        return true;
+                                    });
+                        }))
+                .<CompletableFuture<Boolean>>handle((acquired, error) -> {
+                    if (error == null) {
+                        return CompletableFuture.completedFuture(acquired);
+                    }
+                    Throwable cause = Publishers.unwrap(error);
+                    if (MigrationLock.isHeldByOther(cause)) {
+                        return Publishers.first(collection.find(ID_FILTER).first()).thenApply(lock -> {
+                            LOGGER.info("Could not acquire lock. Lock already held: {}", lock);
+                            return false;
+                        });
+                    }
+                    return failedFuture(cause);
+                })
+                .thenCompose(future -> future);
+    }
+
+    private boolean renewLease() {
+        // called on the heartbeat thread, so blocking is fine
+        return Publishers.join(Publishers.first(database.getCollection(CHANGELOG_LOCK_COLLECTION)
+                .updateOne(migrationLock.ownerFilter(), migrationLock.renewUpdate())))
+                .getMatchedCount() > 0;
+    }
+
+    /**
+     * Returns the fencing token of the currently held lock lease.
+     *
+     * @return the fencing token
+     * @throws MigrationException if the lock is not held or its lease has been lost
+     */
+    public long getFencingToken() {
+        return migrationLock.getFencingToken();
+    }
+
+    /**
+     * Releases the lock if it is held by this repository and stops renewing its lease.
+     *
+     * @return a future completed once the lock has been released
+     */
+    public CompletableFuture<Void> releaseLockAsync() {
+        LOGGER.info("Releasing lock...");
+        migrationLock.stopLease();
+        return Publishers.first(database.getCollection(CHANGELOG_LOCK_COLLECTION)
+                .deleteOne(migrationLock.ownerFilter()))
+                .thenApply(result -> null);
+    }
+
+    @Override
+    public boolean supportsReactiveMigrations() {
+        return true;
+    }
+
+    /**
+     * Polls the lock document until it has been deleted. Change streams are not used here, since the reactive driver
+     * offers no way to wait for the next change with a timeout without subscribing indefinitely.
+     */
+    @Override
+    public boolean awaitLockRelease(Duration timeout) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        MongoCollection<Document> collection = database.getCollection(CHANGELOG_LOCK_COLLECTION);
+        while (true) {
+            if (Publishers.join(Publishers.first(collection.find(ID_FILTER).first())) == null) {
+                return true;
+            }
+            long remaining = Duration.ofNanos(deadline - System.nanoTime()).toMillis();
+            if (remaining <= 0) {
+                return false;
+            }
+            try {
+                Thread.sleep(Math.min(remaining, POLL_INTERVAL_MILLIS));
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new MigrationException("Interrupted while waiting for migration lock", ex);
+            }
+        }
+    }
+
+    /**
+     * Creates the compound index on the changelog collection unless it already exists.
+     *
+     * @return a future completed once the index exists
+     */
+    public CompletableFuture<Void> ensureChangeLogIndexAsync() {
+        return Publishers.first(database.getCollection(CHANGELOG_COLLECTION)
+                .createIndex(changeLogIndexKeys(), changeLogIndexOptions()))
+                .thenApply(name -> null);
+    }
+
+    /**
+     * Loads the names and checksums of all applied migrations from the changelog using a single projected query.
+     *
+     * @return a future completed with a map of applied migration names to their checksums
+     */
+    public CompletableFuture<Map<String, String>> loadAppliedMigrationsAsync() {
+        return Publishers.toList(database.getCollection(CHANGELOG_COLLECTION).find()
+                .projection(appliedMigrationsProjection()))
+                .thenApply(ChangeLogDocuments::toAppliedMigrations);
+    }
+
+    @Override
+    public Map<String, String> loadAppliedMigrations() {
+        return Publishers.join(loadAppliedMigrationsAsync());
+    }
+
+    /**
+     * Same as {@link #loadStatus(MigrationWrappers)} without blocking the calling thread.
+     */
+    public CompletableFuture<MigrationStatus> loadStatusAsync(MigrationWrappers migrationWrappers) {
+        return Publishers.toList(database.getCollection(CHANGELOG_COLLECTION).aggregate(STATUS_PIPELINE))
+                .thenApply(docs -> toMigrationStatus(migrationWrappers, docs));
+    }
+
+    @Override
+    public MigrationStatus loadStatus(MigrationWrappers migrationWrappers) {
+        return Publishers.join(loadStatusAsync(migrationWrappers));
+    }
+
+    /**
+     * Executes a single migration and records it in the changelog afterwards.
+     *
+     * @param wrapper the migration to execute
+     * @return a future completed once the migration has been recorded in the changelog
+     */
+    public CompletableFuture<Void> applyMigrationAsync(MigrationWrapper wrapper) {
+        try {
+            getFencingToken();
+        } catch (MigrationException ex) {
+            return failedFuture(ex);
+        }
+
+        String name = wrapper.getName();
+        LOGGER.info("Running migration: {}", name);
+        long start = System.currentTimeMillis();
+        long startNanos = System.nanoTime();
+        return execute(wrapper)
+                .whenComplete((result, error) -> {
+                    if (error != null) {
+                        metrics.migrationFailed(database.getName(), name, System.nanoTime() - startNanos, null,
+                                Publishers.unwrap(error));
+                    } else {
+                        metrics.migrationApplied(database.getName(), name, System.nanoTime() - startNanos,
+                                result.getStats());
+                    }
+                })
+                .<CompletableFuture<ExecutionResult>>handle((result, error) -> error == null
+                        ? CompletableFuture.completedFuture(result)
+                        : recordFailureAsync(wrapper, Publishers.unwrap(error)))
+                .thenCompose(future -> future)
+                .thenCompose(result -> {
+                    long end = System.currentTimeMillis();
+                    Document entry = changeLogEntry(wrapper, start, end, getFencingToken(),
+                            result.getCounters(), result.getStats());
+                    return Publishers.first(database.getCollection(CHANGELOG_COLLECTION).insertOne(entry))
+                            .thenCompose(success -> result.getCounters() != null || result.isResumed()
+                                    ? Publishers.first(database.getCollection(CHECKPOINT_COLLECTION)
+                                            .deleteOne(migrationFilter(name))).thenApply(deleted -> null)
+                                    : CompletableFuture.completedFuture(null))
+                            .thenRun(() -> LOGGER.info("Migration {} applied in {} ms", name, end - start));
+                });
+    }
+
+    private <T> CompletableFuture<T> recordFailureAsync(MigrationWrapper wrapper, Throwable error) {
+        return Publishers.first(database.getCollection(FAILURE_COLLECTION).replaceOne(
+                migrationFilter(wrapper.getName()), failureDocument(wrapper, error), new ReplaceOptions().upsert(true)))
+                .handle((result, recordError) -> {
+                    if (recordError != null) {
+                        error.addSuppressed(Publishers.unwrap(recordError));
+                    }
+                    return null;
+                })
+                .thenCompose(recorded -> failedFuture(error));
+    }
+
+    private CompletableFuture<ExecutionResult> execute(MigrationWrapper wrapper) {
+        Migration<?> migration = wrapper.getMigration();
+        String name = wrapper.getName();
+        if (migration instanceof ReactiveMigration) {
+            ReactiveMigrationContext context = new ReactiveMigrationContext(database, name);
+            return Publishers.drain(((ReactiveMigration) migration).migrateAsync(context))
+                    .thenApply(done -> new ExecutionResult(context.getStats(), null, false));
+        }
+        if (syncDatabase == null) {
+            return failedFuture(new MigrationException("Migration " + name
+                    + " requires the synchronous driver, but no synchronous database is configured"));
+        }
+
+        Executor executor = runnable -> executionMode.threadFactory("diamongo-migration").newThread(runnable).start();
+        MongoCollection<Document> checkpoints = database.getCollection(CHECKPOINT_COLLECTION);
+        return Publishers.first(checkpoints.find(migrationFilter(name)).first())
+                .thenCompose(doc -> isStaleCheckpoint(doc, wrapper)
+                        ? Publishers.first(checkpoints.deleteOne(migrationFilter(name)))
+                                .<Checkpoint>thenApply(deleted -> null)
+                        : CompletableFuture.completedFuture(toCheckpoint(doc)))
+                .thenApplyAsync(checkpoint -> {
+                    if (checkpoint != null) {
+                        LOGGER.info("Resuming incomplete migration {} from {}", name, checkpoint);
+                    }
+                    MigrationContext context = new MigrationContext(syncDatabase, name, checkpoint,
+                            cp -> saveCheckpoint(wrapper, cp), executionMode);
+                    MigrationRepository.execute(migration, context);
+                    Checkpointer checkpointer = context.getCheckpointer();
+                    return new ExecutionResult(context.getStats(),
+                            checkpointer != null ? checkpointer.getCounters() : null, checkpoint != null);
+                }, executor);
+    }
+
+    private void saveCheckpoint(MigrationWrapper wrapper, Checkpoint checkpoint) {
+        // called by synchronous migrations on their own thread, so blocking is fine
+        Document doc = checkpointDocument(wrapper, checkpoint, getFencingToken());
+        Publishers.join(Publishers.first(database.getCollection(CHECKPOINT_COLLECTION)
+                .replaceOne(migrationFilter(wrapper.getName()), doc, new ReplaceOptions().upsert(true))));
+        LOGGER.debug("Saved {} of migration {}", checkpoint, wrapper.getName());
+    }
+
+    /**
+     * Runs all pending migrations under the migration lock without blocking. Pending migrations are executed
+     * sequentially.
+     */
+    @Override
+    public CompletableFuture<Boolean> runMigrationAsync(MigrationWrappers migrationWrappers) {
+        return tryLockAsync().thenCompose(acquired -> {
+            if (!acquired) {
+                return CompletableFuture.completedFuture(false);
+            }
+
+            CompletableFuture<Void> migration = ensureChangeLogIndexAsync()
+                    .thenCompose(index -> loadAppliedMigrationsAsync())
+                    .thenCompose(applied -> {
+                        List<MigrationWrapper> pending = findPendingMigrations(migrationWrappers, applied);
+                        LOGGER.info("{} pending migration(s) found", pending.size());
+
+                        CompletableFuture<Void> chain = CompletableFuture.completedFuture(null);
+                        for (MigrationWrapper wrapper : pending) {
+                            chain = chain.thenCompose(previous -> applyMigrationAsync(wrapper));
+                        }
+                        return chain;
+                    });
+
+            return migration
+                    .<CompletableFuture<Boolean>>handle((result, error) -> releaseLockAsync().thenApply(released -> {
+                        if (error != null) {
+                            Throwable cause = Publishers.unwrap(error);
+                            throw cause instanceof RuntimeException ? (RuntimeException) cause
+                                    : new MigrationException(cause.getMessage(), cause);
+                        }
+                        return true;
+                    }))
+                    .thenCompose(future -> future);
+        });
+    }
+
+    @Override
+    public boolean runMigration(MigrationWrappers migrationWrappers) {
+        return Publishers.join(runMigrationAsync(migrationWrappers));
+    }
+
+    /**
+     * Same as {@link MigrationRepository#clear(ClearOptions)} without blocking the calling thread. When resetting the
+     * database, the application collections are divided among {@link ClearOptions#getConcurrency()} chains of
+     * sequential drops.
+     */
+    public CompletableFuture<ClearResult> clearAsync(ClearOptions options) {
+        long start = System.nanoTime();
+        return tryLockAsync().thenCompose(acquired -> {
+            if (!acquired) {
+                return CompletableFuture.completedFuture(new ClearResult(database.getName(), false,
+                        Collections.emptyList(), (System.nanoTime() - start) / 1_000_000));
+            }
+
+            CompletableFuture<List<String>> dropped = (options.isResetDatabase()
+                    ? Publishers.toList(database.listCollectionNames())
+                            .thenCompose(names -> dropCollections(names.stream()
+                                    .filter(ChangeLogDocuments::isApplicationCollection)
+                                    .sorted()
+                                    .collect(toList()), options.getConcurrency()))
+                    : CompletableFuture.completedFuture(Collections.<String>emptyList()))
+                    .thenCompose(collections -> Publishers.first(database.getCollection(CHECKPOINT_COLLECTION).drop())
+                            .thenCompose(success -> Publishers.first(database.getCollection(FAILURE_COLLECTION)
+                                    .drop()))
+                            .thenCompose(success -> Publishers.first(database.getCollection(CHANGELOG_COLLECTION)
+                                    .drop()))
+                            .thenApply(success -> collections));
+
+            return dropped
+                    .<CompletableFuture<ClearResult>>handle((collections, error) -> {
+                        if (error != null) {
+                            Throwable cause = Publishers.unwrap(error);
+                            return releaseLockAsync().thenApply(released -> {
+                                throw cause instanceof RuntimeException ? (RuntimeException) cause
+                                        : new MigrationException(cause.getMessage(), cause);
+                            });
+                        }
+                        return releaseLockAsync().thenApply(released -> {
+                            ClearResult result = new ClearResult(database.getName(), true, collections,
+                                    (System.nanoTime() - start) / 1_000_000);
+                            LOGGER.info("{}", result);
+                            return result;
+                        });
+                    })
+                    .thenCompose(future -> future);
+        });
+    }
+
+    private CompletableFuture<List<String>> dropCollections(List<String> collections, int concurrency) {
+        CompletableFuture<?>[] chains = new CompletableFuture<?>[Math.min(concurrency, collections.size())];
+        for (int i = 0; i < chains.length; i++) {
+            CompletableFuture<Void> chain = CompletableFuture.completedFuture(null);
+            for (int j = i; j < collections.size(); j += chains.length) {
+                String collection = collections.get(j);
+                chain = chain.thenCompose(previous -> Publishers.first(database.getCollection(collection).drop())
+                        .thenApply(success -> null));
+            }
+            chains[i] = chain;
+        }
+        return CompletableFuture.allOf(chains).thenApply(done -> collections);
+    }
+
+    @Override
+    public ClearResult clear(ClearOptions options) {
+        return Publishers.join(clearAsync(options));
+    }
+
+    private static <T> CompletableFuture<T> failedFuture(Throwable error) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(error);
+        return future;
+    }
+
+    /**
+     * Outcome of executing a single migration.
+     */
+    private static final class ExecutionResult {
+        private final MigrationStats stats;
+        private final Map<String, Long> counters;
+        private final boolean resumed;
+
+        ExecutionResult(MigrationStats stats, Map<String, Long> counters, boolean resumed) {
+            this.stats = stats;
+            this.counters = counters;
+            this.resumed = resumed;
+        }
+
+        MigrationStats getStats() {
+            return stats;
+        }
+
+        Map<String, Long> getCounters() {
+            return counters;
+        }
+
+        boolean isResumed() {
+            return resumed;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright © 2017 The Diamongo authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.diamongo.core.migration;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.script.Bindings;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
+import javax.script.ScriptContext;
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineManager;
+import javax.script.ScriptException;
+import javax.script.SimpleScriptContext;
+
+/**
+ * {@link JavascriptEngine} running scripts on a JSR 223 script engine, by default GraalJS if it is on the classpath or
+ * else Nashorn, which is part of Java 8 to 14.
+ * <p>
+ * The script engine is looked up on first use. Scripts are compiled once per file and checksum and evaluated in a new
+ * context for each execution, so executions do not share global variables. Engines that are not thread-safe are used
+ * by one execution at a time.
+ */
+public class ScriptEngineJavascriptEngine implements JavascriptEngine {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ScriptEngineJavascriptEngine.class);
+    private static final String GRAAL_JS = "graal.js";
+    private static final List<String> DEFAULT_ENGINE_NAMES = Arrays.asList(GRAAL_JS, "nashorn");
+    // GraalJS denies access to Java objects unless enabled for each context
+    private static final String GRAAL_JS_ALLOW_ALL_ACCESS = "polyglot.js.allowAllAccess";
+
+    private final List<String> engineNames;
+    private final Map<String, CompiledScript> compiledScripts = new ConcurrentHashMap<>();
+    private volatile ScriptEngine engine;
+    private volatile boolean threadSafe;
+    private volatile boolean graalJs;
+
+    /**
+     * Creates an engine using GraalJS or Nashorn, whichever is available.
+     */
+    public ScriptEngineJavascriptEngine() {
+        this(null);
+    }
+
+    /**
+     * @param engineName the name of the script engine, or {@code null} for GraalJS or Nashorn, whichever is available
+     */
+    public ScriptEngineJavascriptEngine(String engineName) {
+        this.engineNames = engineName != null ? Collections.singletonList(engineName) : DEFAULT_ENGINE_NAMES;
+    }
+
+    @Override
+    public void execute(Path script, String checksum, Map<String, Object> bindings) {
+        CompiledScript compiled = compiledScripts.computeIfAbsent(checksum + ':' + script.toAbsolutePath(),
+                key -> compile(script));
+
+        ScriptEngine scriptEngine = compiled.getEngine();
+        Bindings engineBindings = scriptEngine.createBindings();
+        if (graalJs) {
+            engineBindings.put(GRAAL_JS_ALLOW_ALL_ACCESS, true);
+        }
+        engineBindings.putAll(bindings);
+        ScriptContext context = new SimpleScriptContext();
+        context.setBindings(engineBindings, ScriptContext.ENGINE_SCOPE);
+        try {
+            if (threadSafe) {
+                compiled.eval(context);
+            } else {
+                synchronized (scriptEngine) {
+                    compiled.eval(context);
+                }
+            }
+        } catch (ScriptException ex) {
+            throw new MigrationException("Error executing Javascript migration: " + script, ex);
+        }
+    }
+
+    /**
+     * @return the number of compiled scripts held in the cache
+     */
+    int getCompiledScriptCount() {
+        return compiledScripts.size();
+    }
+
+    private CompiledScript compile(Path script) {
+        LOGGER.debug("Compiling Javascript migration: {}", script);
+        try (Reader reader = Files.newBufferedReader(script, StandardCharsets.UTF_8)) {
+            return ((Compilable) getEngine()).compile(reader);
+        } catch (IOException ex) {
+            throw new MigrationException("Error reading Javascript migration: " + script, ex);
+        } catch (ScriptException ex) {
+            throw new MigrationException("Error compiling Javascript migration: " + script, ex);
+        }
+    }
+
+    private ScriptEngine getEngine() {
+        ScriptEngine result = engine;
+        if (result == null) {
+            synchronized (this) {
+                result = engine;
+                if (result == null) {
+                    result = lookupEngine();
+                    threadSafe = result.getFactory().getParameter("THREADING") != null;
+                    graalJs = result.getFactory().getNames().contains(GRAAL_JS);
+                    engine = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    private ScriptEngine lookupEngine() {
+        ScriptEngineManager manager = new ScriptEngineManager(Thread.currentThread().getContextClassLoader());
+        for (String name : engineNames) {
+            ScriptEngine scriptEngine = manager.getEngineByName(name);
+            if (scriptEngine instanceof Compilable) {
+                LOGGER.info("Using Javascript engine {} {}", scriptEngine.getFactory().getEngineName(),
+                        scriptEngine.getFactory().getEngineVersion());
+                return scriptEngine;
+            }
+        }
+        throw new MigrationException("No Javascript engine found, tried: " + engineNames
+                + ". Add GraalJS to the classpath or run on Java 8 to 14 which include Nashorn.");
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright © 2017 The Diamongo authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.diamongo.core.migration;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * The result of validating migrations. It holds every violation found rather than only the first one.
+ */
+public final class ValidationReport {
+
+    /**
+     * The kind of a violation.
+     */
+    public enum Type {
+        /**
+         * Several migrations have the same version.
+         */
+        DUPLICATE_VERSION,
+        /**
+         * A pending migration has a lower version than the latest applied migration.
+         */
+        OUT_OF_ORDER,
+        /**
+         * A migration depends on a migration which does not exist or does not precede it.
+         */
+        INVALID_DEPENDENCY,
+        /**
+         * The checksum of a migration differs from the checksum recorded in the changelog.
+         */
+        CHANGELOG_CHECKSUM,
+        /**
+         * The checksum of a migration's source differs from the checksum of the compiled migration.
+         */
+        SOURCE_CHECKSUM,
+        /**
+         * A pending migration cannot be loaded or instantiated.
+         */
+        NOT_LOADABLE,
+        /**
+         * A pending migration cannot be executed by the configured backend.
+         */
+        UNSUPPORTED_BACKEND
+    }
+
+    private final List<Violation> violations;
+
+    ValidationReport(List<Violation> violations) {
+        List<Violation> sorted = new ArrayList<>(violations);
+        sorted.sort(Comparator.comparing(Violation::getType).thenComparing(Violation::getMigration));
+        this.violations = Collections.unmodifiableList(sorted);
+    }
+
+    /**
+     * @return {@code true}, if no violations have been found
+     */
+    public boolean isValid() {
+        return violations.isEmpty();
+    }
+
+    /**
+     * @return all violations ordered by type and migration
+     */
+    public List<Violation> getViolations() {
+        return violations;
+    }
+
+    /**
+     * @return the violations of the specified type
+     */
+    public List<Violation> getViolations(Type type) {
+        return violations.stream().filter(violation -> violation.getType() == type).collect(toList());
+    }
+
+    @Override
+    public String toString() {
+        if (violations.isEmpty()) {
+            return "Validation passed";
+        }
+        return String.format("Validation failed with %d violation(s):%n  %s", violations.size(),
+                String.join(String.format("%n  "), violations.stream().map(Violation::toString).collect(toList())));
+    }
+
+    /**
+     * A single violation.
+     */
+    public static final class Violation {
+        private final Type type;
+        private final String migration;
+        private final String message;
+
+        Violation(Type type, String migration, String message) {
+            this.type = type;
+            this.migration = migration;
+            this.message = message;
+        }
+
+        public Type getType() {
+            return type;
+        }
+
+        /**
+         * @return the name of the offending migration
+         */
+        public String getMigration() {
+            return migration;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("[%s] %s: %s", type, migration, message);
+        }
+    }
+}
@@ -16,37 +16,60 @@
 package io.github.diamongo.core.processor;
 
 import io.github.diamongo.core.migration.MigrationMarker;
+import io.github.diamongo.core.util.ChecksumCache;
 import io.github.diamongo.core.util.ChecksumUtils;
 
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.io.Writer;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Set;
 
 import javax.annotation.processing.AbstractProcessor;
 import javax.annotation.processing.Filer;
 import javax.annotation.processing.RoundEnvironment;
 import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedOptions;
 import javax.annotation.processing.SupportedSourceVersion;
 import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
 import javax.lang.model.element.PackageElement;
 import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.MirroredTypesException;
 import javax.tools.FileObject;
 import javax.tools.StandardLocation;
 
 import static io.github.diamongo.core.migration.MigrationConstants.JAVA_MIGRATIONS_FQCN;
-import static io.github.diamongo.core.util.ChecksumUtils.normalize;
-import static io.github.diamongo.core.util.ChecksumUtils.sha256;
+import static io.github.diamongo.core.migration.MigrationConstants.MIGRATION_INDEX_RESOURCE;
+import static io.github.diamongo.core.util.ChecksumUtils.normalizedSha256;
+import static java.util.stream.Collectors.toList;
 
 /**
  * Annotation processor that generates the class {@code io.github.diamongo.core.migration.JavaMigrations} which will
  * contain a {@link io.github.diamongo.core.migration.MigrationWrappers} instance holding
  * {@link io.github.diamongo.core.migration.MigrationWrapper} instances for all classes annotated with
- * {@link MigrationMarker}.
+ * {@link MigrationMarker}. It also writes an index of all migrations to the resource
+ * {@value io.github.diamongo.core.migration.MigrationConstants#MIGRATION_INDEX_RESOURCE}, which is read at runtime
+ * instead of loading the generated class, along with the GraalVM native image configuration for it.
+ * <p>
+ * Checksums are cached in the file specified by the processor option {@value #CACHE_OPTION}, by default
+ * {@value #CACHE_FILE} next to the class output directory, so only sources that have changed since the last build are
+ * re-read and re-hashed. The processor is registered as an aggregating processor for Gradle's incremental annotation
+ * processing. Note that Gradle compiles with an empty source path by default, which must be set to the source
+ * directories of the migrations in order for the processor to find them.
  */
 @SupportedAnnotationTypes("io.github.diamongo.core.migration.MigrationMarker")
+@SupportedOptions(ChecksumProcessor.CACHE_OPTION)
 @SupportedSourceVersion(SourceVersion.RELEASE_8)
 public final class ChecksumProcessor extends AbstractProcessor {
+    static final String CACHE_OPTION = "diamongo.checksumCache";
+    static final String CACHE_FILE = "diamongo-checksums.properties";
 
     /**
      * Processes all classes annotated with {@link MigrationMarker} and creates SHA-256 hashes from the corresponding
@@ -65,9 +88,13 @@ public final class ChecksumProcessor extends AbstractProcessor {
         System.out.println();
 
         Filer filer = processingEnv.getFiler();
+        ChecksumCache cache = loadCache(filer);
 
-        String javaMigrationsSource = annotations.stream()
+        List<Element> elements = annotations.stream()
                 .flatMap(elem -> roundEnv.getElementsAnnotatedWith(elem).stream())
+                .collect(toList());
+
+        List<MigrationData> migrationData = elements.stream()
                 .map(elem -> {
                     try {
                         TypeElement classElem = (TypeElement) elem;
@@ -81,23 +108,48 @@ public final class ChecksumProcessor extends AbstractProcessor {
                         String fileName = elem.getSimpleName().toString() + ".java";
                         FileObject source = filer.getResource(StandardLocation.SOURCE_PATH, packageName, fileName);
 
-                        CharSequence charContent = source.getCharContent(false);
-                        String normalizedCharContent = normalize(charContent);
-                        String sha256 = sha256(normalizedCharContent);
-
-                        return new MigrationData(className, sha256);
+                        MigrationMarker marker = classElem.getAnnotation(MigrationMarker.class);
+                        return new MigrationData(className, checksum(source, cache), dependsOn(marker),
+                                Arrays.asList(marker.collections()));
                     } catch (IOException ex) {
                         // log and re-throw, the compiler won't print the stacktrace
                         ex.printStackTrace();
                         throw new UncheckedIOException(ex);
                     }
                 })
+                .collect(toList());
+
+        if (cache != null) {
+            System.out.printf("Reused %d of %d cached checksum(s)%n", cache.getHits(), elements.size());
+            try {
+                cache.save();
+            } catch (IOException ex) {
+                System.err.println("Cannot write checksum cache: " + ex);
+            }
+        }
+
+        Element[] originatingElements = elements.toArray(new Element[0]);
+        writeJavaMigrations(filer, migrationData, originatingElements);
+        writeIndex(filer, migrationData, originatingElements);
+
+        System.out.println();
+        System.out.println("********************************************************************************");
+        System.out.println("*                 Finished running Diamongo ChecksumProcessor                  *");
+        System.out.println("********************************************************************************");
+        System.out.println();
+
+        return true;
+    }
+
+    private static void writeJavaMigrations(Filer filer, List<MigrationData> migrationData,
+            Element[] originatingElements) {
+        String javaMigrationsSource = migrationData.stream()
                 .reduce(new JavaMigrationsCreator(), JavaMigrationsCreator::addMigrationData, (c1, c2) -> null)
                 .create();
 
         try {
             System.out.printf("Writing class: %s%n", JAVA_MIGRATIONS_FQCN);
-            FileObject javaMigrationsFileObject = filer.createSourceFile(JAVA_MIGRATIONS_FQCN);
+            FileObject javaMigrationsFileObject = filer.createSourceFile(JAVA_MIGRATIONS_FQCN, originatingElements);
             try (Writer writer = javaMigrationsFileObject.openWriter()) {
                 writer.append(javaMigrationsSource);
             }
@@ -105,14 +157,96 @@ public final class ChecksumProcessor extends AbstractProcessor {
             System.err.println("Cannot create source file: " + JAVA_MIGRATIONS_FQCN);
             ex.printStackTrace();
         }
+    }
 
-        System.out.println();
-        System.out.println("********************************************************************************");
-        System.out.println("*                 Finished running Diamongo ChecksumProcessor                  *");
-        System.out.println("********************************************************************************");
-        System.out.println();
+    /**
+     * Writes the migration index along with the native image configuration needed to read it and to instantiate the
+     * migrations via reflection.
+     */
+    private static void writeIndex(Filer filer, List<MigrationData> migrationData, Element[] originatingElements) {
+        MigrationIndexCreator creator = migrationData.stream()
+                .reduce(new MigrationIndexCreator(), MigrationIndexCreator::addMigrationData, (c1, c2) -> null);
+        writeResource(filer, MIGRATION_INDEX_RESOURCE, creator.createIndex(), originatingElements);
+        writeResource(filer, MigrationIndexCreator.NATIVE_IMAGE_DIR + "reflect-config.json",
+                creator.createReflectConfig(), originatingElements);
+        writeResource(filer, MigrationIndexCreator.NATIVE_IMAGE_DIR + "resource-config.json",
+                creator.createResourceConfig(), originatingElements);
+    }
 
-        return true;
+    private static void writeResource(Filer filer, String name, String content, Element[] originatingElements) {
+        try {
+            System.out.printf("Writing resource: %s%n", name);
+            FileObject resource = filer.createResource(StandardLocation.CLASS_OUTPUT, "", name, originatingElements);
+            try (Writer writer = resource.openWriter()) {
+                writer.append(content);
+            }
+        } catch (IOException ex) {
+            System.err.println("Cannot create resource: " + name);
+            ex.printStackTrace();
+        }
+    }
+
+    /**
+     * Returns the checksum of the specified source, taking it from the cache if the file has not changed. Sources are
+     * decoded by the compiler, so the checksum does not depend on the source encoding.
+     */
+    private static String checksum(FileObject source, ChecksumCache cache) throws IOException {
+        Path path = toPath(source.toUri());
+        if (cache == null || path == null) {
+            return normalizedSha256(source.getCharContent(false));
+        }
+
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        String checksum = cache.get(path, attributes);
+        if (checksum == null) {
+            checksum = normalizedSha256(source.getCharContent(false));
+            cache.put(path, attributes, checksum);
+        }
+        return checksum;
+    }
+
+    /**
+     * Returns the binary names of the migrations the annotated migration depends on. Classes being compiled are only
+     * available as type mirrors.
+     */
+    private List<String> dependsOn(MigrationMarker marker) {
+        try {
+            return Arrays.stream(marker.dependsOn()).map(Class::getName).collect(toList());
+        } catch (MirroredTypesException ex) {
+            return ex.getTypeMirrors().stream()
+                    .map(mirror -> (TypeElement) processingEnv.getTypeUtils().asElement(mirror))
+                    .map(elem -> processingEnv.getElementUtils().getBinaryName(elem).toString())
+                    .collect(toList());
+        }
+    }
+
+    private ChecksumCache loadCache(Filer filer) {
+        String option = processingEnv.getOptions().get(CACHE_OPTION);
+        if (option != null) {
+            return option.isEmpty() ? null : loadCache(Paths.get(option));
+        }
+
+        try {
+            // only resolves the location, the file is never opened through the filer
+            Path resource = toPath(filer.getResource(StandardLocation.CLASS_OUTPUT, "", CACHE_FILE).toUri());
+            Path buildDir = resource != null ? resource.getParent().getParent() : null;
+            return buildDir != null ? loadCache(buildDir.resolve(CACHE_FILE)) : null;
+        } catch (IOException | RuntimeException ex) {
+            System.err.println("Checksum cache disabled: " + ex);
+            return null;
+        }
     }
-}
 
+    private static ChecksumCache loadCache(Path file) {
+        try {
+            return ChecksumCache.load(file);
+        } catch (IOException ex) {
+            System.err.printf("Ignoring unreadable checksum cache %s: %s%n", file, ex);
+            return ChecksumCache.empty(file);
+        }
+    }
+
+    private static Path toPath(URI uri) {
+        return "file".equals(uri.getScheme()) ? Paths.get(uri) : null;
+    }
+}
@@ -15,32 +15,73 @@
  */
 package io.github.diamongo.core.processor;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.function.Function;
+import java.util.stream.IntStream;
 
 import static io.github.diamongo.core.migration.MigrationConstants.JAVA_MIGRATIONS_CN;
 import static io.github.diamongo.core.migration.MigrationConstants.JAVA_MIGRATIONS_PKG;
 import static java.util.stream.Collectors.joining;
 
+/**
+ * Creates the source of the generated class. It holds an index of all migrations sorted by name in static arrays and
+ * creates {@link io.github.diamongo.core.migration.MigrationWrapper} instances from it which instantiate their
+ * migration only when it is accessed, so no migration class is loaded unless it is executed.
+ */
 final class JavaMigrationsCreator {
 
     private static final String JAVA_MIGRATIONS_CLASS_TEMPLATE =
             "package %s;\n" +
+                    "\n" +
+                    "import java.util.Arrays;\n" +
                     "\n" +
                     "public class %s implements Migrations {\n" +
                     "\n" +
+                    "    private static final String[] NAMES = {\n" +
+                    "%s\n" +
+                    "    };\n" +
+                    "\n" +
+                    "    private static final String[] CHECKSUMS = {\n" +
+                    "%s\n" +
+                    "    };\n" +
+                    "\n" +
+                    "    private static final String[][] DEPENDS_ON = {\n" +
+                    "%s\n" +
+                    "    };\n" +
+                    "\n" +
+                    "    private static final String[][] COLLECTIONS = {\n" +
+                    "%s\n" +
+                    "    };\n" +
+                    "\n" +
                     "    @Override\n" +
                     "    public MigrationWrappers createWrappers() {\n" +
-                    "        return new MigrationWrappers.Builder()\n" +
+                    "        MigrationWrappers.Builder builder = new MigrationWrappers.Builder();\n" +
+                    "        for (int i = 0; i < NAMES.length; i++) {\n" +
+                    "            int index = i;\n" +
+                    "            builder.addMigrationWrapper(new MigrationWrapper(NAMES[i], CHECKSUMS[i],\n" +
+                    "                    Arrays.asList(DEPENDS_ON[i]), Arrays.asList(COLLECTIONS[i]), () -> create(index)));\n" +
+                    "        }\n" +
+                    "        return builder.build();\n" +
+                    "    }\n" +
+                    "\n" +
+                    "    private static Migration<?> create(int index) {\n" +
+                    "        switch (index) {\n" +
                     "%s\n" +
-                    "                .build();\n" +
+                    "            default:\n" +
+                    "                throw new IllegalArgumentException(\"Unknown migration index: \" + index);\n" +
+                    "        }\n" +
                     "    }\n" +
                     "}\n";
 
-    private static final String ADD_WRAPPER_TEMPLATE =
-            "                .addMigrationWrapper(new MigrationWrapper(new %s(), \"%s\"))";
+    private static final String ELEMENT_TEMPLATE = "            %s,";
+
+    private static final String CASE_TEMPLATE =
+            "            case %d:\n" +
+                    "                return new %s();";
 
-    private final List<MigrationData> migrationData = new LinkedList<>();
+    private final List<MigrationData> migrationData = new ArrayList<>();
 
     JavaMigrationsCreator addMigrationData(MigrationData migrationData) {
         this.migrationData.add(migrationData);
@@ -48,9 +89,28 @@ final class JavaMigrationsCreator {
     }
 
     String create() {
-        String joinedClassNames = migrationData.stream()
-                .map(holder -> String.format(ADD_WRAPPER_TEMPLATE, holder.source, holder.checksum))
+        migrationData.sort(Comparator.comparing(data -> data.source));
+        return String.format(JAVA_MIGRATIONS_CLASS_TEMPLATE, JAVA_MIGRATIONS_PKG, JAVA_MIGRATIONS_CN,
+                elements(data -> quote(data.source)),
+                elements(data -> quote(data.checksum)),
+                elements(data -> array(data.dependsOn)),
+                elements(data -> array(data.collections)),
+                IntStream.range(0, migrationData.size())
+                        .mapToObj(i -> String.format(CASE_TEMPLATE, i, migrationData.get(i).source))
+                        .collect(joining("\n")));
+    }
+
+    private String elements(Function<MigrationData, String> mapper) {
+        return migrationData.stream()
+                .map(data -> String.format(ELEMENT_TEMPLATE, mapper.apply(data)))
                 .collect(joining("\n"));
-        return String.format(JAVA_MIGRATIONS_CLASS_TEMPLATE, JAVA_MIGRATIONS_PKG, JAVA_MIGRATIONS_CN, joinedClassNames);
+    }
+
+    private static String array(List<String> values) {
+        return values.stream().map(JavaMigrationsCreator::quote).collect(joining(", ", "{", "}"));
+    }
+
+    private static String quote(String value) {
+        return '"' + value.replace("\\", "\\\\").replace("\"", "\\\"") + '"';
     }
 }
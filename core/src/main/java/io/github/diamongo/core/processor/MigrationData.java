@@ -15,14 +15,18 @@
  */
 package io.github.diamongo.core.processor;
 
-import java.io.IOException;
+import java.util.List;
 
 final class MigrationData {
     final String source;
     final String checksum;
+    final List<String> dependsOn;
+    final List<String> collections;
 
-    MigrationData(String source, String checksum) throws IOException {
+    MigrationData(String source, String checksum, List<String> dependsOn, List<String> collections) {
         this.source = source;
         this.checksum = checksum;
+        this.dependsOn = dependsOn;
+        this.collections = collections;
     }
 }
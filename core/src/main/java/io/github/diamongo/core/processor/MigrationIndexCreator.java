@@ -0,0 +1,95 @@
+/*
+ * Copyright © 2017 The Diamongo authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.diamongo.core.processor;
+
+import org.bson.Document;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static io.github.diamongo.core.migration.MigrationConstants.INDEX_CHECKSUM_FIELD;
+import static io.github.diamongo.core.migration.MigrationConstants.INDEX_COLLECTIONS_FIELD;
+import static io.github.diamongo.core.migration.MigrationConstants.INDEX_DEPENDS_ON_FIELD;
+import static io.github.diamongo.core.migration.MigrationConstants.INDEX_LOCATION_FIELD;
+import static io.github.diamongo.core.migration.MigrationConstants.INDEX_MIGRATIONS_FIELD;
+import static io.github.diamongo.core.migration.MigrationConstants.INDEX_NAME_FIELD;
+import static io.github.diamongo.core.migration.MigrationConstants.INDEX_TYPE_FIELD;
+import static io.github.diamongo.core.migration.MigrationConstants.INDEX_TYPE_JAVA;
+import static io.github.diamongo.core.migration.MigrationConstants.MIGRATION_INDEX_RESOURCE;
+import static java.util.stream.Collectors.joining;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Creates the migration index resource and the GraalVM native image configuration required to read it and to
+ * instantiate the indexed migrations.
+ */
+final class MigrationIndexCreator {
+
+    /**
+     * The directory of the native image configuration files.
+     */
+    static final String NATIVE_IMAGE_DIR = "META-INF/native-image/io.github.diamongo/migrations/";
+
+    private static final String REFLECT_CONFIG_TEMPLATE =
+            "  {\"name\": \"%s\", \"methods\": [{\"name\": \"<init>\", \"parameterTypes\": []}]}";
+
+    private static final String RESOURCE_CONFIG_TEMPLATE =
+            "{\"resources\": {\"includes\": [{\"pattern\": \"\\\\Q%s\\\\E\"}]}}\n";
+
+    private final List<MigrationData> migrationData = new ArrayList<>();
+
+    MigrationIndexCreator addMigrationData(MigrationData migrationData) {
+        this.migrationData.add(migrationData);
+        return this;
+    }
+
+    /**
+     * @return the JSON index of all migrations sorted by name
+     */
+    String createIndex() {
+        List<Document> migrations = sorted().stream()
+                .map(data -> new Document(INDEX_NAME_FIELD, data.source)
+                        .append(INDEX_TYPE_FIELD, INDEX_TYPE_JAVA)
+                        .append(INDEX_LOCATION_FIELD, data.source)
+                        .append(INDEX_CHECKSUM_FIELD, data.checksum)
+                        .append(INDEX_DEPENDS_ON_FIELD, data.dependsOn)
+                        .append(INDEX_COLLECTIONS_FIELD, data.collections))
+                .collect(toList());
+        return new Document(INDEX_MIGRATIONS_FIELD, migrations).toJson() + "\n";
+    }
+
+    /**
+     * @return the reflection configuration registering the no-arg constructors of all migrations
+     */
+    String createReflectConfig() {
+        return sorted().stream()
+                .map(data -> String.format(REFLECT_CONFIG_TEMPLATE, data.source))
+                .collect(joining(",\n", "[\n", "\n]\n"));
+    }
+
+    /**
+     * @return the resource configuration including the index
+     */
+    String createResourceConfig() {
+        return String.format(RESOURCE_CONFIG_TEMPLATE, MIGRATION_INDEX_RESOURCE);
+    }
+
+    private List<MigrationData> sorted() {
+        migrationData.sort(Comparator.comparing(data -> data.source));
+        return migrationData;
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright © 2017 The Diamongo authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.diamongo.core.util;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Persistent cache of file checksums keyed by file path, modification time and size. Only entries looked up or added
+ * since the cache was loaded are saved, so entries of deleted files are dropped. The cache may be used concurrently.
+ */
+public final class ChecksumCache {
+    private final Path file;
+    private final Properties previous = new Properties();
+    private final Properties current = new Properties();
+    private final AtomicInteger hits = new AtomicInteger();
+
+    private ChecksumCache(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Creates an empty cache which is saved to the specified file.
+     *
+     * @param file the cache file
+     * @return the cache
+     */
+    public static ChecksumCache empty(Path file) {
+        return new ChecksumCache(file);
+    }
+
+    /**
+     * Loads the cache from the specified file. A missing file results in an empty cache.
+     *
+     * @param file the cache file
+     * @return the cache
+     * @throws IOException if the file cannot be read or is malformed
+     */
+    public static ChecksumCache load(Path file) throws IOException {
+        ChecksumCache cache = new ChecksumCache(file);
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            cache.previous.load(reader);
+        } catch (NoSuchFileException ex) {
+            // first run
+        } catch (IllegalArgumentException ex) {
+            throw new IOException("Malformed checksum cache: " + file, ex);
+        }
+        return cache;
+    }
+
+    /**
+     * @return the cached checksum of the specified file, or {@code null} if the file has changed or is unknown
+     */
+    public String get(Path source, BasicFileAttributes attributes) {
+        String key = source.toAbsolutePath().toString();
+        String value = previous.getProperty(key);
+        String prefix = versionOf(attributes);
+        if (value == null || !value.startsWith(prefix)) {
+            return null;
+        }
+        current.setProperty(key, value);
+        hits.incrementAndGet();
+        return value.substring(prefix.length());
+    }
+
+    public void put(Path source, BasicFileAttributes attributes, String checksum) {
+        current.setProperty(source.toAbsolutePath().toString(), versionOf(attributes) + checksum);
+    }
+
+    /**
+     * @return the number of successful lookups
+     */
+    public int getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Writes the cache back to its file unless it is unchanged. The file is replaced atomically where supported, so
+     * concurrent processes never read a partially written cache.
+     */
+    public synchronized void save() throws IOException {
+        if (current.equals(previous)) {
+            return;
+        }
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Path temp = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                current.store(writer, "Diamongo checksums");
+            }
+            try {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException ex) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        previous.clear();
+        previous.putAll(current);
+    }
+
+    private static String versionOf(BasicFileAttributes attributes) {
+        return attributes.lastModifiedTime().toMillis() + ":" + attributes.size() + ":";
+    }
+}
@@ -15,47 +15,155 @@
  */
 package io.github.diamongo.core.util;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.Buffer;
 import java.nio.ByteBuffer;
-import java.nio.CharBuffer;
-import java.nio.charset.Charset;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
-import java.util.regex.Pattern;
-
-import static java.lang.String.format;
 
 /**
  * Utility class for checksum-related stuff.
+ * <p>
+ * Checksums are computed in a single pass: characters are encoded to UTF-8 into a small buffer which is fed to a
+ * {@link MessageDigest} reused per thread, so hashing does not allocate proportionally to the input size. Checksums
+ * are identical to encoding the whole input with {@link java.nio.charset.Charset#encode(String)}, i. e. unpaired
+ * surrogates are encoded as {@code '?'}.
  */
 public class ChecksumUtils {
-
-    private static final Pattern WHITESPACE_PATTERN = Pattern.compile("\\s+");
+    private static final int BUFFER_SIZE = 8192;
+    // below this size, a plain read is cheaper than setting up a mapping
+    private static final long MAP_THRESHOLD = 16 * 1024;
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    private static final ThreadLocal<MessageDigest> DIGEST = ThreadLocal.withInitial(ChecksumUtils::newDigest);
+    private static final ThreadLocal<byte[]> BUFFER = ThreadLocal.withInitial(() -> new byte[BUFFER_SIZE]);
 
     private ChecksumUtils() {
         //
     }
 
     /**
-     * Creates a SHA-256 hash from the specified byte array.
+     * Creates a SHA-256 hash from the UTF-8 representation of the specified char sequence.
      *
      * @param input the value to create the hash from
      * @return the hashed input value
      */
     public static String sha256(CharSequence input) {
-        try {
-            if (input == null) {
-                throw new IllegalArgumentException(("'input' must not be null"));
+        if (input == null) {
+            throw new IllegalArgumentException(("'input' must not be null"));
+        }
+        return digest(input, false);
+    }
+
+    /**
+     * Creates a SHA-256 hash from the {@link #normalize(CharSequence) normalized} char sequence. This is equivalent to
+     * {@code sha256(normalize(input))} without creating the normalized copy.
+     *
+     * @param input the value to create the hash from
+     * @return the hashed normalized input value
+     */
+    public static String normalizedSha256(CharSequence input) {
+        if (input == null) {
+            throw new IllegalArgumentException(("'input' must not be null"));
+        }
+        return digest(input, true);
+    }
+
+    /**
+     * Creates a SHA-256 hash from the {@link #normalize(CharSequence) normalized} content of the specified UTF-8
+     * encoded file. For well-formed UTF-8, the result is the same as for {@link #normalizedSha256(CharSequence)} with
+     * the decoded content, but the file is never held in memory as a whole. Larger files are memory-mapped.
+     *
+     * @param file the file to create the hash from
+     * @return the hashed normalized file content
+     * @throws IOException if the file cannot be read
+     */
+    public static String normalizedSha256(Path file) throws IOException {
+        if (file == null) {
+            throw new IllegalArgumentException(("'file' must not be null"));
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < MAP_THRESHOLD || size > Integer.MAX_VALUE) {
+                return normalizedSha256(channel);
             }
+            return normalizedSha256(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
 
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            ByteBuffer buffer = Charset.forName("UTF-8").encode(CharBuffer.wrap(input));
-            digest.update(buffer);
-            byte[] hashBytes = digest.digest();
-            return byteArrayToHex(hashBytes);
-        } catch (NoSuchAlgorithmException ex) {
-            // Can't happen as we use a fixed algorithm which is known to work
-            throw new IllegalStateException(ex);
+    /**
+     * Creates a SHA-256 hash from the {@link #normalize(CharSequence) normalized} UTF-8 content remaining in the
+     * specified buffer. The buffer's position is advanced to its limit.
+     *
+     * @param input the buffer to create the hash from
+     * @return the hashed normalized content
+     * @see #normalizedSha256(Path)
+     */
+    public static String normalizedSha256(ByteBuffer input) {
+        if (input == null) {
+            throw new IllegalArgumentException(("'input' must not be null"));
+        }
+        MessageDigest digest = resetDigest();
+        byte[] buffer = BUFFER.get();
+        boolean whitespace = false;
+        while (input.hasRemaining()) {
+            int length = Math.min(input.remaining(), BUFFER_SIZE);
+            input.get(buffer, 0, length);
+            whitespace = foldWhitespace(digest, buffer, length, whitespace);
+        }
+        return byteArrayToHex(digest.digest());
+    }
+
+    /**
+     * Creates a SHA-256 hash from the {@link #normalize(CharSequence) normalized} UTF-8 content read from the specified
+     * stream until its end. The stream is not closed.
+     *
+     * @param input the stream to create the hash from
+     * @return the hashed normalized content
+     * @throws IOException if the stream cannot be read
+     * @see #normalizedSha256(Path)
+     */
+    public static String normalizedSha256(InputStream input) throws IOException {
+        if (input == null) {
+            throw new IllegalArgumentException(("'input' must not be null"));
         }
+        MessageDigest digest = resetDigest();
+        byte[] buffer = BUFFER.get();
+        boolean whitespace = false;
+        int read;
+        while ((read = input.read(buffer)) != -1) {
+            whitespace = foldWhitespace(digest, buffer, read, whitespace);
+        }
+        return byteArrayToHex(digest.digest());
+    }
+
+    /**
+     * Creates a SHA-256 hash from the {@link #normalize(CharSequence) normalized} UTF-8 content read from the specified
+     * channel until its end. The channel is not closed.
+     *
+     * @param input the channel to create the hash from
+     * @return the hashed normalized content
+     * @throws IOException if the channel cannot be read
+     * @see #normalizedSha256(Path)
+     */
+    public static String normalizedSha256(ReadableByteChannel input) throws IOException {
+        if (input == null) {
+            throw new IllegalArgumentException(("'input' must not be null"));
+        }
+        MessageDigest digest = resetDigest();
+        byte[] buffer = BUFFER.get();
+        ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+        boolean whitespace = false;
+        while (input.read(byteBuffer) != -1) {
+            whitespace = foldWhitespace(digest, buffer, byteBuffer.position(), whitespace);
+            // cast keeps the Java 8 signature when compiled on newer JDKs
+            ((Buffer) byteBuffer).clear();
+        }
+        return byteArrayToHex(digest.digest());
     }
 
     /**
@@ -69,15 +177,17 @@ public class ChecksumUtils {
             throw new IllegalArgumentException(("'bytes' must not be null"));
         }
 
-        StringBuilder sb = new StringBuilder(bytes.length * 2);
-        for (byte b : bytes) {
-            sb.append(format("%02x", b));
+        char[] hex = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            hex[i * 2] = HEX_DIGITS[(bytes[i] >> 4) & 0xF];
+            hex[i * 2 + 1] = HEX_DIGITS[bytes[i] & 0xF];
         }
-        return sb.toString();
+        return new String(hex);
     }
 
     /**
      * Replaces multiple consecutive whitespace characters in the given char sequence with a single space character.
+     * Whitespace characters are those matched by the regular expression {@code \s}, i. e. {@code [ \t\n\x0B\f\r]}.
      *
      * @param value the char sequence to process
      * @return the normalized value
@@ -86,6 +196,118 @@ public class ChecksumUtils {
         if (value == null) {
             return null;
         }
-        return WHITESPACE_PATTERN.matcher(value).replaceAll(" ");
+
+        int length = value.length();
+        StringBuilder sb = new StringBuilder(length);
+        boolean whitespace = false;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (isWhitespace(c)) {
+                if (!whitespace) {
+                    sb.append(' ');
+                    whitespace = true;
+                }
+            } else {
+                sb.append(c);
+                whitespace = false;
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String digest(CharSequence input, boolean normalize) {
+        MessageDigest digest = resetDigest();
+        byte[] buffer = BUFFER.get();
+        int pos = 0;
+        boolean whitespace = false;
+        int length = input.length();
+        for (int i = 0; i < length; i++) {
+            char c = input.charAt(i);
+            if (normalize && isWhitespace(c)) {
+                if (whitespace) {
+                    continue;
+                }
+                whitespace = true;
+                c = ' ';
+            } else {
+                whitespace = false;
+            }
+
+            // make room for the longest encoding
+            if (pos > BUFFER_SIZE - 4) {
+                digest.update(buffer, 0, pos);
+                pos = 0;
+            }
+
+            if (c < 0x80) {
+                buffer[pos++] = (byte) c;
+            } else if (c < 0x800) {
+                buffer[pos++] = (byte) (0xC0 | (c >> 6));
+                buffer[pos++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(input.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, input.charAt(++i));
+                    buffer[pos++] = (byte) (0xF0 | (codePoint >> 18));
+                    buffer[pos++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                    buffer[pos++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                    buffer[pos++] = (byte) (0x80 | (codePoint & 0x3F));
+                } else {
+                    // replacement used by the UTF-8 encoder for malformed input
+                    buffer[pos++] = '?';
+                }
+            } else {
+                buffer[pos++] = (byte) (0xE0 | (c >> 12));
+                buffer[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buffer[pos++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        digest.update(buffer, 0, pos);
+        return byteArrayToHex(digest.digest());
+    }
+
+    /**
+     * Folds whitespace in the given UTF-8 bytes in place and feeds the result to the digest. Folding bytes is
+     * equivalent to folding characters, since all whitespace characters are ASCII and bytes of multi-byte sequences
+     * are never ASCII.
+     *
+     * @return whether the last byte was whitespace
+     */
+    private static boolean foldWhitespace(MessageDigest digest, byte[] buffer, int length, boolean whitespace) {
+        int pos = 0;
+        boolean lastWhitespace = whitespace;
+        for (int i = 0; i < length; i++) {
+            byte b = buffer[i];
+            if (isWhitespace((char) b)) {
+                if (lastWhitespace) {
+                    continue;
+                }
+                lastWhitespace = true;
+                b = ' ';
+            } else {
+                lastWhitespace = false;
+            }
+            buffer[pos++] = b;
+        }
+        digest.update(buffer, 0, pos);
+        return lastWhitespace;
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || (c >= '\t' && c <= '\r');
+    }
+
+    private static MessageDigest resetDigest() {
+        MessageDigest digest = DIGEST.get();
+        digest.reset();
+        return digest;
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            // Can't happen as we use a fixed algorithm which is known to work
+            throw new IllegalStateException(ex);
+        }
     }
 }
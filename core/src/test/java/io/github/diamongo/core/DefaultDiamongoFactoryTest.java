@@ -0,0 +1,163 @@
+/*
+ * Copyright © 2017 The Diamongo authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.diamongo.core;
+
+import com.mongodb.MongoClient;
+import com.mongodb.MongoClientOptions;
+import com.mongodb.MongoClientURI;
+import io.github.diamongo.core.config.Backend;
+import io.github.diamongo.core.config.ConfigException;
+import io.github.diamongo.core.config.DiamongoConfig;
+import mockit.Mocked;
+import mockit.Verifications;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class DefaultDiamongoFactoryTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Mocked
+    private MongoClient mongoClient;
+
+    @Test
+    public void testCreatedClientClosed() {
+        Diamongo diamongo = new DefaultDiamongoFactory().create(config().build());
+        diamongo.close();
+        diamongo.close();
+
+        new Verifications() {
+            {
+                mongoClient.close();
+                times = 1;
+            }
+        };
+    }
+
+    @Test
+    public void testSharedClientNotClosed() {
+        try (Diamongo diamongo = new DefaultDiamongoFactory().create(config().build(), mongoClient)) {
+            assertThat(diamongo).isNotNull();
+        }
+
+        new Verifications() {
+            {
+                mongoClient.getDatabase("test");
+                mongoClient.close();
+                times = 0;
+            }
+        };
+    }
+
+    @Test
+    public void testSharedReactiveClientNotClosed(
+            @Mocked com.mongodb.reactivestreams.client.MongoClient reactiveClient) {
+        DiamongoConfig config = config().backend(Backend.REACTIVE).build();
+        try (Diamongo diamongo = new DefaultDiamongoFactory().create(config, mongoClient, reactiveClient)) {
+            assertThat(diamongo).isNotNull();
+        }
+
+        new Verifications() {
+            {
+                reactiveClient.getDatabase("test");
+                reactiveClient.close();
+                times = 0;
+                mongoClient.close();
+                times = 0;
+            }
+        };
+    }
+
+    @Test
+    public void testMultiTenantSharedClient() {
+        DiamongoConfig config = config()
+                .addTenantDatabase("tenant2")
+                .addTenantDatabase("tenant1")
+                .addTenantDatabase("tenant2")
+                .build();
+        try (MultiTenantDiamongo diamongo = new DefaultDiamongoFactory().createMultiTenant(config, mongoClient)) {
+            assertThat(diamongo.findDatabases()).containsExactly("tenant1", "tenant2");
+        }
+
+        new Verifications() {
+            {
+                mongoClient.listDatabaseNames();
+                times = 0;
+                mongoClient.close();
+                times = 0;
+            }
+        };
+    }
+
+    @Test(expected = ConfigException.class)
+    public void testMultiTenantRequiresSyncBackend() {
+        new DefaultDiamongoFactory().createMultiTenant(config().backend(Backend.REACTIVE).build(), mongoClient);
+    }
+
+    @Test
+    public void testInvalidIntegerProperty() throws Exception {
+        File file = tempFolder.newFile("diamongo.properties");
+        Files.write(file.toPath(), Arrays.asList("mongoUri=mongodb://localhost", "database=test", "parallelism=four"),
+                StandardCharsets.ISO_8859_1);
+
+        try {
+            new DefaultDiamongoFactory().create(file.getPath());
+            fail("ConfigException expected");
+        } catch (ConfigException ex) {
+            assertThat(ex.getMessage()).isEqualTo("Invalid value for 'parallelism': four");
+            assertThat(ex.getCause()).isInstanceOf(NumberFormatException.class);
+        }
+    }
+
+    @Test
+    public void testClientOptions() {
+        DiamongoConfig config = config()
+                .poolSize(2, 20)
+                .serverSelectionTimeout(Duration.ofSeconds(3))
+                .connectTimeout(Duration.ofSeconds(1))
+                .socketTimeout(Duration.ofSeconds(30))
+                .build();
+
+        MongoClientOptions options = DefaultDiamongoFactory.clientOptions(config).build();
+        assertThat(options.getMinConnectionsPerHost()).isEqualTo(2);
+        assertThat(options.getConnectionsPerHost()).isEqualTo(20);
+        assertThat(options.getServerSelectionTimeout()).isEqualTo(3000);
+        assertThat(options.getConnectTimeout()).isEqualTo(1000);
+        assertThat(options.getSocketTimeout()).isEqualTo(30000);
+
+        MongoClientURI uri = new MongoClientURI("mongodb://localhost/?maxPoolSize=5",
+                DefaultDiamongoFactory.clientOptions(config));
+        assertThat(uri.getOptions().getConnectionsPerHost()).isEqualTo(5);
+        assertThat(uri.getOptions().getMinConnectionsPerHost()).isEqualTo(2);
+    }
+
+    private static DiamongoConfig.Builder config() {
+        return new DiamongoConfig.Builder()
+                .mongoUri(new MongoClientURI("mongodb://localhost"))
+                .database("test");
+    }
+}
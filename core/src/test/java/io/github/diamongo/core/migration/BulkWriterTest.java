@@ -0,0 +1,128 @@
+/*
+ * Copyright © 2017 The Diamongo authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.diamongo.core.migration;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.InsertOneModel;
+import mockit.Expectations;
+import mockit.Mocked;
+import mockit.Verifications;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BulkWriterTest {
+
+    @Mocked
+    private MongoDatabase database;
+
+    @Mocked
+    private MongoCollection<Document> collection;
+
+    @Test
+    public void testBatching() throws Exception {
+        MigrationContext context = new MigrationContext(database, "test");
+
+        BulkWriter<Document> writer = context.bulkWriter(collection)
+                .batchSize(10)
+                .ordered(false)
+                .maxInFlight(2)
+                .build();
+        try (BulkWriter<Document> ignored = writer) {
+            for (int i = 0; i < 25; i++) {
+                writer.add(new InsertOneModel<>(new Document("i", i)));
+            }
+        }
+
+        assertThat(writer.getStats().getRequests()).isEqualTo(25);
+        assertThat(writer.getStats().getBatches()).isEqualTo(3);
+
+        new Verifications() {
+            {
+                BulkWriteOptions options;
+                collection.bulkWrite(withInstanceOf(List.class), options = withCapture());
+                times = 3;
+                assertThat(options.isOrdered()).isFalse();
+            }
+        };
+    }
+
+    @Test(expected = MigrationException.class)
+    public void testFailure() throws Exception {
+        new Expectations() {
+            {
+                collection.bulkWrite(withInstanceOf(List.class), withInstanceOf(BulkWriteOptions.class));
+                result = new MongoException("boom");
+            }
+        };
+
+        try (BulkWriter<Document> writer = new MigrationContext(database, "test").bulkWriter(collection).build()) {
+            writer.add(new InsertOneModel<>(new Document()));
+        }
+    }
+
+    @Test(expected = MigrationException.class)
+    public void testNonMongoFailure() throws Exception {
+        new Expectations() {
+            {
+                collection.bulkWrite(withInstanceOf(List.class), withInstanceOf(BulkWriteOptions.class));
+                result = new IllegalStateException("cannot encode");
+            }
+        };
+
+        BulkWriter<Document> writer = new MigrationContext(database, "test").bulkWriter(collection).build();
+        writer.add(new InsertOneModel<>(new Document()));
+        writer.flush();
+    }
+
+    @Test
+    public void testOrderedFailureStopsAtFirstError() throws Exception {
+        BulkWriteError error = new BulkWriteError(11000, "duplicate key", new BsonDocument(), 3);
+        new Expectations() {
+            {
+                collection.bulkWrite(withInstanceOf(List.class), withInstanceOf(BulkWriteOptions.class));
+                result = new MongoBulkWriteException(BulkWriteResult.acknowledged(3, 0, 0, 0,
+                        Collections.emptyList()), Collections.singletonList(error), null, new ServerAddress());
+            }
+        };
+
+        BulkWriter<Document> writer = new MigrationContext(database, "test").bulkWriter(collection).build();
+        try {
+            for (int i = 0; i < 10; i++) {
+                writer.add(new InsertOneModel<>(new Document("i", i)));
+            }
+            writer.close();
+        } catch (MigrationException ex) {
+            // expected
+        }
+
+        // the requests after the failed one have not been executed
+        assertThat(writer.getStats().getRequests()).isEqualTo(3);
+        assertThat(writer.getStats().getInserted()).isEqualTo(3);
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright © 2017 The Diamongo authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.diamongo.core.migration;
+
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.WriteModel;
+import mockit.Delegate;
+import mockit.Expectations;
+import mockit.Mocked;
+import org.bson.Document;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CheckpointerTest {
+
+    @Mocked
+    private MongoDatabase database;
+
+    @Mocked
+    private MongoCollection<Document> collection;
+
+    @Test
+    public void testResumeAfterCrashWithBufferedWrites() throws Exception {
+        List<Object> written = new CopyOnWriteArrayList<>();
+        new Expectations() {
+            {
+                collection.bulkWrite(withInstanceOf(List.class), withInstanceOf(BulkWriteOptions.class));
+                result = new Delegate<BulkWriteResult>() {
+                    @SuppressWarnings({"unused", "unchecked"})
+                    BulkWriteResult bulkWrite(List<WriteModel<Document>> requests, BulkWriteOptions options) {
+                        requests.forEach(request -> written.add(((InsertOneModel<Document>) request).getDocument()
+                                .get("_id")));
+                        return BulkWriteResult.acknowledged(requests.size(), 0, 0, 0, Collections.emptyList());
+                    }
+                };
+            }
+        };
+        List<Checkpoint> checkpoints = new ArrayList<>();
+
+        // the first run crashes after 7 documents, while the last 2 are still buffered by the writer
+        MigrationContext first = new MigrationContext(database, "test", null, checkpoint -> {
+            assertThat(written).contains(checkpoint.getLastId());
+            checkpoints.add(checkpoint);
+        });
+        BulkWriter<Document> writer = first.bulkWriter(collection).batchSize(100).build();
+        Checkpointer checkpointer = first.checkpointer(5, Duration.ofHours(1)).flushBeforeSave(writer);
+        for (int id = 0; id < 7; id++) {
+            writer.add(new InsertOneModel<>(new Document("_id", id)));
+            checkpointer.processed(id);
+        }
+        assertThat(checkpoints).extracting(Checkpoint::getLastId).containsExactly(4);
+        assertThat(written).containsExactly(0, 1, 2, 3, 4);
+
+        // the second run resumes from the checkpoint and writes the documents lost by the crash
+        Checkpoint resumedFrom = checkpoints.get(0);
+        MigrationContext second = new MigrationContext(database, "test", resumedFrom, checkpoints::add);
+        try (BulkWriter<Document> resumedWriter = second.bulkWriter(collection).batchSize(100).build()) {
+            Checkpointer resumed = second.checkpointer(5, Duration.ofHours(1)).flushBeforeSave(resumedWriter);
+            for (int id = (Integer) resumed.getLastId() + 1; id < 10; id++) {
+                resumedWriter.add(new InsertOneModel<>(new Document("_id", id)));
+                resumed.processed(id);
+            }
+        }
+        assertThat(written).containsExactly(0, 1, 2, 3, 4, 5, 6, 7, 8, 9);
+    }
+}
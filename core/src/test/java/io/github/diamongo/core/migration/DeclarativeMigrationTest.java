@@ -0,0 +1,121 @@
+/*
+ * Copyright © 2017 The Diamongo authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.diamongo.core.migration;
+
+import com.mongodb.MongoNamespace;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.RenameCollectionOptions;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.result.UpdateResult;
+import mockit.Expectations;
+import mockit.Mocked;
+import mockit.Verifications;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.junit.Test;
+
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class DeclarativeMigrationTest {
+
+    @Mocked
+    private MongoDatabase database;
+
+    @Mocked
+    private MongoCollection<Document> collection;
+
+    @Test
+    public void testUpdateManyWithPipeline() {
+        new Expectations() {
+            {
+                database.getCollection("users");
+                result = collection;
+                collection.updateMany((Bson) any, (List<Bson>) any, (UpdateOptions) any);
+                result = UpdateResult.acknowledged(3, 2L, null);
+            }
+        };
+
+        MigrationContext context = new MigrationContext(database, "V1_0__test.json");
+        DeclarativeMigration.parse("{operations: [{updateMany: {collection: 'users', filter: {a: 1}, "
+                + "update: [{$set: {b: '$a'}}]}}]}", "test").migrate(context);
+
+        new Verifications() {
+            {
+                collection.updateMany(new Document("a", 1), asList(new Document("$set", new Document("b", "$a"))),
+                        (UpdateOptions) any);
+            }
+        };
+        assertThat(context.getStats().getDocumentsWritten()).isEqualTo(2);
+    }
+
+    @Test
+    public void testIndexesAndRename() {
+        new Expectations() {
+            {
+                database.getName();
+                result = "test";
+            }
+        };
+
+        DeclarativeMigration.parse("{operations: ["
+                + "{createIndexes: {collection: 'users', indexes: [{key: {a: 1, b: -1}, unique: true}]}},"
+                + "{dropIndex: {collection: 'users', name: 'c_1'}},"
+                + "{renameCollection: {collection: 'users', to: 'accounts', dropTarget: true}}]}", "test")
+                .migrate(new MigrationContext(database, "V1_0__test.json"));
+
+        new Verifications() {
+            {
+                Document command;
+                database.runCommand(command = withCapture());
+                assertThat(command.toJson()).isEqualTo(new Document("createIndexes", "users")
+                        .append("indexes", asList(new Document("key", new Document("a", 1).append("b", -1))
+                                .append("unique", true).append("name", "a_1_b_-1"))).toJson());
+
+                collection.dropIndex("c_1");
+
+                MongoNamespace namespace;
+                RenameCollectionOptions options;
+                collection.renameCollection(namespace = withCapture(), options = withCapture());
+                assertThat(namespace.getFullName()).isEqualTo("test.accounts");
+                assertThat(options.isDropTarget()).isTrue();
+            }
+        };
+    }
+
+    @Test
+    public void testInvalid() {
+        assertInvalid("{}", "no operations");
+        assertInvalid("{operations: [{deleteMany: {collection: 'users'}}]}", "unknown operation 'deleteMany'");
+        assertInvalid("{operations: [{updateMany: {update: {}}}]}", "'collection'");
+        assertInvalid("{operations: [{updateMany: {collection: 'users', update: []}}]}", "'update'");
+        assertInvalid("{operations: [{dropIndex: {collection: 'users'}, createIndexes: {}}]}", "exactly one field");
+        assertInvalid("{operations: [", "test");
+    }
+
+    private static void assertInvalid(String json, String message) {
+        try {
+            DeclarativeMigration.parse(json, "test");
+            fail("MigrationException expected");
+        } catch (MigrationException ex) {
+            assertThat(ex.getMessage()).contains("Invalid declarative migration test", message);
+        }
+    }
+}
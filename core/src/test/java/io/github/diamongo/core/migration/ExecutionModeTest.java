@@ -0,0 +1,73 @@
+/*
+ * Copyright © 2017 The Diamongo authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.diamongo.core.migration;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class ExecutionModeTest {
+
+    @Test
+    public void testPlatformThreads() throws Exception {
+        Thread thread = ExecutionMode.PLATFORM.threadFactory("test").newThread(() -> { });
+
+        assertThat(thread.getName()).isEqualTo("test-1");
+        assertThat(thread.isDaemon()).isTrue();
+    }
+
+    @Test
+    public void testVirtualThreadsOrFallback() throws Exception {
+        ExecutorService executor = ExecutionMode.VIRTUAL.newExecutor("test", 2);
+        try {
+            Future<Thread> future = executor.submit(Thread::currentThread);
+            Thread thread = future.get();
+
+            assertThat(thread.getName()).isEqualTo("test-1");
+            assertThat(thread.isDaemon()).isTrue();
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(ExecutionMode.PLATFORM.isSupported()).isTrue();
+    }
+
+    @Test
+    public void testForEachConcurrentlyCollectsFailures() throws Exception {
+        List<String> processed = new CopyOnWriteArrayList<>();
+
+        try {
+            ExecutionMode.PLATFORM.forEachConcurrently("test", 2, Arrays.asList("a", "b", "c"), item -> {
+                if (!item.equals("b")) {
+                    throw new IllegalStateException(item);
+                }
+                processed.add(item);
+            }, "Processing");
+            fail("MigrationException expected");
+        } catch (MigrationException ex) {
+            assertThat(ex.getMessage()).startsWith("Processing failed for ").contains("a", "c");
+            assertThat(ex.getCause()).isInstanceOf(IllegalStateException.class);
+            assertThat(ex.getSuppressed()).hasSize(1);
+        }
+        assertThat(processed).containsExactly("b");
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright © 2017 The Diamongo authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.diamongo.core.migration;
+
+import io.github.diamongo.core.util.ChecksumUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class JavascriptMigrationScannerTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void testScan() throws Exception {
+        Path dir1 = tempFolder.newFolder("dir1").toPath();
+        Path dir2 = tempFolder.newFolder("dir2").toPath();
+        write(dir1.resolve("nested/V2_0__second.js"), "db.test.drop();");
+        write(dir1.resolve("util.js"), "function helper() {}");
+        write(dir1.resolve("V3_0__readme.txt"), "not a migration");
+        write(dir2.resolve("V1_0__first.js"), "db.test.insert({a: 1});");
+        write(dir2.resolve("V4_0__declarative.json"), "{operations: []}");
+
+        List<JavascriptMigrationScanner.Script> scripts = scanner(dir1, dir2).scan();
+
+        assertThat(scripts).extracting(JavascriptMigrationScanner.Script::getName)
+                .containsExactly("V1_0__first.js", "V2_0__second.js", "V4_0__declarative.json");
+        assertThat(scripts.get(0).getChecksum()).isEqualTo(ChecksumUtils.normalizedSha256("db.test.insert({a: 1});"));
+        assertThat(scripts.get(1).getPath()).isEqualTo(dir1.resolve("nested/V2_0__second.js"));
+    }
+
+    @Test
+    public void testDuplicateName() throws Exception {
+        Path dir1 = tempFolder.newFolder("dir1").toPath();
+        Path dir2 = tempFolder.newFolder("dir2").toPath();
+        write(dir1.resolve("V1_0__first.js"), "1");
+        write(dir2.resolve("V1_0__first.js"), "2");
+
+        try {
+            scanner(dir1, dir2).scan();
+            fail("MigrationException expected");
+        } catch (MigrationException ex) {
+            assertThat(ex.getMessage()).contains("V1_0__first.js");
+        }
+    }
+
+    @Test
+    public void testChecksumsCachedBetweenRuns() throws Exception {
+        Path dir = tempFolder.newFolder("dir").toPath();
+        Path script = dir.resolve("V1_0__first.js");
+        write(script, "db.test.drop();");
+        Path cacheFile = tempFolder.getRoot().toPath().resolve("cache.properties");
+
+        new JavascriptMigrationScanner(Arrays.asList(dir), cacheFile).scan();
+        assertThat(cacheFile).exists();
+
+        // a cached checksum is used as long as modification time and size are unchanged
+        String cached = "0000000000000000000000000000000000000000000000000000000000000000";
+        String content = new String(Files.readAllBytes(cacheFile), StandardCharsets.UTF_8);
+        Files.write(cacheFile, content.replace(ChecksumUtils.normalizedSha256("db.test.drop();"), cached)
+                .getBytes(StandardCharsets.UTF_8));
+        assertThat(new JavascriptMigrationScanner(Arrays.asList(dir), cacheFile).scan().get(0).getChecksum())
+                .isEqualTo(cached);
+    }
+
+    @Test
+    public void testDefaultCacheFileDependsOnDirs() throws Exception {
+        Path dir1 = tempFolder.newFolder("dir1").toPath();
+        Path dir2 = tempFolder.newFolder("dir2").toPath();
+
+        assertThat(JavascriptMigrationScanner.defaultCacheFile(Arrays.asList(dir1)))
+                .isEqualTo(JavascriptMigrationScanner.defaultCacheFile(Arrays.asList(dir1.toAbsolutePath())))
+                .isNotEqualTo(JavascriptMigrationScanner.defaultCacheFile(Arrays.asList(dir1, dir2)));
+    }
+
+    private JavascriptMigrationScanner scanner(Path... dirs) {
+        return new JavascriptMigrationScanner(Arrays.asList(dirs),
+                tempFolder.getRoot().toPath().resolve("checksums.properties"));
+    }
+
+    private static void write(Path file, String content) throws Exception {
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+}
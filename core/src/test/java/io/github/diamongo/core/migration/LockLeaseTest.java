@@ -0,0 +1,74 @@
+/*
+ * Copyright © 2017 The Diamongo authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.diamongo.core.migration;
+
+import com.mongodb.MongoSocketReadException;
+import com.mongodb.ServerAddress;
+import org.junit.Test;
+
+import java.util.concurrent.ThreadFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LockLeaseTest {
+    private final ThreadFactory threadFactory = ExecutionMode.PLATFORM.threadFactory("test-heartbeat");
+
+    @Test
+    public void testRenewedLeaseIsKept() throws Exception {
+        LockLease lease = new LockLease(1L, 300L, System.nanoTime(), () -> true, threadFactory);
+        try {
+            Thread.sleep(1000L);
+
+            assertThat(lease.isLost()).isFalse();
+        } finally {
+            lease.stop();
+        }
+    }
+
+    @Test
+    public void testLeaseTakenOverIsLost() throws Exception {
+        LockLease lease = new LockLease(1L, 30L, System.nanoTime(), () -> false, threadFactory);
+        try {
+            awaitLost(lease);
+        } finally {
+            lease.stop();
+        }
+    }
+
+    @Test
+    public void testLeaseExpiresIfRenewalFails() throws Exception {
+        LockLease lease = new LockLease(1L, 300L, System.nanoTime(), () -> {
+            throw new MongoSocketReadException("Prematurely reached end of stream", new ServerAddress());
+        }, threadFactory);
+        try {
+            // the first failures happen before the lease expires
+            Thread.sleep(150L);
+            assertThat(lease.isLost()).isFalse();
+
+            awaitLost(lease);
+        } finally {
+            lease.stop();
+        }
+    }
+
+    private static void awaitLost(LockLease lease) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000L;
+        while (!lease.isLost() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10L);
+        }
+        assertThat(lease.isLost()).isTrue();
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright © 2017 The Diamongo authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.diamongo.core.migration;
+
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import io.micrometer.core.instrument.distribution.pause.PauseDetector;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static io.github.diamongo.core.migration.MicrometerMigrationMetrics.DOCUMENTS_READ;
+import static io.github.diamongo.core.migration.MicrometerMigrationMetrics.DOCUMENTS_WRITTEN;
+import static io.github.diamongo.core.migration.MicrometerMigrationMetrics.LOCK_ACQUISITION;
+import static io.github.diamongo.core.migration.MicrometerMigrationMetrics.LOCK_WAIT;
+import static io.github.diamongo.core.migration.MicrometerMigrationMetrics.MIGRATION_DURATION;
+import static io.github.diamongo.core.migration.MicrometerMigrationMetrics.MIGRATION_FAILURES;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MicrometerMigrationMetricsTest {
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private final MigrationMetrics metrics = new MicrometerMigrationMetrics(registry);
+
+    @Test
+    public void testLockMetrics() throws Exception {
+        metrics.lockAcquisition("test", false, TimeUnit.MILLISECONDS.toNanos(2));
+        metrics.lockAcquisition("test", true, TimeUnit.MILLISECONDS.toNanos(3));
+        metrics.lockWait("test", true, TimeUnit.SECONDS.toNanos(5));
+
+        assertThat(registry.get(LOCK_ACQUISITION).tags("database", "test", "outcome", "held").timer().count())
+                .isEqualTo(1);
+        assertThat(registry.get(LOCK_ACQUISITION).tags("database", "test", "outcome", "acquired").timer().count())
+                .isEqualTo(1);
+        Timer wait = registry.get(LOCK_WAIT).tags("database", "test", "outcome", "acquired").timer();
+        assertThat(wait.totalTime(TimeUnit.SECONDS)).isEqualTo(5.0);
+    }
+
+    @Test
+    public void testMigrationMetrics() throws Exception {
+        MigrationStats stats = new MigrationStats();
+        stats.addDocumentsRead(10);
+        stats.addDocumentsWritten(4);
+
+        metrics.migrationApplied("test", "V1_0__Migration", TimeUnit.SECONDS.toNanos(1), stats);
+        metrics.migrationFailed("test", "V2_0__Migration", TimeUnit.SECONDS.toNanos(2), null,
+                new MigrationException("failed"));
+
+        Timer success = registry.get(MIGRATION_DURATION)
+                .tags("database", "test", "migration", "V1_0__Migration", "outcome", "success").timer();
+        assertThat(success.totalTime(TimeUnit.SECONDS)).isEqualTo(1.0);
+        assertThat(registry.get(DOCUMENTS_READ).tag("migration", "V1_0__Migration").counter().count())
+                .isEqualTo(10.0);
+        assertThat(registry.get(DOCUMENTS_WRITTEN).tag("migration", "V1_0__Migration").counter().count())
+                .isEqualTo(4.0);
+
+        assertThat(registry.get(MIGRATION_DURATION).tags("migration", "V2_0__Migration", "outcome", "failure")
+                .timer().count()).isEqualTo(1);
+        assertThat(registry.get(MIGRATION_FAILURES)
+                .tags("database", "test", "migration", "V2_0__Migration", "exception", "MigrationException")
+                .counter().count()).isEqualTo(1.0);
+        assertThat(registry.find(DOCUMENTS_READ).tag("migration", "V2_0__Migration").counter()).isNull();
+    }
+
+    @Test
+    public void testPercentileHistogramIsOptIn() throws Exception {
+        Map<Boolean, Boolean> histograms = new HashMap<>();
+        for (boolean percentileHistogram : new boolean[] {false, true}) {
+            MeterRegistry capturing = new SimpleMeterRegistry() {
+                @Override
+                protected Timer newTimer(Meter.Id id, DistributionStatisticConfig config, PauseDetector pauseDetector) {
+                    histograms.put(percentileHistogram, config.isPercentileHistogram());
+                    return super.newTimer(id, config, pauseDetector);
+                }
+            };
+            new MicrometerMigrationMetrics(capturing, percentileHistogram).migrationApplied("test", "V1_0__Migration",
+                    TimeUnit.SECONDS.toNanos(1), null);
+        }
+
+        assertThat(histograms).containsEntry(false, false).containsEntry(true, true);
+    }
+}
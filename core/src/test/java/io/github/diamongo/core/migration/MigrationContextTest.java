@@ -0,0 +1,78 @@
+/*
+ * Copyright © 2017 The Diamongo authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.diamongo.core.migration;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.IndexModel;
+import com.mongodb.client.model.Indexes;
+import mockit.Delegate;
+import mockit.Expectations;
+import mockit.Mocked;
+import mockit.Verifications;
+import org.bson.Document;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MigrationContextTest {
+
+    @Mocked
+    private MongoDatabase database;
+
+    @Mocked
+    private MongoCollection<Document> collection;
+
+    @Test
+    public void testIndexBuildsAreBounded() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        new Expectations() {
+            {
+                collection.createIndexes(withInstanceOf(List.class));
+                result = new Delegate<List<String>>() {
+                    @SuppressWarnings("unused")
+                    List<String> createIndexes(List<IndexModel> indexes) throws InterruptedException {
+                        maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                        Thread.sleep(20L);
+                        running.decrementAndGet();
+                        return Collections.singletonList("a_1");
+                    }
+                };
+            }
+        };
+
+        Map<String, List<IndexModel>> indexes = new TreeMap<>();
+        for (int i = 0; i < 20; i++) {
+            indexes.put("collection" + i, Collections.singletonList(new IndexModel(Indexes.ascending("a"))));
+        }
+        new MigrationContext(database, "test").createIndexes(indexes, 3);
+
+        assertThat(maxRunning.get()).isBetween(1, 3);
+        new Verifications() {
+            {
+                collection.createIndexes(withInstanceOf(List.class));
+                times = 20;
+            }
+        };
+    }
+}
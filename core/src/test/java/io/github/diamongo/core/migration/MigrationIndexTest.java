@@ -0,0 +1,81 @@
+/*
+ * Copyright © 2017 The Diamongo authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.diamongo.core.migration;
+
+import com.mongodb.client.MongoDatabase;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static io.github.diamongo.core.migration.MigrationConstants.MIGRATION_INDEX_RESOURCE;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MigrationIndexTest {
+
+    private static final String INDEX = "{\"migrations\": ["
+            + "{\"name\": \"" + Sample.class.getName() + "\", \"type\": \"java\", \"location\": \""
+            + Sample.class.getName() + "\", \"checksum\": \"c1\", \"dependsOn\": [\"a.V0\"], "
+            + "\"collections\": [\"users\"]}, "
+            + "{\"name\": \"a.V2\", \"type\": \"unknown\", \"location\": \"a/V2\", \"checksum\": \"c2\"}]}";
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void testParse() throws Exception {
+        List<MigrationWrapper> wrappers = MigrationIndex.parse(INDEX, getClass().getClassLoader());
+
+        assertThat(wrappers).hasSize(1);
+        MigrationWrapper wrapper = wrappers.get(0);
+        assertThat(wrapper.getName()).isEqualTo(Sample.class.getName());
+        assertThat(wrapper.getChecksum()).isEqualTo("c1");
+        assertThat(wrapper.getDependsOn()).containsOnly("a.V0");
+        assertThat(wrapper.getCollections()).containsOnly("users");
+        assertThat(wrapper.getMigration()).isInstanceOf(Sample.class);
+    }
+
+    @Test
+    public void testLoad() throws Exception {
+        Path root = tempFolder.getRoot().toPath();
+        Path index = root.resolve(MIGRATION_INDEX_RESOURCE);
+        Files.createDirectories(index.getParent());
+        Files.write(index, INDEX.getBytes(StandardCharsets.UTF_8));
+
+        ClassLoader loader = new URLClassLoader(new URL[] {root.toUri().toURL()}, getClass().getClassLoader());
+        assertThat(MigrationIndex.load(loader)).extracting(MigrationWrapper::getName)
+                .containsExactly(Sample.class.getName());
+    }
+
+    @Test
+    public void testLoadWithoutIndex() throws Exception {
+        ClassLoader loader = new URLClassLoader(new URL[] {tempFolder.getRoot().toURI().toURL()}, null);
+        assertThat(MigrationIndex.load(loader)).isNull();
+    }
+
+    public static class Sample implements MongoDatabaseMigration {
+        @Override
+        public void migrate(MongoDatabase database) {
+            //
+        }
+    }
+}
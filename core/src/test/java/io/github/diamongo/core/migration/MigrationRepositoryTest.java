@@ -15,27 +15,49 @@
  */
 package io.github.diamongo.core.migration;
 
-import com.mongodb.MongoWriteException;
+import com.mongodb.MongoCommandException;
 import com.mongodb.ServerAddress;
-import com.mongodb.WriteError;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.ReplaceOptions;
 import mockit.Expectations;
 import mockit.Mocked;
 import mockit.Verifications;
 import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonString;
 import org.bson.Document;
 import org.bson.conversions.Bson;
 import org.hamcrest.BaseMatcher;
 import org.hamcrest.Description;
 import org.junit.Test;
 
-import static io.github.diamongo.core.migration.MigrationRepository.CHANGELOG_LOCK_COLLECTION;
-import static io.github.diamongo.core.migration.MigrationRepository.LOCK_ID;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static io.github.diamongo.core.migration.ChangeLogDocuments.CHANGELOG_COLLECTION;
+import static io.github.diamongo.core.migration.ChangeLogDocuments.CHANGELOG_LOCK_COLLECTION;
+import static io.github.diamongo.core.migration.ChangeLogDocuments.CHECKPOINT_COLLECTION;
+import static io.github.diamongo.core.migration.ChangeLogDocuments.CHECKSUM_FIELD;
+import static io.github.diamongo.core.migration.ChangeLogDocuments.COUNTERS_FIELD;
+import static io.github.diamongo.core.migration.ChangeLogDocuments.DURATION_FIELD;
+import static io.github.diamongo.core.migration.ChangeLogDocuments.ERROR_FIELD;
+import static io.github.diamongo.core.migration.ChangeLogDocuments.FAILURE_COLLECTION;
+import static io.github.diamongo.core.migration.ChangeLogDocuments.FENCING_TOKEN_FIELD;
+import static io.github.diamongo.core.migration.ChangeLogDocuments.LAST_ID_FIELD;
+import static io.github.diamongo.core.migration.ChangeLogDocuments.LOCK_ID;
+import static io.github.diamongo.core.migration.ChangeLogDocuments.MIGRATION_FIELD;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
 
 public class MigrationRepositoryTest {
-    private Document lock = new Document("_id", LOCK_ID);
+    private Document lock = new Document("_id", LOCK_ID).append(FENCING_TOKEN_FIELD, 42L);
 
     @Mocked
     private MongoDatabase database;
@@ -49,31 +71,42 @@ public class MigrationRepositoryTest {
             {
                 database.getCollection(CHANGELOG_LOCK_COLLECTION);
                 result = collection;
+
+                collection.findOneAndUpdate((Bson) any, (Bson) any, (FindOneAndUpdateOptions) any);
+                result = lock;
             }
         };
 
         MigrationRepository repo = new MigrationRepository(database);
         boolean actual = repo.tryLock();
         assertThat(actual).isTrue();
+        assertThat(repo.getFencingToken()).isEqualTo(42L);
+        repo.releaseLock();
 
         new Verifications() {
             {
-                collection.insertOne(withArgThat(new DocumentIdMatcher(lock)));
+                FindOneAndUpdateOptions options;
+                collection.findOneAndUpdate((Bson) any, (Bson) any, options = withCapture());
+                times = 2;
+                assertThat(options.isUpsert()).isTrue();
+
+                collection.createIndex((Bson) any, withArgThat(new TtlIndexMatcher()));
             }
         };
     }
 
     @Test
     public void testTryLockFailed() throws Exception {
-        MongoWriteException duplicateKeyError = new MongoWriteException(
-                new WriteError(11000, "message", new BsonDocument()), new ServerAddress());
+        MongoCommandException duplicateKeyError = new MongoCommandException(
+                new BsonDocument("code", new BsonInt32(11000)).append("errmsg", new BsonString("message")),
+                new ServerAddress());
 
         new Expectations() {
             {
                 database.getCollection(CHANGELOG_LOCK_COLLECTION);
                 result = collection;
 
-                collection.insertOne(withInstanceLike(lock));
+                collection.findOneAndUpdate((Bson) any, (Bson) any, (FindOneAndUpdateOptions) any);
                 result = duplicateKeyError;
 
                 collection.find(withInstanceOf(Bson.class)).first();
@@ -87,11 +120,18 @@ public class MigrationRepositoryTest {
 
         new Verifications() {
             {
-                collection.insertOne(withArgThat(new DocumentIdMatcher(new Document("_id", LOCK_ID))));
+                collection.updateOne((Bson) any, (Bson) any);
+                maxTimes = 0;
             }
         };
     }
 
+    @Test(expected = MigrationException.class)
+    public void testFencingTokenWithoutLock() throws Exception {
+        MigrationRepository repo = new MigrationRepository(database);
+        repo.getFencingToken();
+    }
+
     @Test
     public void testReleaseLock() throws Exception {
         MigrationRepository repo = new MigrationRepository(database);
@@ -106,6 +146,13 @@ public class MigrationRepositoryTest {
 
     @Test
     public void testWithLock() throws Exception {
+        new Expectations() {
+            {
+                collection.findOneAndUpdate((Bson) any, (Bson) any, (FindOneAndUpdateOptions) any);
+                result = lock;
+            }
+        };
+
         MigrationRepository repo = new MigrationRepository(database);
 
         Runnable runnable = () -> {};
@@ -144,22 +191,256 @@ public class MigrationRepositoryTest {
         };
     }
 
-    static class DocumentIdMatcher extends BaseMatcher<Document> {
+    @Test
+    public void testClear() throws Exception {
+        new Expectations() {
+            {
+                collection.findOneAndUpdate((Bson) any, (Bson) any, (FindOneAndUpdateOptions) any);
+                result = lock;
+            }
+        };
+
+        ClearResult result = new MigrationRepository(database).clear(ClearOptions.CHANGELOG_ONLY);
+        assertThat(result.isCleared()).isTrue();
+        assertThat(result.getDroppedCollections()).isEmpty();
+
+        new Verifications() {
+            {
+                database.listCollectionNames();
+                maxTimes = 0;
+                database.getCollection(CHANGELOG_COLLECTION).drop();
+                database.getCollection(CHECKPOINT_COLLECTION).drop();
+                database.getCollection(FAILURE_COLLECTION).drop();
+                // only the lock document is deleted, which keeps the fencing counter
+                database.getCollection(CHANGELOG_LOCK_COLLECTION).deleteOne((Bson) any);
+                times = 1;
+                collection.drop();
+                times = 3;
+            }
+        };
+    }
+
+    @Test
+    public void testClearResetDatabase() throws Exception {
+        new Expectations() {
+            {
+                collection.findOneAndUpdate((Bson) any, (Bson) any, (FindOneAndUpdateOptions) any);
+                result = lock;
+
+                database.listCollectionNames().into((List<String>) any);
+                result = new ArrayList<>(Arrays.asList("users", CHANGELOG_COLLECTION, CHANGELOG_LOCK_COLLECTION,
+                        "orders", "system.views"));
+            }
+        };
+
+        ClearResult result = new MigrationRepository(database).clear(new ClearOptions(true, 2));
+        assertThat(result.isCleared()).isTrue();
+        assertThat(result.getDroppedCollections()).containsExactly("orders", "users");
+
+        new Verifications() {
+            {
+                database.getCollection("orders").drop();
+                database.getCollection("users").drop();
+                database.getCollection("system.views");
+                maxTimes = 0;
+                collection.drop();
+                times = 5;
+            }
+        };
+    }
+
+    @Test
+    public void testClearLocked() throws Exception {
+        MigrationRepository repo = new MigrationRepository(database);
+        new Expectations(repo) {
+            {
+                repo.tryLock();
+                result = false;
+            }
+        };
+
+        assertThat(repo.clear(new ClearOptions(true, 2)).isCleared()).isFalse();
+
+        new Verifications() {
+            {
+                collection.drop();
+                maxTimes = 0;
+            }
+        };
+    }
+
+    @Test
+    public void testRunMigrationSkipsAppliedMigrations() throws Exception {
+        List<String> executed = new ArrayList<>();
+        MigrationWrapper applied = new MigrationWrapper((Migration<MongoDatabase>) db -> executed.add("applied"), "c1");
+        MigrationWrapper pending = new MigrationWrapper((Migration<MongoDatabase>) db -> executed.add("pending"), "c2");
+        MigrationWrappers wrappers = new MigrationWrappers.Builder()
+                .addMigrationWrapper(applied)
+                .addMigrationWrapper(pending)
+                .build();
+
+        MigrationRepository repo = new MigrationRepository(database);
+
+        new Expectations(repo) {
+            {
+                collection.findOneAndUpdate((Bson) any, (Bson) any, (FindOneAndUpdateOptions) any);
+                result = lock;
+
+                repo.loadAppliedMigrations();
+                result = Collections.singletonMap(applied.getName(), applied.getChecksum());
+
+                repo.loadCheckpoint((MigrationWrapper) any);
+                result = null;
+            }
+        };
+
+        boolean actual = repo.runMigration(wrappers);
+        assertThat(actual).isTrue();
+        assertThat(executed).containsExactly("pending");
+
+        new Verifications() {
+            {
+                Document entry;
+                collection.insertOne(entry = withCapture());
+                times = 1;
+
+                assertThat(entry.getString(MIGRATION_FIELD)).isEqualTo(pending.getName());
+                assertThat(entry.getString(CHECKSUM_FIELD)).isEqualTo("c2");
+                assertThat(entry.get(DURATION_FIELD)).isNotNull();
+                assertThat(entry.getLong(FENCING_TOKEN_FIELD)).isEqualTo(42L);
+            }
+        };
+    }
+
+    @Test
+    public void testResumeFromCheckpoint() throws Exception {
+        Checkpoint checkpoint = new Checkpoint(41, Collections.singletonMap(Checkpointer.PROCESSED, 41L));
+        List<Object> resumedIds = new ArrayList<>();
+        MigrationWrapper wrapper = new MigrationWrapper((MigrationContextMigration) context -> {
+            Checkpointer checkpointer = context.checkpointer(10, Duration.ofMinutes(1));
+            resumedIds.add(checkpointer.isResumed() ? checkpointer.getLastId() : null);
+            checkpointer.processed(42);
+        }, "c1");
+
+        MigrationRepository repo = new MigrationRepository(database);
+
+        new Expectations(repo) {
+            {
+                collection.findOneAndUpdate((Bson) any, (Bson) any, (FindOneAndUpdateOptions) any);
+                result = lock;
+
+                repo.loadAppliedMigrations();
+                result = Collections.emptyMap();
+
+                repo.loadCheckpoint(wrapper);
+                result = checkpoint;
+            }
+        };
+
+        repo.runMigration(new MigrationWrappers.Builder().addMigrationWrapper(wrapper).build());
+        assertThat(resumedIds).containsExactly(41);
+
+        new Verifications() {
+            {
+                Document entry;
+                collection.insertOne(entry = withCapture());
+                assertThat(entry.get(COUNTERS_FIELD, Document.class)).containsEntry(Checkpointer.PROCESSED, 42L);
+
+                database.getCollection(CHECKPOINT_COLLECTION).deleteOne((Bson) any);
+            }
+        };
+    }
+
+    @Test
+    public void testRecordFailure() throws Exception {
+        IllegalStateException error = new IllegalStateException("broken");
+        MigrationWrapper wrapper = new MigrationWrapper((Migration<MongoDatabase>) db -> {
+            throw error;
+        }, "c1");
 
-        private Document document;
+        MigrationRepository repo = new MigrationRepository(database);
 
-        DocumentIdMatcher(Document document) {
-            this.document = document;
+        new Expectations(repo) {
+            {
+                collection.findOneAndUpdate((Bson) any, (Bson) any, (FindOneAndUpdateOptions) any);
+                result = lock;
+
+                repo.loadAppliedMigrations();
+                result = Collections.emptyMap();
+
+                repo.loadCheckpoint(wrapper);
+                result = null;
+            }
+        };
+
+        try {
+            repo.runMigration(new MigrationWrappers.Builder().addMigrationWrapper(wrapper).build());
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException ex) {
+            assertThat(ex).isSameAs(error);
         }
 
+        new Verifications() {
+            {
+                Document failure;
+                database.getCollection(FAILURE_COLLECTION).replaceOne((Bson) any, failure = withCapture(),
+                        (ReplaceOptions) any);
+                assertThat(failure.getString("_id")).isEqualTo(wrapper.getName());
+                assertThat(failure.getString(CHECKSUM_FIELD)).isEqualTo("c1");
+                assertThat(failure.getString(ERROR_FIELD)).contains("broken");
+
+                collection.insertOne((Document) any);
+                maxTimes = 0;
+            }
+        };
+    }
+
+    @Test
+    public void testReactiveMigrationRequiresReactiveBackend() throws Exception {
+        ReactiveMigration migration = context -> {
+            throw new AssertionError("reactive migration must not be executed");
+        };
+
+        try {
+            MigrationRepository.execute(migration, new MigrationContext(database, "io.github.V1__Reactive"));
+            fail("MigrationException expected");
+        } catch (MigrationException ex) {
+            assertThat(ex.getMessage()).contains("io.github.V1__Reactive", "backend=reactive");
+        }
+    }
+
+    @Test
+    public void testDiscardCheckpointOfChangedMigration() throws Exception {
+        MigrationWrapper wrapper = new MigrationWrapper((MigrationContextMigration) context -> { }, "edited");
+        new Expectations() {
+            {
+                collection.find((Bson) any).first();
+                result = new Document("_id", wrapper.getName()).append(CHECKSUM_FIELD, "original")
+                        .append(LAST_ID_FIELD, 41);
+            }
+        };
+
+        assertThat(new MigrationRepository(database).loadCheckpoint(wrapper)).isNull();
+
+        new Verifications() {
+            {
+                collection.deleteOne((Bson) any);
+                times = 1;
+            }
+        };
+    }
+
+    static class TtlIndexMatcher extends BaseMatcher<IndexOptions> {
+
         @Override
         public boolean matches(Object argValue) {
-            return argValue instanceof Document && ((Document) argValue).getObjectId("_id").equals(LOCK_ID);
+            return argValue instanceof IndexOptions
+                    && Long.valueOf(0L).equals(((IndexOptions) argValue).getExpireAfter(TimeUnit.SECONDS));
         }
 
         @Override
         public void describeTo(Description description) {
-            description.appendValue(document.getObjectId("_id"));
+            description.appendText("TTL index options");
         }
     }
 }
@@ -0,0 +1,130 @@
+/*
+ * Copyright © 2017 The Diamongo authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.diamongo.core.migration;
+
+import mockit.Expectations;
+import mockit.Mocked;
+import mockit.Verifications;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MigrationRunnerTest {
+
+    @Mocked
+    private MigrationRepository repository;
+
+    @Mocked
+    private MigrationWrappers wrappers;
+
+    @Test
+    public void testNoWait() throws Exception {
+        new Expectations() {
+            {
+                repository.runMigration(wrappers);
+                result = false;
+            }
+        };
+
+        new MigrationRunner(repository).runMigration(wrappers);
+
+        new Verifications() {
+            {
+                repository.runMigration(wrappers);
+                times = 1;
+            }
+        };
+    }
+
+    @Test
+    public void testWaitForLock() throws Exception {
+        LockWaitOptions options = new LockWaitOptions(Duration.ofSeconds(10), Duration.ofMillis(1),
+                Duration.ofMillis(10), true);
+
+        new Expectations() {
+            {
+                repository.runMigration(wrappers);
+                returns(false, false, true);
+            }
+        };
+
+        new MigrationRunner(repository, options).runMigration(wrappers);
+
+        new Verifications() {
+            {
+                repository.runMigration(wrappers);
+                times = 3;
+
+                repository.awaitLockRelease(withInstanceOf(Duration.class));
+                times = 2;
+            }
+        };
+    }
+
+    @Test
+    public void testWaitForLockMetrics(@Mocked MigrationMetrics metrics) throws Exception {
+        LockWaitOptions options = new LockWaitOptions(Duration.ofSeconds(10), Duration.ofMillis(1),
+                Duration.ofMillis(10), false);
+
+        new Expectations() {
+            {
+                repository.runMigration(wrappers);
+                returns(false, true);
+            }
+        };
+
+        new MigrationRunner(repository, options, metrics, "test").runMigration(wrappers);
+
+        new Verifications() {
+            {
+                metrics.lockWait("test", true, anyLong);
+                times = 1;
+            }
+        };
+    }
+
+    @Test(expected = MigrationException.class)
+    public void testWaitForLockTimeout() throws Exception {
+        LockWaitOptions options = new LockWaitOptions(Duration.ofMillis(50), Duration.ofMillis(10),
+                Duration.ofMillis(20), false);
+
+        new Expectations() {
+            {
+                repository.runMigration(wrappers);
+                result = false;
+            }
+        };
+
+        new MigrationRunner(repository, options).runMigration(wrappers);
+    }
+
+    @Test
+    public void testBackoffDelay() throws Exception {
+        LockWaitOptions options = new LockWaitOptions(Duration.ofMinutes(1), Duration.ofMillis(100),
+                Duration.ofSeconds(1), false);
+        Random random = new Random(42);
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(options.nextDelayMillis(0, random)).isBetween(50L, 100L);
+            assertThat(options.nextDelayMillis(2, random)).isBetween(200L, 400L);
+            assertThat(options.nextDelayMillis(10, random)).isBetween(500L, 1000L);
+            assertThat(options.nextDelayMillis(100, random)).isBetween(500L, 1000L);
+        }
+    }
+}
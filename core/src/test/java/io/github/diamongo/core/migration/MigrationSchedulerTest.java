@@ -0,0 +1,119 @@
+/*
+ * Copyright © 2017 The Diamongo authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.diamongo.core.migration;
+
+import com.mongodb.client.MongoDatabase;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class MigrationSchedulerTest {
+
+    private final MigrationWrapper users1 = new MigrationWrapper(new Users1(), "c1");
+    private final MigrationWrapper orders = new MigrationWrapper(new Orders(), "c2");
+    private final MigrationWrapper users2 = new MigrationWrapper(new Users2(), "c3");
+    private final MigrationWrapper reports = new MigrationWrapper(new Reports(), "c4");
+    private final MigrationWrapper unknown = new MigrationWrapper(new Unknown(), "c5");
+
+    @Test
+    public void testBuildGraph() throws Exception {
+        Map<MigrationWrapper, List<MigrationWrapper>> graph = new MigrationScheduler(4)
+                .buildGraph(asList(users1, orders, users2, reports, unknown));
+
+        assertThat(graph.keySet()).containsExactly(users1, orders, users2, reports, unknown);
+        assertThat(graph.get(users1)).isEmpty();
+        assertThat(graph.get(orders)).isEmpty();
+        assertThat(graph.get(users2)).containsExactly(users1);
+        assertThat(graph.get(reports)).containsExactly(orders);
+        assertThat(graph.get(unknown)).containsExactly(users1, orders, users2, reports);
+    }
+
+    @Test
+    public void testExecuteRespectsDependencies() throws Exception {
+        List<MigrationWrapper> executed = new CopyOnWriteArrayList<>();
+        new MigrationScheduler(4).execute(asList(users1, orders, users2, reports, unknown), executed::add);
+
+        assertThat(executed).containsOnly(users1, orders, users2, reports, unknown);
+        assertThat(executed.indexOf(users1)).isLessThan(executed.indexOf(users2));
+        assertThat(executed.indexOf(orders)).isLessThan(executed.indexOf(reports));
+        assertThat(executed.indexOf(unknown)).isEqualTo(4);
+    }
+
+    @Test
+    public void testFailurePropagation() throws Exception {
+        List<MigrationWrapper> executed = new CopyOnWriteArrayList<>();
+        try {
+            new MigrationScheduler(4).execute(asList(users1, orders, users2, reports), wrapper -> {
+                if (wrapper == users1) {
+                    throw new IllegalStateException("boom");
+                }
+                executed.add(wrapper);
+            });
+            fail("MigrationException expected");
+        } catch (MigrationException ex) {
+            assertThat(ex.getCause()).hasMessage("boom");
+            assertThat(ex.getMessage()).contains(users1.getName(), users2.getName());
+        }
+
+        assertThat(executed).containsOnly(orders, reports);
+    }
+
+    @MigrationMarker(collections = "users")
+    static class Users1 implements MongoDatabaseMigration {
+        @Override
+        public void migrate(MongoDatabase database) {
+            //
+        }
+    }
+
+    @MigrationMarker(collections = "orders")
+    static class Orders implements MongoDatabaseMigration {
+        @Override
+        public void migrate(MongoDatabase database) {
+            //
+        }
+    }
+
+    @MigrationMarker(collections = "users", dependsOn = Users1.class)
+    static class Users2 implements MongoDatabaseMigration {
+        @Override
+        public void migrate(MongoDatabase database) {
+            //
+        }
+    }
+
+    @MigrationMarker(collections = "reports", dependsOn = Orders.class)
+    static class Reports implements MongoDatabaseMigration {
+        @Override
+        public void migrate(MongoDatabase database) {
+            //
+        }
+    }
+
+    @MigrationMarker
+    static class Unknown implements MongoDatabaseMigration {
+        @Override
+        public void migrate(MongoDatabase database) {
+            //
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright © 2017 The Diamongo authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.diamongo.core.migration;
+
+import io.github.diamongo.core.migration.MigrationStatus.Entry;
+import io.github.diamongo.core.migration.MigrationStatus.State;
+import org.bson.Document;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+public class MigrationStatusTest {
+
+    @Test
+    public void testMerge() {
+        MigrationWrappers wrappers = new MigrationWrappers.Builder()
+                .addMigrationWrapper(wrapper("V3__edited.js", "c3"))
+                .addMigrationWrapper(wrapper("V1__applied.js", "c1"))
+                .addMigrationWrapper(wrapper("V4__pending.js", "c4"))
+                .build();
+        Date finishedAt = new Date();
+
+        MigrationStatus status = MigrationStatus.of(wrappers, Arrays.asList(
+                new AppliedMigration("V3__edited.js", "old", finishedAt, 30),
+                new AppliedMigration("V2__deleted.js", "c2", finishedAt, 20),
+                new AppliedMigration("V1__applied.js", "c1", finishedAt, 10)),
+                Collections.singleton("V4__pending.js"));
+
+        assertThat(status.getEntries())
+                .extracting(Entry::getName, Entry::getState, Entry::getChecksum, Entry::getAppliedChecksum,
+                        Entry::getDurationMillis, Entry::isIncomplete)
+                .containsExactly(
+                        tuple("V1__applied.js", State.APPLIED, "c1", "c1", 10L, false),
+                        tuple("V3__edited.js", State.CHECKSUM_MISMATCH, "c3", "old", 30L, false),
+                        tuple("V4__pending.js", State.PENDING, "c4", null, null, true),
+                        tuple("V2__deleted.js", State.MISSING_LOCALLY, null, "c2", 20L, false));
+        assertThat(status.getEntries(State.PENDING)).extracting(Entry::getName).containsExactly("V4__pending.js");
+        assertThat(status.count(State.APPLIED)).isEqualTo(1);
+        assertThat(status.isUpToDate()).isFalse();
+    }
+
+    @Test
+    public void testUpToDate() {
+        MigrationWrappers wrappers = new MigrationWrappers.Builder()
+                .addMigrationWrapper(wrapper("V1__applied.js", "c1"))
+                .build();
+
+        MigrationStatus status = MigrationStatus.of(wrappers, Arrays.asList(
+                new AppliedMigration("V1__applied.js", "c1", new Date(), 10),
+                new AppliedMigration("V0__deleted.js", "c0", new Date(), 10)), Collections.emptySet());
+
+        assertThat(status.isUpToDate()).isTrue();
+    }
+
+    @Test
+    public void testFailed() {
+        MigrationWrappers wrappers = new MigrationWrappers.Builder()
+                .addMigrationWrapper(wrapper("V1__applied.js", "c1"))
+                .addMigrationWrapper(wrapper("V2__failed.js", "c2"))
+                .build();
+
+        MigrationStatus status = MigrationStatus.of(wrappers, Collections.singletonList(
+                new AppliedMigration("V1__applied.js", "c1", new Date(), 10)), Collections.emptySet(),
+                new HashSet<>(Arrays.asList("V1__applied.js", "V2__failed.js")));
+
+        assertThat(status.getEntries()).extracting(Entry::getName, Entry::getState).containsExactly(
+                tuple("V1__applied.js", State.APPLIED),
+                tuple("V2__failed.js", State.FAILED));
+        assertThat(status.isUpToDate()).isFalse();
+    }
+
+    @Test
+    public void testAppliedMigrationFromAggregation() {
+        Date finishedAt = new Date();
+        AppliedMigration migration = ChangeLogDocuments.toAppliedMigration(new Document("_id", "V1__test.js")
+                .append(ChangeLogDocuments.LATEST_FIELD, new Document(ChangeLogDocuments.FINISHED_AT_FIELD, finishedAt)
+                        .append(ChangeLogDocuments.CHECKSUM_FIELD, "c1")
+                        .append(ChangeLogDocuments.DURATION_FIELD, 12L)));
+
+        assertThat(migration.getName()).isEqualTo("V1__test.js");
+        assertThat(migration.getChecksum()).isEqualTo("c1");
+        assertThat(migration.getFinishedAt()).isEqualTo(finishedAt);
+        assertThat(migration.getDurationMillis()).isEqualTo(12L);
+    }
+
+    @Test
+    public void testStatusFromAggregation() {
+        MigrationWrappers wrappers = new MigrationWrappers.Builder()
+                .addMigrationWrapper(wrapper("V1__applied.js", "c1"))
+                .addMigrationWrapper(wrapper("V2__failed.js", "c2"))
+                .addMigrationWrapper(wrapper("V3__interrupted.js", "c3"))
+                .build();
+        Document latest = new Document(ChangeLogDocuments.FINISHED_AT_FIELD, new Date())
+                .append(ChangeLogDocuments.CHECKSUM_FIELD, "c1");
+
+        MigrationStatus status = ChangeLogDocuments.toMigrationStatus(wrappers, Arrays.asList(
+                new Document("_id", "V1__applied.js").append(ChangeLogDocuments.LATEST_FIELD, latest)
+                        .append(ChangeLogDocuments.INCOMPLETE_FIELD, null)
+                        .append(ChangeLogDocuments.FAILED_FIELD, true),
+                new Document("_id", "V2__failed.js").append(ChangeLogDocuments.LATEST_FIELD, null)
+                        .append(ChangeLogDocuments.INCOMPLETE_FIELD, true)
+                        .append(ChangeLogDocuments.FAILED_FIELD, true),
+                new Document("_id", "V3__interrupted.js").append(ChangeLogDocuments.LATEST_FIELD, null)
+                        .append(ChangeLogDocuments.INCOMPLETE_FIELD, true)
+                        .append(ChangeLogDocuments.FAILED_FIELD, null)));
+
+        assertThat(status.getEntries()).extracting(Entry::getName, Entry::getState, Entry::isIncomplete)
+                .containsExactly(
+                        tuple("V1__applied.js", State.APPLIED, false),
+                        tuple("V2__failed.js", State.FAILED, true),
+                        tuple("V3__interrupted.js", State.PENDING, true));
+    }
+
+    private static MigrationWrapper wrapper(String name, String checksum) {
+        return new MigrationWrapper(name, checksum, Collections.emptyList(), Collections.emptyList(), () -> null);
+    }
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright © 2017 The Diamongo authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.diamongo.core.migration;
+
+import com.mongodb.client.MongoDatabase;
+import io.github.diamongo.core.migration.ValidationReport.Type;
+import io.github.diamongo.core.migration.ValidationReport.Violation;
+import io.github.diamongo.core.util.ChecksumUtils;
+import mockit.Expectations;
+import mockit.Mocked;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.function.Supplier;
+
+import static java.util.Collections.singletonList;
+import static java.util.Collections.singletonMap;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class MigrationValidatorTest {
+
+    private static final String SOURCE = "package io.github.diamongo.core.migration;\n\nclass MigrationValidatorTest {}\n";
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Mocked
+    private ChangeLogRepository repository;
+
+    @Test
+    public void testValid() throws Exception {
+        String checksum = ChecksumUtils.normalizedSha256(SOURCE);
+        MigrationWrapper wrapper = new MigrationWrapper(new Sample(), checksum);
+        new Expectations() {
+            {
+                repository.loadAppliedMigrations();
+                result = singletonMap(wrapper.getName(), checksum);
+            }
+        };
+
+        new MigrationValidator(repository, singletonList(writeSource()))
+                .validateMigrationWrappers(wrappers(wrapper));
+    }
+
+    @Test
+    public void testChangeLogDrift() throws Exception {
+        MigrationWrapper wrapper = new MigrationWrapper(new Sample(), "edited");
+        new Expectations() {
+            {
+                repository.loadAppliedMigrations();
+                result = singletonMap(wrapper.getName(), "applied");
+            }
+        };
+
+        try {
+            new MigrationValidator(repository, Collections.emptyList()).validateMigrationWrappers(wrappers(wrapper));
+            fail("MigrationException expected");
+        } catch (MigrationException ex) {
+            assertThat(ex.getMessage()).contains(wrapper.getName(), "edited", "applied", "changelog");
+        }
+    }
+
+    @Test
+    public void testSourceDrift() throws Exception {
+        MigrationWrapper wrapper = new MigrationWrapper(new Sample(), "compiled");
+        new Expectations() {
+            {
+                repository.loadAppliedMigrations();
+                result = Collections.emptyMap();
+            }
+        };
+
+        try {
+            new MigrationValidator(repository, singletonList(writeSource()))
+                    .validateMigrationWrappers(wrappers(wrapper));
+            fail("MigrationException expected");
+        } catch (MigrationException ex) {
+            assertThat(ex.getMessage()).contains(wrapper.getName(), ChecksumUtils.normalizedSha256(SOURCE),
+                    "compiled");
+        }
+    }
+
+    @Test
+    public void testMissingSourceIgnored() throws Exception {
+        MigrationWrapper wrapper = new MigrationWrapper(new Sample(), "compiled");
+        MigrationValidator validator = new MigrationValidator(repository, singletonList(tempFolder.getRoot().toPath()));
+
+        assertThat(validator.computeSourceChecksums(singletonList(wrapper))).isEmpty();
+    }
+
+    @Test
+    public void testAllViolationsReported() {
+        MigrationWrapper applied = wrapper("io.github.V2__Applied", "edited", Sample::new);
+        MigrationWrapper outOfOrder = wrapper("io.github.V1__OutOfOrder", "checksum", Sample::new);
+        MigrationWrapper duplicate = wrapper("io.github.V3__Duplicate", "checksum", Sample::new);
+        MigrationWrapper broken = wrapper("io.github.V3_0__Broken", "checksum", () -> {
+            throw new NoClassDefFoundError("io/github/Missing");
+        });
+        new Expectations() {
+            {
+                repository.loadAppliedMigrations();
+                result = singletonMap(applied.getName(), "applied");
+            }
+        };
+
+        ValidationReport report = new MigrationValidator(repository, Collections.emptyList())
+                .validate(new MigrationWrappers.Builder()
+                        .addMigrationWrapper(applied)
+                        .addMigrationWrapper(outOfOrder)
+                        .addMigrationWrapper(duplicate)
+                        .addMigrationWrapper(broken)
+                        .build());
+
+        assertThat(report.isValid()).isFalse();
+        assertThat(report.getViolations()).extracting(Violation::getType).containsExactly(Type.DUPLICATE_VERSION,
+                Type.DUPLICATE_VERSION, Type.OUT_OF_ORDER, Type.CHANGELOG_CHECKSUM, Type.NOT_LOADABLE);
+        assertThat(report.getViolations(Type.OUT_OF_ORDER)).extracting(Violation::getMigration)
+                .containsExactly(outOfOrder.getName());
+        assertThat(report.getViolations(Type.NOT_LOADABLE)).extracting(Violation::getMessage)
+                .containsExactly("java.lang.NoClassDefFoundError: io/github/Missing");
+        assertThat(report.toString()).contains("5 violation(s)", duplicate.getName(), broken.getName());
+    }
+
+    @Test
+    public void testInvalidDependencies() {
+        MigrationWrapper first = new MigrationWrapper("io.github.V1__First", "checksum",
+                singletonList("io.github.V2__Second"), Collections.emptyList(), Sample::new);
+        MigrationWrapper second = new MigrationWrapper("io.github.V2__Second", "checksum",
+                Arrays.asList("io.github.V1__First", "io.github.V0__Missing"), Collections.emptyList(), Sample::new);
+        new Expectations() {
+            {
+                repository.loadAppliedMigrations();
+                result = Collections.emptyMap();
+            }
+        };
+
+        ValidationReport report = new MigrationValidator(repository, Collections.emptyList())
+                .validate(new MigrationWrappers.Builder()
+                        .addMigrationWrapper(second)
+                        .addMigrationWrapper(first)
+                        .build());
+
+        assertThat(report.getViolations()).extracting(Violation::getType)
+                .containsOnly(Type.INVALID_DEPENDENCY);
+        assertThat(report.getViolations()).extracting(Violation::getMigration)
+                .containsExactly(first.getName(), second.getName());
+        assertThat(report.getViolations()).extracting(Violation::getMessage)
+                .containsExactly("depends on migration io.github.V2__Second which does not precede it",
+                        "depends on unknown migration io.github.V0__Missing");
+    }
+
+    @Test
+    public void testReactiveMigrationRequiresReactiveBackend() {
+        MigrationWrapper reactive = wrapper("io.github.V1__Reactive", "checksum",
+                () -> (ReactiveMigration) context -> null);
+        new Expectations() {
+            {
+                repository.loadAppliedMigrations();
+                result = Collections.emptyMap();
+
+                repository.supportsReactiveMigrations();
+                result = false;
+            }
+        };
+
+        ValidationReport report = new MigrationValidator(repository, Collections.emptyList())
+                .validate(wrappers(reactive));
+
+        assertThat(report.getViolations()).extracting(Violation::getType)
+                .containsExactly(Type.UNSUPPORTED_BACKEND);
+        assertThat(report.getViolations()).extracting(Violation::getMessage)
+                .containsExactly("reactive migration requires backend=reactive");
+    }
+
+    @Test
+    public void testAppliedMigrationsNotInstantiated() {
+        MigrationWrapper applied = wrapper("io.github.V1__Applied", "checksum", () -> {
+            throw new AssertionError("applied migration must not be instantiated");
+        });
+        new Expectations() {
+            {
+                repository.loadAppliedMigrations();
+                result = singletonMap(applied.getName(), "checksum");
+            }
+        };
+
+        assertThat(new MigrationValidator(repository, Collections.emptyList()).validate(wrappers(applied)).isValid())
+                .isTrue();
+    }
+
+    private Path writeSource() throws Exception {
+        Path dir = tempFolder.getRoot().toPath();
+        Path source = dir.resolve("io/github/diamongo/core/migration/MigrationValidatorTest.java");
+        Files.createDirectories(source.getParent());
+        Files.write(source, SOURCE.getBytes(StandardCharsets.UTF_8));
+        return dir;
+    }
+
+    private static MigrationWrapper wrapper(String name, String checksum, Supplier<Migration<?>> factory) {
+        return new MigrationWrapper(name, checksum, Collections.emptyList(), Collections.emptyList(), factory);
+    }
+
+    private static MigrationWrappers wrappers(MigrationWrapper wrapper) {
+        return new MigrationWrappers.Builder().addMigrationWrapper(wrapper).build();
+    }
+
+    static class Sample implements MongoDatabaseMigration {
+        @Override
+        public void migrate(MongoDatabase database) {
+            //
+        }
+    }
+}
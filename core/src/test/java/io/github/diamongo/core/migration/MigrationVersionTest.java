@@ -0,0 +1,65 @@
+/*
+ * Copyright © 2017 The Diamongo authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.diamongo.core.migration;
+
+import org.junit.Test;
+
+import static io.github.diamongo.core.migration.MigrationVersion.fromMigrationName;
+import static io.github.diamongo.core.migration.MigrationVersion.parse;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class MigrationVersionTest {
+
+    @Test
+    public void testCompare() {
+        assertThat(parse("1.2")).isLessThan(parse("1.10"));
+        assertThat(parse("2")).isGreaterThan(parse("1.99.99"));
+        assertThat(parse("1.0.1")).isGreaterThan(parse("1"));
+        assertThat(parse("1_0")).isEqualByComparingTo(parse("1"));
+    }
+
+    @Test
+    public void testTrailingZerosInsignificant() {
+        assertThat(parse("1.0.0")).isEqualTo(parse("1"));
+        assertThat(parse("1.0.0").hashCode()).isEqualTo(parse("1").hashCode());
+        assertThat(parse("1.0.0")).hasToString("1.0.0");
+        assertThat(parse("0")).isEqualTo(parse("0.0"));
+    }
+
+    @Test
+    public void testFromMigrationName() {
+        assertThat(fromMigrationName("io.github.diamongo.V1_0__CreateUsers")).isEqualTo(parse("1.0"));
+        assertThat(fromMigrationName("V2_1_3__add_index.js")).isEqualTo(parse("2.1.3"));
+        assertThat(fromMigrationName("io.github.V1_0__Outer$V1_1__Inner")).isEqualTo(parse("1.1"));
+        assertThat(fromMigrationName("io.github.V1_0__Outer$Inner")).isEqualTo(parse("1.0"));
+        assertThat(fromMigrationName("io.github.diamongo.NoVersion")).isNull();
+        assertThat(fromMigrationName("io.github.diamongo.XV1_0__Test")).isNull();
+        assertThat(fromMigrationName("V1_0_Test")).isNull();
+    }
+
+    @Test
+    public void testInvalid() {
+        for (String version : new String[] {"", "1.", "a", "1..2", "99999999999999999999"}) {
+            try {
+                parse(version);
+                fail("MigrationException expected for " + version);
+            } catch (MigrationException ex) {
+                assertThat(ex.getMessage()).contains(version);
+            }
+        }
+    }
+}
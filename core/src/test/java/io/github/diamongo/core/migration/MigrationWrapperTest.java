@@ -0,0 +1,73 @@
+/*
+ * Copyright © 2017 The Diamongo authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.diamongo.core.migration;
+
+import com.mongodb.client.MongoDatabase;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MigrationWrapperTest {
+
+    @Test
+    public void testEager() throws Exception {
+        Sample migration = new Sample();
+        MigrationWrapper wrapper = new MigrationWrapper(migration, "checksum");
+
+        assertThat(wrapper.getName()).isEqualTo(Sample.class.getName());
+        assertThat(wrapper.getMigration()).isSameAs(migration);
+        assertThat(wrapper.getCollections()).containsOnly("users");
+        assertThat(wrapper.getDependsOn()).isEmpty();
+    }
+
+    @Test
+    public void testLazy() throws Exception {
+        AtomicInteger created = new AtomicInteger();
+        MigrationWrapper wrapper = new MigrationWrapper("V1_0__Sample", "checksum", singletonList("V0_9__Init"),
+                asList("users", "orders"), () -> {
+                    created.incrementAndGet();
+                    return new Sample();
+                });
+
+        assertThat(wrapper.getName()).isEqualTo("V1_0__Sample");
+        assertThat(wrapper.getChecksum()).isEqualTo("checksum");
+        assertThat(wrapper.getDependsOn()).containsOnly("V0_9__Init");
+        assertThat(wrapper.getCollections()).containsOnly("users", "orders");
+        assertThat(created.get()).isZero();
+
+        Migration migration = wrapper.getMigration();
+        assertThat(wrapper.getMigration()).isSameAs(migration);
+        assertThat(created.get()).isEqualTo(1);
+    }
+
+    @Test(expected = MigrationException.class)
+    public void testLazyNull() throws Exception {
+        new MigrationWrapper("V1_0__Sample", "checksum", singletonList("V0_9__Init"), singletonList("users"),
+                () -> null).getMigration();
+    }
+
+    @MigrationMarker(collections = "users")
+    static class Sample implements MongoDatabaseMigration {
+        @Override
+        public void migrate(MongoDatabase database) {
+            //
+        }
+    }
+}
@@ -18,6 +18,8 @@ package io.github.diamongo.core.migration;
 import mockit.Mocked;
 import org.junit.Test;
 
+import java.util.Collections;
+
 import static org.assertj.core.api.Assertions.assertThat;
 
 public class MigrationWrappersTest {
@@ -54,4 +56,63 @@ public class MigrationWrappersTest {
         assertThat(wrappers3.iterator()).hasSize(4);
         assertThat(wrappers3.stream()).hasSize(4);
     }
+
+    @Test
+    public void testSortedByVersion() {
+        MigrationWrapper unversioned = new MigrationWrapper(migration1, "checksum1");
+        MigrationWrapper v2 = wrapper("io.github.V2_0__Second");
+        MigrationWrapper v1 = wrapper("io.github.V1_0__First");
+        MigrationWrapper v10 = wrapper("V10__tenth.js");
+        MigrationWrapper v1dot1 = wrapper("V1_1__first_fix.json");
+
+        MigrationWrappers wrappers = new MigrationWrappers.Builder()
+                .addMigrationWrapper(unversioned)
+                .addMigrationWrapper(v2)
+                .addMigrationWrapper(v10)
+                .addMigrationWrapper(v1)
+                .addMigrationWrapper(v1dot1)
+                .build();
+
+        assertThat(wrappers).containsExactly(v1, v1dot1, v2, v10, unversioned);
+        assertThat(wrappers.size()).isEqualTo(5);
+    }
+
+    @Test
+    public void testFindAndAfter() {
+        MigrationWrapper v1 = wrapper("V1__first.js");
+        MigrationWrapper v2 = wrapper("V2__second.js");
+        MigrationWrapper v3 = wrapper("V3__third.js");
+        MigrationWrappers wrappers = new MigrationWrappers.Builder()
+                .addMigrationWrapper(v3)
+                .addMigrationWrapper(v1)
+                .addMigrationWrapper(v2)
+                .addMigrationWrapper(new MigrationWrapper(migration1, "checksum1"))
+                .build();
+
+        assertThat(wrappers.find(MigrationVersion.parse("2.0"))).isSameAs(v2);
+        assertThat(wrappers.find(MigrationVersion.parse("2.1"))).isNull();
+        assertThat(wrappers.after(null)).containsExactly(v1, v2, v3);
+        assertThat(wrappers.after(MigrationVersion.parse("1"))).containsExactly(v2, v3);
+        assertThat(wrappers.after(MigrationVersion.parse("1.5"))).containsExactly(v2, v3);
+        assertThat(wrappers.after(MigrationVersion.parse("3"))).isEmpty();
+        assertThat(wrappers.after(MigrationVersion.parse("0"))).containsExactly(v1, v2, v3);
+    }
+
+    @Test
+    public void testDuplicateVersion() {
+        MigrationWrappers wrappers = new MigrationWrappers.Builder()
+                .addMigrationWrapper(wrapper("io.github.V1_0__Java"))
+                .addMigrationWrapper(wrapper("V1__script.js"))
+                .addMigrationWrapper(wrapper("V2__script.js"))
+                .build();
+
+        assertThat(wrappers.size()).isEqualTo(3);
+        assertThat(wrappers.getDuplicateVersions()).containsOnlyKeys(MigrationVersion.parse("1"));
+        assertThat(wrappers.getDuplicateVersions().get(MigrationVersion.parse("1")))
+                .containsExactly("io.github.V1_0__Java", "V1__script.js");
+    }
+
+    private static MigrationWrapper wrapper(String name) {
+        return new MigrationWrapper(name, "checksum", Collections.emptyList(), Collections.emptyList(), () -> null);
+    }
 }
@@ -0,0 +1,92 @@
+/*
+ * Copyright © 2017 The Diamongo authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.diamongo.core.migration;
+
+import io.github.diamongo.core.migration.MultiTenantReport.Outcome;
+import io.github.diamongo.core.migration.MultiTenantReport.Result;
+import mockit.Expectations;
+import mockit.Mocked;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MultiTenantMigrationServiceTest {
+
+    @Mocked
+    private MigrationLoader loader;
+
+    @Test
+    public void testMigrate() {
+        MigrationWrappers wrappers = new MigrationWrappers.Builder().build();
+        new Expectations() {
+            {
+                loader.loadMigrationWrappers();
+                result = wrappers;
+                times = 1;
+            }
+        };
+
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        MultiTenantMigrationService service = new MultiTenantMigrationService(loader,
+                () -> Arrays.asList("tenant1", "locked", "tenant2", "broken", "tenant3"),
+                database -> new MigrationService(null, null, null, null) {
+                    @Override
+                    public boolean migrate(MigrationWrappers migrationWrappers) {
+                        assertThat(migrationWrappers).isSameAs(wrappers);
+                        maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                        try {
+                            Thread.sleep(20);
+                        } catch (InterruptedException ex) {
+                            Thread.currentThread().interrupt();
+                        } finally {
+                            running.decrementAndGet();
+                        }
+                        if (database.equals("broken")) {
+                            throw new MigrationException("Checksum validation failed");
+                        }
+                        return !database.equals("locked");
+                    }
+                }, 2, ExecutionMode.PLATFORM);
+
+        MultiTenantReport report = service.migrate();
+
+        assertThat(maxRunning.get()).isBetween(1, 2);
+        assertThat(report.isSuccessful()).isFalse();
+        assertThat(report.getResults()).extracting(Result::getDatabase)
+                .containsExactly("broken", "locked", "tenant1", "tenant2", "tenant3");
+        assertThat(report.count(Outcome.MIGRATED)).isEqualTo(3);
+        assertThat(report.getResults(Outcome.LOCKED)).extracting(Result::getDatabase).containsExactly("locked");
+        assertThat(report.getResults(Outcome.FAILED)).extracting(Result::getDatabase).containsExactly("broken");
+        assertThat(report.getResults(Outcome.FAILED).get(0).getFailure()).isInstanceOf(MigrationException.class);
+        assertThat(report.toString()).contains("5 database(s)", "3 migrated, 1 locked, 1 failed",
+                "broken FAILED", "Checksum validation failed");
+    }
+
+    @Test
+    public void testNoDatabases() {
+        MultiTenantReport report = new MultiTenantMigrationService(loader, () -> Arrays.asList(),
+                database -> {
+                    throw new AssertionError("no database expected");
+                }, 4, ExecutionMode.PLATFORM).migrate();
+
+        assertThat(report.getResults()).isEmpty();
+        assertThat(report.isSuccessful()).isTrue();
+    }
+}
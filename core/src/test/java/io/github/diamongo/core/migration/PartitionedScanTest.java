@@ -0,0 +1,138 @@
+/*
+ * Copyright © 2017 The Diamongo authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.diamongo.core.migration;
+
+import com.mongodb.MongoNamespace;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import mockit.Expectations;
+import mockit.Mocked;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import org.junit.Test;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class PartitionedScanTest {
+
+    @Mocked
+    private MongoDatabase database;
+
+    @Mocked
+    private MongoCollection<Document> collection;
+
+    @Test
+    public void testBisectNumericIds() throws Exception {
+        new Expectations() {
+            {
+                collection.find(withInstanceOf(Document.class), Document.class).projection((Bson) any).sort((Bson) any).first();
+                returns(new Document("_id", 0), new Document("_id", 100));
+            }
+        };
+
+        List<PartitionedScan.Partition> partitions = new MigrationContext(database, "test")
+                .partitionedScan(collection)
+                .partitions(4)
+                .boundaryDiscovery(PartitionedScan.BoundaryDiscovery.MIN_MAX)
+                .build()
+                .computePartitions();
+
+        assertThat(partitions).hasSize(4);
+        assertThat(partitions.get(0).getLowerBound()).isNull();
+        assertThat(partitions.get(0).getUpperBound()).isEqualTo(25L);
+        assertThat(partitions.get(1).getLowerBound()).isEqualTo(25L);
+        assertThat(partitions.get(2).getUpperBound()).isEqualTo(75L);
+        assertThat(partitions.get(3).getUpperBound()).isNull();
+    }
+
+    @Test
+    public void testBisectObjectIds() throws Exception {
+        ObjectId min = new ObjectId(new Date(1_000_000_000L));
+        ObjectId max = new ObjectId(new Date(1_000_800_000L));
+        new Expectations() {
+            {
+                collection.find(withInstanceOf(Document.class), Document.class).projection((Bson) any).sort((Bson) any).first();
+                returns(new Document("_id", min), new Document("_id", max));
+            }
+        };
+
+        List<PartitionedScan.Partition> partitions = new MigrationContext(database, "test")
+                .partitionedScan(collection)
+                .partitions(2)
+                .boundaryDiscovery(PartitionedScan.BoundaryDiscovery.MIN_MAX)
+                .build()
+                .computePartitions();
+
+        assertThat(partitions).hasSize(2);
+        assertThat(((ObjectId) partitions.get(0).getUpperBound()).getTimestamp()).isEqualTo(1_000_400);
+    }
+
+    @Test
+    public void testForEachPartitionRecordsStats() throws Exception {
+        new Expectations() {
+            {
+                collection.getNamespace();
+                result = new MongoNamespace("db", "users");
+                collection.find(withInstanceOf(Document.class), Document.class).projection((Bson) any).sort((Bson) any).first();
+                returns(new Document("_id", 0), new Document("_id", 30));
+            }
+        };
+
+        MigrationContext context = new MigrationContext(database, "test");
+        List<PartitionedScan.Partition> processed = new CopyOnWriteArrayList<>();
+        context.partitionedScan(collection)
+                .partitions(3)
+                .parallelism(2)
+                .boundaryDiscovery(PartitionedScan.BoundaryDiscovery.MIN_MAX)
+                .build()
+                .forEachPartition((partition, documents) -> processed.add(partition));
+
+        assertThat(processed).extracting(PartitionedScan.Partition::getIndex).containsOnly(0, 1, 2);
+        assertThat(context.getStats().getPartitions())
+                .extracting(MigrationStats.PartitionStats::getCollection)
+                .containsOnly("users");
+        assertThat(context.getStats().getPartitions()).hasSize(3);
+    }
+
+    @Test
+    public void testForEachPartitionFailure() throws Exception {
+        new Expectations() {
+            {
+                collection.getNamespace();
+                result = new MongoNamespace("db", "users");
+            }
+        };
+
+        try {
+            new MigrationContext(database, "test")
+                    .partitionedScan(collection)
+                    .partitions(1)
+                    .build()
+                    .forEachPartition((partition, documents) -> {
+                        throw new IllegalStateException("boom");
+                    });
+            fail("MigrationException expected");
+        } catch (MigrationException ex) {
+            assertThat(ex.getCause()).hasMessage("boom");
+        }
+    }
+}
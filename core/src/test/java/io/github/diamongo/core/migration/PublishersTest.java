@@ -0,0 +1,90 @@
+/*
+ * Copyright © 2017 The Diamongo authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.diamongo.core.migration;
+
+import org.junit.Test;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscription;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class PublishersTest {
+
+    @Test
+    public void testDrainRequestsBoundedBatches() throws Exception {
+        List<Long> requests = new ArrayList<>();
+        CompletableFuture<Void> future = Publishers.drain(range(1000, requests, null));
+
+        assertThat(future).isCompleted();
+        assertThat(future.get()).isNull();
+        assertThat(requests).hasSize(8).allMatch(n -> n == 128);
+    }
+
+    @Test
+    public void testDrainFailure() throws Exception {
+        IllegalStateException error = new IllegalStateException("failed");
+        CompletableFuture<Void> future = Publishers.drain(range(10, new ArrayList<>(), error));
+
+        try {
+            Publishers.join(future);
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException ex) {
+            assertThat(ex).isSameAs(error);
+        }
+    }
+
+    /**
+     * Synchronously emits the given number of items as requested, recording the requests.
+     */
+    private static Publisher<Integer> range(int count, List<Long> requests, RuntimeException error) {
+        return subscriber -> subscriber.onSubscribe(new Subscription() {
+            private int emitted;
+            private long demand;
+            private boolean emitting;
+
+            @Override
+            public void request(long n) {
+                requests.add(n);
+                demand += n;
+                if (emitting) {
+                    return;
+                }
+                emitting = true;
+                while (demand > 0 && emitted < count) {
+                    demand--;
+                    subscriber.onNext(emitted++);
+                }
+                emitting = false;
+                if (emitted == count) {
+                    if (error != null) {
+                        subscriber.onError(error);
+                    } else {
+                        subscriber.onComplete();
+                    }
+                }
+            }
+
+            @Override
+            public void cancel() {
+            }
+        });
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright © 2017 The Diamongo authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.diamongo.core.migration;
+
+import com.mongodb.MongoException;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.WriteModel;
+import com.mongodb.reactivestreams.client.MongoCollection;
+import com.mongodb.reactivestreams.client.MongoDatabase;
+import mockit.Delegate;
+import mockit.Expectations;
+import mockit.Mocked;
+import mockit.Verifications;
+import org.bson.Document;
+import org.junit.Test;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.Collections.emptyList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class ReactiveBulkWriterTest {
+
+    @Mocked
+    private MongoDatabase database;
+
+    @Mocked
+    private MongoCollection<Document> collection;
+
+    @Test
+    public void testBatchingWithBackpressure() throws Exception {
+        new Expectations() {
+            {
+                collection.bulkWrite(withInstanceOf(List.class), withInstanceOf(BulkWriteOptions.class));
+                result = new Delegate<Publisher<BulkWriteResult>>() {
+                    Publisher<BulkWriteResult> delegate(List<?> requests, BulkWriteOptions options) {
+                        return Publishers.fromFuture(() -> CompletableFuture.completedFuture(
+                                BulkWriteResult.acknowledged(requests.size(), 0, 0, 0, emptyList())));
+                    }
+                };
+            }
+        };
+
+        ReactiveMigrationContext context = new ReactiveMigrationContext(database, "test");
+        RequestTrackingPublisher source = new RequestTrackingPublisher(25);
+        BulkWriteStats stats = Publishers.join(Publishers.first(context.bulkWriter(collection)
+                .batchSize(10)
+                .ordered(false)
+                .maxInFlight(2)
+                .build()
+                .write(source)));
+
+        assertThat(stats.getRequests()).isEqualTo(25);
+        assertThat(stats.getBatches()).isEqualTo(3);
+        assertThat(context.getStats().getDocumentsWritten()).isEqualTo(25);
+        assertThat(source.maxOutstanding.get()).isLessThanOrEqualTo(20);
+
+        new Verifications() {
+            {
+                collection.bulkWrite(withInstanceOf(List.class), withInstanceOf(BulkWriteOptions.class));
+                times = 3;
+            }
+        };
+    }
+
+    @Test
+    public void testFailureCancelsSource() throws Exception {
+        new Expectations() {
+            {
+                collection.bulkWrite(withInstanceOf(List.class), withInstanceOf(BulkWriteOptions.class));
+                result = (Publisher<BulkWriteResult>) subscriber -> subscriber.onSubscribe(new Subscription() {
+                    @Override
+                    public void request(long n) {
+                        subscriber.onError(new MongoException("boom"));
+                    }
+
+                    @Override
+                    public void cancel() {
+                        //
+                    }
+                });
+            }
+        };
+
+        RequestTrackingPublisher source = new RequestTrackingPublisher(100);
+        try {
+            Publishers.join(Publishers.first(new ReactiveMigrationContext(database, "test").bulkWriter(collection)
+                    .batchSize(10)
+                    .build()
+                    .write(source)));
+            fail("MigrationException expected");
+        } catch (MigrationException ex) {
+            assertThat(ex.getCause()).hasMessage("boom");
+        }
+        assertThat(source.cancelled.get()).isTrue();
+    }
+
+    /**
+     * Emits insert requests synchronously as they are requested, tracking the maximum outstanding demand.
+     */
+    private static final class RequestTrackingPublisher implements Publisher<WriteModel<Document>> {
+        private final int count;
+        private final AtomicLong maxOutstanding = new AtomicLong();
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+
+        RequestTrackingPublisher(int count) {
+            this.count = count;
+        }
+
+        @Override
+        public void subscribe(Subscriber<? super WriteModel<Document>> subscriber) {
+            List<WriteModel<Document>> items = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                items.add(new InsertOneModel<>(new Document("i", i)));
+            }
+            subscriber.onSubscribe(new Subscription() {
+                private long demand;
+                private int next;
+                private boolean emitting;
+
+                @Override
+                public void request(long n) {
+                    demand += n;
+                    maxOutstanding.accumulateAndGet(demand, Math::max);
+                    if (emitting) {
+                        return;
+                    }
+                    emitting = true;
+                    while (demand > 0 && next < items.size() && !cancelled.get()) {
+                        demand--;
+                        subscriber.onNext(items.get(next++));
+                    }
+                    emitting = false;
+                    if (next == items.size() && !cancelled.get()) {
+                        next++;
+                        subscriber.onComplete();
+                    }
+                }
+
+                @Override
+                public void cancel() {
+                    cancelled.set(true);
+                }
+            });
+        }
+    }
+}
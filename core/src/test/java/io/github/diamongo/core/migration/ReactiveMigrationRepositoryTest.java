@@ -0,0 +1,153 @@
+/*
+ * Copyright © 2017 The Diamongo authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.diamongo.core.migration;
+
+import com.mongodb.MongoCommandException;
+import com.mongodb.ServerAddress;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.result.DeleteResult;
+import com.mongodb.client.result.UpdateResult;
+import com.mongodb.reactivestreams.client.Success;
+import com.mongodb.reactivestreams.client.MongoCollection;
+import com.mongodb.reactivestreams.client.MongoDatabase;
+import mockit.Expectations;
+import mockit.Mocked;
+import mockit.Verifications;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonString;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.junit.Test;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscription;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ReactiveMigrationRepositoryTest {
+
+    @Mocked
+    private MongoDatabase database;
+
+    @Mocked
+    private MongoCollection<Document> collection;
+
+    @Test
+    public void testLockHeldByOtherProcess() throws Exception {
+        MongoCommandException duplicateKeyError = new MongoCommandException(
+                new BsonDocument("code", new BsonInt32(11000)).append("errmsg", new BsonString("message")),
+                new ServerAddress());
+        new Expectations() {
+            {
+                collection.createIndex((Bson) any, (IndexOptions) any);
+                result = just("expiresAt_ttl");
+                collection.findOneAndUpdate((Bson) any, (Bson) any, (FindOneAndUpdateOptions) any);
+                result = error(duplicateKeyError);
+                collection.find((Bson) any).first();
+                result = just(new Document("owner", "other"));
+            }
+        };
+
+        ReactiveMigrationRepository repository = new ReactiveMigrationRepository(database);
+        assertThat(repository.runMigration(new MigrationWrappers.Builder().build())).isFalse();
+
+        new Verifications() {
+            {
+                collection.insertOne((Document) any);
+                times = 0;
+                collection.deleteOne((Bson) any);
+                times = 0;
+            }
+        };
+    }
+
+    @Test
+    public void testClearResetDatabase() throws Exception {
+        new Expectations() {
+            {
+                collection.createIndex((Bson) any, (IndexOptions) any);
+                result = just("expiresAt_ttl");
+                collection.findOneAndUpdate((Bson) any, (Bson) any, (FindOneAndUpdateOptions) any);
+                result = just(new Document("fencingToken", 1L));
+                collection.updateOne((Bson) any, (Bson) any);
+                result = just(UpdateResult.acknowledged(1L, 1L, null));
+                database.listCollectionNames();
+                result = items("users", "orders", "diamongoChangeLog", "products");
+                collection.drop();
+                result = just(Success.SUCCESS);
+                collection.deleteOne((Bson) any);
+                result = just(DeleteResult.acknowledged(1L));
+            }
+        };
+
+        ClearResult result = new ReactiveMigrationRepository(database).clear(new ClearOptions(true, 2));
+        assertThat(result.isCleared()).isTrue();
+        assertThat(result.getDroppedCollections()).containsExactly("orders", "products", "users");
+
+        new Verifications() {
+            {
+                collection.drop();
+                times = 6;
+                collection.deleteOne((Bson) any);
+                times = 1;
+            }
+        };
+    }
+
+    @Test(expected = MigrationException.class)
+    public void testFencingTokenWithoutLock() throws Exception {
+        new ReactiveMigrationRepository(database).getFencingToken();
+    }
+
+    private static <T> Publisher<T> just(T item) {
+        return Publishers.fromFuture(() -> CompletableFuture.completedFuture(item));
+    }
+
+    @SafeVarargs
+    private static <T> Publisher<T> items(T... items) {
+        return subscriber -> subscriber.onSubscribe(new Subscription() {
+            @Override
+            public void request(long n) {
+                for (T item : items) {
+                    subscriber.onNext(item);
+                }
+                subscriber.onComplete();
+            }
+
+            @Override
+            public void cancel() {
+                //
+            }
+        });
+    }
+
+    private static <T> Publisher<T> error(Throwable error) {
+        return subscriber -> subscriber.onSubscribe(new Subscription() {
+            @Override
+            public void request(long n) {
+                subscriber.onError(error);
+            }
+
+            @Override
+            public void cancel() {
+                //
+            }
+        });
+    }
+}
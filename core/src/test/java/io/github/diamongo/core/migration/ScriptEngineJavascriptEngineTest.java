@@ -0,0 +1,120 @@
+/*
+ * Copyright © 2017 The Diamongo authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.diamongo.core.migration;
+
+import com.mongodb.client.MongoDatabase;
+import mockit.Mocked;
+import mockit.Verifications;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.script.ScriptEngineManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+import static org.junit.Assume.assumeNotNull;
+
+public class ScriptEngineJavascriptEngineTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private final ScriptEngineJavascriptEngine engine = new ScriptEngineJavascriptEngine("nashorn");
+    private final List<Object> results = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        assumeNotNull(new ScriptEngineManager().getEngineByName("nashorn"));
+    }
+
+    @Test
+    public void testBindings() throws Exception {
+        Map<String, Object> bindings = new HashMap<>();
+        bindings.put("results", results);
+        bindings.put("value", 42);
+
+        engine.execute(script("V1_0__test.js", "results.add('value=' + value);"), "1", bindings);
+
+        assertThat(results).containsExactly("value=42");
+    }
+
+    @Test
+    public void testCompiledOncePerChecksum() throws Exception {
+        Path script = script("V1_0__test.js", "results.add('run');");
+
+        engine.execute(script, "1", bindings());
+        engine.execute(script, "1", bindings());
+        assertThat(engine.getCompiledScriptCount()).isEqualTo(1);
+        assertThat(results).hasSize(2);
+
+        engine.execute(script, "2", bindings());
+        assertThat(engine.getCompiledScriptCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void testGlobalsNotShared() throws Exception {
+        engine.execute(script("V1_0__test.js", "var leaked = 1;"), "1", bindings());
+        engine.execute(script("V2_0__test.js", "results.add(typeof leaked);"), "2", bindings());
+
+        assertThat(results).containsExactly("undefined");
+    }
+
+    @Test
+    public void testScriptError() throws Exception {
+        Path script = script("V1_0__test.js", "throw new Error('boom');");
+        try {
+            engine.execute(script, "1", bindings());
+            fail("MigrationException expected");
+        } catch (MigrationException ex) {
+            assertThat(ex.getMessage()).contains(script.toString());
+            assertThat(ex.getCause()).hasMessageContaining("boom");
+        }
+    }
+
+    @Test
+    public void testDatabaseBinding(@Mocked MongoDatabase database) throws Exception {
+        Path script = script("V1_0__test.js", "db.getCollection('test').drop();");
+
+        new JavascriptMigration(engine, script, "1").migrate(new MigrationContext(database, "V1_0__test.js"));
+
+        new Verifications() {
+            {
+                database.getCollection("test").drop();
+            }
+        };
+    }
+
+    private Map<String, Object> bindings() {
+        Map<String, Object> bindings = new HashMap<>();
+        bindings.put("results", results);
+        return bindings;
+    }
+
+    private Path script(String name, String content) throws Exception {
+        Path script = tempFolder.getRoot().toPath().resolve(name);
+        Files.write(script, content.getBytes(StandardCharsets.UTF_8));
+        return script;
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright © 2017 The Diamongo authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.diamongo.core.util;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class ChecksumCacheTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        Path cacheFile = tempFolder.getRoot().toPath().resolve("cache/checksums.properties");
+        Path source = tempFolder.newFile("V1_0__Test.java").toPath();
+
+        ChecksumCache cache = ChecksumCache.load(cacheFile);
+        assertThat(cache.get(source, attributes(source))).isNull();
+        cache.put(source, attributes(source), "abc");
+        cache.save();
+
+        cache = ChecksumCache.load(cacheFile);
+        assertThat(cache.get(source, attributes(source))).isEqualTo("abc");
+        assertThat(cache.getHits()).isEqualTo(1);
+    }
+
+    @Test
+    public void testChangedSource() throws Exception {
+        Path cacheFile = tempFolder.getRoot().toPath().resolve("checksums.properties");
+        Path source = tempFolder.newFile("V1_0__Test.java").toPath();
+
+        ChecksumCache cache = ChecksumCache.load(cacheFile);
+        cache.put(source, attributes(source), "abc");
+        cache.save();
+
+        Files.write(source, "changed".getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(source, FileTime.fromMillis(0));
+        assertThat(ChecksumCache.load(cacheFile).get(source, attributes(source))).isNull();
+    }
+
+    @Test
+    public void testUnchangedCacheNotWritten() throws Exception {
+        Path cacheFile = tempFolder.getRoot().toPath().resolve("checksums.properties");
+        ChecksumCache.load(cacheFile).save();
+        assertThat(cacheFile).doesNotExist();
+    }
+
+    @Test
+    public void testMalformedCache() throws Exception {
+        Path cacheFile = tempFolder.getRoot().toPath().resolve("checksums.properties");
+        Files.write(cacheFile, "key=\\uXYZ".getBytes(StandardCharsets.ISO_8859_1));
+
+        try {
+            ChecksumCache.load(cacheFile);
+            fail("IOException expected");
+        } catch (IOException ex) {
+            assertThat(ex.getMessage()).contains(cacheFile.toString());
+        }
+    }
+
+    private static BasicFileAttributes attributes(Path path) throws Exception {
+        return Files.readAttributes(path, BasicFileAttributes.class);
+    }
+}
@@ -15,16 +15,36 @@
  */
 package io.github.diamongo.core.util;
 
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Random;
 
 import static io.github.diamongo.core.util.ChecksumUtils.byteArrayToHex;
 import static io.github.diamongo.core.util.ChecksumUtils.normalize;
+import static io.github.diamongo.core.util.ChecksumUtils.normalizedSha256;
 import static io.github.diamongo.core.util.ChecksumUtils.sha256;
 import static org.assertj.core.api.Assertions.assertThat;
 
 public class ChecksumUtilsTest {
 
     private static final String FOO_SHA256 = "2c26b46b68ffc68ff99b453c1d30413413422d706483bfa0f98a5e886266e7ae";
+    private static final String SOURCE = "  public class V1_0__Init {\r\n\t// caf\u00e9 \u20ac \ud83d\ude00\n\n}\u000b\f ";
+    private static final char[] ALPHABET = {'a', 'Z', '0', ' ', '\t', '\n', '\u000b', '\f', '\r', '\u00e9', '\u20ac',
+        '\u2003', '\ud83d', '\ude00'};
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
 
     @Test
     public void testSha256() {
@@ -37,6 +57,70 @@ public class ChecksumUtilsTest {
         sha256(null);
     }
 
+    @Test
+    public void testSha256MatchesCharsetEncoding() throws Exception {
+        Random random = new Random(42);
+        for (int i = 0; i < 1000; i++) {
+            // random length spanning the internal buffer size, including unpaired surrogates
+            String input = randomString(random, random.nextInt(20_000));
+            assertThat(sha256(input)).isEqualTo(referenceSha256(input));
+            assertThat(normalizedSha256(input)).isEqualTo(referenceSha256(input.replaceAll("\\s+", " ")));
+        }
+    }
+
+    @Test
+    public void testNormalizedSha256() {
+        assertThat(normalizedSha256(SOURCE)).isEqualTo(sha256(normalize(SOURCE)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNormalizedSha256Null() {
+        normalizedSha256((CharSequence) null);
+    }
+
+    @Test
+    public void testNormalizedSha256InputStream() throws IOException {
+        ByteArrayInputStream input = new ByteArrayInputStream(SOURCE.getBytes(StandardCharsets.UTF_8));
+        assertThat(normalizedSha256(input)).isEqualTo(normalizedSha256(SOURCE));
+    }
+
+    @Test
+    public void testNormalizedSha256Channel() throws IOException {
+        ByteArrayInputStream input = new ByteArrayInputStream(SOURCE.getBytes(StandardCharsets.UTF_8));
+        assertThat(normalizedSha256(Channels.newChannel(input))).isEqualTo(normalizedSha256(SOURCE));
+    }
+
+    @Test
+    public void testNormalizedSha256ByteBuffer() {
+        ByteBuffer input = ByteBuffer.wrap(SOURCE.getBytes(StandardCharsets.UTF_8));
+        assertThat(normalizedSha256(input)).isEqualTo(normalizedSha256(SOURCE));
+        assertThat(input.hasRemaining()).isFalse();
+    }
+
+    @Test
+    public void testNormalizedSha256Path() throws IOException {
+        Path file = tempFolder.newFile().toPath();
+        Files.write(file, SOURCE.getBytes(StandardCharsets.UTF_8));
+        assertThat(normalizedSha256(file)).isEqualTo(normalizedSha256(SOURCE));
+    }
+
+    @Test
+    public void testNormalizedSha256MappedPath() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        while (sb.length() < 100_000) {
+            sb.append(SOURCE);
+        }
+        Path file = tempFolder.newFile().toPath();
+        Files.write(file, sb.toString().getBytes(StandardCharsets.UTF_8));
+        assertThat(normalizedSha256(file)).isEqualTo(normalizedSha256(sb));
+    }
+
+    @Test
+    public void testByteArrayToHexAllValues() {
+        byte[] bytes = {0, 15, 16, 127, -128, -1};
+        assertThat(byteArrayToHex(bytes)).isEqualTo("000f107f80ff");
+    }
+
     @Test
     public void testByteArrayToHex() {
         byte[] bytes = new byte[] {4, 2};
@@ -71,4 +155,22 @@ public class ChecksumUtilsTest {
         String actual = normalize(input);
         assertThat(actual).isNull();
     }
+
+    private static String randomString(Random random, int length) {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = ALPHABET[random.nextInt(ALPHABET.length)];
+        }
+        return new String(chars);
+    }
+
+    private static String referenceSha256(String input) throws NoSuchAlgorithmException {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        digest.update(StandardCharsets.UTF_8.encode(input));
+        StringBuilder sb = new StringBuilder();
+        for (byte b : digest.digest()) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
 }
@@ -16,12 +16,16 @@
 package io.github.diamongo.integrationtests;
 
 import com.google.common.collect.ImmutableMap;
+import com.mongodb.MongoClient;
 import io.github.diamongo.core.migration.JavaMigrations;
 import io.github.diamongo.core.migration.Migration;
+import io.github.diamongo.core.migration.MigrationLoader;
+import io.github.diamongo.core.migration.MigrationRepository;
 import io.github.diamongo.core.migration.MigrationWrapper;
 import io.github.diamongo.core.migration.MigrationWrappers;
 import org.junit.Test;
 
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.Map;
 
@@ -51,6 +55,27 @@ public class CodeGenerationTest {
         assertThat(wrappers).hasSize(2);
     }
 
+    @Test
+    public void testWrappersSortedByName() throws Exception {
+        assertThat(wrappers.stream().map(MigrationWrapper::getName))
+                .containsExactly(V1_0__TestChangeSet.class.getName(), V2_0__TestChangeSet.class.getName());
+    }
+
+    @Test
+    public void testIndexMatchesGeneratedClass() throws Exception {
+        MigrationWrappers indexed;
+        // the client connects lazily, so no server is required
+        try (MongoClient client = new MongoClient()) {
+            MigrationRepository repository = new MigrationRepository(client.getDatabase("diamongo"));
+            indexed = new MigrationLoader(repository, null, Collections.emptyList()).loadMigrationWrappers();
+        }
+
+        assertThat(indexed.stream().map(MigrationWrapper::getName))
+                .containsExactlyElementsOf(wrappers.stream().map(MigrationWrapper::getName)::iterator);
+        assertThat(indexed.stream().map(MigrationWrapper::getChecksum))
+                .containsExactlyElementsOf(wrappers.stream().map(MigrationWrapper::getChecksum)::iterator);
+    }
+
     @Test
     public void testWrappersIterator() throws Exception {
         Iterator<MigrationWrapper> wrappersIter = wrappers.iterator();